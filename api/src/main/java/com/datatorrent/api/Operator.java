@@ -99,6 +99,43 @@ public interface Operator extends Component<OperatorContext>, GenericOperator
 
   }
 
+  /**
+   * A unifier whose aggregate of a window can be computed from partial aggregates of parts of the window.
+   * When the output of a port is aggregated over sliding windows, the engine accumulates the tuples of each
+   * streaming window into a partial aggregate and hands the partials of all the streaming windows in the sliding
+   * window to the unifier, instead of keeping and replaying all the tuples of the sliding window to the unifier
+   * each time the window slides.
+   *
+   * @param <T> Type of the tuple emitted by the output port which is being unified
+   * @param <P> Type of the partial aggregate, it is part of the checkpointed state
+   */
+  interface CombinableUnifier<T, P> extends Unifier<T>
+  {
+    /**
+     * @return partial aggregate of no tuples
+     */
+    P newPartial();
+
+    /**
+     * Adds a tuple to a partial aggregate.
+     *
+     * @param partial partial aggregate, may be modified
+     * @param tuple tuple to add
+     * @return partial aggregate that includes the tuple
+     */
+    P accumulate(P partial, T tuple);
+
+    /**
+     * Adds a partial aggregate to the aggregate of the current window, as if the tuples of the partial were
+     * processed. Called between {@link #beginWindow(long)} and {@link #endWindow()} in place of
+     * {@link #process(Object)}, once for every partial of the sliding window.
+     *
+     * @param partial partial aggregate, must not be modified since it is added again to the following windows
+     */
+    void processPartial(P partial);
+
+  }
+
   /**
    * DelayOperator is an operator of which the outgoing streaming window id is incremented by *one* by the
    * engine, thus allowing loops in the "DAG". The output ports of a DelayOperator, if connected, *must*
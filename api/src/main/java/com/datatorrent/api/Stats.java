@@ -40,12 +40,24 @@ public interface Stats extends Serializable
   {
     public long checkpointStartTime;
     public long checkpointTime;
+    /**
+     * Part of {@link #checkpointTime} spent by the operator thread in {@link StorageAgent#save}, which serializes the
+     * operator. Writes of asynchronous storage agents that happen after save returned are not included.
+     */
+    public long checkpointSerializationTime;
 
     @Override
     public String toString()
     {
-      return "CheckpointStats{" + "checkpointStartTime=" + checkpointStartTime + ", checkpointTime=" + checkpointTime + '}';
+      return "CheckpointStats{" + "checkpointStartTime=" + checkpointStartTime + ", checkpointTime=" + checkpointTime +
+          ", checkpointSerializationTime=" + checkpointSerializationTime + '}';
     }
+
+    /**
+     * Computed value of the class before checkpointSerializationTime was added, keeps snapshots of earlier versions
+     * readable.
+     */
+    private static final long serialVersionUID = -4236150330857963791L;
   }
 
   public static class OperatorStats implements Stats
@@ -76,6 +88,10 @@ public interface Stats extends Serializable
       public long endWindowTimestamp;
       public long bufferServerBytes;
       public int queueSize;
+      /**
+       * Time in milliseconds an output port spent waiting for the connection to the buffer server to accept tuples
+       */
+      public long sendBlockedMillis;
       /**
        * If there is a recording on the port, this contains the recording id, otherwise null
        */
@@ -89,7 +105,7 @@ public interface Stats extends Serializable
       @Override
       public String toString()
       {
-        return "PortStats{" + "portname=" + id + ", processedCount=" + tupleCount + ", bufferServerBytes = " + bufferServerBytes + ", queueSize = " + queueSize + ", endWindowTimestamp=" + endWindowTimestamp + '}';
+        return "PortStats{" + "portname=" + id + ", processedCount=" + tupleCount + ", bufferServerBytes = " + bufferServerBytes + ", queueSize = " + queueSize + ", sendBlockedMillis = " + sendBlockedMillis + ", endWindowTimestamp=" + endWindowTimestamp + '}';
       }
 
     }
@@ -95,4 +95,23 @@ public interface StorageAgent
     public void setApplicationAttributes(AttributeMap map);
   }
 
+  /**
+   * Storage agent that stores checkpoints incrementally, as the difference to an earlier checkpoint of the same
+   * operator. {@link #load(int, long)} reconstructs the complete state and {@link #delete(int, long)} retains the data
+   * of deleted checkpoints as long as later checkpoints depend on it.
+   */
+  public interface IncrementalStorageAgent extends StorageAgent
+  {
+    /**
+     * Save the complete state of the object independent of any earlier checkpoint of the operator. Later checkpoints
+     * of the operator may be stored relative to this one.
+     *
+     * @param object - The operator whose state needs to be saved.
+     * @param operatorId - Identifier of the operator.
+     * @param windowId - Identifier for the specific state of the operator.
+     * @throws IOException
+     */
+    public void saveSnapshot(Object object, int operatorId, long windowId) throws IOException;
+  }
+
 }
@@ -48,9 +48,19 @@ public abstract class Subscriber extends AuthClient
 
   public void activate(final String version, final String type, final String sourceId, final int mask,
       final Collection<Integer> partitions, final long windowId, final int bufferSize)
+  {
+    activate(version, type, sourceId, mask, partitions, windowId, bufferSize, null);
+  }
+
+  /**
+   * @param policy name of the policy that distributes the tuples to the subscribers of the group, see
+   * {@link com.datatorrent.bufferserver.policy.LeastBacklog}, null to send all tuples to all subscribers
+   */
+  public void activate(final String version, final String type, final String sourceId, final int mask,
+      final Collection<Integer> partitions, final long windowId, final int bufferSize, final String policy)
   {
     sendAuthenticate();
-    write(getSerializedRequest(version, id, type, sourceId, mask, partitions, windowId, bufferSize));
+    write(getSerializedRequest(version, id, type, sourceId, mask, partitions, windowId, bufferSize, policy));
   }
 
   @Override
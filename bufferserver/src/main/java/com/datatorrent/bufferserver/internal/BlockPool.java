@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of fixed size memory blocks shared by all {@link DataList}s of a buffer server.
+ * <p>
+ * Blocks of purged windows are returned to the pool instead of being left for the garbage collector, and the next
+ * {@link DataList} that needs a block takes it from the pool. Buffer server blocks are large (64MB by default) and are
+ * allocated directly in the old generation, so recycling them avoids both the allocation cost and the full
+ * collections needed to reclaim them.
+ * <p>
+ * The pool retains at most {@link #getCapacity()} free blocks, blocks released above the capacity and blocks of
+ * a different size are left for the garbage collector.
+ */
+public class BlockPool
+{
+  private final int blockSize;
+  private final ArrayBlockingQueue<byte[]> freeBlocks;
+  private final AtomicLong allocatedCount = new AtomicLong();
+  private final AtomicLong reusedCount = new AtomicLong();
+
+  /**
+   * @param blockSize size of the blocks in the pool
+   * @param capacity maximum number of free blocks retained by the pool
+   */
+  public BlockPool(final int blockSize, final int capacity)
+  {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Invalid block size " + blockSize);
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Invalid block pool capacity " + capacity);
+    }
+    this.blockSize = blockSize;
+    freeBlocks = new ArrayBlockingQueue<>(capacity);
+  }
+
+  public int getBlockSize()
+  {
+    return blockSize;
+  }
+
+  public int getCapacity()
+  {
+    return freeBlocks.size() + freeBlocks.remainingCapacity();
+  }
+
+  /**
+   * Takes a free block from the pool or allocates a new one if the pool is empty.
+   *
+   * @return block of {@link #getBlockSize()} bytes
+   */
+  public byte[] acquire()
+  {
+    final byte[] block = freeBlocks.poll();
+    if (block == null) {
+      allocatedCount.incrementAndGet();
+      return new byte[blockSize];
+    }
+    reusedCount.incrementAndGet();
+    return block;
+  }
+
+  /**
+   * Returns a block to the pool. The caller must guarantee that the block is not referenced anymore.
+   *
+   * @param block block to return
+   * @return true if the block was retained by the pool, false if it was left for the garbage collector
+   */
+  public boolean release(final byte[] block)
+  {
+    if (block == null || block.length != blockSize) {
+      return false;
+    }
+    if (freeBlocks.offer(block)) {
+      return true;
+    }
+    logger.debug("Block pool {} is full, block is left for garbage collection", this);
+    return false;
+  }
+
+  /**
+   * @return number of free blocks currently held by the pool
+   */
+  public int getFreeBlockCount()
+  {
+    return freeBlocks.size();
+  }
+
+  /**
+   * @return number of blocks allocated because the pool was empty
+   */
+  public long getAllocatedCount()
+  {
+    return allocatedCount.get();
+  }
+
+  /**
+   * @return number of blocks served from the pool
+   */
+  public long getReusedCount()
+  {
+    return reusedCount.get();
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getName() + '@' + Integer.toHexString(hashCode()) + "{blockSize=" + blockSize +
+        ", free=" + freeBlocks.size() + ", capacity=" + getCapacity() + ", allocated=" + allocatedCount +
+        ", reused=" + reusedCount + '}';
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(BlockPool.class);
+}
@@ -55,9 +55,9 @@ import static com.google.common.collect.Sets.newHashSet;
  */
 public class DataList
 {
-  private final int MAX_COUNT_OF_INMEM_BLOCKS;
   protected final String identifier;
   private final int blockSize;
+  private final BlockPool blockPool;
   private final HashMap<BitVector, HashSet<DataListener>> listeners = newHashMap();
   protected final HashSet<DataListener> all_listeners = newHashSet();
   protected Block first;
@@ -69,20 +69,44 @@ public class DataList
   protected int processingOffset;
   protected long baseSeconds;
   private final Set<AbstractClient> suspendedClients = newHashSet();
-  private final AtomicInteger numberOfInMemBlockPermits;
+  private final MemoryBudget.Account memory;
   private MutableInt nextOffset = new MutableInt();
   private Future<?> future;
 
   public DataList(final String identifier, final int blockSize, final int numberOfCacheBlocks)
   {
-    if (numberOfCacheBlocks < 1) {
-      throw new IllegalArgumentException("Invalid number of Data List Memory blocks " + numberOfCacheBlocks);
-    }
-    this.MAX_COUNT_OF_INMEM_BLOCKS = numberOfCacheBlocks;
-    numberOfInMemBlockPermits = new AtomicInteger(MAX_COUNT_OF_INMEM_BLOCKS - 1);
+    this(identifier, blockSize, numberOfCacheBlocks, null);
+  }
+
+  /**
+   * @param identifier identifier of the publisher
+   * @param blockSize size of the memory blocks
+   * @param numberOfCacheBlocks number of memory blocks to keep in memory before spooling
+   * @param blockPool pool to take the memory blocks from and return them to, null to allocate a new block each time
+   */
+  public DataList(final String identifier, final int blockSize, final int numberOfCacheBlocks,
+      final BlockPool blockPool)
+  {
+    this(identifier, blockSize, new MemoryBudget(numberOfCacheBlocks), blockPool);
+  }
+
+  /**
+   * @param identifier identifier of the publisher
+   * @param blockSize size of the memory blocks
+   * @param memoryBudget number of memory blocks to keep in memory before spooling, shared with other data lists
+   * @param blockPool pool to take the memory blocks from and return them to, null to allocate a new block each time
+   */
+  public DataList(final String identifier, final int blockSize, final MemoryBudget memoryBudget,
+      final BlockPool blockPool)
+  {
     this.identifier = identifier;
     this.blockSize = blockSize;
-    first = last = new Block(identifier, blockSize);
+    this.blockPool = blockPool != null && blockPool.getBlockSize() == blockSize ? blockPool : null;
+    if (blockPool != null && this.blockPool == null) {
+      logger.warn("Ignoring block pool {} as its block size does not match {}", blockPool, blockSize);
+    }
+    first = last = new Block(identifier, newBuffer(blockSize));
+    memory = memoryBudget.open(this);
   }
 
   public DataList(String identifier)
@@ -142,9 +166,7 @@ public class DataList
      *  block.
      */
 
-    final int numberOfInMemBlockPermits = this.numberOfInMemBlockPermits.addAndGet(numberOfInMemBlockRewound);
-    assert numberOfInMemBlockPermits < MAX_COUNT_OF_INMEM_BLOCKS : "Number of in memory block permits " +
-        numberOfInMemBlockPermits + " exceeded configured maximum " + MAX_COUNT_OF_INMEM_BLOCKS + '.';
+    final int numberOfInMemBlockPermits = memory.release(numberOfInMemBlockRewound);
     resumeSuspendedClients(numberOfInMemBlockPermits);
     logger.debug("Discarded {} in memory blocks during rewind. Number of in memory blocks permits {} after" +
         " rewinding {}.", numberOfInMemBlockRewound, numberOfInMemBlockPermits, this);
@@ -173,7 +195,16 @@ public class DataList
       }
       first = last;
     }
-    numberOfInMemBlockPermits.set(MAX_COUNT_OF_INMEM_BLOCKS - 1);
+    memory.reset();
+  }
+
+  /**
+   * Returns the memory blocks of the data list to the memory budget it shares with the other data lists of the
+   * server. The data list must not be written after it is closed.
+   */
+  public void close()
+  {
+    memory.close();
   }
 
   public void purge(final int baseSeconds, final int windowId)
@@ -200,6 +231,7 @@ public class DataList
             throw new IllegalStateException("Discarded block " + temp + " has positive reference count!");
           }
           if (temp.data != null) {
+            recycle(temp.data);
             temp.data = null;
             numberOfInMemBlockPurged++;
           }
@@ -207,9 +239,7 @@ public class DataList
       }
     }
 
-    final int numberOfInMemBlockPermits = this.numberOfInMemBlockPermits.addAndGet(numberOfInMemBlockPurged);
-    assert numberOfInMemBlockPermits < MAX_COUNT_OF_INMEM_BLOCKS : "Number of in memory block permits " +
-        numberOfInMemBlockPermits + " exceeded configured maximum " + MAX_COUNT_OF_INMEM_BLOCKS + '.';
+    final int numberOfInMemBlockPermits = memory.release(numberOfInMemBlockPurged);
     resumeSuspendedClients(numberOfInMemBlockPermits);
     logger.debug("Discarded {} in memory blocks during purge. Number of in memory blocks permits {} after purging {}. ",
         numberOfInMemBlockPurged, numberOfInMemBlockPermits, this);
@@ -247,7 +277,8 @@ public class DataList
       processingOffset = nextOffset.integer;
 
       if (processingOffset + size <= writeOffset) {
-        switch (last.data[processingOffset]) {
+        final byte type = last.data[processingOffset];
+        switch (type) {
           case MessageType.BEGIN_WINDOW_VALUE:
             Tuple bwt = Tuple.getTuple(last.data, processingOffset, size);
             if (last.starting_window == -1) {
@@ -258,11 +289,19 @@ public class DataList
               last.ending_window = baseSeconds | bwt.getWindowId();
               //logger.debug("assigned last window id {}", last);
             }
+            last.index.add(type, processingOffset - VarInt.getSize(size), baseSeconds | bwt.getWindowId());
             break;
 
           case MessageType.RESET_WINDOW_VALUE:
             Tuple rwt = Tuple.getTuple(last.data, processingOffset, size);
             baseSeconds = (long)rwt.getBaseSeconds() << 32;
+            last.index.add(type, processingOffset - VarInt.getSize(size), baseSeconds);
+            break;
+
+          case MessageType.CHECKPOINT_VALUE:
+          case MessageType.CODEC_STATE_VALUE:
+          case MessageType.END_STREAM_VALUE:
+            last.index.add(type, processingOffset - VarInt.getSize(size), 0);
             break;
 
           default:
@@ -330,6 +369,15 @@ public class DataList
     return block.next;
   }
 
+  /**
+   * Returns an iterator positioned for a subscriber that skips all windows up to and including the given one. The
+   * iterator starts at the block that contains the first window past the given one and seeks within the block using
+   * the block {@link WindowIndex}, returning the reset window and other tuples that need to be delivered to the
+   * subscriber from the skipped part of the block first.
+   *
+   * @param windowId last window the subscriber skips
+   * @return iterator
+   */
   public DataListIterator newIterator(long windowId)
   {
     //logger.debug("request for a new iterator {} and {}", identifier, windowId);
@@ -341,7 +389,9 @@ public class DataList
       temp = temp.next;
     }
     //logger.debug("returning new iterator on temp = {}", temp);
-    return getIterator(temp);
+    final DataListIterator iterator = getIterator(temp);
+    iterator.seek(windowId);
+    return iterator;
   }
 
   public void addDataListener(DataListener dl)
@@ -417,7 +467,7 @@ public class DataList
 
   public boolean isMemoryBlockAvailable()
   {
-    return (storage == null) || (numberOfInMemBlockPermits.get() > 0);
+    return (storage == null) || (memory.getPermits() > 0);
   }
 
   public byte[] newBuffer(final int size)
@@ -427,12 +477,31 @@ public class DataList
           "Proceeding with allocating larger block that may cause out of memory exception.", size, blockSize);
       return new byte[size];
     }
-    return new byte[blockSize];
+    return blockPool == null ? new byte[blockSize] : blockPool.acquire();
+  }
+
+  /**
+   * Returns the memory block that is no longer referenced by any block of this data list back to the block pool.
+   * Subscriber connections queue slices of the memory blocks for sending, so only blocks of purged windows, that are
+   * guaranteed to be delivered, can be recycled. Blocks that are rewound or spooled are left for the garbage collector.
+   *
+   * @param array memory block to be recycled
+   */
+  private void recycle(final byte[] array)
+  {
+    if (blockPool != null && array != null) {
+      blockPool.release(array);
+    }
+  }
+
+  public BlockPool getBlockPool()
+  {
+    return blockPool;
   }
 
   public synchronized void addBuffer(byte[] array)
   {
-    final int numberOfInMemBlockPermits = this.numberOfInMemBlockPermits.decrementAndGet();
+    final int numberOfInMemBlockPermits = memory.write(getLaggingBlockCount());
     if (numberOfInMemBlockPermits < 0) {
       logger.warn("Exceeded allowed memory block allocation by {}", -numberOfInMemBlockPermits);
     }
@@ -441,6 +510,20 @@ public class DataList
     last = last.next;
   }
 
+  /**
+   * @return number of blocks before the last block that the slowest subscriber still has to read
+   */
+  private int getLaggingBlockCount()
+  {
+    int count = 0;
+    for (Block b = first; b != last; b = b.next) {
+      if (count > 0 || b.refCount.get() > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   public byte[] getBuffer(long windowId)
   {
     //logger.debug("getBuffer windowid = {} when starting_window = {}", windowId, last.starting_window);
@@ -461,6 +544,18 @@ public class DataList
   {
     public long numBytesWaiting = 0;
     public long numBytesAllocated = 0;
+    public int numBlocksPooled = 0;
+    public long numBytesPooled = 0;
+    /**
+     * number of blocks the data list keeps in memory and the number of blocks it may keep before it spools
+     */
+    public int numBlocksInMemory = 0;
+    public int numBlocksBudgeted = 0;
+    /**
+     * number of blocks all data lists of the server keep in memory and may keep in total
+     */
+    public int numBlocksServerInMemory = 0;
+    public int numBlocksServerBudget = 0;
     public String slowestConsumer;
   }
 
@@ -500,7 +595,9 @@ public class DataList
     b = first;
     i = 0;
     while (b != null) {
-      status.numBytesAllocated += b.data.length;
+      if (b.data != null) {
+        status.numBytesAllocated += b.data.length;
+      }
       if (oldestBlockIndex == i) {
         status.numBytesWaiting += b.writingOffset - oldestReadOffset;
       } else if (oldestBlockIndex < i) {
@@ -509,6 +606,15 @@ public class DataList
       b = b.next;
       ++i;
     }
+
+    status.numBlocksInMemory = memory.getAllocated();
+    status.numBlocksBudgeted = memory.getLimit();
+    status.numBlocksServerInMemory = memory.getBudget().getAllocatedCount();
+    status.numBlocksServerBudget = memory.getBudget().getCapacity();
+    if (blockPool != null) {
+      status.numBlocksPooled = blockPool.getFreeBlockCount();
+      status.numBytesPooled = (long)status.numBlocksPooled * blockPool.getBlockSize();
+    }
     return status;
   }
 
@@ -559,6 +665,14 @@ public class DataList
      */
     private final AtomicInteger refCount;
     private Future<?> future;
+    /**
+     * index of the windows in the data array.
+     */
+    final WindowIndex index = new WindowIndex(Math.max(blockSize >> 10, 1));
+    /**
+     * offset the data array was spooled from, the offsets in the index are relative to the retrieved array minus it.
+     */
+    private int spooledOffset;
 
     public Block(String id, int size)
     {
@@ -623,6 +737,7 @@ public class DataList
           }
         }
       }
+      index.truncate(writingOffset);
 
       if (starting_window == -1) {
         starting_window = windowId;
@@ -668,15 +783,21 @@ public class DataList
                    * Restore the last Reset tuple if there was any and adjust the writingOffset to the beginning of
                    * the reset tuple.
                    */
+                  boolean restored = false;
                   if (sd.offset >= lastReset.length) {
                     sd.offset -= lastReset.length;
                     if (!(sd.buffer == lastReset.buffer && sd.offset == lastReset.offset)) {
                       System.arraycopy(lastReset.buffer, lastReset.offset, sd.buffer, sd.offset, lastReset.length);
                     }
+                    restored = true;
                   }
 
                   this.starting_window = bs | bwt.getWindowId();
                   this.readingOffset = sd.offset;
+                  index.trim(readingOffset);
+                  if (restored) {
+                    index.restore(MessageType.RESET_WINDOW_VALUE, readingOffset, bs);
+                  }
                   //logger.debug("assigned starting window id {}", this);
                 }
 
@@ -702,10 +823,13 @@ public class DataList
           this.readingOffset = this.writingOffset - lastReset.length;
           System.arraycopy(lastReset.buffer, lastReset.offset, this.data, this.readingOffset, lastReset.length);
           this.starting_window = this.ending_window = bs;
+          index.truncate(0);
+          index.restore(MessageType.RESET_WINDOW_VALUE, readingOffset, bs);
           //logger.debug("=20140220= reassign the windowids {}", this);
         } else {
           this.readingOffset = this.writingOffset;
           this.starting_window = this.ending_window = longWindowId;
+          index.truncate(0);
           //logger.debug("=20140220= avoid the windowids {}", this);
         }
 
@@ -741,11 +865,13 @@ public class DataList
           byte[] data = storage.retrieve(identifier, uniqueIdentifier);
           synchronized (Block.this) {
             if (Block.this.data == null) {
+              index.shift(-spooledOffset);
+              spooledOffset = 0;
               Block.this.data = data;
               readingOffset = 0;
               writingOffset = data.length;
               Block.this.notifyAll();
-              int numberOfInMemBlockPermits = DataList.this.numberOfInMemBlockPermits.decrementAndGet();
+              int numberOfInMemBlockPermits = memory.load();
               if (numberOfInMemBlockPermits < 0) {
                 logger.warn("Exceeded allowed memory block allocation by {}", -numberOfInMemBlockPermits);
               }
@@ -802,21 +928,20 @@ public class DataList
         {
           if (uniqueIdentifier == 0) {
             uniqueIdentifier = storage.store(identifier, data, readingOffset, writingOffset);
+            spooledOffset = readingOffset;
           }
           if (uniqueIdentifier == 0) {
             logger.warn("Storage returned unexpectedly, please check the status of the spool directory!");
           } else {
-            int numberOfInMemBlockPermits = DataList.this.numberOfInMemBlockPermits.get();
+            int numberOfInMemBlockPermits = memory.getPermits();
             synchronized (Block.this) {
               if (refCount.get() == 0 && Block.this.data != null) {
                 Block.this.data = null;
-                numberOfInMemBlockPermits = DataList.this.numberOfInMemBlockPermits.incrementAndGet();
+                numberOfInMemBlockPermits = memory.release(1);
               } else {
                 logger.debug("Keeping Block {} unchanged", Block.this);
               }
             }
-            assert numberOfInMemBlockPermits < MAX_COUNT_OF_INMEM_BLOCKS : "Number of in memory block permits " +
-                numberOfInMemBlockPermits + " exceeded configured maximum " + MAX_COUNT_OF_INMEM_BLOCKS + '.';
             resumeSuspendedClients(numberOfInMemBlockPermits);
           }
         }
@@ -832,11 +957,11 @@ public class DataList
         if (future != null && future.cancel(false)) {
           logger.debug("Block {} future is cancelled", this);
         }
-        final int numberOfInMemBlockPermits = DataList.this.numberOfInMemBlockPermits.get();
-        if (wait && numberOfInMemBlockPermits == 0) {
+        final int numberOfInMemBlockPermits = memory.getPermits();
+        if (wait && numberOfInMemBlockPermits <= 0) {
           future = null;
           storer.run();
-        } else if (numberOfInMemBlockPermits < MAX_COUNT_OF_INMEM_BLOCKS / 2) {
+        } else if (numberOfInMemBlockPermits < memory.getLimit() / 2) {
           future = storageExecutor.submit(storer);
         } else {
           future = null;
@@ -906,6 +1031,11 @@ public class DataList
     protected int readOffset;
     MutableInt nextOffset = new MutableInt();
     int size;
+    /**
+     * offsets of the tuples to return after a seek, the last one is the offset the iteration continues from.
+     */
+    private int[] seekOffsets;
+    private int seekIndex;
 
     /**
      *
@@ -982,6 +1112,17 @@ public class DataList
       return false;
     }
 
+    /**
+     * Returns the element that the next call to {@link #next()} returns without advancing the iterator. Valid only
+     * after {@link #hasNext()} returned true.
+     *
+     * @return {@link com.datatorrent.bufferserver.util.SerializedData}
+     */
+    SerializedData peek()
+    {
+      return current;
+    }
+
     /**
      *
      * @return {@link com.datatorrent.bufferserver.util.SerializedData}
@@ -991,9 +1132,35 @@ public class DataList
     {
       readOffset = current.offset + current.length;
       size = 0;
+      if (seekOffsets != null) {
+        readOffset = seekOffsets[seekIndex++];
+        if (seekIndex == seekOffsets.length) {
+          seekOffsets = null;
+        }
+      }
       return current;
     }
 
+    /**
+     * Skips the windows of the current block up to the last indexed begin window that is not later than the given
+     * window. The reset window, checkpoint, codec state and end stream tuples of the skipped part are still returned,
+     * followed by the tuples from the begin window on.
+     *
+     * @param windowId last window that can be skipped
+     */
+    void seek(long windowId)
+    {
+      final int[] offsets = da.index.seek(windowId, readOffset);
+      if (offsets != null && offsets[offsets.length - 1] > readOffset) {
+        size = 0;
+        readOffset = offsets[0];
+        if (offsets.length > 1) {
+          seekOffsets = offsets;
+          seekIndex = 1;
+        }
+      }
+    }
+
     /**
      * Removes from the underlying collection the last element returned by the iterator (optional operation). This
      * method can be called only once per call to next. The behavior of an iterator is unspecified if the underlying
@@ -1019,6 +1186,7 @@ public class DataList
     {
       readOffset = processingOffset;
       size = 0;
+      seekOffsets = null;
     }
 
     @Override
@@ -42,6 +42,16 @@ public class FastDataList extends DataList
     super(identifier, blocksize, numberOfCacheBlocks);
   }
 
+  public FastDataList(String identifier, int blocksize, int numberOfCacheBlocks, BlockPool blockPool)
+  {
+    super(identifier, blocksize, numberOfCacheBlocks, blockPool);
+  }
+
+  public FastDataList(String identifier, int blocksize, MemoryBudget memoryBudget, BlockPool blockPool)
+  {
+    super(identifier, blocksize, memoryBudget, blockPool);
+  }
+
   long item;
 
   @Override
@@ -66,7 +76,8 @@ public class FastDataList extends DataList
       processingOffset += 2;
 
       if (processingOffset + size <= writeOffset) {
-        switch (last.data[processingOffset]) {
+        final byte type = last.data[processingOffset];
+        switch (type) {
           case MessageType.BEGIN_WINDOW_VALUE:
             Tuple btw = Tuple.getTuple(last.data, processingOffset, size);
             if (last.starting_window == -1) {
@@ -75,11 +86,19 @@ public class FastDataList extends DataList
             } else {
               last.ending_window = baseSeconds | btw.getWindowId();
             }
+            last.index.add(type, processingOffset - 2, baseSeconds | btw.getWindowId());
             break;
 
           case MessageType.RESET_WINDOW_VALUE:
             Tuple rwt = Tuple.getTuple(last.data, processingOffset, size);
             baseSeconds = (long)rwt.getBaseSeconds() << 32;
+            last.index.add(type, processingOffset - 2, baseSeconds);
+            break;
+
+          case MessageType.CHECKPOINT_VALUE:
+          case MessageType.CODEC_STATE_VALUE:
+          case MessageType.END_STREAM_VALUE:
+            last.index.add(type, processingOffset - 2, 0);
             break;
 
           default:
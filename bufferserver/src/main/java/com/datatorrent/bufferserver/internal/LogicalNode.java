@@ -18,6 +18,7 @@
  */
 package com.datatorrent.bufferserver.internal;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 
@@ -26,6 +27,8 @@ import org.slf4j.LoggerFactory;
 
 import com.datatorrent.bufferserver.internal.DataList.DataListIterator;
 import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.policy.GiveAll;
 import com.datatorrent.bufferserver.policy.Policy;
@@ -46,16 +49,39 @@ import com.datatorrent.netlet.EventLoop;
  */
 public class LogicalNode implements DataListener
 {
+  /**
+   * Largest mask shared by all partitions of a logical node for which the partitions are matched with a lookup table.
+   */
+  private static final int MAX_PARTITION_TABLE_MASK = 0xffff;
+  /**
+   * Largest backlog of a blocked physical node for which a policy that skips blocked nodes keeps sending to the
+   * other nodes of the group. The backlog of a skipped node grows with the control tuples that are sent to all nodes.
+   */
+  public static final int MAX_SKIPPED_BACKLOG = 64;
   private final String identifier;
   private final String upstream;
   private final String group;
   private final HashSet<PhysicalNode> physicalNodes;
+  /*
+   * nodes that joined the group after it caught up, they start to receive the data with the next window
+   */
+  private final ArrayList<PhysicalNode> joiningNodes;
   private final HashSet<BitVector> partitions;
-  private final Policy policy = GiveAll.getInstance();
+  /*
+   * matcher of the partitions, a lookup table indexed by the masked partition when all partitions share a narrow
+   * mask, otherwise the masks and bits of the partitions
+   */
+  private boolean[] partitionTable;
+  private int partitionTableMask;
+  private int[] partitionMasks;
+  private int[] partitionBits;
+  private Policy policy = GiveAll.getInstance();
   private final DataListIterator iterator;
   private final long skipWindowId;
   private long baseSeconds;
+  private int windowWidth;
   private boolean caughtup;
+  private int bulkTransferLimit;
 
   /**
    *
@@ -71,6 +97,7 @@ public class LogicalNode implements DataListener
     this.upstream = upstream;
     this.group = group;
     this.physicalNodes = new HashSet<PhysicalNode>();
+    this.joiningNodes = new ArrayList<PhysicalNode>();
     this.partitions = new HashSet<BitVector>();
     this.iterator = iterator;
     this.skipWindowId = skipWindowId;
@@ -101,12 +128,44 @@ public class LogicalNode implements DataListener
    */
   public void addConnection(AbstractLengthPrependerClient connection)
   {
-    PhysicalNode pn = new PhysicalNode(connection);
+    PhysicalNode pn = new PhysicalNode(connection, policy.skipsBlockedNodes());
     if (!physicalNodes.contains(pn)) {
       physicalNodes.add(pn);
     }
   }
 
+  /**
+   * Adds a connection to a group that is shared by the partitions of a port without disconnecting the physical nodes
+   * that are already in the group. A node that joins after the group caught up starts with the next window, it first
+   * receives a reset window with the current base seconds so that it can reconstruct the window ids.
+   *
+   * @param connection
+   */
+  public void joinConnection(AbstractLengthPrependerClient connection)
+  {
+    if (caughtup) {
+      PhysicalNode pn = new PhysicalNode(connection, policy.skipsBlockedNodes());
+      if (!physicalNodes.contains(pn) && !joiningNodes.contains(pn)) {
+        joiningNodes.add(pn);
+      }
+    } else {
+      addConnection(connection);
+      catchUp();
+    }
+  }
+
+  private void admitJoiningNodes()
+  {
+    if (!joiningNodes.isEmpty()) {
+      byte[] resetWindow = ResetWindowTuple.getSerializedTuple((int)(baseSeconds >>> 32), windowWidth);
+      for (PhysicalNode pn : joiningNodes) {
+        pn.send(new SerializedData(resetWindow, 0, resetWindow.length));
+        physicalNodes.add(pn);
+      }
+      joiningNodes.clear();
+    }
+  }
+
   /**
    *
    * @param client
@@ -116,7 +175,13 @@ public class LogicalNode implements DataListener
     for (PhysicalNode pn : physicalNodes) {
       if (pn.getClient() == client) {
         physicalNodes.remove(pn);
-        break;
+        return;
+      }
+    }
+    for (PhysicalNode pn : joiningNodes) {
+      if (pn.getClient() == client) {
+        joiningNodes.remove(pn);
+        return;
       }
     }
   }
@@ -128,25 +193,131 @@ public class LogicalNode implements DataListener
    */
   public void addPartition(int partition, int mask)
   {
-    partitions.add(new BitVector(partition, mask));
+    if (partitions.add(new BitVector(partition, mask))) {
+      buildPartitionMatcher();
+    }
+  }
+
+  private void buildPartitionMatcher()
+  {
+    int mask = 0;
+    boolean sharedMask = true;
+    partitionMasks = new int[partitions.size()];
+    partitionBits = new int[partitions.size()];
+    int i = 0;
+    for (BitVector bv : partitions) {
+      if (i == 0) {
+        mask = bv.getMask();
+      } else if (mask != bv.getMask()) {
+        sharedMask = false;
+      }
+      partitionMasks[i] = bv.getMask();
+      partitionBits[i++] = bv.getBits();
+    }
+
+    if (sharedMask && (mask & ~MAX_PARTITION_TABLE_MASK) == 0) {
+      partitionTableMask = mask;
+      partitionTable = new boolean[mask + 1];
+      for (int bits : partitionBits) {
+        partitionTable[bits] = true;
+      }
+    } else {
+      partitionTable = null;
+    }
+  }
+
+  private boolean matchesPartition(int partition)
+  {
+    if (partitionTable != null) {
+      return partitionTable[partition & partitionTableMask];
+    }
+    for (int i = partitionMasks.length; i-- > 0;) {
+      if ((partition & partitionMasks[i]) == partitionBits[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the maximum number of bytes that are sent to the physical nodes as a single slice. When the logical node
+   * does not filter partitions, contiguous tuples of a data list block are sent as one range instead of one slice
+   * per tuple, so replaying the retained data after a recovery does not pay the per tuple send overhead.
+   *
+   * @param bulkTransferLimit maximum size of a range in bytes, 0 to send tuple by tuple
+   */
+  public void setBulkTransferLimit(int bulkTransferLimit)
+  {
+    this.bulkTransferLimit = bulkTransferLimit;
+  }
+
+  /**
+   * Sets the policy that distributes the payload tuples to the physical nodes, control tuples are always sent to all
+   * physical nodes. When the policy skips blocked nodes, the group waits only when all physical nodes are blocked or
+   * one of them has more than {@link #MAX_SKIPPED_BACKLOG} tuples waiting.
+   *
+   * @param policy distribution policy of the payload tuples
+   */
+  public void setPolicy(Policy policy)
+  {
+    this.policy = policy;
+  }
+
+  public Policy getPolicy()
+  {
+    return policy;
   }
 
   boolean ready = true;
 
   public boolean isReady()
   {
-    if (!ready) {
+    if (!ready || policy.skipsBlockedNodes()) {
       ready = true;
       for (PhysicalNode pn : physicalNodes) {
         if (pn.isBlocked()) {
           ready = pn.unblock() & ready;
         }
       }
+      if (!ready && policy.skipsBlockedNodes()) {
+        ready = canSkipBlockedNodes();
+      }
     }
 
     return ready;
   }
 
+  private boolean canSkipBlockedNodes()
+  {
+    boolean unblocked = false;
+    for (PhysicalNode pn : physicalNodes) {
+      if (pn.getBacklog() > MAX_SKIPPED_BACKLOG) {
+        return false;
+      }
+      unblocked |= !pn.isBlocked();
+    }
+    return unblocked;
+  }
+
+  private boolean hasBlockedNodes()
+  {
+    for (PhysicalNode pn : physicalNodes) {
+      if (pn.isBlocked()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sends control tuples to all physical nodes.
+   */
+  private boolean distributeToAll(SerializedData data) throws InterruptedException
+  {
+    return GiveAll.getInstance().distribute(physicalNodes, data) ||
+        policy.skipsBlockedNodes() && canSkipBlockedNodes();
+  }
+
   // make it run a lot faster by tracking faster!
   /**
    *
@@ -185,10 +356,11 @@ public class LogicalNode implements DataListener
               Tuple tuple = Tuple.getTuple(data.buffer, data.dataOffset, data.length - data.dataOffset + data.offset);
               baseSeconds = (long)tuple.getBaseSeconds() << 32;
               intervalMillis = tuple.getWindowWidth();
+              windowWidth = intervalMillis;
               if (intervalMillis <= 0) {
                 logger.warn("Interval value set to non positive value = {}", intervalMillis);
               }
-              ready = GiveAll.getInstance().distribute(physicalNodes, data);
+              ready = distributeToAll(data);
               break;
 
             case MessageType.BEGIN_WINDOW_VALUE:
@@ -197,7 +369,7 @@ public class LogicalNode implements DataListener
                   Codec.getStringWindowId(baseSeconds | tuple.getWindowId()), Codec.getStringWindowId(skipWindowId));
               if ((baseSeconds | tuple.getWindowId()) > skipWindowId) {
                 logger.debug("caught up {}->{} skipping {} payload tuples", upstream, group, skippedPayloadTuples);
-                ready = GiveAll.getInstance().distribute(physicalNodes, data);
+                ready = distributeToAll(data);
                 caughtup = true;
                 break outer;
               }
@@ -206,7 +378,7 @@ public class LogicalNode implements DataListener
             case MessageType.CHECKPOINT_VALUE:
             case MessageType.CODEC_STATE_VALUE:
             case MessageType.END_STREAM_VALUE:
-              ready = GiveAll.getInstance().distribute(physicalNodes, data);
+              ready = distributeToAll(data);
               logger.debug("Message {} was distributed to {}", MessageType.valueOf(data.buffer[data.dataOffset]),
                   physicalNodes);
               break;
@@ -236,7 +408,9 @@ public class LogicalNode implements DataListener
           /*
            * consume as much data as you can before running out of steam
            */
-          if (partitions.isEmpty()) {
+          if (partitions.isEmpty() && bulkTransferLimit > 0 && !policy.skipsBlockedNodes() && joiningNodes.isEmpty()) {
+            sendRanges();
+          } else if (partitions.isEmpty()) {
             while (ready && iterator.hasNext()) {
               SerializedData data = iterator.next();
               switch (data.buffer[data.dataOffset]) {
@@ -249,31 +423,28 @@ public class LogicalNode implements DataListener
                   break;
 
                 case MessageType.RESET_WINDOW_VALUE:
-                  final int length = data.length - data.dataOffset + data.offset;
-                  Tuple resetWindow = Tuple.getTuple(data.buffer, data.dataOffset, length);
-                  baseSeconds = (long)resetWindow.getBaseSeconds() << 32;
-                  ready = GiveAll.getInstance().distribute(physicalNodes, data);
+                  resetBaseSeconds(data);
+                  ready = distributeToAll(data);
+                  break;
+
+                case MessageType.BEGIN_WINDOW_VALUE:
+                  admitJoiningNodes();
+                  ready = distributeToAll(data);
                   break;
 
                 default:
                   //logger.debug("sending data of type {}", MessageType.valueOf(data.buffer[data.dataOffset]));
-                  ready = GiveAll.getInstance().distribute(physicalNodes, data);
+                  ready = distributeToAll(data);
                   break;
               }
             }
           } else {
             while (ready && iterator.hasNext()) {
               SerializedData data = iterator.next();
-              final int length = data.length - data.dataOffset + data.offset;
               switch (data.buffer[data.dataOffset]) {
                 case MessageType.PAYLOAD_VALUE:
-                  Tuple tuple = Tuple.getTuple(data.buffer, data.dataOffset, length);
-                  int value = tuple.getPartition();
-                  for (BitVector bv : partitions) {
-                    if (bv.matches(value)) {
-                      ready = policy.distribute(physicalNodes, data);
-                      break;
-                    }
+                  if (matchesPartition(PayloadTuple.getPartition(data.buffer, data.dataOffset))) {
+                    ready = policy.distribute(physicalNodes, data);
                   }
                   break;
 
@@ -282,13 +453,17 @@ public class LogicalNode implements DataListener
                   break;
 
                 case MessageType.RESET_WINDOW_VALUE:
-                  tuple = Tuple.getTuple(data.buffer, data.dataOffset, length);
-                  baseSeconds = (long)tuple.getBaseSeconds() << 32;
-                  ready = GiveAll.getInstance().distribute(physicalNodes, data);
+                  resetBaseSeconds(data);
+                  ready = distributeToAll(data);
+                  break;
+
+                case MessageType.BEGIN_WINDOW_VALUE:
+                  admitJoiningNodes();
+                  ready = distributeToAll(data);
                   break;
 
                 default:
-                  ready = GiveAll.getInstance().distribute(physicalNodes, data);
+                  ready = distributeToAll(data);
                   break;
               }
             }
@@ -300,7 +475,72 @@ public class LogicalNode implements DataListener
         catchUp();
       }
     }
-    return !ready;
+    /* keep trying to unblock the skipped nodes */
+    return !ready || policy.skipsBlockedNodes() && hasBlockedNodes();
+  }
+
+  /**
+   * Sends contiguous tuples of the same block as ranges of up to {@link #bulkTransferLimit} bytes. The tuple that does
+   * not extend the current range is only consumed after the range was sent, so a blocked physical node keeps the
+   * range as its blocker and no data is lost.
+   *
+   * @throws InterruptedException
+   */
+  private void sendRanges() throws InterruptedException
+  {
+    SerializedData range = null;
+    while (ready && iterator.hasNext()) {
+      SerializedData data = iterator.peek();
+      final byte type = data.buffer[data.dataOffset];
+      if (range != null) {
+        if (type != MessageType.NO_MESSAGE_VALUE && type != MessageType.NO_MESSAGE_ODD_VALUE &&
+            data.buffer == range.buffer && data.offset == range.offset + range.length &&
+            data.offset != data.dataOffset && range.length + data.length <= bulkTransferLimit) {
+          iterator.next();
+          range.length += data.length;
+          if (type == MessageType.RESET_WINDOW_VALUE) {
+            resetBaseSeconds(data);
+          }
+        } else {
+          ready = policy.distribute(physicalNodes, range);
+          range = null;
+        }
+        continue;
+      }
+
+      data = iterator.next();
+      switch (type) {
+        case MessageType.NO_MESSAGE_VALUE:
+        case MessageType.NO_MESSAGE_ODD_VALUE:
+          break;
+
+        case MessageType.RESET_WINDOW_VALUE:
+          resetBaseSeconds(data);
+          range = data;
+          break;
+
+        default:
+          range = data;
+          break;
+      }
+
+      if (range != null && range.offset == range.dataOffset) {
+        /* the length is not part of the block, physical node prepends it and cannot send a range */
+        ready = policy.distribute(physicalNodes, range);
+        range = null;
+      }
+    }
+
+    if (range != null) {
+      ready = policy.distribute(physicalNodes, range);
+    }
+  }
+
+  private void resetBaseSeconds(SerializedData data)
+  {
+    Tuple resetWindow = Tuple.getTuple(data.buffer, data.dataOffset, data.length - data.dataOffset + data.offset);
+    baseSeconds = (long)resetWindow.getBaseSeconds() << 32;
+    windowWidth = resetWindow.getWindowWidth();
   }
 
   /**
@@ -321,7 +561,7 @@ public class LogicalNode implements DataListener
    */
   public final int getPhysicalNodeCount()
   {
-    return physicalNodes.size();
+    return physicalNodes.size() + joiningNodes.size();
   }
 
   /**
@@ -343,10 +583,14 @@ public class LogicalNode implements DataListener
 
   public void boot(EventLoop eventloop)
   {
-    for (PhysicalNode pn : physicalNodes) {
+    /* disconnecting a node on the event loop thread removes it from the group */
+    ArrayList<PhysicalNode> nodes = new ArrayList<PhysicalNode>(physicalNodes);
+    nodes.addAll(joiningNodes);
+    physicalNodes.clear();
+    joiningNodes.clear();
+    for (PhysicalNode pn : nodes) {
       eventloop.disconnect(pn.getClient());
     }
-    physicalNodes.clear();
   }
 
   @Override
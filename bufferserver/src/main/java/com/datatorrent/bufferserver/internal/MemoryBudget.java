@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Number of memory blocks the {@link DataList}s of a buffer server may keep in memory before they spool to disk.
+ * <p>
+ * The budget is shared by all data lists of the server. Every data list is guaranteed {@link #MIN_BLOCKS} blocks,
+ * or an even share of the budget when it does not cover that many blocks per data list, the rest of the budget is
+ * split between the data lists in proportion to their demand, which is the number of blocks written per
+ * {@link #REBALANCE_INTERVAL_MILLIS} and the number of blocks the slowest subscriber still has to read. A data list
+ * with a fast publisher or lagging subscribers gets the blocks an idle data list does not need. The shares are
+ * recomputed at most once per interval as blocks are allocated and released.
+ * <p>
+ * The shares add up to the budget. A data list always keeps the block it writes in memory though, so with more data
+ * lists than blocks each data list keeps one block and the budget is exceeded by the surplus data lists.
+ */
+public class MemoryBudget
+{
+  /**
+   * Number of blocks every data list may keep in memory when the budget covers them, one that is written and one
+   * that is read.
+   */
+  public static final int MIN_BLOCKS = 2;
+  public static final long REBALANCE_INTERVAL_MILLIS = 1000;
+
+  private final int capacity;
+  private final ArrayList<Account> accounts = new ArrayList<>();
+  private int allocated;
+  private long rebalanceMillis;
+
+  /**
+   * @param capacity number of blocks the data lists may keep in memory
+   */
+  public MemoryBudget(final int capacity)
+  {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Invalid number of memory blocks " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * @return number of blocks the data lists keep in memory
+   */
+  public synchronized int getAllocatedCount()
+  {
+    return allocated;
+  }
+
+  /**
+   * Opens the account of a data list, which starts with the block the data list is created with.
+   */
+  synchronized Account open(final DataList dataList)
+  {
+    final Account account = new Account(dataList);
+    accounts.add(account);
+    allocated += account.allocated;
+    rebalance(System.currentTimeMillis());
+    return account;
+  }
+
+  void rebalance(final long millis)
+  {
+    rebalanceMillis = millis;
+    final int count = accounts.size();
+    if (count == 0) {
+      return;
+    }
+
+    long demand = 0;
+    for (Account account : accounts) {
+      account.writeRate = (account.writeRate + account.writeCount) / 2;
+      account.writeCount = 0;
+      demand += account.writeRate + account.lag;
+    }
+
+    final int reserve = Math.max(Math.min(MIN_BLOCKS, capacity / count), 1);
+    final int spare = Math.max(capacity - reserve * count, 0);
+    for (Account account : accounts) {
+      final long share = demand == 0 ? spare / count : spare * (account.writeRate + account.lag) / demand;
+      account.limit = reserve + (int)share;
+    }
+    logger.debug("Rebalanced {}", this);
+  }
+
+  /**
+   * Resumes the publishers of the data lists that may allocate blocks again after the shares were recomputed.
+   */
+  private static void resume(final ArrayList<Account> accounts)
+  {
+    for (Account account : accounts) {
+      account.dataList.resumeSuspendedClients(account.getPermits());
+    }
+  }
+
+  private ArrayList<Account> rebalanceIfDue()
+  {
+    final long millis = System.currentTimeMillis();
+    if (millis - rebalanceMillis < REBALANCE_INTERVAL_MILLIS) {
+      return null;
+    }
+    rebalance(millis);
+    final ArrayList<Account> resumable = new ArrayList<>();
+    for (Account account : accounts) {
+      if (account.limit > account.allocated) {
+        resumable.add(account);
+      }
+    }
+    return resumable;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "{capacity=" + capacity + ", allocated=" + getAllocatedCount() +
+        ", accounts=" + accounts.size() + '}';
+  }
+
+  /**
+   * Blocks a data list keeps in memory and its share of the budget.
+   */
+  class Account
+  {
+    final DataList dataList;
+    int allocated = 1;
+    int limit = MIN_BLOCKS;
+    long writeCount;
+    long writeRate;
+    int lag;
+
+    Account(final DataList dataList)
+    {
+      this.dataList = dataList;
+    }
+
+    /**
+     * @return number of blocks the data list may allocate before it has to spool, negative if it keeps more blocks
+     * than its share
+     */
+    int getPermits()
+    {
+      synchronized (MemoryBudget.this) {
+        return limit - allocated;
+      }
+    }
+
+    MemoryBudget getBudget()
+    {
+      return MemoryBudget.this;
+    }
+
+    int getLimit()
+    {
+      synchronized (MemoryBudget.this) {
+        return limit;
+      }
+    }
+
+    int getAllocated()
+    {
+      synchronized (MemoryBudget.this) {
+        return allocated;
+      }
+    }
+
+    /**
+     * Accounts for a block that is written.
+     *
+     * @param lag number of blocks the slowest subscriber still has to read
+     * @return permits after the allocation
+     */
+    int write(final int lag)
+    {
+      final ArrayList<Account> resumable;
+      final int permits;
+      synchronized (MemoryBudget.this) {
+        this.lag = lag;
+        writeCount++;
+        allocated++;
+        MemoryBudget.this.allocated++;
+        resumable = rebalanceIfDue();
+        permits = limit - allocated;
+      }
+      if (resumable != null) {
+        resume(resumable);
+      }
+      return permits;
+    }
+
+    /**
+     * Accounts for a spooled block that is loaded back into memory.
+     *
+     * @return permits after the allocation
+     */
+    int load()
+    {
+      synchronized (MemoryBudget.this) {
+        allocated++;
+        MemoryBudget.this.allocated++;
+        return limit - allocated;
+      }
+    }
+
+    /**
+     * Accounts for blocks that are spooled, purged or discarded.
+     *
+     * @return permits after the release
+     */
+    int release(final int count)
+    {
+      final ArrayList<Account> resumable;
+      final int permits;
+      synchronized (MemoryBudget.this) {
+        allocated -= count;
+        MemoryBudget.this.allocated -= count;
+        assert allocated >= 0 : "Released more blocks than allocated by " + dataList;
+        resumable = rebalanceIfDue();
+        permits = limit - allocated;
+      }
+      if (resumable != null) {
+        resume(resumable);
+      }
+      return permits;
+    }
+
+    /**
+     * Accounts for a data list that is reset to the block it writes.
+     */
+    void reset()
+    {
+      synchronized (MemoryBudget.this) {
+        MemoryBudget.this.allocated -= allocated - 1;
+        allocated = 1;
+        lag = 0;
+      }
+    }
+
+    /**
+     * Closes the account of a data list that is removed from the server and returns its blocks to the budget.
+     */
+    void close()
+    {
+      synchronized (MemoryBudget.this) {
+        if (accounts.remove(this)) {
+          MemoryBudget.this.allocated -= allocated;
+          allocated = 0;
+          rebalance(System.currentTimeMillis());
+        }
+      }
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(MemoryBudget.class);
+}
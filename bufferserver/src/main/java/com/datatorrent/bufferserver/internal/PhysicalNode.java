@@ -18,6 +18,8 @@
  */
 package com.datatorrent.bufferserver.internal;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,15 +37,30 @@ public class PhysicalNode
   public static final int BUFFER_SIZE = 8 * 1024;
   private final long starttime;
   private final AbstractLengthPrependerClient client;
-  private final long processedMessageCount;
+  /*
+   * the group keeps consuming the data list while this node is blocked, so the data has to be copied
+   */
+  private final boolean retainsData;
+  private long processedMessageCount;
 
   /**
    *
    * @param client
    */
   public PhysicalNode(AbstractLengthPrependerClient client)
+  {
+    this(client, false);
+  }
+
+  /**
+   * @param client
+   * @param retainsData whether the group moves on while the node is blocked, the data that the node cannot send is
+   * then copied since the data list may reuse its block by the time the node is unblocked
+   */
+  public PhysicalNode(AbstractLengthPrependerClient client, boolean retainsData)
   {
     this.client = client;
+    this.retainsData = retainsData;
     starttime = System.currentTimeMillis();
     processedMessageCount = 0;
   }
@@ -72,35 +89,53 @@ public class PhysicalNode
    * @throws InterruptedException
    */
   private SerializedData blocker;
+  /*
+   * data sent while the node is blocked, only policies that skip blocked nodes send data to a blocked node
+   */
+  private final ArrayDeque<SerializedData> backlog = new ArrayDeque<SerializedData>();
 
   public boolean send(SerializedData d)
   {
-    if (d.offset == d.dataOffset) {
-      if (client.write(d.buffer, d.offset, d.length)) {
-        return true;
-      }
-    } else {
-      if (client.send(d.buffer, d.offset, d.length)) {
-        return true;
-      }
+    processedMessageCount++;
+    if (blocker != null) {
+      backlog.add(copy(d));
+      return false;
+    }
+
+    if (write(d)) {
+      return true;
     }
 
-    blocker = d;
+    blocker = retainsData ? copy(d) : d;
     return false;
   }
 
-  public boolean unblock()
+  private boolean write(SerializedData d)
   {
-    if (blocker == null) {
-      return true;
+    if (d.offset == d.dataOffset) {
+      return client.write(d.buffer, d.offset, d.length);
+    } else {
+      return client.send(d.buffer, d.offset, d.length);
     }
+  }
 
-    if (send(blocker)) {
-      blocker = null;
-      return true;
+  private static SerializedData copy(SerializedData d)
+  {
+    SerializedData copy = new SerializedData(Arrays.copyOfRange(d.buffer, d.offset, d.offset + d.length), 0, d.length);
+    copy.dataOffset = d.dataOffset - d.offset;
+    return copy;
+  }
+
+  public boolean unblock()
+  {
+    while (blocker != null) {
+      if (!write(blocker)) {
+        return false;
+      }
+      blocker = backlog.poll();
     }
 
-    return false;
+    return true;
   }
 
   public boolean isBlocked()
@@ -108,6 +143,14 @@ public class PhysicalNode
     return blocker != null;
   }
 
+  /**
+   * @return number of tuples that are waiting to be sent to the node because it is blocked
+   */
+  public int getBacklog()
+  {
+    return blocker == null ? 0 : backlog.size() + 1;
+  }
+
   /**
    *
    * @return long
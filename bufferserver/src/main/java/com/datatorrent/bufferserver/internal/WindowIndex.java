@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.Arrays;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+
+/**
+ * Sparse index of the tuples of a {@link DataList.Block} that lets a subscriber seek to the window it resumes from.
+ * <p>
+ * The index holds the offsets of begin window tuples, at most one per {@link #getInterval()} bytes, and the offsets
+ * of all reset window, checkpoint, codec state and end stream tuples. The latter are delivered to a subscriber even
+ * when it skips the windows that contain them, so a seek returns them along with the position of the window.
+ * Offsets are the offsets of the length prefix of the tuples in the block.
+ */
+final class WindowIndex
+{
+  private final int interval;
+  private int[] offsets = new int[16];
+  private long[] windowIds = new long[16];
+  private byte[] types = new byte[16];
+  private int count;
+  private int lastBeginWindowOffset;
+
+  /**
+   * @param interval minimum number of bytes between two indexed begin window tuples
+   */
+  WindowIndex(int interval)
+  {
+    this.interval = interval;
+    lastBeginWindowOffset = -interval;
+  }
+
+  int getInterval()
+  {
+    return interval;
+  }
+
+  synchronized int size()
+  {
+    return count;
+  }
+
+  /**
+   * Adds a tuple at the end of the index. Begin window tuples closer than the interval to the previously indexed one
+   * and tuples of other types are ignored.
+   *
+   * @param type message type of the tuple
+   * @param offset offset of the tuple, not less than the offset of the previously added tuple
+   * @param windowId window id of a begin window tuple
+   */
+  synchronized void add(byte type, int offset, long windowId)
+  {
+    switch (type) {
+      case MessageType.BEGIN_WINDOW_VALUE:
+        if (offset - lastBeginWindowOffset < interval) {
+          return;
+        }
+        lastBeginWindowOffset = offset;
+        break;
+
+      case MessageType.RESET_WINDOW_VALUE:
+      case MessageType.CHECKPOINT_VALUE:
+      case MessageType.CODEC_STATE_VALUE:
+      case MessageType.END_STREAM_VALUE:
+        break;
+
+      default:
+        return;
+    }
+
+    if (count == offsets.length) {
+      offsets = Arrays.copyOf(offsets, count << 1);
+      windowIds = Arrays.copyOf(windowIds, count << 1);
+      types = Arrays.copyOf(types, count << 1);
+    }
+    offsets[count] = offset;
+    windowIds[count] = windowId;
+    types[count++] = type;
+  }
+
+  /**
+   * Removes the tuples at or past the offset, used when the block is rewound.
+   */
+  synchronized void truncate(int offset)
+  {
+    while (count > 0 && offsets[count - 1] >= offset) {
+      count--;
+    }
+    lastBeginWindowOffset = -interval;
+    for (int i = count; i-- > 0;) {
+      if (types[i] == MessageType.BEGIN_WINDOW_VALUE) {
+        lastBeginWindowOffset = offsets[i];
+        break;
+      }
+    }
+  }
+
+  /**
+   * Removes the tuples before the offset, used when the block is purged.
+   */
+  synchronized void trim(int offset)
+  {
+    int i = 0;
+    while (i < count && offsets[i] < offset) {
+      i++;
+    }
+    if (i > 0) {
+      System.arraycopy(offsets, i, offsets, 0, count - i);
+      System.arraycopy(windowIds, i, windowIds, 0, count - i);
+      System.arraycopy(types, i, types, 0, count - i);
+      count -= i;
+    }
+  }
+
+  /**
+   * Adds a tuple restored in front of the indexed part of the block, used when a purge copies the last reset window
+   * tuple in front of the first remaining window. Tuples before the offset must have been removed.
+   */
+  synchronized void restore(byte type, int offset, long windowId)
+  {
+    if (count > 0 && offsets[0] == offset) {
+      return;
+    }
+    add(type, offset, windowId);
+    if (count > 1) {
+      final int last = count - 1;
+      final int restoredOffset = offsets[last];
+      final long restoredWindowId = windowIds[last];
+      final byte restoredType = types[last];
+      System.arraycopy(offsets, 0, offsets, 1, last);
+      System.arraycopy(windowIds, 0, windowIds, 1, last);
+      System.arraycopy(types, 0, types, 1, last);
+      offsets[0] = restoredOffset;
+      windowIds[0] = restoredWindowId;
+      types[0] = restoredType;
+    }
+  }
+
+  /**
+   * Moves the offsets of all tuples by the given delta and removes the tuples whose offset becomes negative, used
+   * when a block that was spooled from an offset is loaded back into memory.
+   */
+  synchronized void shift(int delta)
+  {
+    for (int i = 0; i < count; i++) {
+      offsets[i] += delta;
+    }
+    lastBeginWindowOffset += delta;
+    trim(0);
+  }
+
+  /**
+   * Finds the position to resume from for a subscriber that skips all windows up to and including the given one.
+   *
+   * @param windowId last window that is skipped
+   * @param fromOffset offset the iteration starts from
+   * @return offsets of the reset window, checkpoint, codec state and end stream tuples between fromOffset and the
+   * position followed by the position, which is the offset of the last indexed begin window tuple that is not later
+   * than the window, or null if there is no such tuple
+   */
+  synchronized int[] seek(long windowId, int fromOffset)
+  {
+    int position = -1;
+    int controlCount = 0;
+    int positionControlCount = 0;
+    for (int i = 0; i < count; i++) {
+      if (offsets[i] < fromOffset) {
+        continue;
+      }
+      if (types[i] == MessageType.BEGIN_WINDOW_VALUE) {
+        if (windowIds[i] > windowId) {
+          break;
+        }
+        position = i;
+        positionControlCount = controlCount;
+      } else {
+        controlCount++;
+      }
+    }
+    if (position < 0) {
+      return null;
+    }
+
+    final int[] seek = new int[positionControlCount + 1];
+    for (int i = 0, j = 0; i < position; i++) {
+      if (offsets[i] >= fromOffset && types[i] != MessageType.BEGIN_WINDOW_VALUE) {
+        seek[j++] = offsets[i];
+      }
+    }
+    seek[positionControlCount] = offsets[position];
+    return seek;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return getClass().getSimpleName() + "{interval=" + interval + ", count=" + count + '}';
+  }
+}
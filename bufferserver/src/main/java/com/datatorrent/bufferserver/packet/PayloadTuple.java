@@ -41,11 +41,20 @@ public class PayloadTuple extends Tuple
   @Override
   public int getPartition()
   {
-    int p = buffer[offset + 1];
-    p |= buffer[offset + 2] << 8;
-    p |= buffer[offset + 3] << 16;
-    p |= buffer[offset + 4] << 24;
-    return p;
+    return getPartition(buffer, offset);
+  }
+
+  /**
+   * Decodes the partition of a serialized payload tuple without creating a tuple.
+   *
+   * @param buffer buffer holding the tuple
+   * @param offset offset of the message type of the tuple
+   * @return partition of the tuple
+   */
+  public static int getPartition(byte[] buffer, int offset)
+  {
+    return (buffer[offset + 1] & 0xff) | (buffer[offset + 2] & 0xff) << 8 | (buffer[offset + 3] & 0xff) << 16
+        | buffer[offset + 4] << 24;
   }
 
   @Override
@@ -44,6 +44,7 @@ public class SubscribeRequestTuple extends RequestTuple
   private int mask;
   private int[] partitions;
   private int bufferSize;
+  private String policy;
 
   @Override
   public void parse()
@@ -145,6 +146,15 @@ public class SubscribeRequestTuple extends RequestTuple
             }
           }
         }
+      } else if (count == 0) {
+        /*
+         * Skip the count of unpartitioned subscribers. Versions before the policy was added read the count as the
+         * buffer size of these subscribers, so their send buffer had the default size of 1024 slices regardless of
+         * the requested size.
+         */
+        dataOffset++;
+      } else {
+        return;
       }
 
       bufferSize = readVarInt(dataOffset, limit);
@@ -154,6 +164,23 @@ public class SubscribeRequestTuple extends RequestTuple
       while (buffer[dataOffset++] < 0) {
       }
 
+      /*
+       * read the policy, which is not sent by older clients
+       */
+      if (dataOffset < limit) {
+        idlen = readVarInt(dataOffset, limit);
+        if (idlen > 0) {
+          while (buffer[dataOffset++] < 0) {
+          }
+          policy = new String(buffer, dataOffset, idlen);
+          dataOffset += idlen;
+        } else if (idlen == 0) {
+          dataOffset++;
+        } else {
+          return;
+        }
+      }
+
       valid = true;
     } catch (NumberFormatException nfe) {
       logger.warn("Unparseable Tuple", nfe);
@@ -230,14 +257,37 @@ public class SubscribeRequestTuple extends RequestTuple
     return partitions;
   }
 
+  /**
+   * The server creates the send buffer of the subscriber with this size, rounded up to a multiple of 1024 slices,
+   * and it holds two arrays of references of that size for each subscriber. The engine requests the queue capacity
+   * of the input port, 1024 unless configured otherwise.
+   *
+   * @return the number of slices the server queues for sending to the subscriber, 0 for the default of 1024
+   */
   public int getBufferSize()
   {
     return bufferSize;
   }
 
+  /**
+   * @return the name of the policy that distributes the tuples to the subscribers of the group, null for the default
+   */
+  public String getPolicy()
+  {
+    return policy;
+  }
+
   public static byte[] getSerializedRequest(final String version, final String id, final String down_type,
       final String upstream_id, final int mask, final Collection<Integer> partitions, final long startingWindowId,
       final int bufferSize)
+  {
+    return getSerializedRequest(version, id, down_type, upstream_id, mask, partitions, startingWindowId, bufferSize,
+        null);
+  }
+
+  public static byte[] getSerializedRequest(final String version, final String id, final String down_type,
+      final String upstream_id, final int mask, final Collection<Integer> partitions, final long startingWindowId,
+      final int bufferSize, final String policy)
   {
     byte[] array = new byte[4096];
     int offset = 0;
@@ -279,6 +329,11 @@ public class SubscribeRequestTuple extends RequestTuple
     /* write the buffer size */
     offset = VarInt.write(bufferSize, array, offset);
 
+    /* write the policy */
+    if (policy != null) {
+      offset = Tuple.writeString(policy, array, offset);
+    }
+
     return Arrays.copyOfRange(array, 0, offset);
   }
 
@@ -289,7 +344,7 @@ public class SubscribeRequestTuple extends RequestTuple
         ", windowId=" + Codec.getStringWindowId((long)baseSeconds | windowId) + ", type=" + streamType +
         ", upstreamIdentifier=" + upstreamIdentifier + ", mask=" + mask +
         ", partitions=" + (partitions == null ? "null" : Arrays.toString(partitions)) +
-        ", bufferSize=" + bufferSize + '}';
+        ", bufferSize=" + bufferSize + ", policy=" + policy + '}';
   }
 
   private static final Logger logger = LoggerFactory.getLogger(SubscribeRequestTuple.class);
@@ -36,4 +36,10 @@ public class AbstractPolicy implements Policy
   {
     throw new UnsupportedOperationException("Not supported yet.");
   }
+
+  @Override
+  public boolean skipsBlockedNodes()
+  {
+    return false;
+  }
 }
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.policy;
+
+import java.util.Set;
+
+import com.datatorrent.bufferserver.internal.PhysicalNode;
+import com.datatorrent.bufferserver.util.SerializedData;
+
+/**
+ * Sends each tuple to the downstream node with the least backlog, rotating between nodes with the same backlog.
+ * <br>
+ * A node whose connection cannot take more data keeps the tuple it could not send as its backlog and stops receiving
+ * new tuples until the backlog is written, so a slow node does not stall the other nodes of the group. Only when all
+ * nodes are blocked the group waits. Suitable for streams that tolerate delivery of a tuple to any partition. Extends
+ * the base class {@link AbstractPolicy}<br>
+ * <br>
+ */
+public class LeastBacklog extends AbstractPolicy
+{
+  int index;
+
+  @Override
+  public boolean distribute(Set<PhysicalNode> nodes, SerializedData data) throws InterruptedException
+  {
+    PhysicalNode theOne = null;
+    int least = Integer.MAX_VALUE;
+    int position = 0;
+
+    int i = 0;
+    for (PhysicalNode node : nodes) {
+      final int backlog = node.getBacklog();
+      if (backlog < least || (backlog == least && position < index && i >= index)) {
+        theOne = node;
+        least = backlog;
+        position = i;
+      }
+      i++;
+    }
+
+    if (theOne == null) {
+      return false;
+    }
+    index = position + 1;
+
+    if (theOne.send(data)) {
+      return true;
+    }
+
+    for (PhysicalNode node : nodes) {
+      if (!node.isBlocked()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean skipsBlockedNodes()
+  {
+    return true;
+  }
+
+}
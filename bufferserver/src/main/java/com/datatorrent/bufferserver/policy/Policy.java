@@ -42,4 +42,11 @@ public interface Policy
    */
   boolean distribute(Set<PhysicalNode> nodes, SerializedData data) throws InterruptedException;
 
+  /**
+   * Tells whether data can still be distributed while some of the nodes are blocked.
+   *
+   * @return {@code true} if blocked nodes are skipped, {@code false} if all nodes have to be unblocked first
+   */
+  boolean skipsBlockedNodes();
+
 }
@@ -19,6 +19,8 @@
 package com.datatorrent.bufferserver.server;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
@@ -26,7 +28,6 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -40,20 +41,26 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.internal.BlockPool;
 import com.datatorrent.bufferserver.internal.DataList;
 import com.datatorrent.bufferserver.internal.FastDataList;
 import com.datatorrent.bufferserver.internal.LogicalNode;
+import com.datatorrent.bufferserver.internal.MemoryBudget;
 import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.PublishRequestTuple;
 import com.datatorrent.bufferserver.packet.PurgeRequestTuple;
 import com.datatorrent.bufferserver.packet.ResetRequestTuple;
 import com.datatorrent.bufferserver.packet.SubscribeRequestTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
+import com.datatorrent.bufferserver.policy.GiveAll;
+import com.datatorrent.bufferserver.policy.LeastBacklog;
+import com.datatorrent.bufferserver.policy.Policy;
 import com.datatorrent.bufferserver.storage.Storage;
 import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
 import com.datatorrent.netlet.DefaultEventLoop;
 import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.Listener;
 import com.datatorrent.netlet.Listener.ServerListener;
 import com.datatorrent.netlet.util.VarInt;
 
@@ -70,7 +77,11 @@ public class Server implements ServerListener
   private final int port;
   private String identity;
   private Storage storage;
+  private BlockPool blockPool;
+  private int bulkTransferLimit;
   private EventLoop eventloop;
+  private int eventLoopCount = 1;
+  private Shard[] shards;
   private InetSocketAddress address;
   private final ExecutorService serverHelperExecutor;
   private final ExecutorService storageHelperExecutor;
@@ -85,6 +96,12 @@ public class Server implements ServerListener
     this(port, DEFAULT_BUFFER_SIZE, DEFAULT_NUMBER_OF_CACHED_BLOCKS);
   }
 
+  /**
+   * @param port - port number to bind to or 0 to auto select a free port
+   * @param blocksize size of the memory blocks
+   * @param numberOfCacheBlocks number of memory blocks each publisher of this server keeps in memory before it spools
+   * to disk, unless the publishers share a budget, see {@link #setMemoryBudget(int)}
+   */
   public Server(int port, int blocksize, int numberOfCacheBlocks)
   {
     this.port = port;
@@ -102,6 +119,106 @@ public class Server implements ServerListener
     this.storage = storage;
   }
 
+  /**
+   * Enables recycling of the memory blocks across all publishers of this server. Blocks purged by a data list are
+   * retained by the pool, up to the given capacity, and handed out to the next data list that needs a block.
+   *
+   * @param capacity maximum number of free blocks retained by the pool, 0 to disable pooling
+   */
+  public void setBlockPoolCapacity(int capacity)
+  {
+    blockPool = capacity > 0 ? new BlockPool(blockSize, capacity) : null;
+  }
+
+  public BlockPool getBlockPool()
+  {
+    return blockPool;
+  }
+
+  /**
+   * Shares a budget of memory blocks between all publishers of this server instead of letting each publisher keep
+   * the number of cache blocks the server was created with. Must be called before the first publisher connects.
+   *
+   * @param numberOfBlocks number of memory blocks the publishers keep in memory in total, 0 to let each publisher keep
+   * its own number of cache blocks
+   * @see MemoryBudget
+   */
+  public void setMemoryBudget(int numberOfBlocks)
+  {
+    memoryBudget = numberOfBlocks > 0 ? new MemoryBudget(numberOfBlocks) : null;
+  }
+
+  /**
+   * @return budget shared by the publishers, null when each publisher keeps its own number of cache blocks
+   */
+  public MemoryBudget getMemoryBudget()
+  {
+    return memoryBudget;
+  }
+
+  private DataList newDataList(String identifier, String version)
+  {
+    if (Tuple.FAST_VERSION.equals(version)) {
+      return memoryBudget == null ? new FastDataList(identifier, blockSize, numberOfCacheBlocks, blockPool) :
+          new FastDataList(identifier, blockSize, memoryBudget, blockPool);
+    }
+    return memoryBudget == null ? new DataList(identifier, blockSize, numberOfCacheBlocks, blockPool) :
+        new DataList(identifier, blockSize, memoryBudget, blockPool);
+  }
+
+  /**
+   * Enables sending contiguous tuples of a data list block to the subscribers as a single range.
+   *
+   * @param bulkTransferLimit maximum size of a range in bytes, 0 to send tuple by tuple
+   * @see LogicalNode#setBulkTransferLimit(int)
+   */
+  public void setBulkTransferLimit(int bulkTransferLimit)
+  {
+    this.bulkTransferLimit = bulkTransferLimit;
+  }
+
+  /**
+   * Sets the number of event loops the server runs. The loop passed to {@link #run(EventLoop)} accepts the
+   * connections and serves the first shard, the server creates and stops the other loops. Each publisher and the
+   * subscriber groups of its data list are served by the loop the publisher identifier hashes to. Must be called
+   * before {@link #run(EventLoop)}.
+   *
+   * @param eventLoopCount number of event loops, 1 to serve all publishers and subscribers on the given loop
+   */
+  public void setEventLoopCount(int eventLoopCount)
+  {
+    if (eventLoopCount < 1) {
+      throw new IllegalArgumentException("Invalid event loop count " + eventLoopCount);
+    }
+    this.eventLoopCount = eventLoopCount;
+  }
+
+  public int getEventLoopCount()
+  {
+    return shards == null ? eventLoopCount : shards.length;
+  }
+
+  /**
+   * Returns the utilization of each event loop since the previous call, or since the server started on the first
+   * call. The utilization is the CPU time used by the loop thread and the helper thread that delivers the data of its
+   * publishers to the subscribers, divided by the elapsed time. The loop passed to {@link #run(EventLoop)} may also
+   * serve other clients, their CPU time is included in the utilization of the first loop.
+   *
+   * @return utilization per event loop, -1 for the loops whose CPU time is not available
+   */
+  public synchronized double[] getEventLoopUtilization()
+  {
+    if (shards == null) {
+      return new double[0];
+    }
+    final long now = System.nanoTime();
+    final double[] utilization = new double[shards.length];
+    for (int i = shards.length; i-- > 0;) {
+      utilization[i] = shards[i].utilization(now);
+    }
+    return utilization;
+  }
+
   @Override
   public synchronized void registered(SelectionKey key)
   {
@@ -114,10 +231,22 @@ public class Server implements ServerListener
   @Override
   public void unregistered(SelectionKey key)
   {
+    final Shard[] shards = this.shards;
+    if (shards != null) {
+      for (int i = 1; i < shards.length; i++) {
+        ((DefaultEventLoop)shards[i].eventloop).stop();
+        shards[i].helperExecutor.shutdown();
+      }
+    }
     serverHelperExecutor.shutdown();
     storageHelperExecutor.shutdown();
     try {
       serverHelperExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+      if (shards != null) {
+        for (int i = 1; i < shards.length; i++) {
+          shards[i].helperExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+        }
+      }
     } catch (InterruptedException ex) {
       logger.debug("Executor Termination", ex);
     }
@@ -136,9 +265,62 @@ public class Server implements ServerListener
     }
 
     this.eventloop = eventloop;
+    int count = eventLoopCount;
+    if (count > 1 && !(eventloop instanceof DefaultEventLoop)) {
+      logger.warn("Event loop {} does not support sharding, serving all publishers on it", eventloop);
+      count = 1;
+    }
+    final Shard[] shards = new Shard[count];
+    shards[0] = new Shard(eventloop, serverHelperExecutor);
+    for (int i = 1; i < count; i++) {
+      final DefaultEventLoop el;
+      try {
+        el = DefaultEventLoop.createEventLoop("BufferServer-" + i);
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+      el.start();
+      shards[i] = new Shard(el, Executors.newSingleThreadExecutor(new NameableThreadFactory("ServerHelper-" + i)));
+    }
+    this.shards = shards;
     return address;
   }
 
+  /**
+   * @return shard serving the publisher with the given identifier and the subscribers of its data list
+   */
+  private Shard getShard(String identifier)
+  {
+    final Shard[] shards = this.shards;
+    if (shards.length == 1) {
+      return shards[0];
+    }
+    return shards[(identifier.hashCode() & Integer.MAX_VALUE) % shards.length];
+  }
+
+  /**
+   * Removes the channel from the accepting event loop, so that it can be registered with the event loop of another
+   * shard. Must be called on the accepting event loop.
+   */
+  private static SocketChannel handOver(SelectionKey key)
+  {
+    key.interestOps(0);
+    key.attach(Listener.NOOP_CLIENT_LISTENER);
+    key.cancel();
+    return (SocketChannel)key.channel();
+  }
+
+  /**
+   * Registers a channel handed over by the accepting event loop with the event loop of the shard and runs the
+   * activation once the client is registered. Must be called on the event loop of the shard.
+   */
+  private static void register(Shard shard, SocketChannel channel, Listener client, Runnable activation)
+  {
+    /* no interest until activated, so that the client does not read ahead of the data already received */
+    ((DefaultEventLoop)shard.eventloop).register(channel, 0, client);
+    shard.eventloop.submit(activation);
+  }
+
   public void setAuthToken(byte[] authToken)
   {
     this.authToken = authToken;
@@ -169,61 +351,100 @@ public class Server implements ServerListener
     return identity;
   }
 
-  private final HashMap<String, DataList> publisherBuffers = new HashMap<String, DataList>();
+  private final ConcurrentHashMap<String, DataList> publisherBuffers = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, LogicalNode> subscriberGroups = new ConcurrentHashMap<String, LogicalNode>();
   private final ConcurrentHashMap<String, AbstractLengthPrependerClient> publisherChannels = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, AbstractLengthPrependerClient> subscriberChannels = new ConcurrentHashMap<>();
   private final int blockSize;
   private final int numberOfCacheBlocks;
+  private MemoryBudget memoryBudget;
 
-  private void handlePurgeRequest(PurgeRequestTuple request, final AbstractLengthPrependerClient ctx) throws IOException
+  /*
+   * the data list is purged on the event loop of its shard, the ack is written on the accepting event loop.
+   */
+  private void handlePurgeRequest(final PurgeRequestTuple request, final AbstractLengthPrependerClient ctx)
   {
-    DataList dl;
-    dl = publisherBuffers.get(request.getIdentifier());
-
-    byte[] message;
-    if (dl == null) {
-      message = ("Invalid identifier '" + request.getIdentifier() + "'").getBytes();
-    } else {
-      dl.purge(request.getBaseSeconds(), request.getWindowId());
-      message = ("Request sent for processing: " + request).getBytes();
-    }
+    getShard(request.getIdentifier()).eventloop.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        DataList dl;
+        dl = publisherBuffers.get(request.getIdentifier());
 
-    final byte[] tuple = PayloadTuple.getSerializedTuple(0, message.length);
-    System.arraycopy(message, 0, tuple, tuple.length - message.length, message.length);
-    if (ctx.write(tuple)) {
-      ctx.write();
-    } else {
-      logger.error("Failed to deliver purge ack message. {} send buffers are full.", ctx);
-      throw new RuntimeException("Failed to deliver purge ack message. " + ctx + "send buffers are full.");
-    }
+        byte[] message;
+        if (dl == null) {
+          message = ("Invalid identifier '" + request.getIdentifier() + "'").getBytes();
+        } else {
+          dl.purge(request.getBaseSeconds(), request.getWindowId());
+          message = ("Request sent for processing: " + request).getBytes();
+        }
+        sendAck("purge", message, ctx);
+      }
+    });
   }
 
-  private void handleResetRequest(ResetRequestTuple request, final AbstractLengthPrependerClient ctx) throws IOException
+  private void handleResetRequest(final ResetRequestTuple request, final AbstractLengthPrependerClient ctx)
   {
-    DataList dl;
-    dl = publisherBuffers.remove(request.getIdentifier());
+    final Shard shard = getShard(request.getIdentifier());
+    shard.eventloop.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        DataList dl;
+        dl = publisherBuffers.remove(request.getIdentifier());
 
-    byte[] message;
-    if (dl == null) {
-      message = ("Invalid identifier '" + request.getIdentifier() + "'").getBytes();
-    } else {
-      AbstractLengthPrependerClient channel = publisherChannels.remove(request.getIdentifier());
-      if (channel != null) {
-        eventloop.disconnect(channel);
+        byte[] message;
+        if (dl == null) {
+          message = ("Invalid identifier '" + request.getIdentifier() + "'").getBytes();
+        } else {
+          AbstractLengthPrependerClient channel = publisherChannels.remove(request.getIdentifier());
+          if (channel != null) {
+            shard.eventloop.disconnect(channel);
+          }
+          dl.reset();
+          dl.close();
+          message = ("Request sent for processing: " + request).getBytes();
+        }
+        sendAck("reset", message, ctx);
       }
-      dl.reset();
-      message = ("Request sent for processing: " + request).getBytes();
-    }
+    });
+  }
 
-    final byte[] tuple = PayloadTuple.getSerializedTuple(0, message.length);
-    System.arraycopy(message, 0, tuple, tuple.length - message.length, message.length);
-    if (ctx.write(tuple)) {
-      ctx.write();
-    } else {
-      logger.error("Failed to deliver reset ack message. {} send buffers are full.", ctx);
-      throw new RuntimeException("Failed to deliver reset ack message. " + ctx + "send buffers are full.");
+  private void sendAck(final String request, final byte[] message, final AbstractLengthPrependerClient ctx)
+  {
+    eventloop.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        final byte[] tuple = PayloadTuple.getSerializedTuple(0, message.length);
+        System.arraycopy(message, 0, tuple, tuple.length - message.length, message.length);
+        try {
+          if (ctx.write(tuple)) {
+            ctx.write();
+            return;
+          }
+          logger.error("Failed to deliver {} ack message. {} send buffers are full.", request, ctx);
+        } catch (IOException io) {
+          logger.error("Failed to deliver {} ack message to {}.", request, ctx, io);
+        }
+        /* the event loop does not expect exceptions from submitted tasks, the client has to request again */
+        eventloop.disconnect(ctx);
+      }
+    });
+  }
+
+  private static Policy getPolicy(String name)
+  {
+    if (LeastBacklog.class.getSimpleName().equals(name)) {
+      return new LeastBacklog();
     }
+    if (!GiveAll.class.getSimpleName().equals(name)) {
+      logger.warn("Unknown subscriber policy {}, sending all tuples to all subscribers of the group", name);
+    }
+    return GiveAll.getInstance();
   }
 
   /**
@@ -238,6 +459,7 @@ public class Server implements ServerListener
     String identifier = request.getIdentifier();
     String type = request.getStreamType();
     String upstream_identifier = request.getUpstreamIdentifier();
+    final Shard shard = getShard(upstream_identifier);
 
     // Check if there is a logical node of this type, if not create it.
     final LogicalNode ln;
@@ -248,18 +470,24 @@ public class Server implements ServerListener
        */
       AbstractLengthPrependerClient previous = subscriberChannels.put(identifier, connection);
       if (previous != null) {
-        eventloop.disconnect(previous);
+        (previous instanceof Subscriber ? ((Subscriber)previous).shard : shard).eventloop.disconnect(previous);
       }
 
       ln = subscriberGroups.get(type);
-      serverHelperExecutor.submit(new Runnable()
+      /* the partitions of a port with a subscriber policy share the group and must not disconnect each other */
+      final boolean shared = request.getPolicy() != null;
+      shard.helperExecutor.submit(new Runnable()
       {
         @Override
         public void run()
         {
-          ln.boot(eventloop);
-          ln.addConnection(connection);
-          ln.catchUp();
+          if (shared) {
+            ln.joinConnection(connection);
+          } else {
+            ln.boot(shard.eventloop);
+            ln.addConnection(connection);
+            ln.catchUp();
+          }
         }
       });
     } else {
@@ -273,15 +501,17 @@ public class Server implements ServerListener
         dl = publisherBuffers.get(upstream_identifier);
         //logger.debug("old list = {}", dl);
       } else {
-        dl = Tuple.FAST_VERSION.equals(request.getVersion()) ?
-            new FastDataList(upstream_identifier, blockSize, numberOfCacheBlocks) :
-            new DataList(upstream_identifier, blockSize, numberOfCacheBlocks);
+        dl = newDataList(upstream_identifier, request.getVersion());
         publisherBuffers.put(upstream_identifier, dl);
         //logger.debug("new list = {}", dl);
       }
 
       long skipWindowId = (long)request.getBaseSeconds() << 32 | request.getWindowId();
       ln = new LogicalNode(identifier, upstream_identifier, type, dl.newIterator(skipWindowId), skipWindowId);
+      ln.setBulkTransferLimit(bulkTransferLimit);
+      if (request.getPolicy() != null) {
+        ln.setPolicy(getPolicy(request.getPolicy()));
+      }
 
       int mask = request.getMask();
       if (mask != 0) {
@@ -291,7 +521,7 @@ public class Server implements ServerListener
       }
 
       subscriberGroups.put(type, ln);
-      serverHelperExecutor.submit(new Runnable()
+      shard.helperExecutor.submit(new Runnable()
       {
         @Override
         public void run()
@@ -324,7 +554,7 @@ public class Server implements ServerListener
        */
       AbstractLengthPrependerClient previous = publisherChannels.put(identifier, connection);
       if (previous != null) {
-        eventloop.disconnect(previous);
+        getShard(identifier).eventloop.disconnect(previous);
       }
 
       dl = publisherBuffers.get(identifier);
@@ -334,9 +564,7 @@ public class Server implements ServerListener
         throw new RuntimeException(ie);
       }
     } else {
-      dl = Tuple.FAST_VERSION.equals(request.getVersion()) ?
-          new FastDataList(identifier, blockSize, numberOfCacheBlocks) :
-          new DataList(identifier, blockSize, numberOfCacheBlocks);
+      dl = newDataList(identifier, request.getVersion());
       publisherBuffers.put(identifier, dl);
     }
     dl.setSecondaryStorage(storage, storageHelperExecutor);
@@ -417,38 +645,33 @@ public class Server implements ServerListener
            */
           unregistered(key);
           logger.info("Received publisher request: {}", request);
-          PublishRequestTuple publisherRequest = (PublishRequestTuple)request;
-
-          DataList dl = handlePublisherRequest(publisherRequest, this);
-          dl.setAutoFlushExecutor(serverHelperExecutor);
-
-          Publisher publisher;
-          if (publisherRequest.getVersion().equals(Tuple.FAST_VERSION)) {
-            publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId())
+          final PublishRequestTuple publisherRequest = (PublishRequestTuple)request;
+
+          final Shard publisherShard = getShard(publisherRequest.getIdentifier());
+          if (publisherShard.eventloop == eventloop) {
+            Publisher publisher = newPublisher(publisherRequest);
+            key.attach(publisher);
+            publisher.registered(key);
+            publisher.activate(this.buffer, readOffset + size, writeOffset - readOffset - size);
+          } else {
+            final SocketChannel channel = handOver(key);
+            final byte[] pending = Arrays.copyOfRange(this.buffer, readOffset + size, writeOffset);
+            publisherShard.eventloop.submit(new Runnable()
             {
               @Override
-              public int readSize()
+              public void run()
               {
-                if (writeOffset - readOffset < 2) {
-                  return -1;
-                }
-
-                short s = buffer[readOffset++];
-                return s | (buffer[readOffset++] << 8);
+                final Publisher publisher = newPublisher(publisherRequest);
+                register(publisherShard, channel, publisher, new Runnable()
+                {
+                  @Override
+                  public void run()
+                  {
+                    publisher.activate(pending, 0, pending.length);
+                  }
+                });
               }
-
-            };
-          } else {
-            publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId());
-          }
-
-          key.attach(publisher);
-          key.interestOps(SelectionKey.OP_READ);
-          publisher.registered(key);
-
-          int len = writeOffset - readOffset - size;
-          if (len > 0) {
-            publisher.transferBuffer(this.buffer, readOffset + size, len);
+            });
           }
           ignore = true;
 
@@ -462,8 +685,9 @@ public class Server implements ServerListener
           ignore = true;
           logger.info("Received subscriber request: {}", request);
 
-          SubscribeRequestTuple subscriberRequest = (SubscribeRequestTuple)request;
-          AbstractLengthPrependerClient subscriber;
+          final SubscribeRequestTuple subscriberRequest = (SubscribeRequestTuple)request;
+          final Shard subscriberShard = getShard(subscriberRequest.getUpstreamIdentifier());
+          final Subscriber subscriber;
 
 //          /* for backward compatibility - set the buffer size to 16k - EXPERIMENTAL */
           int bufferSize = subscriberRequest.getBufferSize();
@@ -472,10 +696,10 @@ public class Server implements ServerListener
 //          }
           if (subscriberRequest.getVersion().equals(Tuple.FAST_VERSION)) {
             subscriber = new Subscriber(subscriberRequest.getStreamType(), subscriberRequest.getMask(),
-                subscriberRequest.getPartitions(), bufferSize);
+                subscriberRequest.getPartitions(), bufferSize, subscriberShard);
           } else {
             subscriber = new Subscriber(subscriberRequest.getStreamType(), subscriberRequest.getMask(),
-                subscriberRequest.getPartitions(), bufferSize)
+                subscriberRequest.getPartitions(), bufferSize, subscriberShard)
             {
               @Override
               public int readSize()
@@ -490,29 +714,39 @@ public class Server implements ServerListener
 
             };
           }
-          key.attach(subscriber);
-          key.interestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
-          subscriber.registered(key);
 
-          handleSubscriberRequest(subscriberRequest, subscriber);
+          if (subscriberShard.eventloop == eventloop) {
+            key.attach(subscriber);
+            subscriber.registered(key);
+            subscriber.activate(subscriberRequest);
+          } else {
+            final SocketChannel channel = handOver(key);
+            subscriberShard.eventloop.submit(new Runnable()
+            {
+              @Override
+              public void run()
+              {
+                register(subscriberShard, channel, subscriber, new Runnable()
+                {
+                  @Override
+                  public void run()
+                  {
+                    subscriber.activate(subscriberRequest);
+                  }
+                });
+              }
+            });
+          }
           break;
 
         case PURGE_REQUEST:
           logger.info("Received purge request: {}", request);
-          try {
-            handlePurgeRequest((PurgeRequestTuple)request, this);
-          } catch (IOException io) {
-            throw new RuntimeException(io);
-          }
+          handlePurgeRequest((PurgeRequestTuple)request, this);
           break;
 
         case RESET_REQUEST:
           logger.info("Received reset all request: {}", request);
-          try {
-            handleResetRequest((ResetRequestTuple)request, this);
-          } catch (IOException io) {
-            throw new RuntimeException(io);
-          }
+          handleResetRequest((ResetRequestTuple)request, this);
           break;
 
         default:
@@ -520,6 +754,34 @@ public class Server implements ServerListener
       }
     }
 
+    /**
+     * Creates the publisher for the request, must be called on the event loop of the shard of the publisher.
+     */
+    private Publisher newPublisher(PublishRequestTuple request)
+    {
+      DataList dl = handlePublisherRequest(request, this);
+      dl.setAutoFlushExecutor(getShard(request.getIdentifier()).helperExecutor);
+
+      if (request.getVersion().equals(Tuple.FAST_VERSION)) {
+        return new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId())
+        {
+          @Override
+          public int readSize()
+          {
+            if (writeOffset - readOffset < 2) {
+              return -1;
+            }
+
+            short s = buffer[readOffset++];
+            return s | (buffer[readOffset++] << 8);
+          }
+
+        };
+      } else {
+        return new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId());
+      }
+    }
+
   }
 
   class Subscriber extends AbstractLengthPrependerClient
@@ -527,16 +789,24 @@ public class Server implements ServerListener
     private final String type;
     private final int mask;
     private final int[] partitions;
+    private final Shard shard;
 
-    Subscriber(String type, int mask, int[] partitions, int bufferSize)
+    Subscriber(String type, int mask, int[] partitions, int bufferSize, Shard shard)
     {
       super(1024, bufferSize);
       this.type = type;
       this.mask = mask;
       this.partitions = partitions;
+      this.shard = shard;
       super.write = false;
     }
 
+    private void activate(SubscribeRequestTuple request)
+    {
+      key.interestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+      handleSubscriberRequest(request, this);
+    }
+
     @Override
     public void onMessage(byte[] buffer, int offset, int size)
     {
@@ -594,8 +864,8 @@ public class Server implements ServerListener
             dl.removeDataListener(ln);
           }
           subscriberGroups.remove(ln.getGroup());
+          ln.getIterator().close();
         }
-        ln.getIterator().close();
       }
     }
 
@@ -609,12 +879,22 @@ public class Server implements ServerListener
   class Publisher extends SeedDataClient
   {
     private final DataList datalist;
+    private final Shard shard;
     boolean dirty;
 
     Publisher(DataList dl, long windowId)
     {
       super(dl.getBuffer(windowId), dl.getPosition(), 1024);
       this.datalist = dl;
+      this.shard = getShard(dl.getIdentifier());
+    }
+
+    private void activate(byte[] array, int offset, int len)
+    {
+      key.interestOps(SelectionKey.OP_READ);
+      if (len > 0) {
+        transferBuffer(array, offset, len);
+      }
     }
 
     @Override
@@ -638,7 +918,7 @@ public class Server implements ServerListener
     @Override
     public boolean resumeReadIfSuspended()
     {
-      eventloop.submit(new Runnable()
+      shard.eventloop.submit(new Runnable()
       {
         @Override
         public void run()
@@ -766,7 +1046,7 @@ public class Server implements ServerListener
     {
       teardown();
 
-      if (cce instanceof RejectedExecutionException && serverHelperExecutor.isTerminated()) {
+      if (cce instanceof RejectedExecutionException && shard.helperExecutor.isTerminated()) {
         logger.warn("Terminated Executor Exception for {}.", this, cce);
         el.disconnect(this);
       } else {
@@ -823,7 +1103,7 @@ public class Server implements ServerListener
       }
 
       for (LogicalNode ln : list) {
-        ln.boot(eventloop);
+        ln.boot(shard.eventloop);
       }
     }
 
@@ -865,5 +1145,62 @@ public class Server implements ServerListener
     }
   }
 
+  /**
+   * Event loop and helper executor serving the publishers whose identifiers hash to it and their subscribers.
+   */
+  private static class Shard
+  {
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    final EventLoop eventloop;
+    final ExecutorService helperExecutor;
+    private volatile long eventLoopThreadId = -1;
+    private volatile long helperThreadId = -1;
+    private long lastCpuTime;
+    private long lastTime = System.nanoTime();
+
+    Shard(EventLoop eventloop, ExecutorService helperExecutor)
+    {
+      this.eventloop = eventloop;
+      this.helperExecutor = helperExecutor;
+      eventloop.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          eventLoopThreadId = Thread.currentThread().getId();
+        }
+      });
+      helperExecutor.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          helperThreadId = Thread.currentThread().getId();
+        }
+      });
+    }
+
+    private long getCpuTime(long threadId)
+    {
+      return threadId < 0 ? -1 : threadMXBean.getThreadCpuTime(threadId);
+    }
+
+    double utilization(long now)
+    {
+      if (!threadMXBean.isThreadCpuTimeSupported()) {
+        return -1;
+      }
+      final long eventLoopCpuTime = getCpuTime(eventLoopThreadId);
+      if (eventLoopCpuTime < 0) {
+        return -1;
+      }
+      final long cpuTime = eventLoopCpuTime + Math.max(0, getCpuTime(helperThreadId));
+      final double utilization = now > lastTime ? (double)(cpuTime - lastCpuTime) / (now - lastTime) : 0;
+      lastCpuTime = cpuTime;
+      lastTime = now;
+      return utilization;
+    }
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(Server.class);
 }
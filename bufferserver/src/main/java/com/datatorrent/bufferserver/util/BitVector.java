@@ -34,6 +34,16 @@ public class BitVector
     this.bits = bits & mask;
   }
 
+  public int getMask()
+  {
+    return mask;
+  }
+
+  public int getBits()
+  {
+    return bits;
+  }
+
   @Override
   public int hashCode()
   {
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class BlockPoolTest
+{
+  @Test
+  public void testReuse()
+  {
+    BlockPool pool = new BlockPool(1024, 2);
+    byte[] first = pool.acquire();
+    byte[] second = pool.acquire();
+    assertNotSame(first, second);
+    assertEquals(pool.getAllocatedCount(), 2);
+
+    assertTrue(pool.release(first));
+    assertEquals(pool.getFreeBlockCount(), 1);
+    assertSame(pool.acquire(), first);
+    assertEquals(pool.getReusedCount(), 1);
+    assertEquals(pool.getFreeBlockCount(), 0);
+  }
+
+  @Test
+  public void testCapacityAndSize()
+  {
+    BlockPool pool = new BlockPool(1024, 1);
+    assertFalse(pool.release(new byte[512]));
+    assertTrue(pool.release(new byte[1024]));
+    assertFalse(pool.release(new byte[1024]));
+    assertEquals(pool.getFreeBlockCount(), 1);
+  }
+
+  @Test
+  public void testDataListStatus()
+  {
+    BlockPool pool = new BlockPool(1024, 4);
+    pool.release(new byte[1024]);
+    DataList dl = new DataList("test", 1024, 8, pool);
+    assertSame(dl.getBlockPool(), pool);
+    assertEquals(dl.getStatus().numBlocksPooled, 0);
+    assertEquals(dl.getStatus().numBytesAllocated, 1024);
+
+    pool.release(new byte[1024]);
+    DataList.Status status = dl.getStatus();
+    assertEquals(status.numBlocksPooled, 1);
+    assertEquals(status.numBytesPooled, 1024);
+  }
+
+}
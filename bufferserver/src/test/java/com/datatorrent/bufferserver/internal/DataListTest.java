@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.internal.DataList.DataListIterator;
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
+import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.netlet.util.VarInt;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Seeks data list iterators to the window a subscriber resumes from.
+ */
+public class DataListTest
+{
+  static final int BASE_SECONDS = 0x7afebabe;
+  static ExecutorService executor;
+
+  @BeforeClass
+  public static void setup()
+  {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterClass
+  public static void teardown()
+  {
+    executor.shutdown();
+  }
+
+  /**
+   * Appends tuples to a data list the way the server side publisher does, a tuple that does not fit into the block
+   * is partially written at the end of the block and written again at the start of the next block.
+   */
+  static class Writer
+  {
+    final DataList dl;
+    byte[] buffer;
+    int offset;
+
+    Writer(DataList dl, long windowId)
+    {
+      this.dl = dl;
+      buffer = dl.getBuffer(windowId);
+      offset = dl.getPosition();
+    }
+
+    void write(byte[] tuple)
+    {
+      final byte[] bytes = new byte[VarInt.getSize(tuple.length) + tuple.length];
+      System.arraycopy(tuple, 0, bytes, VarInt.write(tuple.length, bytes, 0), tuple.length);
+      if (offset + bytes.length > buffer.length) {
+        System.arraycopy(bytes, 0, buffer, offset, buffer.length - offset);
+        dl.flush(buffer.length);
+        buffer = dl.newBuffer(dl.getBlockSize());
+        dl.addBuffer(buffer);
+        offset = 0;
+      }
+      System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+      offset += bytes.length;
+    }
+
+    void flush()
+    {
+      dl.flush(offset);
+    }
+
+    void window(int windowId, int payloadCount, int payloadSize)
+    {
+      write(BeginWindowTuple.getSerializedTuple(windowId));
+      for (int i = 0; i < payloadCount; i++) {
+        write(PayloadTuple.getSerializedTuple(i, payloadSize));
+      }
+      write(EndWindowTuple.getSerializedTuple(windowId));
+    }
+  }
+
+  static DataList newDataList(int blockSize)
+  {
+    DataList dl = new DataList("test", blockSize, 1024);
+    dl.setAutoFlushExecutor(executor);
+    return dl;
+  }
+
+  static ArrayList<String> tuples(DataListIterator iterator)
+  {
+    ArrayList<String> tuples = new ArrayList<>();
+    while (iterator.hasNext()) {
+      SerializedData data = iterator.next();
+      tuples.add(Arrays.toString(Arrays.copyOfRange(data.buffer, data.dataOffset, data.offset + data.length)));
+    }
+    iterator.close();
+    return tuples;
+  }
+
+  static boolean isControl(String tuple)
+  {
+    final String type = tuple.substring(1, tuple.indexOf(',') < 0 ? tuple.length() - 1 : tuple.indexOf(','));
+    final int value = Integer.parseInt(type);
+    return value == MessageType.RESET_WINDOW_VALUE || value == MessageType.CHECKPOINT_VALUE ||
+        value == MessageType.CODEC_STATE_VALUE || value == MessageType.END_STREAM_VALUE;
+  }
+
+  /**
+   * The tuples of a seeking iterator must be the control tuples of the skipped windows followed by the tuples of
+   * the windows that are not skipped.
+   */
+  static void assertSeek(DataList dl, long skipWindowId, int skippedBeginWindow)
+  {
+    ArrayList<String> all = tuples(dl.newIterator(-1L));
+    ArrayList<String> sought = tuples(dl.newIterator(skipWindowId));
+
+    String begin = Arrays.toString(BeginWindowTuple.getSerializedTuple(skippedBeginWindow + 1));
+    int resume = all.indexOf(begin);
+    assertTrue(resume >= 0, "begin window " + begin);
+    int soughtResume = sought.indexOf(begin);
+    assertTrue(soughtResume >= 0, "sought begin window " + begin);
+    assertEquals(sought.subList(soughtResume, sought.size()), all.subList(resume, all.size()));
+
+    ArrayList<String> control = new ArrayList<>();
+    for (String tuple : all.subList(0, resume)) {
+      if (isControl(tuple)) {
+        control.add(tuple);
+      }
+    }
+    ArrayList<String> soughtControl = new ArrayList<>();
+    for (String tuple : sought.subList(0, soughtResume)) {
+      if (isControl(tuple)) {
+        soughtControl.add(tuple);
+      }
+    }
+    /* windows of previous blocks are skipped along with their control tuples */
+    assertEquals(soughtControl, control.subList(control.size() - soughtControl.size(), control.size()));
+    assertTrue(sought.size() <= all.size());
+  }
+
+  @Test
+  public void testSeek()
+  {
+    DataList dl = newDataList(64 * 1024);
+    Writer writer = new Writer(dl, (long)BASE_SECONDS << 32);
+    writer.write(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    for (int windowId = 0; windowId < 100; windowId++) {
+      writer.window(windowId, 10, 32);
+    }
+    writer.flush();
+
+    for (int windowId : new int[] {0, 1, 17, 50, 98}) {
+      assertSeek(dl, (long)BASE_SECONDS << 32 | windowId, windowId);
+    }
+    /* the reset window and the windows from the resume window on */
+    assertEquals(tuples(dl.newIterator((long)BASE_SECONDS << 32 | 50)).size(), 1 + 50 * 12);
+  }
+
+  @Test
+  public void testSeekAcrossBlocks()
+  {
+    DataList dl = newDataList(4 * 1024);
+    Writer writer = new Writer(dl, (long)BASE_SECONDS << 32);
+    writer.write(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    for (int windowId = 0; windowId < 200; windowId++) {
+      writer.window(windowId, 5, 40);
+      if (windowId == 120) {
+        writer.write(ResetWindowTuple.getSerializedTuple(BASE_SECONDS + 1, 500));
+      }
+    }
+    writer.flush();
+
+    for (int windowId : new int[] {3, 60, 119, 120}) {
+      assertSeek(dl, (long)BASE_SECONDS << 32 | windowId, windowId);
+    }
+    for (int windowId : new int[] {121, 150, 198}) {
+      assertSeek(dl, (long)(BASE_SECONDS + 1) << 32 | windowId, windowId);
+    }
+  }
+
+  @Test
+  public void testSeekAfterPurgeAndRewind() throws Exception
+  {
+    DataList dl = newDataList(64 * 1024);
+    Writer writer = new Writer(dl, (long)BASE_SECONDS << 32);
+    writer.write(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    for (int windowId = 0; windowId < 100; windowId++) {
+      writer.window(windowId, 10, 32);
+    }
+    writer.flush();
+
+    dl.purge(BASE_SECONDS, 30);
+    assertSeek(dl, (long)BASE_SECONDS << 32 | 40, 40);
+    assertSeek(dl, (long)BASE_SECONDS << 32 | 30, 30);
+
+    dl.rewind(BASE_SECONDS, 70);
+    writer = new Writer(dl, (long)BASE_SECONDS << 32 | 70);
+    for (int windowId = 70; windowId < 80; windowId++) {
+      writer.window(windowId, 20, 16);
+    }
+    writer.flush();
+    assertSeek(dl, (long)BASE_SECONDS << 32 | 65, 65);
+    assertSeek(dl, (long)BASE_SECONDS << 32 | 75, 75);
+  }
+
+  /**
+   * Measures the time a subscriber group needs to catch up with the last window of a data list with 256MB retained.
+   */
+  @Test(enabled = false)
+  public void testCatchUpPerformance()
+  {
+    final int blockSize = 64 * 1024 * 1024;
+    DataList dl = newDataList(blockSize);
+    Writer writer = new Writer(dl, (long)BASE_SECONDS << 32);
+    writer.write(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    int windowId = 0;
+    while (dl.getStatus().numBytesAllocated < 4L * blockSize) {
+      writer.window(windowId++, 1000, 64);
+    }
+    writer.flush();
+
+    for (int run = 0; run < 5; run++) {
+      long skipWindowId = (long)BASE_SECONDS << 32 | (windowId - 2);
+      long start = System.nanoTime();
+      LogicalNode ln = new LogicalNode("subscriber", "test", "group", dl.newIterator(skipWindowId), skipWindowId);
+      ln.catchUp();
+      long elapsed = System.nanoTime() - start;
+      ln.getIterator().close();
+      logger.info("caught up with window {} of {} in {} us", windowId - 1, windowId, elapsed / 1000);
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(DataListTest.class);
+}
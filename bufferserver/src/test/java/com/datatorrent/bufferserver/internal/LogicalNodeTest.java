@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
+import com.datatorrent.bufferserver.policy.LeastBacklog;
+import com.datatorrent.bufferserver.util.BitVector;
+import com.datatorrent.netlet.AbstractLengthPrependerClient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Filters the tuples of a data list by the partitions of the subscriber groups.
+ */
+public class LogicalNodeTest
+{
+  static final int BASE_SECONDS = 0x7afebabe;
+  static ExecutorService executor;
+
+  @BeforeClass
+  public static void setup()
+  {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterClass
+  public static void teardown()
+  {
+    executor.shutdown();
+  }
+
+  static class CountingClient extends AbstractLengthPrependerClient
+  {
+    int count;
+    boolean blocked;
+
+    @Override
+    public boolean send(byte[] array, int offset, int len)
+    {
+      if (blocked) {
+        return false;
+      }
+      count++;
+      return true;
+    }
+
+    @Override
+    public void onMessage(byte[] buffer, int offset, int size)
+    {
+    }
+  }
+
+  static DataList newDataList(int blockSize, int windowCount, int tupleCount, int[] partitions)
+  {
+    DataList dl = new DataList("upstream", blockSize, 1024);
+    dl.setAutoFlushExecutor(executor);
+    DataListTest.Writer writer = new DataListTest.Writer(dl, (long)BASE_SECONDS << 32);
+    writer.write(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    for (int windowId = 0, i = 0; windowId < windowCount; windowId++) {
+      writer.write(BeginWindowTuple.getSerializedTuple(windowId));
+      for (int j = 0; j < tupleCount; j++) {
+        writer.write(PayloadTuple.getSerializedTuple(partitions[i++ % partitions.length], 16));
+      }
+      writer.write(EndWindowTuple.getSerializedTuple(windowId));
+    }
+    writer.flush();
+    return dl;
+  }
+
+  /**
+   * @param group partitions of the group as pairs of partition bits and mask
+   * @return number of tuples sent to the subscriber
+   */
+  static int filter(DataList dl, int... group)
+  {
+    LogicalNode ln = new LogicalNode("subscriber", "upstream", "group", dl.newIterator(-1L), -1L);
+    for (int i = 0; i < group.length; i += 2) {
+      ln.addPartition(group[i], group[i + 1]);
+    }
+    CountingClient client = new CountingClient();
+    ln.addConnection(client);
+    ln.catchUp();
+    ln.getIterator().close();
+    return client.count;
+  }
+
+  static int expected(int[] partitions, int windowCount, int tupleCount, int... group)
+  {
+    /* reset window and begin and end window of each window */
+    int count = 1 + 2 * windowCount;
+    for (int i = 0; i < windowCount * tupleCount; i++) {
+      for (int j = 0; j < group.length; j += 2) {
+        if (new BitVector(group[j], group[j + 1]).matches(partitions[i % partitions.length])) {
+          count++;
+          break;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testPartitionFilter()
+  {
+    int[] partitions = new int[1000];
+    Random random = new Random(1);
+    for (int i = 0; i < partitions.length; i++) {
+      partitions[i] = random.nextInt();
+    }
+    partitions[0] = -1;
+    partitions[1] = 0x80;
+    partitions[2] = 0x8080;
+    partitions[3] = Integer.MIN_VALUE;
+    DataList dl = newDataList(64 * 1024, 20, 100, partitions);
+
+    int[][] groups = new int[][] {
+      {3, 7},
+      {3, 7, 5, 7},
+      {1, 1, 2, 3},
+      {0x80, 0xff, 0xff, 0xff},
+      {0x8080, 0xffff},
+      {-1, -1, Integer.MIN_VALUE, 0x80000000},
+      {0, 0}
+    };
+    for (int[] group : groups) {
+      assertEquals(filter(dl, group), expected(partitions, 20, 100, group), Arrays.toString(group));
+    }
+  }
+
+  /**
+   * A blocked subscriber of a group that balances the tuples stops receiving payload tuples while the others
+   * receive all of them, it receives the control tuples once it is unblocked.
+   */
+  @Test
+  public void testLeastBacklog()
+  {
+    for (int windowCount : new int[] {10, 50}) {
+      DataList dl = newDataList(64 * 1024, windowCount, 100, new int[] {0});
+      LogicalNode ln = new LogicalNode("subscriber", "upstream", "group", dl.newIterator(-1L), -1L);
+      ln.setPolicy(new LeastBacklog());
+      CountingClient[] clients = new CountingClient[3];
+      for (int i = 0; i < clients.length; i++) {
+        clients[i] = new CountingClient();
+        ln.addConnection(clients[i]);
+      }
+      clients[2].blocked = true;
+      ln.catchUp();
+
+      final int controlCount = 1 + 2 * windowCount;
+      if (controlCount <= LogicalNode.MAX_SKIPPED_BACKLOG) {
+        assertEquals(clients[0].count + clients[1].count, 2 * controlCount + windowCount * 100);
+        assertTrue(Math.abs(clients[0].count - clients[1].count) <= 1, clients[0].count + " " + clients[1].count);
+      } else {
+        /* the group waits for the blocked subscriber once it has too many control tuples waiting */
+        assertTrue(clients[0].count + clients[1].count < 2 * controlCount + windowCount * 100);
+      }
+      assertEquals(clients[2].count, 0);
+
+      clients[2].blocked = false;
+      ln.addedData();
+      assertEquals(clients[0].count + clients[1].count + clients[2].count, 3 * controlCount + windowCount * 100);
+      assertTrue(clients[2].count >= controlCount);
+      ln.getIterator().close();
+    }
+  }
+
+  /**
+   * Measures the throughput of subscriber groups with 8 to 32 partitions of one data list.
+   */
+  @Test(enabled = false)
+  public void testPartitionFilterPerformance()
+  {
+    int[] partitions = new int[1024];
+    Random random = new Random(1);
+    for (int i = 0; i < partitions.length; i++) {
+      partitions[i] = random.nextInt() & 0x7fffffff;
+    }
+    final int windowCount = 100;
+    final int tupleCount = 20000;
+    DataList dl = newDataList(64 * 1024 * 1024, windowCount, tupleCount, partitions);
+
+    for (int run = 0; run < 3; run++) {
+      for (int partitionCount = 8; partitionCount <= 32; partitionCount <<= 1) {
+        final int mask = partitionCount - 1;
+        long start = System.nanoTime();
+        int count = 0;
+        for (int partition = 0; partition < partitionCount; partition++) {
+          count += filter(dl, partition, mask);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(count - partitionCount * (1 + 2 * windowCount), windowCount * tupleCount);
+        logger.info("{} partitions filtered {} tuples each in {} ms, {} tuples/s", partitionCount,
+            windowCount * tupleCount, elapsed / 1000000,
+            (long)partitionCount * windowCount * tupleCount * 1000000000L / elapsed);
+      }
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(LogicalNodeTest.class);
+}
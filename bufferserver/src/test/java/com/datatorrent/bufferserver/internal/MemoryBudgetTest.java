@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class MemoryBudgetTest
+{
+  static ExecutorService executor;
+
+  @BeforeClass
+  public static void setup()
+  {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterClass
+  public static void teardown()
+  {
+    executor.shutdown();
+  }
+
+  static DataList newDataList(String identifier, MemoryBudget budget)
+  {
+    DataList dl = new DataList(identifier, 1024, budget, null);
+    dl.setAutoFlushExecutor(executor);
+    return dl;
+  }
+
+  static void addBlocks(DataList dl, int count)
+  {
+    for (int i = 0; i < count; i++) {
+      dl.addBuffer(dl.newBuffer(dl.getBlockSize()));
+    }
+  }
+
+  @Test
+  public void testPrivateBudget()
+  {
+    DataList dl = new DataList("test", 1024, 8);
+    DataList.Status status = dl.getStatus();
+    assertEquals(status.numBlocksInMemory, 1);
+    assertEquals(status.numBlocksBudgeted, 8);
+    assertEquals(status.numBlocksServerBudget, 8);
+    assertEquals(status.numBlocksServerInMemory, 1);
+  }
+
+  @Test
+  public void testSharedBudget()
+  {
+    MemoryBudget budget = new MemoryBudget(16);
+    DataList hot = newDataList("hot", budget);
+    DataList idle = newDataList("idle", budget);
+    /* without demand the spare blocks are split evenly */
+    assertEquals(hot.getStatus().numBlocksBudgeted, 8);
+    assertEquals(idle.getStatus().numBlocksBudgeted, 8);
+
+    addBlocks(hot, 6);
+    budget.rebalance(System.currentTimeMillis());
+    DataList.Status status = hot.getStatus();
+    assertEquals(status.numBlocksInMemory, 7);
+    assertEquals(status.numBlocksServerInMemory, 8);
+    assertEquals(idle.getStatus().numBlocksBudgeted, MemoryBudget.MIN_BLOCKS);
+    assertEquals(status.numBlocksBudgeted, 16 - MemoryBudget.MIN_BLOCKS);
+    assertTrue(hot.isMemoryBlockAvailable());
+
+    hot.close();
+    assertEquals(budget.getAllocatedCount(), 1);
+    assertEquals(idle.getStatus().numBlocksBudgeted, 16);
+  }
+
+  @Test
+  public void testBudgetBound()
+  {
+    MemoryBudget budget = new MemoryBudget(8);
+    List<DataList> dataLists = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      dataLists.add(newDataList("list" + i, budget));
+    }
+    /* the reserve of 2 blocks per list does not fit, the lists share the budget */
+    int budgeted = 0;
+    for (DataList dl : dataLists) {
+      assertTrue(dl.getStatus().numBlocksBudgeted >= 1, dl.getIdentifier());
+      budgeted += dl.getStatus().numBlocksBudgeted;
+    }
+    assertTrue(budgeted <= 8, "budgeted " + budgeted);
+
+    for (int i = 0; i < 3; i++) {
+      dataLists.remove(0).close();
+    }
+    for (DataList dl : dataLists) {
+      assertTrue(dl.getStatus().numBlocksBudgeted >= MemoryBudget.MIN_BLOCKS, dl.getIdentifier());
+    }
+  }
+
+  @Test
+  public void testLaggingSubscriber()
+  {
+    MemoryBudget budget = new MemoryBudget(20);
+    DataList lagging = newDataList("lagging", budget);
+    DataList writing = newDataList("writing", budget);
+    DataList.DataListIterator iterator = lagging.newIterator(-1L);
+    addBlocks(lagging, 4);
+    addBlocks(writing, 4);
+    budget.rebalance(System.currentTimeMillis());
+    /* same write rate, the subscriber of the lagging list has 4 blocks to read */
+    assertTrue(lagging.getStatus().numBlocksBudgeted > writing.getStatus().numBlocksBudgeted,
+        lagging.getStatus().numBlocksBudgeted + " " + writing.getStatus().numBlocksBudgeted);
+    iterator.close();
+  }
+
+  @Test
+  public void testPurgeReleasesBlocks()
+  {
+    MemoryBudget budget = new MemoryBudget(8);
+    DataList dl = newDataList("test", budget);
+    DataListTest.Writer writer = new DataListTest.Writer(dl, (long)DataListTest.BASE_SECONDS << 32);
+    writer.write(ResetWindowTuple.getSerializedTuple(DataListTest.BASE_SECONDS, 500));
+    for (int windowId = 0; windowId < 30; windowId++) {
+      writer.window(windowId, 4, 32);
+    }
+    writer.flush();
+    final int inMemory = budget.getAllocatedCount();
+    assertTrue(inMemory > 4, "blocks " + inMemory);
+
+    dl.purge(DataListTest.BASE_SECONDS, 25);
+    assertTrue(budget.getAllocatedCount() < inMemory, "blocks " + budget.getAllocatedCount());
+    assertEquals(dl.getStatus().numBlocksInMemory, budget.getAllocatedCount());
+  }
+
+}
@@ -55,6 +55,19 @@ public class SubscribeRequestTupleTest
     assertTrue(parts != null && parts.length == 1 && parts[0] == 5);
 
     assertEquals((long)tuple.getBaseSeconds() << 32 | tuple.getWindowId(), startingWindowId, "Window");
+    assertEquals(tuple.getPolicy(), null, "Policy");
+  }
+
+  @Test
+  public void testGetSerializedRequestWithPolicy()
+  {
+    byte[] serial = getSerializedRequest(null, "SubscriberId", "SubscriberId/StreamType", "PublisherId", 0, null,
+        0xcafebabe00000078L, 1024, "LeastBacklog");
+    SubscribeRequestTuple tuple = (SubscribeRequestTuple)Tuple.getTuple(serial, 0, serial.length);
+    assertTrue(tuple.isValid(), "Valid");
+    assertEquals(tuple.getUpstreamIdentifier(), "PublisherId", "UpstreamId");
+    assertEquals(tuple.getBufferSize(), 1024, "BufferSize");
+    assertEquals(tuple.getPolicy(), "LeastBacklog", "Policy");
   }
 
 }
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.server;
+
+import java.net.InetSocketAddress;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.support.Controller;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.bufferserver.support.Subscriber;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+import static java.lang.Thread.sleep;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Publishes and subscribes to several streams of a server running more than one event loop.
+ */
+public class EventLoopShardingTest
+{
+  static final int PUBLISHER_COUNT = 6;
+  static DefaultEventLoop eventloopServer;
+  static DefaultEventLoop eventloopClient;
+  static Server instance;
+  static int spinCount = 500;
+  static InetSocketAddress address;
+
+  @BeforeClass
+  public static void setupServerAndClients() throws Exception
+  {
+    eventloopServer = DefaultEventLoop.createEventLoop("server");
+    eventloopServer.start();
+
+    eventloopClient = DefaultEventLoop.createEventLoop("client");
+    eventloopClient.start();
+
+    instance = new Server(0, 1024, 8);
+    instance.setEventLoopCount(3);
+
+    address = instance.run(eventloopServer);
+    assertFalse(address.isUnresolved());
+  }
+
+  @AfterClass
+  public static void teardownServerAndClients()
+  {
+    eventloopServer.stop(instance);
+    eventloopClient.stop();
+    eventloopServer.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testShardedPublishers() throws InterruptedException
+  {
+    assertEquals(instance.getEventLoopCount(), 3);
+
+    Publisher[] publishers = new Publisher[PUBLISHER_COUNT];
+    Subscriber[] subscribers = new Subscriber[PUBLISHER_COUNT];
+    for (int i = 0; i < PUBLISHER_COUNT; i++) {
+      subscribers[i] = new Subscriber("MySubscriber" + i);
+      eventloopClient.connect(address, subscribers[i]);
+      subscribers[i].activate(null, "BufferServerOutput/BufferServerSubscriber" + i, "MyPublisher" + i, 0, null, 0L, 0);
+
+      publishers[i] = new Publisher("MyPublisher" + i);
+      eventloopClient.connect(address, publishers[i]);
+      publishers[i].activate(null, 0x7afebabe, 0);
+    }
+
+    long windowId = 0x7afebabe00000000L;
+    for (int i = 0; i < PUBLISHER_COUNT; i++) {
+      publishers[i].publishMessage(BeginWindowTuple.getSerializedTuple((int)windowId));
+      for (int j = 0; j < 100 * (i + 1); j++) {
+        byte[] buff = PayloadTuple.getSerializedTuple(0, 1);
+        buff[buff.length - 1] = (byte)j;
+        publishers[i].publishMessage(buff);
+      }
+      publishers[i].publishMessage(EndWindowTuple.getSerializedTuple((int)windowId));
+    }
+
+    for (int i = 0; i < PUBLISHER_COUNT; i++) {
+      for (int spin = 0; spin < spinCount && subscribers[i].tupleCount.get() < 100 * (i + 1) + 2; spin++) {
+        sleep(10);
+      }
+    }
+    Thread.sleep(10); // wait some more to receive more tuples if possible
+
+    for (int i = 0; i < PUBLISHER_COUNT; i++) {
+      /* begin window, payload and end window */
+      assertEquals(subscribers[i].tupleCount.get(), 100 * (i + 1) + 2, subscribers[i].toString());
+    }
+
+    Controller controller = new Controller("MyController");
+    eventloopClient.connect(address, controller);
+    controller.purge(null, "MyPublisher1", 0x7afebabe00000000L);
+    for (int spin = 0; spin < spinCount && controller.data == null; spin++) {
+      sleep(10);
+    }
+    assertNotNull(controller.data);
+    eventloopClient.disconnect(controller);
+
+    double[] utilization = instance.getEventLoopUtilization();
+    assertEquals(utilization.length, 3);
+    for (double u : utilization) {
+      assertTrue(u >= -1, "utilization " + u);
+    }
+
+    for (int i = 0; i < PUBLISHER_COUNT; i++) {
+      eventloopClient.disconnect(publishers[i]);
+      eventloopClient.disconnect(subscribers[i]);
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.server;
+
+import java.net.InetSocketAddress;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.policy.LeastBacklog;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.bufferserver.support.Subscriber;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+import static java.lang.Thread.sleep;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Subscribers that share a group with a distribution policy.
+ */
+public class SubscriberGroupTest
+{
+  static DefaultEventLoop eventloopServer;
+  static DefaultEventLoop eventloopClient;
+  static Server instance;
+  static InetSocketAddress address;
+  static int spinCount = 500;
+
+  @BeforeClass
+  public static void setupServerAndClients() throws Exception
+  {
+    eventloopServer = DefaultEventLoop.createEventLoop("server");
+    eventloopServer.start();
+
+    eventloopClient = DefaultEventLoop.createEventLoop("client");
+    eventloopClient.start();
+
+    instance = new Server(0, 1024, 8);
+    address = instance.run(eventloopServer);
+    assertFalse(address.isUnresolved());
+  }
+
+  @AfterClass
+  public static void teardownServerAndClients()
+  {
+    eventloopServer.stop(instance);
+    eventloopClient.stop();
+    eventloopServer.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testSharedGroup() throws InterruptedException
+  {
+    final String policy = LeastBacklog.class.getSimpleName();
+    Subscriber bss1 = new Subscriber("MySubscriber1");
+    eventloopClient.connect(address, bss1);
+    bss1.activate(null, "BufferServerOutput/BufferServerSubscriber", "MyPublisher", 0, null, 0L, 0, policy);
+
+    Subscriber bss2 = new Subscriber("MySubscriber2");
+    eventloopClient.connect(address, bss2);
+    bss2.activate(null, "BufferServerOutput/BufferServerSubscriber", "MyPublisher", 0, null, 0L, 0, policy);
+
+    Publisher bsp = new Publisher("MyPublisher");
+    eventloopClient.connect(address, bsp);
+    bsp.activate(null, 0x7afebabe, 0);
+
+    long windowId = 0x7afebabe00000000L;
+    bsp.publishMessage(BeginWindowTuple.getSerializedTuple((int)windowId));
+    for (int i = 0; i < 100; i++) {
+      byte[] buff = PayloadTuple.getSerializedTuple(0, 1);
+      buff[buff.length - 1] = (byte)i;
+      bsp.publishMessage(buff);
+    }
+    bsp.publishMessage(EndWindowTuple.getSerializedTuple((int)windowId));
+
+    for (int i = 0; i < spinCount; i++) {
+      sleep(10);
+      if (bss1.tupleCount.get() + bss2.tupleCount.get() >= 104) {
+        break;
+      }
+    }
+    sleep(10); // wait some more to receive more tuples if possible
+
+    assertTrue(bss1.isConnected(), "first subscriber connected");
+    assertTrue(bss2.isConnected(), "second subscriber connected");
+
+    /* both receive the window, the payload tuples are spread evenly between them */
+    assertEquals(bss1.tupleCount.get(), 52, "tuples of the first subscriber");
+    assertEquals(bss2.tupleCount.get(), 52, "tuples of the second subscriber");
+    assertEquals(bss1.firstPayload.getWindowId(), (int)windowId);
+    assertEquals(bss2.firstPayload.getWindowId(), (int)windowId);
+
+    eventloopClient.disconnect(bsp);
+    eventloopClient.disconnect(bss1);
+    eventloopClient.disconnect(bss2);
+  }
+
+}
@@ -0,0 +1,350 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.Min;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Operator;
+import com.datatorrent.api.Partitioner.PartitionKeys;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.api.StatsListener;
+
+/**
+ * Stateless partitioner that scales the number of partitions of an operator with its load.
+ * <p>
+ * The stats of each partition are compared to the configured targets, a target that is 0 is not checked. A partition
+ * is overloaded when it processes more tuples per second than {@link #getMaxTuplesPerSecond()}, or has more tuples
+ * queued on its input ports than {@link #getMaxQueueSize()}, or its end window latency exceeds
+ * {@link #getMaxLatencyMillis()}, or it uses more CPU than {@link #getMaxCpuPercentage()}. An input operator is
+ * measured by the tuples it emits instead. A partition that is not overloaded is underloaded when it processes fewer
+ * tuples than {@link #getMinTuplesPerSecond()} and uses less CPU than {@link #getMinCpuPercentage()}.
+ * <p>
+ * Once a partition was overloaded or underloaded for {@link #getHysteresisMillis()}, it reports the load to the
+ * engine and requests a repartition. Overloaded partitions are split and pairs of underloaded sibling partitions are
+ * merged by {@link StatelessPartitioner#repartition(Collection)}, within {@link #getMinPartitions()} and
+ * {@link #getMaxPartitions()}. No repartition is requested within {@link #getCooldownMillis()} of the previous one,
+ * so that the stats of the new partitions settle first.
+ * <p>
+ * The same instance has to be set as both the {@link com.datatorrent.api.Context.OperatorContext#PARTITIONER} and a
+ * {@link com.datatorrent.api.Context.OperatorContext#STATS_LISTENERS} of the operator, the initial number of
+ * partitions is {@link #getPartitionCount()}.
+ *
+ * @param <T> type of the operator
+ */
+public class AutoScalingPartitioner<T extends Operator> extends StatelessPartitioner<T> implements StatsListener
+{
+  @Min(1)
+  private int minPartitions = 1;
+  @Min(1)
+  private int maxPartitions = 16;
+  private long maxTuplesPerSecond;
+  private long minTuplesPerSecond;
+  private int maxQueueSize;
+  private long maxLatencyMillis;
+  private double maxCpuPercentage;
+  private double minCpuPercentage;
+  private long hysteresisMillis = 30000;
+  private long cooldownMillis = 60000;
+  private int currentPartitionCount;
+  private long repartitionMillis;
+  /**
+   * Load of each partition and since when it has that load.
+   */
+  private final Map<Integer, Trend> trends = new HashMap<>();
+
+  private static class Trend implements Serializable
+  {
+    final int load;
+    final long sinceMillis;
+
+    Trend(int load, long sinceMillis)
+    {
+      this.load = load;
+      this.sinceMillis = sinceMillis;
+    }
+
+    private static final long serialVersionUID = 201610181500L;
+  }
+
+  @Override
+  public synchronized Response processStats(BatchedOperatorStats stats)
+  {
+    final List<OperatorStats> windowedStats = stats.getLastWindowedStats();
+    if (windowedStats == null || windowedStats.isEmpty()) {
+      return null;
+    }
+
+    final long now = System.currentTimeMillis();
+    final int load = getLoad(stats, windowedStats.get(windowedStats.size() - 1));
+    Trend trend = trends.get(stats.getOperatorId());
+    if (trend == null || trend.load != load) {
+      trend = new Trend(load, now);
+      trends.put(stats.getOperatorId(), trend);
+    }
+
+    final Response response = new Response();
+    if (load != 0 && now - trend.sinceMillis >= hysteresisMillis) {
+      response.loadIndicator = load;
+      if (now - repartitionMillis >= cooldownMillis &&
+          (load > 0 ? currentPartitionCount < maxPartitions : currentPartitionCount > minPartitions)) {
+        response.repartitionRequired = true;
+        response.repartitionNote = (load > 0 ? "Overloaded" : "Underloaded") + " partition " + stats.getOperatorId() +
+            " of " + currentPartitionCount;
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Compares the stats of a partition to the targets.
+   *
+   * @param stats stats of the partition
+   * @param lastStats stats of the last window of the partition
+   * @return 1 if the partition is overloaded, -1 if it is underloaded, 0 otherwise
+   */
+  protected int getLoad(BatchedOperatorStats stats, OperatorStats lastStats)
+  {
+    final long tuplesPerSecond;
+    int queueSize = 0;
+    if (lastStats.inputPorts == null || lastStats.inputPorts.isEmpty()) {
+      tuplesPerSecond = stats.getTuplesEmittedPSMA();
+    } else {
+      tuplesPerSecond = stats.getTuplesProcessedPSMA();
+      for (PortStats portStats : lastStats.inputPorts) {
+        queueSize += portStats.queueSize;
+      }
+    }
+    final double cpuPercentage = stats.getCpuPercentageMA();
+
+    if ((maxTuplesPerSecond > 0 && tuplesPerSecond > maxTuplesPerSecond) ||
+        (maxQueueSize > 0 && queueSize > maxQueueSize) ||
+        (maxLatencyMillis > 0 && stats.getLatencyMA() > maxLatencyMillis) ||
+        (maxCpuPercentage > 0 && cpuPercentage > maxCpuPercentage)) {
+      return 1;
+    }
+    if ((minTuplesPerSecond > 0 || minCpuPercentage > 0) &&
+        (minTuplesPerSecond <= 0 || tuplesPerSecond < minTuplesPerSecond) &&
+        (minCpuPercentage <= 0 || cpuPercentage < minCpuPercentage)) {
+      return -1;
+    }
+    return 0;
+  }
+
+  /**
+   * Splits the overloaded partitions and merges the underloaded partitions, as far as the bounds of the number of
+   * partitions allow. The other partitions are not changed.
+   */
+  @Override
+  public synchronized Collection<Partition<T>> definePartitions(Collection<Partition<T>> partitions,
+      PartitioningContext context)
+  {
+    final Partition<T> partition = partitions.iterator().next();
+    if (partition.getStats() == null || context.getParallelPartitionCount() != 0) {
+      return super.definePartitions(partitions, context);
+    }
+    repartitionMillis = System.currentTimeMillis();
+
+    int headroom = maxPartitions - partitions.size();
+    /* the number of underloaded partitions that can be merged in pairs */
+    int surplus = 2 * (partitions.size() - minPartitions);
+    final List<Partition<T>> candidates = new ArrayList<>();
+    final List<Partition<T>> unchanged = new ArrayList<>();
+    for (Partition<T> p : partitions) {
+      final int load = p.getLoad();
+      if (load > 0 && getSplitGrowth(p) <= headroom) {
+        headroom -= getSplitGrowth(p);
+        candidates.add(p);
+      } else if (load < 0 && surplus > 0) {
+        surplus--;
+        candidates.add(p);
+      } else {
+        unchanged.add(p);
+      }
+    }
+
+    final Collection<Partition<T>> newPartitions = partition.getPartitionKeys().isEmpty() ?
+        repartitionInputOperator(candidates) : repartition(candidates);
+    newPartitions.addAll(unchanged);
+    logger.info("Scaling from {} to {} partitions", partitions.size(), newPartitions.size());
+    return newPartitions;
+  }
+
+  /**
+   * @return number of partitions that the split of the partition adds
+   */
+  private static int getSplitGrowth(Partition<?> partition)
+  {
+    if (partition.getPartitionKeys().isEmpty()) {
+      return 1;
+    }
+    final PartitionKeys pks = partition.getPartitionKeys().values().iterator().next();
+    return pks.partitions.size() == 1 ? 1 : pks.partitions.size() - 1;
+  }
+
+  @Override
+  public synchronized void partitioned(Map<Integer, Partition<T>> partitions)
+  {
+    currentPartitionCount = partitions.size();
+    trends.keySet().retainAll(partitions.keySet());
+  }
+
+  public int getMinPartitions()
+  {
+    return minPartitions;
+  }
+
+  /**
+   * @param minPartitions minimum number of partitions that underloaded partitions are merged to
+   */
+  public void setMinPartitions(int minPartitions)
+  {
+    this.minPartitions = minPartitions;
+  }
+
+  public int getMaxPartitions()
+  {
+    return maxPartitions;
+  }
+
+  /**
+   * @param maxPartitions maximum number of partitions that overloaded partitions are split to
+   */
+  public void setMaxPartitions(int maxPartitions)
+  {
+    this.maxPartitions = maxPartitions;
+  }
+
+  public long getMaxTuplesPerSecond()
+  {
+    return maxTuplesPerSecond;
+  }
+
+  /**
+   * @param maxTuplesPerSecond tuples processed per second above which a partition is overloaded, 0 to not check
+   */
+  public void setMaxTuplesPerSecond(long maxTuplesPerSecond)
+  {
+    this.maxTuplesPerSecond = maxTuplesPerSecond;
+  }
+
+  public long getMinTuplesPerSecond()
+  {
+    return minTuplesPerSecond;
+  }
+
+  /**
+   * @param minTuplesPerSecond tuples processed per second below which a partition is underloaded, 0 to not check
+   */
+  public void setMinTuplesPerSecond(long minTuplesPerSecond)
+  {
+    this.minTuplesPerSecond = minTuplesPerSecond;
+  }
+
+  public int getMaxQueueSize()
+  {
+    return maxQueueSize;
+  }
+
+  /**
+   * @param maxQueueSize tuples queued on the input ports above which a partition is overloaded, 0 to not check
+   */
+  public void setMaxQueueSize(int maxQueueSize)
+  {
+    this.maxQueueSize = maxQueueSize;
+  }
+
+  public long getMaxLatencyMillis()
+  {
+    return maxLatencyMillis;
+  }
+
+  /**
+   * @param maxLatencyMillis end window latency above which a partition is overloaded, 0 to not check
+   */
+  public void setMaxLatencyMillis(long maxLatencyMillis)
+  {
+    this.maxLatencyMillis = maxLatencyMillis;
+  }
+
+  public double getMaxCpuPercentage()
+  {
+    return maxCpuPercentage;
+  }
+
+  /**
+   * @param maxCpuPercentage CPU percentage above which a partition is overloaded, 0 to not check
+   */
+  public void setMaxCpuPercentage(double maxCpuPercentage)
+  {
+    this.maxCpuPercentage = maxCpuPercentage;
+  }
+
+  public double getMinCpuPercentage()
+  {
+    return minCpuPercentage;
+  }
+
+  /**
+   * @param minCpuPercentage CPU percentage below which a partition is underloaded, 0 to not check
+   */
+  public void setMinCpuPercentage(double minCpuPercentage)
+  {
+    this.minCpuPercentage = minCpuPercentage;
+  }
+
+  public long getHysteresisMillis()
+  {
+    return hysteresisMillis;
+  }
+
+  /**
+   * @param hysteresisMillis time a partition has to stay overloaded or underloaded before it is repartitioned
+   */
+  public void setHysteresisMillis(long hysteresisMillis)
+  {
+    this.hysteresisMillis = hysteresisMillis;
+  }
+
+  public long getCooldownMillis()
+  {
+    return cooldownMillis;
+  }
+
+  /**
+   * @param cooldownMillis minimum time between two repartitions
+   */
+  public void setCooldownMillis(long cooldownMillis)
+  {
+    this.cooldownMillis = cooldownMillis;
+  }
+
+  private static final long serialVersionUID = 201610181500L;
+  private static final Logger logger = LoggerFactory.getLogger(AutoScalingPartitioner.class);
+}
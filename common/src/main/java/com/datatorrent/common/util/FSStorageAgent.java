@@ -60,11 +60,20 @@ public class FSStorageAgent implements StorageAgent, Serializable
   protected static final String STATELESS_CHECKPOINT_WINDOW_ID = Long.toHexString(Stateless.WINDOW_ID);
   public final String path;
   protected final transient FileContext fileContext;
-  protected static final transient Kryo kryo;
+  /**
+   * @deprecated checkpoints are serialized with a {@link Kryo} instance per thread, this instance is not used anymore.
+   */
+  @Deprecated
+  protected static final transient Kryo kryo = new Kryo();
 
-  static {
-    kryo = new Kryo();
-  }
+  private static final ThreadLocal<SerializationContext> serializationContext = new ThreadLocal<SerializationContext>()
+  {
+    @Override
+    protected SerializationContext initialValue()
+    {
+      return new SerializationContext();
+    }
+  };
 
   protected FSStorageAgent()
   {
@@ -174,23 +183,31 @@ public class FSStorageAgent implements StorageAgent, Serializable
     return windowIds;
   }
 
+  /**
+   * Serializes the object to the stream through the Kryo instance and output buffer of the calling thread.
+   *
+   * @param stream stream to write the serialized object to
+   * @param operator object to serialize
+   */
   public static void store(OutputStream stream, Object operator)
   {
-    synchronized (kryo) {
-      Output output = new Output(4096, Integer.MAX_VALUE);
-      output.setOutputStream(stream);
-      kryo.writeClassAndObject(output, operator);
+    SerializationContext context = serializationContext.get();
+    Output output = context.output;
+    output.setOutputStream(stream);
+    try {
+      context.kryo.writeClassAndObject(output, operator);
       output.flush();
+    } finally {
+      output.setOutputStream(null);
     }
   }
 
   public static Object retrieve(InputStream stream)
   {
-    synchronized (kryo) {
-      kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
-      Input input = new Input(stream);
-      return kryo.readClassAndObject(input);
-    }
+    Kryo lKryo = serializationContext.get().kryo;
+    lKryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+    Input input = new Input(stream);
+    return lKryo.readClassAndObject(input);
   }
 
   public Object readResolve() throws ObjectStreamException
@@ -198,6 +215,16 @@ public class FSStorageAgent implements StorageAgent, Serializable
     return new FSStorageAgent(this.path, null);
   }
 
+  /**
+   * Kryo is not thread safe, every thread serializing checkpoints creates its own instance and output buffer once and
+   * reuses them for all checkpoints.
+   */
+  private static class SerializationContext
+  {
+    final Kryo kryo = new Kryo();
+    final Output output = new Output(4096, Integer.MAX_VALUE);
+  }
+
   private static final long serialVersionUID = 201404031201L;
   private static final Logger logger = LoggerFactory.getLogger(FSStorageAgent.class);
 }
@@ -0,0 +1,951 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.api.annotation.Stateless;
+
+/**
+ * Storage agent that writes only the parts of the serialized operator state that changed since the previous
+ * checkpoint of the operator.
+ * <p>
+ * The serialized state is split into content defined chunks, so that an insertion does not shift the boundaries of
+ * the chunks after it. Chunks that are found in the previous checkpoint are stored as references into it, the other
+ * chunks are stored as is. Every {@link #getFullSnapshotInterval()} checkpoints the complete state is written instead,
+ * and a delta in which the changed chunks make up more than half of the state is rewritten as complete state. Full
+ * snapshots use the same format as {@link FSStorageAgent}.
+ * <p>
+ * The state is chunked while it is serialized to the file system and {@link #load(int, long)} deserializes it while
+ * it is read from the chain of checkpoints leading to the requested one, so the state is never held in memory as a
+ * whole. Deleted checkpoints are kept as long as later checkpoints depend on them, and a checkpoint that depends on
+ * more than {@link #getCompactionThreshold()} deleted checkpoints is rewritten as full snapshot so that they can be
+ * removed.
+ * <p>
+ * Checkpoints are saved by the container of the operator and deleted by the application master. To keep the two
+ * from removing a base that a delta being written still refers to, {@link #delete(int, long)} only records the
+ * deletion with a marker file. The data of deleted checkpoints is removed and compacted by the process that saves the
+ * checkpoints of the operator, after its latest checkpoint became visible, or when no live checkpoint of the operator
+ * is left. Temporary files are named per agent instance, so that writers do not share them.
+ * <p>
+ * The chunks of the previous checkpoint are identified by their digests, which this agent keeps in memory for every
+ * operator it saved or loaded.
+ */
+public class IncrementalFSStorageAgent extends FSStorageAgent implements StorageAgent.IncrementalStorageAgent
+{
+  public static final int DEFAULT_FULL_SNAPSHOT_INTERVAL = 10;
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 16;
+  static final String DELETED_SUFFIX = ".deleted";
+  private static final String COMPACTION_TMP_FILE = "_compaction";
+  private static final int MAGIC = 0x44454c54;
+  private static final byte VERSION = 2;
+  private static final byte END = 0;
+  private static final byte COPY = 1;
+  private static final byte LITERAL = 2;
+  private static final int MIN_CHUNK_SIZE = 2 * 1024;
+  private static final int MAX_CHUNK_SIZE = 64 * 1024;
+  /**
+   * 13 bits of the rolling hash, which gives chunks of 8KB above the minimum on average.
+   */
+  private static final long BOUNDARY_MASK = ((1L << 13) - 1) << 51;
+  private static final long[] GEAR = new long[256];
+
+  static {
+    Random random = new Random(201606291201L);
+    for (int i = 0; i < GEAR.length; i++) {
+      GEAR[i] = random.nextLong();
+    }
+  }
+
+  private int fullSnapshotInterval = DEFAULT_FULL_SNAPSHOT_INTERVAL;
+  private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+  private final transient Map<Integer, Base> bases = new ConcurrentHashMap<>();
+  private final transient String tmpFile = TMP_FILE + '.' + UUID.randomUUID();
+  private final transient String compactionTmpFile = COMPACTION_TMP_FILE + '.' + UUID.randomUUID();
+
+  @SuppressWarnings("unused")
+  private IncrementalFSStorageAgent()
+  {
+    super();
+  }
+
+  public IncrementalFSStorageAgent(String path, Configuration conf)
+  {
+    super(path, conf);
+  }
+
+  @Override
+  public void save(Object object, int operatorId, long windowId) throws IOException
+  {
+    save(object, operatorId, windowId, false);
+  }
+
+  @Override
+  public void saveSnapshot(Object object, int operatorId, long windowId) throws IOException
+  {
+    save(object, operatorId, windowId, true);
+  }
+
+  /**
+   * Lists the checkpoints of the operator once and keeps the listing up to date with the changes made while saving.
+   */
+  private void save(Object object, int operatorId, long windowId, boolean snapshot) throws IOException
+  {
+    Listing listing = list(operatorId);
+    List<Checkpoint> checkpoints = listing.checkpoints;
+    if (find(checkpoints, windowId) != null) {
+      /* the window was saved before, its dependents are rewritten as they refer to the previous state */
+      for (Checkpoint checkpoint : new ArrayList<>(checkpoints)) {
+        if (checkpoint.delta && checkpoint.baseWindowId == windowId && checkpoint.windowId != windowId) {
+          compact(operatorId, listing, checkpoint);
+        }
+      }
+    }
+
+    Base base = bases.get(operatorId);
+    if (base != null && (snapshot || base.windowId == windowId || !isLive(checkpoints, base.windowId) ||
+        (fullSnapshotInterval > 0 && base.depth + 1 >= fullSnapshotInterval))) {
+      base = null;
+    }
+
+    String window = Long.toHexString(windowId);
+    Path dir = new Path(path + Path.SEPARATOR + operatorId);
+    Path tmpPath = new Path(dir, tmpFile);
+    Chunker chunker;
+    try (FSDataOutputStream stream = fileContext.create(tmpPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+        Options.CreateOpts.CreateParent.createParent())) {
+      chunker = base == null ? new SnapshotWriter(stream) : new DeltaWriter(stream, base);
+      store(chunker, object);
+      chunker.finish();
+    }
+
+    Checkpoint saved;
+    int depth = 0;
+    if (base == null) {
+      saved = new Checkpoint(new Path(dir, window), chunker.length, windowId, false, 0);
+      fileContext.rename(tmpPath, saved.path, Options.Rename.OVERWRITE);
+      logger.debug("Saved snapshot {}: {}, {} bytes", operatorId, window, chunker.length);
+    } else {
+      long literalBytes = ((DeltaWriter)chunker).literalBytes;
+      Checkpoint delta = new Checkpoint(tmpPath, 0, windowId, true, base.windowId);
+      if (literalBytes * 2 > chunker.length) {
+        /* too much changed for the delta to pay off, the base chain is read back rather than holding the state */
+        List<Checkpoint> chain = chain(checkpoints, find(checkpoints, base.windowId));
+        chain.add(0, delta);
+        saved = writeFull(operatorId, compactionTmpFile, chain, window);
+        fileContext.delete(tmpPath, false);
+      } else {
+        saved = new Checkpoint(new Path(dir, window + '.' + Long.toHexString(base.windowId)), 0, windowId, true,
+            base.windowId);
+        fileContext.rename(tmpPath, saved.path, Options.Rename.OVERWRITE);
+        depth = base.depth + 1;
+        logger.debug("Saved delta {}: {} to {}, {} of {} bytes changed", operatorId, window, base.windowId,
+            literalBytes, chunker.length);
+      }
+    }
+
+    /* remove other versions of the window, nothing depends on them anymore */
+    for (Checkpoint checkpoint : new ArrayList<>(checkpoints)) {
+      if (checkpoint.windowId == windowId) {
+        checkpoints.remove(checkpoint);
+        if (!checkpoint.name.equals(saved.name)) {
+          fileContext.delete(checkpoint.path, false);
+        }
+      }
+    }
+    checkpoints.add(saved);
+    /* saving the window again makes it live */
+    Path marker = listing.markers.remove(windowId);
+    if (marker != null) {
+      fileContext.delete(marker, false);
+    }
+    bases.put(operatorId, new Base(windowId, depth, chunker.chunks));
+    purge(operatorId, listing);
+  }
+
+  /**
+   * Streams the state of the first checkpoint of the chain into a full snapshot of the window.
+   *
+   * @return the full snapshot
+   */
+  private Checkpoint writeFull(int operatorId, String tmpFile, List<Checkpoint> chain, String window)
+    throws IOException
+  {
+    Path dir = new Path(path + Path.SEPARATOR + operatorId);
+    Path tmpPath = new Path(dir, tmpFile);
+    long length = 0;
+    try (Reader reader = new Reader(chain);
+        FSDataOutputStream stream = fileContext.create(tmpPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+        Options.CreateOpts.CreateParent.createParent())) {
+      InputStream in = reader.open();
+      byte[] buffer = new byte[MAX_CHUNK_SIZE];
+      for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+        stream.write(buffer, 0, read);
+        length += read;
+      }
+    }
+    Checkpoint snapshot = new Checkpoint(new Path(dir, window), length, chain.get(0).windowId, false, 0);
+    fileContext.rename(tmpPath, snapshot.path, Options.Rename.OVERWRITE);
+    logger.debug("Saved snapshot {}: {}, {} bytes", operatorId, window, length);
+    return snapshot;
+  }
+
+  @Override
+  public Object load(int operatorId, long windowId) throws IOException
+  {
+    List<Checkpoint> checkpoints = list(operatorId).checkpoints;
+    Checkpoint checkpoint = find(checkpoints, windowId);
+    if (checkpoint == null || checkpoint.deleted) {
+      throw new IOException("No checkpoint " + Long.toHexString(windowId) + " for operator " + operatorId);
+    }
+    logger.debug("Loading: {}", checkpoint.path);
+    List<Checkpoint> chain = chain(checkpoints, checkpoint);
+    try (Reader reader = new Reader(chain)) {
+      final InputStream in = reader.open();
+      final Chunker chunker = new Chunker();
+      /* the chunks of the state are the base of the next checkpoint */
+      InputStream tee = new InputStream()
+      {
+        @Override
+        public int read() throws IOException
+        {
+          int value = in.read();
+          if (value != -1) {
+            chunker.write(value);
+          }
+          return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+          int read = in.read(b, off, len);
+          if (read > 0) {
+            chunker.write(b, off, read);
+          }
+          return read;
+        }
+      };
+      Object object = retrieve(tee);
+      byte[] buffer = new byte[MAX_CHUNK_SIZE];
+      while (tee.read(buffer) != -1) {
+        /* bytes after the state */
+      }
+      chunker.finish();
+      bases.put(operatorId, new Base(windowId, chain.size() - 1, chunker.chunks));
+      return object;
+    }
+  }
+
+  /**
+   * Records the deletion of the checkpoint with a marker file. The data is removed by the process that saves the
+   * checkpoints of the operator, unless this was the last live checkpoint of the operator.
+   */
+  @Override
+  public void delete(int operatorId, long windowId) throws IOException
+  {
+    Base base = bases.get(operatorId);
+    if (base != null && base.windowId == windowId) {
+      bases.remove(operatorId);
+    }
+
+    Listing listing = list(operatorId);
+    if (find(listing.checkpoints, windowId) != null && !listing.markers.containsKey(windowId)) {
+      Path marker = new Path(path + Path.SEPARATOR + operatorId + Path.SEPARATOR + Long.toHexString(windowId) +
+          DELETED_SUFFIX);
+      logger.debug("Deleting: {}", marker);
+      fileContext.create(marker, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE)).close();
+      listing = list(operatorId);
+    }
+
+    for (Checkpoint checkpoint : listing.checkpoints) {
+      if (!checkpoint.deleted) {
+        return;
+      }
+    }
+    /* no live checkpoint is left, so no delta that refers to the deleted ones can be written anymore */
+    for (Checkpoint checkpoint : listing.checkpoints) {
+      logger.debug("Removing: {}", checkpoint.path);
+      fileContext.delete(checkpoint.path, false);
+    }
+    for (Path marker : listing.markers.values()) {
+      fileContext.delete(marker, false);
+    }
+  }
+
+  /**
+   * Removes the data of deleted checkpoints no checkpoint depends on anymore and the markers of the removed
+   * checkpoints. Only called by the process that saves the checkpoints of the operator.
+   */
+  private void purge(int operatorId, Listing listing) throws IOException
+  {
+    List<Checkpoint> checkpoints = listing.checkpoints;
+    Set<Checkpoint> required = new HashSet<>();
+    while (true) {
+      Checkpoint compacted = null;
+      required.clear();
+      for (Checkpoint checkpoint : checkpoints) {
+        if (!checkpoint.deleted) {
+          List<Checkpoint> chain = chain(checkpoints, checkpoint);
+          required.addAll(chain);
+          int deleted = 0;
+          for (Checkpoint link : chain) {
+            if (link.deleted) {
+              deleted++;
+            }
+          }
+          if (deleted > compactionThreshold && (compacted == null || checkpoint.windowId < compacted.windowId)) {
+            compacted = checkpoint;
+          }
+        }
+      }
+      if (compacted == null) {
+        break;
+      }
+      compact(operatorId, listing, compacted);
+    }
+
+    Set<Long> remaining = new HashSet<>();
+    for (Checkpoint checkpoint : checkpoints) {
+      if (required.contains(checkpoint)) {
+        remaining.add(checkpoint.windowId);
+      } else {
+        logger.debug("Removing: {}", checkpoint.path);
+        fileContext.delete(checkpoint.path, false);
+      }
+    }
+    for (Map.Entry<Long, Path> marker : listing.markers.entrySet()) {
+      if (!remaining.contains(marker.getKey())) {
+        fileContext.delete(marker.getValue(), false);
+      }
+    }
+  }
+
+  /**
+   * Rewrites the checkpoint as full snapshot so that it does not depend on earlier checkpoints anymore and replaces
+   * it in the listing.
+   */
+  private void compact(int operatorId, Listing listing, Checkpoint checkpoint) throws IOException
+  {
+    String window = Long.toHexString(checkpoint.windowId);
+    logger.debug("Compacting {} into snapshot {}: {}", checkpoint.path, operatorId, window);
+    Checkpoint snapshot = writeFull(operatorId, compactionTmpFile, chain(listing.checkpoints, checkpoint), window);
+    fileContext.delete(checkpoint.path, false);
+    listing.checkpoints.remove(checkpoint);
+    listing.checkpoints.add(new Checkpoint(snapshot.path, snapshot.length, snapshot.windowId, false, 0,
+        checkpoint.deleted));
+  }
+
+  @Override
+  public long[] getWindowIds(int operatorId) throws IOException
+  {
+    Listing listing = list(operatorId);
+    if (listing.checkpoints.isEmpty() && listing.markers.isEmpty()) {
+      throw new IOException("Storage Agent has not saved anything yet!");
+    }
+    TreeSet<Long> windowIds = new TreeSet<>();
+    for (Checkpoint checkpoint : listing.checkpoints) {
+      if (!checkpoint.deleted) {
+        windowIds.add(checkpoint.windowId);
+      }
+    }
+    long[] result = new long[windowIds.size()];
+    int i = 0;
+    for (Long windowId : windowIds) {
+      result[i++] = windowId;
+    }
+    return result;
+  }
+
+  private Listing list(int operatorId) throws IOException
+  {
+    Listing listing = new Listing();
+    Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId));
+    if (!fileContext.util().exists(lPath)) {
+      return listing;
+    }
+    List<FileStatus> files = new ArrayList<>();
+    RemoteIterator<FileStatus> iterator = fileContext.listStatus(lPath);
+    while (iterator.hasNext()) {
+      FileStatus status = iterator.next();
+      String name = status.getPath().getName();
+      if (name.endsWith(DELETED_SUFFIX)) {
+        listing.markers.put(parseWindowId(name.substring(0, name.length() - DELETED_SUFFIX.length())),
+            status.getPath());
+      } else if (!name.startsWith("_")) {
+        files.add(status);
+      }
+    }
+    for (FileStatus status : files) {
+      listing.checkpoints.add(new Checkpoint(status.getPath(), status.getLen(), listing.markers.keySet()));
+    }
+    return listing;
+  }
+
+  /**
+   * Finds the checkpoint of the window, preferring full snapshots over deltas.
+   */
+  private static Checkpoint find(List<Checkpoint> checkpoints, long windowId)
+  {
+    Checkpoint found = null;
+    for (Checkpoint checkpoint : checkpoints) {
+      if (checkpoint.windowId == windowId && (found == null || found.delta && !checkpoint.delta)) {
+        found = checkpoint;
+      }
+    }
+    return found;
+  }
+
+  private static boolean isLive(List<Checkpoint> checkpoints, long windowId)
+  {
+    Checkpoint checkpoint = find(checkpoints, windowId);
+    return checkpoint != null && !checkpoint.deleted;
+  }
+
+  /**
+   * @return the checkpoint followed by the checkpoints it depends on, ending with a full snapshot
+   */
+  private static List<Checkpoint> chain(List<Checkpoint> checkpoints, Checkpoint checkpoint) throws IOException
+  {
+    List<Checkpoint> chain = new ArrayList<>();
+    chain.add(checkpoint);
+    while (checkpoint.delta) {
+      Checkpoint base = find(checkpoints, checkpoint.baseWindowId);
+      if (base == null || chain.contains(base)) {
+        throw new IOException("Missing base of incremental checkpoint " + checkpoint.path);
+      }
+      chain.add(base);
+      checkpoint = base;
+    }
+    return chain;
+  }
+
+  /**
+   * Splits the bytes into content defined chunks using a gear rolling hash.
+   */
+  static List<Chunk> chunk(byte[] bytes, int length)
+  {
+    Chunker chunker = new Chunker();
+    try {
+      chunker.write(bytes, 0, length);
+      chunker.finish();
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    return chunker.chunks;
+  }
+
+  private static long parseWindowId(String name)
+  {
+    return STATELESS_CHECKPOINT_WINDOW_ID.equals(name) ? Stateless.WINDOW_ID : Long.parseLong(name, 16);
+  }
+
+  /**
+   * @return number of checkpoints from one full snapshot to the next, periodic full snapshots are disabled when not
+   * positive
+   */
+  public int getFullSnapshotInterval()
+  {
+    return fullSnapshotInterval;
+  }
+
+  public void setFullSnapshotInterval(int fullSnapshotInterval)
+  {
+    this.fullSnapshotInterval = fullSnapshotInterval;
+  }
+
+  /**
+   * @return number of deleted checkpoints a checkpoint may depend on before it is rewritten as full snapshot
+   */
+  public int getCompactionThreshold()
+  {
+    return compactionThreshold;
+  }
+
+  public void setCompactionThreshold(int compactionThreshold)
+  {
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  @Override
+  public Object readResolve() throws ObjectStreamException
+  {
+    IncrementalFSStorageAgent agent = new IncrementalFSStorageAgent(this.path, null);
+    agent.setFullSnapshotInterval(fullSnapshotInterval);
+    agent.setCompactionThreshold(compactionThreshold);
+    return agent;
+  }
+
+  /**
+   * Checkpoints and deletion markers of an operator.
+   */
+  private static class Listing
+  {
+    final List<Checkpoint> checkpoints = new ArrayList<>();
+    final Map<Long, Path> markers = new HashMap<>();
+  }
+
+  /**
+   * Stored checkpoint, parsed from the file name: window for a full snapshot, window.base for a delta. A checkpoint is
+   * deleted when there is a marker file named after its window with {@link #DELETED_SUFFIX} appended.
+   */
+  private static class Checkpoint
+  {
+    final Path path;
+    final String name;
+    final long length;
+    final long windowId;
+    final boolean delta;
+    final long baseWindowId;
+    final boolean deleted;
+
+    Checkpoint(Path path, long length, Set<Long> deletedWindowIds)
+    {
+      this.path = path;
+      this.length = length;
+      name = path.getName();
+      int separator = name.indexOf('.');
+      delta = separator != -1;
+      windowId = parseWindowId(delta ? name.substring(0, separator) : name);
+      baseWindowId = delta ? parseWindowId(name.substring(separator + 1)) : 0;
+      deleted = deletedWindowIds.contains(windowId);
+    }
+
+    Checkpoint(Path path, long length, long windowId, boolean delta, long baseWindowId)
+    {
+      this(path, length, windowId, delta, baseWindowId, false);
+    }
+
+    Checkpoint(Path path, long length, long windowId, boolean delta, long baseWindowId, boolean deleted)
+    {
+      this.path = path;
+      this.length = length;
+      name = path.getName();
+      this.windowId = windowId;
+      this.delta = delta;
+      this.baseWindowId = baseWindowId;
+      this.deleted = deleted;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      return o instanceof Checkpoint && path.equals(((Checkpoint)o).path);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return path.hashCode();
+    }
+  }
+
+  /**
+   * Reads the state of the first checkpoint of a chain. A delta is indexed when it is opened, the ranges of the state
+   * are then read from its literals or from the checkpoint it depends on with positioned reads.
+   */
+  private class Reader implements Closeable
+  {
+    private final List<Link> links = new ArrayList<>();
+
+    Reader(List<Checkpoint> chain) throws IOException
+    {
+      try {
+        Link base = null;
+        for (int i = chain.size(); i-- > 0;) {
+          base = new Link(chain.get(i), base);
+          links.add(base);
+        }
+      } catch (IOException ex) {
+        close();
+        throw ex;
+      }
+    }
+
+    InputStream open()
+    {
+      final Link link = links.get(links.size() - 1);
+      return new InputStream()
+      {
+        long position;
+
+        @Override
+        public int read() throws IOException
+        {
+          byte[] b = new byte[1];
+          return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+          int read = (int)Math.min(len, link.length - position);
+          if (read <= 0) {
+            return len == 0 ? 0 : -1;
+          }
+          link.read(position, b, off, read);
+          position += read;
+          return read;
+        }
+      };
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      for (Link link : links) {
+        link.stream.close();
+      }
+    }
+  }
+
+  private class Link
+  {
+    final Checkpoint checkpoint;
+    final FSDataInputStream stream;
+    final Link base;
+    final List<long[]> segments = new ArrayList<>();
+    long length;
+
+    /**
+     * Indexes the instructions of a delta by the offset of the state they produce: {offset, instruction, source,
+     * length}, where the source is the offset in the base for a copy and the position in the file for a literal.
+     */
+    Link(Checkpoint checkpoint, Link base) throws IOException
+    {
+      this.checkpoint = checkpoint;
+      this.base = base;
+      stream = fileContext.open(checkpoint.path);
+      if (!checkpoint.delta) {
+        length = checkpoint.length;
+        return;
+      }
+      if (stream.readInt() != MAGIC || stream.readByte() != VERSION) {
+        throw new IOException("Invalid incremental checkpoint " + checkpoint.path);
+      }
+      if (stream.readLong() != checkpoint.baseWindowId) {
+        throw new IOException("Unexpected base of incremental checkpoint " + checkpoint.path);
+      }
+      for (byte instruction = stream.readByte(); instruction != END; instruction = stream.readByte()) {
+        if (instruction == COPY) {
+          long offset = stream.readLong();
+          long size = stream.readLong();
+          if (offset < 0 || offset + size > base.length) {
+            throw new IOException("Invalid copy in incremental checkpoint " + checkpoint.path);
+          }
+          segments.add(new long[]{length, COPY, offset, size});
+          length += size;
+        } else if (instruction == LITERAL) {
+          int size = stream.readInt();
+          segments.add(new long[]{length, LITERAL, stream.getPos(), size});
+          stream.seek(stream.getPos() + size);
+          length += size;
+        } else {
+          throw new IOException("Invalid instruction " + instruction + " in incremental checkpoint " +
+              checkpoint.path);
+        }
+      }
+      if (stream.readLong() != length) {
+        throw new IOException("Incomplete incremental checkpoint " + checkpoint.path);
+      }
+    }
+
+    void read(long position, byte[] b, int off, int len) throws IOException
+    {
+      if (!checkpoint.delta) {
+        stream.readFully(position, b, off, len);
+        return;
+      }
+      int low = 0;
+      int high = segments.size() - 1;
+      while (low < high) {
+        int mid = (low + high + 1) >>> 1;
+        if (segments.get(mid)[0] <= position) {
+          low = mid;
+        } else {
+          high = mid - 1;
+        }
+      }
+      for (int i = low; len > 0; i++) {
+        long[] segment = segments.get(i);
+        long skip = position - segment[0];
+        int size = (int)Math.min(len, segment[3] - skip);
+        if (segment[1] == COPY) {
+          base.read(segment[2] + skip, b, off, size);
+        } else {
+          stream.readFully(segment[2] + skip, b, off, size);
+        }
+        position += size;
+        off += size;
+        len -= size;
+      }
+    }
+  }
+
+  /**
+   * Splits the bytes written to it into content defined chunks using a gear rolling hash. A chunk is passed to
+   * {@link #chunked(Chunk, byte[])} once its end is found, only the bytes of the current chunk are buffered.
+   */
+  static class Chunker extends OutputStream
+  {
+    final List<Chunk> chunks = new ArrayList<>();
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[MAX_CHUNK_SIZE];
+    private int size;
+    private long hash;
+    long length;
+
+    Chunker()
+    {
+      try {
+        digest = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      buffer[size++] = (byte)b;
+      hash = (hash << 1) + GEAR[b & 0xff];
+      if ((size >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0) || size == MAX_CHUNK_SIZE) {
+        endChunk();
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      for (int i = off, end = off + len; i < end; i++) {
+        byte value = b[i];
+        buffer[size++] = value;
+        hash = (hash << 1) + GEAR[value & 0xff];
+        if ((size >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0) || size == MAX_CHUNK_SIZE) {
+          endChunk();
+        }
+      }
+    }
+
+    private void endChunk() throws IOException
+    {
+      digest.update(buffer, 0, size);
+      Chunk chunk = new Chunk(length, size, digest.digest());
+      chunks.add(chunk);
+      length += size;
+      chunked(chunk, buffer);
+      size = 0;
+      hash = 0;
+    }
+
+    /**
+     * Ends the last chunk.
+     */
+    void finish() throws IOException
+    {
+      if (size > 0) {
+        endChunk();
+      }
+    }
+
+    /**
+     * @param chunk chunk that ended
+     * @param bytes buffer holding the bytes of the chunk from offset 0, only valid during the call
+     */
+    void chunked(Chunk chunk, byte[] bytes) throws IOException
+    {
+    }
+  }
+
+  /**
+   * Writes the chunks unchanged, which is the format of {@link FSStorageAgent}.
+   */
+  private static class SnapshotWriter extends Chunker
+  {
+    private final OutputStream out;
+
+    SnapshotWriter(OutputStream out)
+    {
+      this.out = out;
+    }
+
+    @Override
+    void chunked(Chunk chunk, byte[] bytes) throws IOException
+    {
+      out.write(bytes, 0, chunk.length);
+    }
+  }
+
+  /**
+   * Writes the chunks found in the base as copy instructions, merging adjacent ones, and the other chunks as literals.
+   */
+  private static class DeltaWriter extends Chunker
+  {
+    private final DataOutputStream out;
+    private final Base base;
+    private long copyOffset;
+    private long copyLength;
+    long literalBytes;
+
+    DeltaWriter(OutputStream out, Base base) throws IOException
+    {
+      this.out = new DataOutputStream(out);
+      this.base = base;
+      this.out.writeInt(MAGIC);
+      this.out.writeByte(VERSION);
+      this.out.writeLong(base.windowId);
+    }
+
+    @Override
+    void chunked(Chunk chunk, byte[] bytes) throws IOException
+    {
+      Long baseOffset = base.offsets.get(chunk);
+      if (baseOffset == null) {
+        writeCopy();
+        out.writeByte(LITERAL);
+        out.writeInt(chunk.length);
+        out.write(bytes, 0, chunk.length);
+        literalBytes += chunk.length;
+      } else if (copyLength > 0 && copyOffset + copyLength == baseOffset) {
+        copyLength += chunk.length;
+      } else {
+        writeCopy();
+        copyOffset = baseOffset;
+        copyLength = chunk.length;
+      }
+    }
+
+    private void writeCopy() throws IOException
+    {
+      if (copyLength > 0) {
+        out.writeByte(COPY);
+        out.writeLong(copyOffset);
+        out.writeLong(copyLength);
+        copyLength = 0;
+      }
+    }
+
+    @Override
+    void finish() throws IOException
+    {
+      super.finish();
+      writeCopy();
+      out.writeByte(END);
+      out.writeLong(length);
+      out.flush();
+    }
+  }
+
+  static class Chunk
+  {
+    final long offset;
+    final int length;
+    final long high;
+    final long low;
+
+    Chunk(long offset, int length, byte[] digest)
+    {
+      this.offset = offset;
+      this.length = length;
+      long high = 0;
+      long low = 0;
+      for (int i = 0; i < 8; i++) {
+        high = (high << 8) | (digest[i] & 0xff);
+        low = (low << 8) | (digest[i + 8] & 0xff);
+      }
+      this.high = high;
+      this.low = low;
+    }
+
+    /**
+     * Chunks are equal if their contents are, regardless of the offset.
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof Chunk)) {
+        return false;
+      }
+      Chunk chunk = (Chunk)o;
+      return length == chunk.length && high == chunk.high && low == chunk.low;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return (int)(high ^ (high >>> 32)) * 31 + length;
+    }
+  }
+
+  /**
+   * Chunks of the last checkpoint saved or loaded for an operator, later checkpoints are saved relative to it.
+   */
+  private static class Base
+  {
+    final long windowId;
+    final int depth;
+    final Map<Chunk, Long> offsets;
+
+    Base(long windowId, int depth, List<Chunk> chunks)
+    {
+      this.windowId = windowId;
+      this.depth = depth;
+      offsets = new HashMap<>(chunks.size() * 2);
+      for (Chunk chunk : chunks) {
+        if (!offsets.containsKey(chunk)) {
+          offsets.put(chunk, chunk.offset);
+        }
+      }
+    }
+  }
+
+  private static final long serialVersionUID = 201606291201L;
+  private static final Logger logger = LoggerFactory.getLogger(IncrementalFSStorageAgent.class);
+}
@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator.InputPort;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.api.StatsListener.BatchedOperatorStats;
+import com.datatorrent.api.StatsListener.OperatorResponse;
+import com.datatorrent.api.StatsListener.Response;
+import com.datatorrent.common.partitioner.StatelessPartitionerTest.PartitioningContextImpl;
+import com.datatorrent.common.util.BaseOperator;
+
+public class AutoScalingPartitionerTest
+{
+  public static class TestOperator extends BaseOperator
+  {
+    public final transient DefaultInputPort<Integer> input = new DefaultInputPort<Integer>()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+      }
+    };
+  }
+
+  static class TestStats implements BatchedOperatorStats
+  {
+    final int operatorId;
+    final boolean inputOperator;
+    long tuplesProcessed;
+    long tuplesEmitted;
+    int queueSize;
+    long latency;
+    double cpuPercentage;
+
+    TestStats(int operatorId, boolean inputOperator)
+    {
+      this.operatorId = operatorId;
+      this.inputOperator = inputOperator;
+    }
+
+    @Override
+    public List<OperatorStats> getLastWindowedStats()
+    {
+      OperatorStats stats = new OperatorStats();
+      stats.inputPorts = new ArrayList<>();
+      if (!inputOperator) {
+        PortStats portStats = new PortStats("input");
+        portStats.queueSize = queueSize;
+        stats.inputPorts.add(portStats);
+      }
+      return Collections.singletonList(stats);
+    }
+
+    @Override
+    public int getOperatorId()
+    {
+      return operatorId;
+    }
+
+    @Override
+    public long getCurrentWindowId()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getTuplesProcessedPSMA()
+    {
+      return tuplesProcessed;
+    }
+
+    @Override
+    public long getTuplesEmittedPSMA()
+    {
+      return tuplesEmitted;
+    }
+
+    @Override
+    public double getCpuPercentageMA()
+    {
+      return cpuPercentage;
+    }
+
+    @Override
+    public long getLatencyMA()
+    {
+      return latency;
+    }
+
+    @Override
+    public List<OperatorResponse> getOperatorResponse()
+    {
+      return null;
+    }
+  }
+
+  private static AutoScalingPartitioner<TestOperator> newScaler()
+  {
+    AutoScalingPartitioner<TestOperator> scaler = new AutoScalingPartitioner<>();
+    scaler.setHysteresisMillis(0);
+    scaler.setCooldownMillis(0);
+    return scaler;
+  }
+
+  /**
+   * Defines the initial partitions and assigns them the operator ids 1 to n.
+   */
+  private static List<Partition<TestOperator>> deploy(AutoScalingPartitioner<TestOperator> scaler, int count)
+  {
+    TestOperator operator = new TestOperator();
+    scaler.setPartitionCount(count);
+    Collection<Partition<TestOperator>> partitions = new ArrayList<>();
+    partitions.add(new DefaultPartition<>(operator));
+    List<InputPort<?>> ports = Collections.<InputPort<?>>singletonList(operator.input);
+    List<Partition<TestOperator>> newPartitions = new ArrayList<>(scaler.definePartitions(partitions,
+        new PartitioningContextImpl(ports, 0)));
+    partitioned(scaler, newPartitions);
+    return newPartitions;
+  }
+
+  private static void partitioned(AutoScalingPartitioner<TestOperator> scaler,
+      Collection<Partition<TestOperator>> partitions)
+  {
+    Map<Integer, Partition<TestOperator>> map = new HashMap<>();
+    for (Partition<TestOperator> p : partitions) {
+      map.put(map.size() + 1, p);
+    }
+    scaler.partitioned(map);
+  }
+
+  /**
+   * Repartitions partitions with the given loads.
+   */
+  private static List<Partition<TestOperator>> repartition(AutoScalingPartitioner<TestOperator> scaler,
+      List<Partition<TestOperator>> partitions, int... loads)
+  {
+    List<Partition<TestOperator>> loaded = new ArrayList<>();
+    for (int i = 0; i < partitions.size(); i++) {
+      Partition<TestOperator> p = partitions.get(i);
+      loaded.add(new DefaultPartition<>(p.getPartitionedInstance(), p.getPartitionKeys(), loads[i],
+          new TestStats(i + 1, false)));
+    }
+    List<Partition<TestOperator>> newPartitions = new ArrayList<>(scaler.definePartitions(loaded,
+        new PartitioningContextImpl(null, 0)));
+    partitioned(scaler, newPartitions);
+    return newPartitions;
+  }
+
+  @Test
+  public void testLoad()
+  {
+    AutoScalingPartitioner<TestOperator> scaler = newScaler();
+    scaler.setMaxTuplesPerSecond(1000);
+    scaler.setMaxQueueSize(100);
+    scaler.setMaxLatencyMillis(50);
+    scaler.setMaxCpuPercentage(80);
+    scaler.setMinTuplesPerSecond(100);
+    scaler.setMinCpuPercentage(10);
+
+    TestStats stats = new TestStats(1, false);
+    OperatorStats lastStats = stats.getLastWindowedStats().get(0);
+    stats.tuplesProcessed = 500;
+    stats.cpuPercentage = 50;
+    Assert.assertEquals("within targets", 0, scaler.getLoad(stats, lastStats));
+    stats.tuplesProcessed = 2000;
+    Assert.assertEquals("throughput", 1, scaler.getLoad(stats, lastStats));
+    stats.tuplesProcessed = 500;
+    stats.latency = 100;
+    Assert.assertEquals("latency", 1, scaler.getLoad(stats, lastStats));
+    stats.latency = 0;
+    stats.cpuPercentage = 90;
+    Assert.assertEquals("cpu", 1, scaler.getLoad(stats, lastStats));
+    stats.cpuPercentage = 50;
+    stats.queueSize = 200;
+    Assert.assertEquals("backlog", 1, scaler.getLoad(stats, stats.getLastWindowedStats().get(0)));
+    stats.queueSize = 0;
+    stats.tuplesProcessed = 50;
+    Assert.assertEquals("busy cpu", 0, scaler.getLoad(stats, lastStats));
+    stats.cpuPercentage = 5;
+    Assert.assertEquals("idle", -1, scaler.getLoad(stats, lastStats));
+
+    TestStats inputStats = new TestStats(2, true);
+    inputStats.tuplesProcessed = 2000;
+    inputStats.tuplesEmitted = 500;
+    inputStats.cpuPercentage = 50;
+    Assert.assertEquals("input operator", 0, scaler.getLoad(inputStats, inputStats.getLastWindowedStats().get(0)));
+  }
+
+  @Test
+  public void testScaleUp()
+  {
+    AutoScalingPartitioner<TestOperator> scaler = newScaler();
+    scaler.setMaxTuplesPerSecond(1000);
+    scaler.setMaxPartitions(3);
+    List<Partition<TestOperator>> partitions = deploy(scaler, 2);
+    Assert.assertEquals("partitions", 2, partitions.size());
+
+    TestStats overloaded = new TestStats(1, false);
+    overloaded.tuplesProcessed = 2000;
+    Response response = scaler.processStats(overloaded);
+    Assert.assertEquals("load", 1, response.loadIndicator);
+    Assert.assertTrue("repartition", response.repartitionRequired);
+
+    TestStats normal = new TestStats(2, false);
+    normal.tuplesProcessed = 500;
+    response = scaler.processStats(normal);
+    Assert.assertEquals("load", 0, response.loadIndicator);
+    Assert.assertFalse("repartition", response.repartitionRequired);
+
+    List<Partition<TestOperator>> newPartitions = repartition(scaler, partitions, 1, 1);
+    Assert.assertEquals("partitions within the maximum", 3, newPartitions.size());
+
+    response = scaler.processStats(overloaded);
+    Assert.assertEquals("load", 1, response.loadIndicator);
+    Assert.assertFalse("repartition at the maximum", response.repartitionRequired);
+  }
+
+  @Test
+  public void testScaleDown()
+  {
+    AutoScalingPartitioner<TestOperator> scaler = newScaler();
+    scaler.setMinTuplesPerSecond(100);
+    scaler.setMinPartitions(2);
+    List<Partition<TestOperator>> partitions = deploy(scaler, 4);
+
+    TestStats underloaded = new TestStats(1, false);
+    underloaded.tuplesProcessed = 10;
+    Response response = scaler.processStats(underloaded);
+    Assert.assertEquals("load", -1, response.loadIndicator);
+    Assert.assertTrue("repartition", response.repartitionRequired);
+
+    List<Partition<TestOperator>> newPartitions = repartition(scaler, partitions, -1, -1, -1, -1);
+    Assert.assertEquals("merged partitions", 2, newPartitions.size());
+
+    response = scaler.processStats(underloaded);
+    Assert.assertFalse("repartition at the minimum", response.repartitionRequired);
+    Assert.assertEquals("merged partitions", 2, repartition(scaler, newPartitions, -1, -1).size());
+  }
+
+  @Test
+  public void testHysteresisAndCooldown()
+  {
+    AutoScalingPartitioner<TestOperator> scaler = newScaler();
+    scaler.setMaxTuplesPerSecond(1000);
+    scaler.setHysteresisMillis(60000);
+    List<Partition<TestOperator>> partitions = deploy(scaler, 2);
+
+    TestStats overloaded = new TestStats(1, false);
+    overloaded.tuplesProcessed = 2000;
+    Response response = scaler.processStats(overloaded);
+    Assert.assertEquals("load before the hysteresis", 0, response.loadIndicator);
+    Assert.assertFalse("repartition before the hysteresis", response.repartitionRequired);
+
+    scaler.setHysteresisMillis(0);
+    scaler.setCooldownMillis(60000);
+    response = scaler.processStats(overloaded);
+    Assert.assertEquals("load", 1, response.loadIndicator);
+    Assert.assertTrue("repartition", response.repartitionRequired);
+
+    partitions = repartition(scaler, partitions, 1, 0);
+    Assert.assertEquals("partitions", 3, partitions.size());
+    response = scaler.processStats(overloaded);
+    Assert.assertEquals("load", 1, response.loadIndicator);
+    Assert.assertFalse("repartition within the cooldown", response.repartitionRequired);
+  }
+
+}
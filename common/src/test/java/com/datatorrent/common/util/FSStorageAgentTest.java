@@ -20,7 +20,13 @@ package com.datatorrent.common.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Rule;
@@ -32,6 +38,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.fs.FileContext;
 import org.apache.hadoop.fs.Path;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import com.datatorrent.api.Attribute;
@@ -131,4 +138,62 @@ public class FSStorageAgentTest
     Assert.assertFalse("operator 1 window 1", fileContext.util().exists(new Path(appPath + "/" + 1 + "/" + 1)));
   }
 
+  @Test
+  public void testConcurrentSave() throws Exception
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int i = 0; i < 8; i++) {
+        final int operatorId = i;
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            Map<Integer, String> data = Maps.newHashMap();
+            for (int j = 0; j < 1000; j++) {
+              data.put(j, operatorId + "-" + j);
+            }
+            for (long windowId = 1; windowId <= 5; windowId++) {
+              testMeta.storageAgent.save(data, operatorId, windowId);
+              Assert.assertEquals("data of " + operatorId, data, testMeta.storageAgent.load(operatorId, windowId));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStoreStreams()
+  {
+    final int[] largestWrite = new int[1];
+    final long[] written = new long[1];
+    OutputStream stream = new OutputStream()
+    {
+      @Override
+      public void write(int b)
+      {
+        write(new byte[]{(byte)b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len)
+      {
+        largestWrite[0] = Math.max(largestWrite[0], len);
+        written[0] += len;
+      }
+    };
+    FSStorageAgent.store(stream, new byte[4 * 1024 * 1024]);
+    Assert.assertTrue("written " + written[0], written[0] > 4 * 1024 * 1024);
+    Assert.assertTrue("largest write " + largestWrite[0], largestWrite[0] <= 4096);
+  }
+
 }
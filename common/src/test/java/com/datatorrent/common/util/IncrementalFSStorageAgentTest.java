@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.collect.Sets;
+
+public class IncrementalFSStorageAgentTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String applicationPath;
+    IncrementalFSStorageAgent storageAgent;
+
+    @Override
+    protected void starting(Description description)
+    {
+      super.starting(description);
+      applicationPath = "target/" + description.getClassName() + "/" + description.getMethodName();
+      try {
+        FileUtils.forceMkdir(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      storageAgent = new IncrementalFSStorageAgent(applicationPath, null);
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      try {
+        FileUtils.deleteDirectory(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    TreeSet<String> files(int operatorId)
+    {
+      String[] names = new File(applicationPath, String.valueOf(operatorId)).list();
+      TreeSet<String> files = new TreeSet<>();
+      for (String name : names) {
+        if (!name.startsWith(".")) {
+          files.add(name);
+        }
+      }
+      return files;
+    }
+
+    long size(int operatorId, String name)
+    {
+      return new File(new File(applicationPath, String.valueOf(operatorId)), name).length();
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private static TreeMap<Integer, String> newState(int size)
+  {
+    TreeMap<Integer, String> state = new TreeMap<>();
+    for (int i = 0; i < size; i++) {
+      state.put(i, "value-" + i);
+    }
+    return state;
+  }
+
+  @Test
+  public void testSaveLoad() throws IOException
+  {
+    TreeMap<Integer, String> state1 = newState(20000);
+    testMeta.storageAgent.save(state1, 1, 1);
+    TreeMap<Integer, String> state2 = new TreeMap<>(state1);
+    state2.put(10000, "changed");
+    state2.put(30000, "added");
+    testMeta.storageAgent.save(state2, 1, 2);
+
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("1", "2.1")), testMeta.files(1));
+    Assert.assertTrue("delta size", testMeta.size(1, "2.1") * 10 < testMeta.size(1, "1"));
+
+    IncrementalFSStorageAgent agent = new IncrementalFSStorageAgent(testMeta.applicationPath, null);
+    Assert.assertEquals("state 1", state1, agent.load(1, 1));
+    Assert.assertEquals("state 2", state2, agent.load(1, 2));
+    Assert.assertArrayEquals("windows", new long[]{1, 2}, agent.getWindowIds(1));
+
+    /* the loaded checkpoint is the base of the next one */
+    state2.remove(5);
+    agent.save(state2, 1, 3);
+    Assert.assertTrue("files", testMeta.files(1).contains("3.2"));
+    Assert.assertEquals("state 3", state2, new IncrementalFSStorageAgent(testMeta.applicationPath, null).load(1, 3));
+  }
+
+  @Test
+  public void testFullSnapshotInterval() throws IOException
+  {
+    TreeMap<Integer, String> state = newState(20000);
+    testMeta.storageAgent.setFullSnapshotInterval(3);
+    for (int windowId = 1; windowId <= 4; windowId++) {
+      state.put(windowId, "window-" + windowId);
+      testMeta.storageAgent.save(state, 1, windowId);
+    }
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("1", "2.1", "3.2", "4")), testMeta.files(1));
+
+    testMeta.storageAgent.saveSnapshot(state, 1, 5);
+    Assert.assertTrue("snapshot", testMeta.files(1).contains("5"));
+  }
+
+  @Test
+  public void testChangedState() throws IOException
+  {
+    testMeta.storageAgent.save(newState(20000), 1, 1);
+    TreeMap<Integer, String> state = new TreeMap<>();
+    for (int i = 0; i < 20000; i++) {
+      state.put(i, "other-" + i);
+    }
+    testMeta.storageAgent.save(state, 1, 2);
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("1", "2")), testMeta.files(1));
+  }
+
+  @Test
+  public void testDelete() throws IOException
+  {
+    TreeMap<Integer, String> state = newState(20000);
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      state.put(windowId, "window-" + windowId);
+      testMeta.storageAgent.save(state, 1, windowId);
+    }
+    /* checkpoints are deleted by another process than the one saving them */
+    IncrementalFSStorageAgent master = new IncrementalFSStorageAgent(testMeta.applicationPath, null);
+    master.delete(1, 1);
+    master.delete(1, 2);
+    Assert.assertArrayEquals("windows", new long[]{3}, master.getWindowIds(1));
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("1", "1" + IncrementalFSStorageAgent.DELETED_SUFFIX,
+        "2.1", "2" + IncrementalFSStorageAgent.DELETED_SUFFIX, "3.2")), testMeta.files(1));
+    Assert.assertEquals("state 3", state, new IncrementalFSStorageAgent(testMeta.applicationPath, null).load(1, 3));
+
+    state.put(4, "window-4");
+    testMeta.storageAgent.saveSnapshot(state, 1, 4);
+    master.delete(1, 3);
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("1", "1" + IncrementalFSStorageAgent.DELETED_SUFFIX,
+        "2.1", "2" + IncrementalFSStorageAgent.DELETED_SUFFIX, "3.2", "3" + IncrementalFSStorageAgent.DELETED_SUFFIX,
+        "4")), testMeta.files(1));
+
+    /* the saving process removes the data no live checkpoint depends on */
+    state.put(5, "window-5");
+    testMeta.storageAgent.save(state, 1, 5);
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("4", "5.4")), testMeta.files(1));
+
+    /* without live checkpoints the operator is gone and nothing is saved anymore */
+    master.delete(1, 4);
+    master.delete(1, 5);
+    Assert.assertEquals("files", Sets.newTreeSet(), testMeta.files(1));
+  }
+
+  @Test
+  public void testCompaction() throws IOException
+  {
+    TreeMap<Integer, String> state = newState(20000);
+    testMeta.storageAgent.setCompactionThreshold(1);
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      state.put(windowId, "window-" + windowId);
+      testMeta.storageAgent.save(state, 1, windowId);
+    }
+    testMeta.storageAgent.delete(1, 1);
+    testMeta.storageAgent.delete(1, 2);
+    Assert.assertEquals("files", 5, testMeta.files(1).size());
+
+    /* window 3 depends on two deleted checkpoints and is compacted when the next checkpoint is saved */
+    TreeMap<Integer, String> state4 = new TreeMap<>(state);
+    state4.put(4, "window-4");
+    testMeta.storageAgent.save(state4, 1, 4);
+    Assert.assertEquals("files", Sets.newTreeSet(Arrays.asList("3", "4.3")), testMeta.files(1));
+    Assert.assertEquals("state 3", state, new FSStorageAgent(testMeta.applicationPath, null).load(1, 3));
+  }
+
+  @Test
+  public void testSaveAgain() throws IOException
+  {
+    TreeMap<Integer, String> state1 = newState(20000);
+    testMeta.storageAgent.save(state1, 1, 1);
+    TreeMap<Integer, String> state2 = new TreeMap<>(state1);
+    state2.put(2, "window-2");
+    testMeta.storageAgent.save(state2, 1, 2);
+
+    /* window 2 depends on the first version of window 1 */
+    TreeMap<Integer, String> other = new TreeMap<>(state1);
+    other.put(1, "window-1");
+    testMeta.storageAgent.save(other, 1, 1);
+
+    IncrementalFSStorageAgent agent = new IncrementalFSStorageAgent(testMeta.applicationPath, null);
+    Assert.assertEquals("state 1", other, agent.load(1, 1));
+    Assert.assertEquals("state 2", state2, agent.load(1, 2));
+  }
+
+  @Test
+  public void testChunkBoundaries()
+  {
+    byte[] bytes = new byte[1 << 20];
+    new Random(1).nextBytes(bytes);
+    byte[] shifted = new byte[bytes.length + 100];
+    System.arraycopy(bytes, 0, shifted, 100, bytes.length);
+
+    TreeSet<Integer> digests = new TreeSet<>();
+    int total = 0;
+    for (IncrementalFSStorageAgent.Chunk chunk : IncrementalFSStorageAgent.chunk(bytes, bytes.length)) {
+      digests.add(chunk.hashCode());
+      total += chunk.length;
+    }
+    Assert.assertEquals("chunked bytes", bytes.length, total);
+
+    int shared = 0;
+    for (IncrementalFSStorageAgent.Chunk chunk : IncrementalFSStorageAgent.chunk(shifted, shifted.length)) {
+      if (digests.contains(chunk.hashCode())) {
+        shared++;
+      }
+    }
+    Assert.assertTrue("chunks shared after insertion " + shared + " of " + digests.size(),
+        shared >= digests.size() - 2);
+  }
+
+}
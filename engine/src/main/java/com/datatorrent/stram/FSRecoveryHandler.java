@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -27,7 +29,11 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
+import java.io.OutputStream;
 import java.util.EnumSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +73,17 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
   private static final String DIRECTORY_RECOVERY = "recovery";
   private static final String FILE_HEARTBEATURI = "heartbeatUri";
 
+  /**
+   * Snapshot header: magic, version and flags, followed by the serialized state. Snapshots written before the header
+   * was introduced start with the Java serialization stream magic and are still read.
+   */
+  static final int SNAPSHOT_MAGIC = 0x41505853;
+  static final byte SNAPSHOT_VERSION = 1;
+  static final byte SNAPSHOT_FLAG_DEFLATE = 1;
+  private static final int SNAPSHOT_BUFFER_SIZE = 64 * 1024;
+
+  private boolean compressSnapshot;
+
   public FSRecoveryHandler(String appDir, Configuration conf) throws IOException
   {
     this.basedir = new Path(appDir, DIRECTORY_RECOVERY);
@@ -84,6 +101,21 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     return basedir.toUri().toString();
   }
 
+  public boolean isCompressSnapshot()
+  {
+    return compressSnapshot;
+  }
+
+  /**
+   * Compress the snapshot of the state written on log rotation. Restore detects the format of the snapshot.
+   *
+   * @param compressSnapshot true to deflate snapshots
+   */
+  public void setCompressSnapshot(boolean compressSnapshot)
+  {
+    this.compressSnapshot = compressSnapshot;
+  }
+
   @Override
   public DataOutputStream rotateLog() throws IOException
   {
@@ -168,9 +200,8 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
 
     LOG.debug("Writing checkpoint to {}", snapshotPath);
-    try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath);
-        ObjectOutputStream oos = new ObjectOutputStream(fsOutputStream)) {
-      oos.writeObject(state);
+    try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath)) {
+      writeSnapshot(state, fsOutputStream, compressSnapshot);
     }
     // remove snapshot backup
     if (fs.exists(snapshotBackupPath) && !fs.delete(snapshotBackupPath, false)) {
@@ -224,11 +255,60 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
 
     LOG.debug("Reading checkpoint {}", snapshotPath);
-    InputStream is = fc.open(snapshotPath);
+    try (InputStream is = fc.open(snapshotPath)) {
+      return readSnapshot(is);
+    }
+  }
+
+  static void writeSnapshot(Object state, OutputStream os, boolean compress) throws IOException
+  {
+    final DataOutputStream header = new DataOutputStream(os);
+    header.writeInt(SNAPSHOT_MAGIC);
+    header.writeByte(SNAPSHOT_VERSION);
+    header.writeByte(compress ? SNAPSHOT_FLAG_DEFLATE : 0);
+    OutputStream out = os;
+    Deflater deflater = null;
+    if (compress) {
+      deflater = new Deflater(Deflater.BEST_SPEED);
+      out = new DeflaterOutputStream(out, deflater, SNAPSHOT_BUFFER_SIZE);
+    }
+    try {
+      // the plan is written in many small pieces, buffer them before they reach the file system stream
+      ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out, SNAPSHOT_BUFFER_SIZE));
+      oos.writeObject(state);
+      oos.flush();
+      if (out instanceof DeflaterOutputStream) {
+        ((DeflaterOutputStream)out).finish();
+      }
+    } finally {
+      if (deflater != null) {
+        deflater.end();
+      }
+    }
+  }
+
+  static Object readSnapshot(InputStream is) throws IOException
+  {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(is, SNAPSHOT_BUFFER_SIZE));
+    in.mark(4);
+    InputStream snapshot = in;
+    if (in.readInt() == SNAPSHOT_MAGIC) {
+      final byte version = in.readByte();
+      if (version != SNAPSHOT_VERSION) {
+        throw new IOException("Unsupported checkpoint version " + version);
+      }
+      if ((in.readByte() & SNAPSHOT_FLAG_DEFLATE) != 0) {
+        snapshot = new BufferedInputStream(new InflaterInputStream(in), SNAPSHOT_BUFFER_SIZE);
+      }
+    } else {
+      in.reset();
+      LOG.debug("Reading checkpoint written without header");
+    }
+
     // indeterministic class loading behavior
     // http://stackoverflow.com/questions/9110677/readresolve-not-working-an-instance-of-guavas-serializedform-appears
     final ClassLoader loader = Thread.currentThread().getContextClassLoader();
-    try (ObjectInputStream ois = new ObjectInputStream(is)
+    try (ObjectInputStream ois = new ObjectInputStream(snapshot)
     {
       @Override
       protected Class<?> resolveClass(ObjectStreamClass objectStreamClass)
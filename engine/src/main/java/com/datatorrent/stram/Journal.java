@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -92,8 +93,9 @@ public final class Journal
   }
 
   private final StreamingContainerManager scm;
-  private final AtomicReference<Output> output;
+  private final AtomicReference<Log> output;
   private final AtomicBoolean replayMode;
+  private volatile long maxFlushLatencyMillis;
 
   public Journal(StreamingContainerManager scm)
   {
@@ -102,34 +104,27 @@ public final class Journal
     replayMode = new AtomicBoolean(false);
   }
 
-  public void setOutputStream(@Nullable final OutputStream out) throws IOException
+  /**
+   * Set the maximum time a write may wait for other writes to share its flush to the output stream.
+   *
+   * A write always returns once the operation is flushed. With 0, the default, a writer flushes right away and writers
+   * that arrive while another writer flushes are flushed together with the next flush. With a positive value, a writer
+   * waits up to the given time for a flush by another writer before it flushes itself, so that more operations are
+   * flushed together at the cost of a longer write.
+   *
+   * @param maxFlushLatencyMillis maximum flush latency in milliseconds
+   */
+  public void setMaxFlushLatency(long maxFlushLatencyMillis)
   {
-    final Output output;
-    if (out != null) {
-      output = new Output(4096, -1)
-      {
-        @Override
-        public void flush() throws KryoException
-        {
-          super.flush();
-          // Kryo does not flush internal output stream during flush. We need to flush it explicitly.
-          try {
-            getOutputStream().flush();
-          } catch (IOException e) {
-            throw new KryoException(e);
-          }
-        }
-      };
-      output.setOutputStream(out);
-    } else {
-      output = null;
-    }
+    this.maxFlushLatencyMillis = maxFlushLatencyMillis;
+  }
 
-    final Output oldOut = this.output.getAndSet(output);
-    if (oldOut != null && oldOut.getOutputStream() != out) {
-      synchronized (oldOut) {
-        oldOut.close();
-      }
+  public void setOutputStream(@Nullable final OutputStream out) throws IOException
+  {
+    final Log log = out == null ? null : new Log(out);
+    final Log oldLog = this.output.getAndSet(log);
+    if (oldLog != null && oldLog.stream != out) {
+      oldLog.close();
     }
   }
 
@@ -143,24 +138,23 @@ public final class Journal
       throw new IllegalArgumentException("Class not registered " + op.getClass());
     }
     while (true) {
-      final Output out = output.get();
-      if (out != null) {
-        // need to atomically write id, operation and flush the output stream
-        synchronized (out) {
-          try {
-            LOG.debug("WAL write {}", RecoverableOperation.get(classId));
-            out.writeInt(classId);
-            op.write(out);
-            out.flush();
-            break;
-          } catch (KryoException e) {
-            // check that no other threads sneaked between get() and synchronized block and set output stream to a new
-            // stream or null leading to the current stream being closed
-            if (output.get() == out) {
-              throw e;
-            }
+      final Log log = output.get();
+      if (log != null) {
+        final long sequence = log.append(classId, op);
+        if (sequence < 0) {
+          // another thread set a new output stream after get(), write to the new one
+          continue;
+        }
+        try {
+          final long maxFlushLatencyMillis = this.maxFlushLatencyMillis;
+          if (maxFlushLatencyMillis > 0) {
+            log.awaitFlush(sequence, maxFlushLatencyMillis);
           }
+          log.flush(sequence);
+        } catch (IOException e) {
+          throw new KryoException(e);
         }
+        break;
       } else {
         LOG.warn("Journal output stream is null. Skipping write to the WAL.");
         break;
@@ -168,6 +162,124 @@ public final class Journal
     }
   }
 
+  /**
+   * Flush all operations written so far to the output stream.
+   */
+  public void flush() throws IOException
+  {
+    final Log log = output.get();
+    if (log != null) {
+      log.flush(Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Operations are appended to an in memory buffer and moved to the stream in batches (group commit). The stream is
+   * only accessed by the thread holding the flush lock, so that writers can append while a flush is in progress. The
+   * buffer keeps the operations until they were written to the stream, a failed flush is retried by the next one.
+   */
+  private class Log
+  {
+    private final OutputStream stream;
+    private final Output buffer = new Output(4096, -1);
+    private final Object flushLock = new Object();
+    private long written;
+    private long flushed;
+    private boolean closed;
+
+    Log(OutputStream stream)
+    {
+      this.stream = stream;
+    }
+
+    /**
+     * @return sequence number of the operation or -1 if the log is closed
+     */
+    synchronized long append(int classId, Recoverable op)
+    {
+      if (closed) {
+        return -1;
+      }
+      LOG.debug("WAL write {}", RecoverableOperation.get(classId));
+      final int position = buffer.position();
+      try {
+        buffer.writeInt(classId);
+        op.write(buffer);
+      } catch (KryoException e) {
+        // do not leave a partial operation in the log
+        buffer.setPosition(position);
+        throw e;
+      }
+      return ++written;
+    }
+
+    /**
+     * Waits until the operation with the sequence number was flushed by another thread or the latency expired.
+     */
+    synchronized void awaitFlush(long sequence, long maxFlushLatencyMillis)
+    {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxFlushLatencyMillis);
+      try {
+        long remaining;
+        while (flushed < sequence && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+      } catch (InterruptedException e) {
+        // flush right away
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Flushes the buffered operations unless the operation with the sequence number was flushed already, possibly by
+     * another thread while this thread waited for the flush lock.
+     */
+    void flush(long sequence) throws IOException
+    {
+      synchronized (flushLock) {
+        final byte[] bytes;
+        final long sequenceFlushed;
+        synchronized (this) {
+          if (flushed >= Math.min(sequence, written) || closed) {
+            return;
+          }
+          bytes = buffer.toBytes();
+          sequenceFlushed = written;
+        }
+        stream.write(bytes);
+        stream.flush();
+        synchronized (this) {
+          // operations appended during the write follow the written bytes
+          final int remaining = buffer.position() - bytes.length;
+          System.arraycopy(buffer.getBuffer(), bytes.length, buffer.getBuffer(), 0, remaining);
+          buffer.setPosition(remaining);
+          flushed = sequenceFlushed;
+          notifyAll();
+        }
+      }
+    }
+
+    void close() throws IOException
+    {
+      synchronized (flushLock) {
+        final byte[] bytes;
+        synchronized (this) {
+          if (closed) {
+            return;
+          }
+          closed = true;
+          bytes = buffer.toBytes();
+          buffer.clear();
+          flushed = written;
+          notifyAll();
+        }
+        stream.write(bytes);
+        stream.flush();
+        stream.close();
+      }
+    }
+  }
+
   final void replay(final InputStream input)
   {
     if (replayMode.compareAndSet(false, true)) {
@@ -358,6 +358,21 @@ public class StreamingAppMasterService extends CompositeService
       return (criticalPathInfo == null) ? null : criticalPathInfo.path;
     }
 
+    @Override
+    public List<Integer> getCriticalPathUnifierFanIn()
+    {
+      StreamingContainerManager.CriticalPathInfo criticalPathInfo = dnmgr.getCriticalPathInfo();
+      if (criticalPathInfo == null) {
+        return null;
+      }
+      List<Integer> fanIn = new ArrayList<>(criticalPathInfo.path.size());
+      for (Integer operatorId : criticalPathInfo.path) {
+        Integer unifierFanIn = criticalPathInfo.unifierFanIn.get(operatorId);
+        fanIn.add(unifierFanIn == null ? 0 : unifierFanIn);
+      }
+      return fanIn;
+    }
+
     @AutoMetric
     @Override
     public long getLatency()
@@ -366,6 +381,13 @@ public class StreamingAppMasterService extends CompositeService
       return (criticalPathInfo == null) ? 0 : criticalPathInfo.latency;
     }
 
+    @AutoMetric
+    @Override
+    public long getCriticalPathComputeMicrosMA()
+    {
+      return dnmgr.getCriticalPathComputeNanosMA() / 1000;
+    }
+
     @Override
     public long getWindowStartMillis()
     {
@@ -548,6 +570,7 @@ public class StreamingAppMasterService extends CompositeService
     }
     dag.setAttribute(LogicalPlan.APPLICATION_ATTEMPT_ID, appAttemptID.getAttemptId());
     FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), conf);
+    recoveryHandler.setCompressSnapshot(dag.getValue(LogicalPlan.RECOVERY_SNAPSHOT_COMPRESSION));
     this.dnmgr = StreamingContainerManager.getInstance(recoveryHandler, dag, true);
     dag = this.dnmgr.getLogicalPlan();
     this.appContext = new ClusterAppContextImpl(dag.getAttributes());
@@ -21,6 +21,7 @@ package com.datatorrent.stram;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -110,6 +111,7 @@ public class StreamingContainerAgent
   int memoryMBFree;
   long gcCollectionCount;
   long gcCollectionTime;
+  double[] bufferServerEventLoopUtilization;
   final StreamingContainerManager dnmgr;
 
   private final ConcurrentLinkedQueue<StramToNodeRequest> operatorRequests = new ConcurrentLinkedQueue<>();
@@ -234,67 +236,92 @@ public class StreamingContainerAgent
       OperatorDeployInfo ndi = operEntry.getKey();
       PTOperator oper = operEntry.getValue();
       for (PTOperator.PTInput in : oper.getInputs()) {
-        final StreamMeta streamMeta = in.logicalStream;
-        if (streamMeta.getSource() == null) {
-          throw new AssertionError("source is null: " + in);
-        }
-        PTOperator.PTOutput sourceOutput = in.source;
+        ndi.inputs.add(createInputDeployInfo(ndi, oper, in, publishers));
+      }
+    }
 
-        InputDeployInfo inputInfo = new InputDeployInfo();
-        inputInfo.declaredStreamId = streamMeta.getName();
-        inputInfo.portName = in.portName;
-        InputPortMeta inputPortMeta = getInputPortMeta(oper.getOperatorMeta(), streamMeta);
+    return new ArrayList<>(nodes.keySet());
+  }
 
-        if (inputPortMeta != null) {
-          inputInfo.contextAttributes = inputPortMeta.getAttributes();
-        }
+  private InputDeployInfo createInputDeployInfo(OperatorDeployInfo ndi, PTOperator oper, PTOperator.PTInput in,
+      Set<PTOperator.PTOutput> publishers)
+  {
+    final StreamMeta streamMeta = in.logicalStream;
+    if (streamMeta.getSource() == null) {
+      throw new AssertionError("source is null: " + in);
+    }
+    PTOperator.PTOutput sourceOutput = in.source;
 
-        if (inputInfo.contextAttributes == null && ndi.type == OperatorDeployInfo.OperatorType.UNIFIER) {
-          inputInfo.contextAttributes = in.source.logicalStream.getSource().getAttributes();
-        }
+    InputDeployInfo inputInfo = new InputDeployInfo();
+    inputInfo.declaredStreamId = streamMeta.getName();
+    inputInfo.portName = in.portName;
+    InputPortMeta inputPortMeta = getInputPortMeta(oper.getOperatorMeta(), streamMeta);
 
-        inputInfo.sourceNodeId = sourceOutput.source.getId();
-        inputInfo.sourcePortName = sourceOutput.portName;
-        if (in.partitions != null && in.partitions.mask != 0) {
-          inputInfo.partitionMask = in.partitions.mask;
-          inputInfo.partitionKeys = in.partitions.partitions;
-        }
+    if (inputPortMeta != null) {
+      inputInfo.contextAttributes = inputPortMeta.getAttributes();
+    }
 
-        if (sourceOutput.source.getContainer() == oper.getContainer()) {
-          // both operators in same container
-          if (!publishers.contains(sourceOutput)) {
-            throw new AssertionError("Source not deployed for container local stream " + sourceOutput + " " + in);
-          }
-          if (streamMeta.getLocality() == Locality.THREAD_LOCAL) {
-            inputInfo.locality = Locality.THREAD_LOCAL;
-            ndi.type = OperatorType.OIO;
-          } else {
-            inputInfo.locality = Locality.CONTAINER_LOCAL;
-          }
+    if (inputInfo.contextAttributes == null && ndi.type == OperatorDeployInfo.OperatorType.UNIFIER) {
+      inputInfo.contextAttributes = in.source.logicalStream.getSource().getAttributes();
+    }
 
-        } else {
-          // buffer server input
-          PTContainer container = sourceOutput.source.getContainer();
-          InetSocketAddress addr = container.bufferServerAddress;
-          if (addr == null) {
-            throw new AssertionError("upstream address not assigned: " + sourceOutput);
-          }
-          inputInfo.bufferServerHost = addr.getHostName();
-          inputInfo.bufferServerPort = addr.getPort();
-          inputInfo.bufferServerToken = container.getBufferServerToken();
-        }
+    inputInfo.sourceNodeId = sourceOutput.source.getId();
+    inputInfo.sourcePortName = sourceOutput.portName;
+    if (in.partitions != null && in.partitions.mask != 0) {
+      inputInfo.partitionMask = in.partitions.mask;
+      inputInfo.partitionKeys = in.partitions.partitions;
+    }
+
+    if (sourceOutput.source.getContainer() == oper.getContainer()) {
+      // both operators in same container
+      if (!publishers.contains(sourceOutput)) {
+        throw new AssertionError("Source not deployed for container local stream " + sourceOutput + " " + in);
+      }
+      if (streamMeta.getLocality() == Locality.THREAD_LOCAL) {
+        inputInfo.locality = Locality.THREAD_LOCAL;
+        ndi.type = OperatorType.OIO;
+      } else {
+        inputInfo.locality = Locality.CONTAINER_LOCAL;
+      }
 
-        // On the input side there is a unlikely scenario of partitions even for inline stream that is being
-        // handled. Always specifying a stream codec configuration in case that scenario happens.
-        InputPortMeta idInputPortMeta = getIdentifyingInputPortMeta(in);
-        StreamCodec<?> streamCodecInfo = getStreamCodec(idInputPortMeta);
-        Integer id = physicalPlan.getStreamCodecIdentifier(streamCodecInfo);
-        inputInfo.streamCodecs.put(id, streamCodecInfo);
-        ndi.inputs.add(inputInfo);
+    } else {
+      // buffer server input
+      PTContainer container = sourceOutput.source.getContainer();
+      InetSocketAddress addr = container.bufferServerAddress;
+      if (addr == null) {
+        throw new AssertionError("upstream address not assigned: " + sourceOutput);
       }
+      inputInfo.bufferServerHost = addr.getHostName();
+      inputInfo.bufferServerPort = addr.getPort();
+      inputInfo.bufferServerToken = container.getBufferServerToken();
     }
 
-    return new ArrayList<>(nodes.keySet());
+    // On the input side there is a unlikely scenario of partitions even for inline stream that is being
+    // handled. Always specifying a stream codec configuration in case that scenario happens.
+    InputPortMeta idInputPortMeta = getIdentifyingInputPortMeta(in);
+    StreamCodec<?> streamCodecInfo = getStreamCodec(idInputPortMeta);
+    Integer id = dnmgr.getPhysicalPlan().getStreamCodecIdentifier(streamCodecInfo);
+    inputInfo.streamCodecs.put(id, streamCodecInfo);
+    return inputInfo;
+  }
+
+  /**
+   * Create the deploy info of a running unifier with the inputs it switches to, the inputs are sourced from other
+   * containers.
+   *
+   * @param oper unifier
+   * @param inputs inputs to connect
+   * @return deploy info with the inputs to connect
+   */
+  public OperatorDeployInfo getInputSwitchDeployInfo(PTOperator oper, Collection<PTOperator.PTInput> inputs)
+  {
+    OperatorDeployInfo ndi = createOperatorDeployInfo(oper);
+    ndi.inputs = new ArrayList<>(inputs.size());
+    ndi.outputs = new ArrayList<>();
+    for (PTOperator.PTInput in : inputs) {
+      ndi.inputs.add(createInputDeployInfo(ndi, oper, in, Collections.<PTOperator.PTOutput>emptySet()));
+    }
+    return ndi;
   }
 
   public static InputPortMeta getInputPortMeta(LogicalPlan.OperatorMeta operatorMeta, StreamMeta streamMeta)
@@ -455,6 +482,7 @@ public class StreamingContainerAgent
     ci.memoryMBFree = this.memoryMBFree;
     ci.gcCollectionCount = this.gcCollectionCount;
     ci.gcCollectionTime = this.gcCollectionTime;
+    ci.bufferServerEventLoopUtilization = this.bufferServerEventLoopUtilization;
     ci.startedTime = container.getStartedTime();
     ci.finishedTime = container.getFinishedTime();
     if (this.container.nodeHttpAddress != null) {
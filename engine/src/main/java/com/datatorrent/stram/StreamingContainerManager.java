@@ -28,9 +28,11 @@ import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,6 +51,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
@@ -130,6 +133,7 @@ import com.datatorrent.stram.api.StramToNodeChangeLoggersRequest;
 import com.datatorrent.stram.api.StramToNodeGetPropertyRequest;
 import com.datatorrent.stram.api.StramToNodeSetPropertyRequest;
 import com.datatorrent.stram.api.StramToNodeStartRecordingRequest;
+import com.datatorrent.stram.api.StramToNodeSwitchInputsRequest;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeatResponse;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
@@ -149,6 +153,7 @@ import com.datatorrent.stram.plan.logical.LogicalPlanConfiguration;
 import com.datatorrent.stram.plan.logical.Operators;
 import com.datatorrent.stram.plan.logical.Operators.PortContextPair;
 import com.datatorrent.stram.plan.logical.requests.LogicalPlanRequest;
+import com.datatorrent.stram.plan.physical.InputSwitch;
 import com.datatorrent.stram.plan.physical.OperatorStatus;
 import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
 import com.datatorrent.stram.plan.physical.PTContainer;
@@ -229,9 +234,16 @@ public class StreamingContainerManager implements PlanContext
   // window id to node id to end window stats
   private final ConcurrentSkipListMap<Long, Map<Integer, EndWindowStats>> endWindowStatsOperatorMap = new ConcurrentSkipListMap<>();
   private final ConcurrentMap<PTOperator, PTOperator> slowestUpstreamOp = new ConcurrentHashMap<>();
+  // operators whose latency or slowest upstream changed since the last critical path update
+  private final Set<PTOperator> criticalPathChanges = Collections.newSetFromMap(new ConcurrentHashMap<PTOperator, Boolean>());
+  // operator to latency of the slowest path ending at the operator, valid for the operators not changed since
+  private final Map<PTOperator, Long> criticalPathLatencies = new HashMap<>();
+  private int criticalPathRecalculations;
+  private int criticalPathDeployChangeCnt = -1;
+  private int criticalPathPendingWindows;
+  private final MovingAverageLong criticalPathComputeNanosMA = new MovingAverageLong(100);
   private long committedWindowId;
   // (operator id, port name) to timestamp
-  private final Map<Pair<Integer, String>, Long> operatorPortLastEndWindowTimestamps = Maps.newConcurrentMap();
   private final Map<Integer, Long> operatorLastEndWindowTimestamps = Maps.newConcurrentMap();
   private long lastStatsTimestamp = System.currentTimeMillis();
   private long currentEndWindowStatsWindowId;
@@ -241,6 +253,7 @@ public class StreamingContainerManager implements PlanContext
   private int allocatedMemoryMB = 0;
   private List<AppDataSource> appDataSources = null;
   private final Cache<Long, Object> commandResponse = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.MINUTES).build();
+  private final List<InputSwitch> inputSwitches = new CopyOnWriteArrayList<>();
   private transient ExecutorService poolExecutor;
   private FileContext fileContext;
 
@@ -279,7 +292,6 @@ public class StreamingContainerManager implements PlanContext
   private static class EndWindowStats
   {
     long emitTimestamp = -1;
-    HashMap<String, Long> dequeueTimestamps = new HashMap<>(); // input port name to end window dequeue time
     Object counters;
     Map<String, Object> metrics;
   }
@@ -288,22 +300,28 @@ public class StreamingContainerManager implements PlanContext
   {
     long latency;
     final LinkedList<Integer> path;
+    /**
+     * Fan-in adapted to the load of the unifiers on the path by operator id.
+     */
+    final Map<Integer, Integer> unifierFanIn;
 
     public CriticalPathInfo()
     {
       this.path = new LinkedList<>();
+      this.unifierFanIn = new HashMap<>();
     }
 
-    private CriticalPathInfo(long latency, LinkedList<Integer> path)
+    private CriticalPathInfo(long latency, LinkedList<Integer> path, Map<Integer, Integer> unifierFanIn)
     {
       this.latency = latency;
       this.path = path;
+      this.unifierFanIn = unifierFanIn;
     }
 
     @Override
     protected Object clone() throws CloneNotSupportedException
     {
-      return new CriticalPathInfo(this.latency, (LinkedList<Integer>)this.path.clone());
+      return new CriticalPathInfo(this.latency, (LinkedList<Integer>)this.path.clone(), new HashMap<>(unifierFanIn));
     }
   }
 
@@ -436,6 +454,7 @@ public class StreamingContainerManager implements PlanContext
     setupWsClient();
     setupRecording(enableEventRecording);
     setupStringCodecs();
+    journal.setMaxFlushLatency(plan.getLogicalPlan().getValue(LogicalPlan.JOURNAL_MAX_FLUSH_LATENCY_MILLIS));
 
     try {
       Path file = new Path(this.vars.appPath);
@@ -836,7 +855,7 @@ public class StreamingContainerManager implements PlanContext
         Set<Integer> endWindowStatsOperators = endWindowStatsMap.keySet();
 
         aggregateMetrics(windowId, endWindowStatsMap);
-        criticalPathInfo = findCriticalPath();
+        criticalPathPendingWindows++;
 
         if (allCurrentOperators.containsAll(endWindowStatsOperators)) {
           if (endWindowStatsMap.size() < numOperators) {
@@ -858,6 +877,13 @@ public class StreamingContainerManager implements PlanContext
         }
         windowId = endWindowStatsOperatorMap.higherKey(windowId);
       }
+
+      if (criticalPathPendingWindows >= this.vars.criticalPathSamplingWindows) {
+        criticalPathPendingWindows = 0;
+        long start = System.nanoTime();
+        criticalPathInfo = findCriticalPath();
+        criticalPathComputeNanosMA.add(System.nanoTime() - start);
+      }
     }
   }
 
@@ -972,41 +998,86 @@ public class StreamingContainerManager implements PlanContext
     return logicalMetrics.get(operatorName);
   }
 
+  /**
+   * Finds the path with the highest latency. The latency of the slowest path ending at an operator is retained
+   * between calls and only recalculated for the operators downstream of operators that reported a change.
+   */
   private CriticalPathInfo findCriticalPath()
   {
-    CriticalPathInfo result = null;
-    List<PTOperator> leafOperators = plan.getLeafOperators();
-    Map<PTOperator, CriticalPathInfo> cache = new HashMap<>();
-    for (PTOperator leafOperator : leafOperators) {
-      CriticalPathInfo cpi = findCriticalPathHelper(leafOperator, cache);
-      if (result == null || result.latency < cpi.latency) {
-        result = cpi;
+    criticalPathRecalculations = 0;
+    if (criticalPathDeployChangeCnt != deployChangeCnt) {
+      criticalPathDeployChangeCnt = deployChangeCnt;
+      criticalPathChanges.clear();
+      criticalPathLatencies.clear();
+    } else {
+      Deque<PTOperator> invalidated = new ArrayDeque<>();
+      Iterator<PTOperator> iterator = criticalPathChanges.iterator();
+      while (iterator.hasNext()) {
+        PTOperator operator = iterator.next();
+        iterator.remove();
+        if (criticalPathLatencies.remove(operator) != null) {
+          invalidated.add(operator);
+        }
+      }
+      while (!invalidated.isEmpty()) {
+        for (PTOutput output : invalidated.poll().getOutputs()) {
+          for (PTInput sink : output.sinks) {
+            if (criticalPathLatencies.remove(sink.target) != null) {
+              invalidated.add(sink.target);
+            }
+          }
+        }
+      }
+    }
+
+    PTOperator slowestLeafOperator = null;
+    long latency = 0;
+    for (PTOperator leafOperator : plan.getLeafOperators()) {
+      long leafLatency = findCriticalPathLatency(leafOperator);
+      if (slowestLeafOperator == null || latency < leafLatency) {
+        slowestLeafOperator = leafOperator;
+        latency = leafLatency;
+      }
+    }
+    if (slowestLeafOperator == null) {
+      return null;
+    }
+
+    CriticalPathInfo result = new CriticalPathInfo();
+    result.latency = latency;
+    for (PTOperator operator = slowestLeafOperator; operator != null; operator = slowestUpstreamOp.get(operator)) {
+      result.path.addFirst(operator.getId());
+      if (operator.isUnifier()) {
+        int fanIn = plan.getUnifierFanIn(operator);
+        if (fanIn > 0) {
+          result.unifierFanIn.put(operator.getId(), fanIn);
+        }
       }
     }
     return result;
   }
 
-  private CriticalPathInfo findCriticalPathHelper(PTOperator operator, Map<PTOperator, CriticalPathInfo> cache)
+  private long findCriticalPathLatency(PTOperator operator)
   {
-    CriticalPathInfo cpi = cache.get(operator);
-    if (cpi != null) {
-      return cpi;
-    }
-    PTOperator slowestUpstreamOperator = slowestUpstreamOp.get(operator);
-    if (slowestUpstreamOperator != null) {
-      cpi = findCriticalPathHelper(slowestUpstreamOperator, cache);
-      try {
-        cpi = (CriticalPathInfo)cpi.clone();
-      } catch (CloneNotSupportedException ex) {
-        throw new RuntimeException();
+    Long latency = criticalPathLatencies.get(operator);
+    if (latency == null) {
+      PTOperator slowestUpstreamOperator = slowestUpstreamOp.get(operator);
+      latency = operator.stats.getLatencyMA();
+      criticalPathRecalculations++;
+      if (slowestUpstreamOperator != null) {
+        latency += findCriticalPathLatency(slowestUpstreamOperator);
       }
-    } else {
-      cpi = new CriticalPathInfo();
+      criticalPathLatencies.put(operator, latency);
     }
-    cpi.latency += operator.stats.getLatencyMA();
-    cpi.path.addLast(operator.getId());
-    cache.put(operator, cpi);
-    return cpi;
+    return latency;
+  }
+
+  /**
+   * @return average time in nanoseconds spent to update the critical path
+   */
+  public long getCriticalPathComputeNanosMA()
+  {
+    return criticalPathComputeNanosMA.getAvg();
   }
 
   public int processEvents()
@@ -1030,8 +1101,8 @@ public class StreamingContainerManager implements PlanContext
         }
       }
       if (o.stats.lastWindowedStats != null) {
-        // call listeners only with non empty window list
-        if (o.statsListeners != null) {
+        // call listeners only with non empty window list, unifiers adapt their fan-in
+        if (o.statsListeners != null || o.isUnifier()) {
           plan.onStatusUpdate(o);
         }
       }
@@ -1054,6 +1125,14 @@ public class StreamingContainerManager implements PlanContext
       }
     }
 
+    if (!inputSwitches.isEmpty()) {
+      cancelInputSwitches(null);
+      if (!inputSwitches.isEmpty() && !eventQueue.isEmpty()) {
+        LOG.debug("Skipping plan updates due to pending input switches {}", inputSwitches);
+        return 0;
+      }
+    }
+
     if (!eventQueue.isEmpty()) {
       for (PTOperator oper : plan.getAllOperators().values()) {
         if (oper.getState() != PTOperator.State.ACTIVE) {
@@ -1114,8 +1193,22 @@ public class StreamingContainerManager implements PlanContext
   public void scheduleContainerRestart(String containerId)
   {
     StreamingContainerAgent cs = this.getContainerAgent(containerId);
-    if (cs == null || cs.shutdownRequested) {
+    if (cs == null) {
+      return;
+    }
+    // unifiers that read from removed partitions of the container are redeployed
+    List<PTOperator> switchingUnifiers = cancelInputSwitches(cs.container);
+    if (cs.shutdownRequested) {
       // the container is no longer used / was released by us
+      if (!switchingUnifiers.isEmpty()) {
+        UpdateCheckpointsContext ctx = new UpdateCheckpointsContext(clock, false, getCheckpointGroups());
+        for (PTOperator oper : switchingUnifiers) {
+          updateRecoveryCheckpoints(oper, ctx);
+        }
+        includeLocalUpstreamOperators(ctx);
+        LOG.info("Affected operators {}", ctx.visited);
+        deploy(Collections.<PTContainer>emptySet(), ctx.visited, Collections.<PTContainer>emptySet(), ctx.visited);
+      }
       return;
     }
 
@@ -1132,6 +1225,9 @@ public class StreamingContainerManager implements PlanContext
     for (PTOperator oper : cs.container.getOperators()) {
       updateRecoveryCheckpoints(oper, ctx);
     }
+    for (PTOperator oper : switchingUnifiers) {
+      updateRecoveryCheckpoints(oper, ctx);
+    }
     includeLocalUpstreamOperators(ctx);
 
     // redeploy cycle for all affected operators
@@ -1499,6 +1595,7 @@ public class StreamingContainerManager implements PlanContext
     sca.memoryMBFree = heartbeat.memoryMBFree;
     sca.gcCollectionCount = heartbeat.gcCollectionCount;
     sca.gcCollectionTime = heartbeat.gcCollectionTime;
+    sca.bufferServerEventLoopUtilization = heartbeat.bufferServerEventLoopUtilization;
 
     sca.undeployOpers.clear();
     sca.deployOpers.clear();
@@ -1506,6 +1603,7 @@ public class StreamingContainerManager implements PlanContext
       sca.deployCnt = this.deployChangeCnt;
     }
     Set<Integer> reportedOperators = Sets.newHashSetWithExpectedSize(sca.container.getOperators().size());
+    boolean retiring = false;
 
     for (OperatorHeartbeat shb : heartbeat.getContainerStats().operators) {
 
@@ -1515,6 +1613,11 @@ public class StreamingContainerManager implements PlanContext
       PTOperator oper = this.plan.getAllOperators().get(shb.getNodeId());
 
       if (oper == null) {
+        if (isRetiring(shb.getNodeId())) {
+          // removed partition that is read by a unifier until it switched its inputs
+          retiring = true;
+          continue;
+        }
         LOG.info("Heartbeat for unknown operator {} (container {})", shb.getNodeId(), heartbeat.getContainerId());
         sca.undeployOpers.add(shb.nodeId);
         continue;
@@ -1523,6 +1626,7 @@ public class StreamingContainerManager implements PlanContext
       if (shb.requestResponse != null) {
         for (StatsListener.OperatorResponse obj : shb.requestResponse) {
           if (obj instanceof OperatorResponse) {      // This is to identify platform requests
+            completeInputSwitch(oper, (Long)obj.getResponseId());
             commandResponse.put((Long)obj.getResponseId(), obj.getResponse());
             LOG.debug(" Got back the response {} for the request {}", obj, obj.getResponseId());
           } else {
@@ -1584,9 +1688,7 @@ public class StreamingContainerManager implements PlanContext
           EndWindowStats endWindowStats = new EndWindowStats(); // end window stats for a particular window id for a particular node
           Collection<ContainerStats.OperatorStats.PortStats> ports = stats.inputPorts;
           if (ports != null) {
-            Set<String> currentInputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
             for (ContainerStats.OperatorStats.PortStats s : ports) {
-              currentInputPortSet.add(s.id);
               PortStatus ps = status.inputPortStatusList.get(s.id);
               if (ps == null) {
                 ps = status.new PortStatus();
@@ -1597,20 +1699,15 @@ public class StreamingContainerManager implements PlanContext
               ps.recordingId = s.recordingId;
 
               tuplesProcessed += s.tupleCount;
-              endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
 
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
+              long lastEndWindowTimestamp = ps.lastEndWindowTimestamp == 0 ? lastStatsTimestamp : ps.lastEndWindowTimestamp;
               long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+              //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", s.id, s.tupleCount, portElapsedMillis, ps.lastEndWindowTimestamp, lastStatsTimestamp);
               ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
               ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
               ps.queueSizeMA.add(s.queueSize);
 
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+              ps.lastEndWindowTimestamp = s.endWindowTimestamp;
               if (maxEndWindowTimestamp < s.endWindowTimestamp) {
                 maxEndWindowTimestamp = s.endWindowTimestamp;
               }
@@ -1619,20 +1716,12 @@ public class StreamingContainerManager implements PlanContext
               }
             }
             // need to remove dead ports, for unifiers
-            Iterator<Map.Entry<String, PortStatus>> it = status.inputPortStatusList.entrySet().iterator();
-            while (it.hasNext()) {
-              Map.Entry<String, PortStatus> entry = it.next();
-              if (!currentInputPortSet.contains(entry.getKey())) {
-                it.remove();
-              }
-            }
+            removeDeadPorts(status.inputPortStatusList, ports);
           }
 
           ports = stats.outputPorts;
           if (ports != null) {
-            Set<String> currentOutputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
             for (ContainerStats.OperatorStats.PortStats s : ports) {
-              currentOutputPortSet.add(s.id);
               PortStatus ps = status.outputPortStatusList.get(s.id);
               if (ps == null) {
                 ps = status.new PortStatus();
@@ -1643,17 +1732,13 @@ public class StreamingContainerManager implements PlanContext
               ps.recordingId = s.recordingId;
 
               tuplesEmitted += s.tupleCount;
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
+              long lastEndWindowTimestamp = ps.lastEndWindowTimestamp == 0 ? lastStatsTimestamp : ps.lastEndWindowTimestamp;
               long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+              //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", s.id, s.tupleCount, portElapsedMillis, ps.lastEndWindowTimestamp, lastStatsTimestamp);
               ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
               ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
 
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+              ps.lastEndWindowTimestamp = s.endWindowTimestamp;
               if (maxEndWindowTimestamp < s.endWindowTimestamp) {
                 maxEndWindowTimestamp = s.endWindowTimestamp;
               }
@@ -1662,13 +1747,7 @@ public class StreamingContainerManager implements PlanContext
               endWindowStats.emitTimestamp = ports.iterator().next().endWindowTimestamp;
             }
             // need to remove dead ports, for unifiers
-            Iterator<Map.Entry<String, PortStatus>> it = status.outputPortStatusList.entrySet().iterator();
-            while (it.hasNext()) {
-              Map.Entry<String, PortStatus> entry = it.next();
-              if (!currentOutputPortSet.contains(entry.getKey())) {
-                it.remove();
-              }
-            }
+            removeDeadPorts(status.outputPortStatusList, ports);
           }
 
           // for output operator, just take the maximum dequeue time for emit timestamp.
@@ -1739,8 +1818,12 @@ public class StreamingContainerManager implements PlanContext
                   slowestUpstream = upstreamOp;
                 }
               }
+              long previousLatency = status.getLatencyMA();
               status.latencyMA.add(latency);
-              slowestUpstreamOp.put(oper, slowestUpstream);
+              PTOperator previousUpstream = slowestUpstreamOp.put(oper, slowestUpstream);
+              if (previousUpstream != slowestUpstream || previousLatency != status.getLatencyMA()) {
+                criticalPathChanges.add(oper);
+              }
             }
 
             Set<Integer> allCurrentOperators = plan.getAllOperators().keySet();
@@ -1759,7 +1842,8 @@ public class StreamingContainerManager implements PlanContext
           logicalStatus.totalTuplesProcessed += tuplesProcessed;
           logicalStatus.totalTuplesEmitted += tuplesEmitted;
         }
-        long lastMaxEndWindowTimestamp = operatorLastEndWindowTimestamps.containsKey(oper.getId()) ? operatorLastEndWindowTimestamps.get(oper.getId()) : lastStatsTimestamp;
+        Long lastOperatorEndWindowTimestamp = operatorLastEndWindowTimestamps.get(oper.getId());
+        long lastMaxEndWindowTimestamp = lastOperatorEndWindowTimestamp == null ? lastStatsTimestamp : lastOperatorEndWindowTimestamp;
         if (maxEndWindowTimestamp >= lastMaxEndWindowTimestamp) {
           double tuplesProcessedPMSMA = 0.0;
           double tuplesEmittedPMSMA = 0.0;
@@ -1805,7 +1889,7 @@ public class StreamingContainerManager implements PlanContext
       LOG.info("requesting idle shutdown for container {}", heartbeat.getContainerId());
       rsp.shutdown = true;
     } else {
-      if (sca.shutdownRequested) {
+      if (sca.shutdownRequested && !retiring) {
         LOG.info("requesting shutdown for container {}", heartbeat.getContainerId());
         rsp.shutdown = true;
       }
@@ -1820,6 +1904,9 @@ public class StreamingContainerManager implements PlanContext
       }
       requests.add(r);
     }
+    if (!inputSwitches.isEmpty() && !this.deployChangeInProgress.get() && sca.deployCnt == this.deployChangeCnt) {
+      addInputSwitchRequests(sca, requests);
+    }
     rsp.nodeRequests = requests;
     rsp.committedWindowId = committedWindowId;
     rsp.stackTraceRequired = sca.stackTraceRequested;
@@ -1828,6 +1915,22 @@ public class StreamingContainerManager implements PlanContext
     return rsp;
   }
 
+  /**
+   * Remove the status of ports that were not reported. All reported ports are in the map at this point, so the common
+   * case of an unchanged set of ports is detected by the size without looking up the reported ids.
+   */
+  private static void removeDeadPorts(Map<String, PortStatus> portStatusList,
+      Collection<ContainerStats.OperatorStats.PortStats> ports)
+  {
+    if (portStatusList.size() > ports.size()) {
+      Set<String> currentPortSet = Sets.newHashSetWithExpectedSize(ports.size());
+      for (ContainerStats.OperatorStats.PortStats s : ports) {
+        currentPortSet.add(s.id);
+      }
+      portStatusList.keySet().retainAll(currentPortSet);
+    }
+  }
+
   private ContainerHeartbeatResponse getHeartbeatResponse(StreamingContainerAgent sca)
   {
     ContainerHeartbeatResponse rsp = new ContainerHeartbeatResponse();
@@ -2213,6 +2316,10 @@ public class StreamingContainerManager implements PlanContext
   {
     this.shutdownDiagnosticsMessage = message;
     LOG.info("Initiating application shutdown: {}", message);
+    for (InputSwitch s : inputSwitches) {
+      s.setState(InputSwitch.State.CANCELLED);
+    }
+    inputSwitches.clear();
     for (StreamingContainerAgent cs : this.containers.values()) {
       cs.shutdownRequested = true;
     }
@@ -2448,6 +2555,7 @@ public class StreamingContainerManager implements PlanContext
     if (os.checkpointStats != null) {
       oi.checkpointTime = os.checkpointStats.checkpointTime;
       oi.checkpointStartTime = os.checkpointStats.checkpointStartTime;
+      oi.checkpointSerializationTime = os.checkpointStats.checkpointSerializationTime;
     }
     oi.checkpointTimeMA = os.checkpointTimeMA.getAvg();
     for (PortStatus ps : os.inputPortStatusList.values()) {
@@ -2813,6 +2921,105 @@ public class StreamingContainerManager implements PlanContext
     recordEventAsync(new StramEvent.SetPhysicalOperatorPropertyEvent(operatorName, o.getId(), propertyName, propertyValue));
   }
 
+  @Override
+  public void switchInputs(Collection<InputSwitch> switches)
+  {
+    inputSwitches.addAll(switches);
+  }
+
+  private boolean isRetiring(int operatorId)
+  {
+    for (InputSwitch s : inputSwitches) {
+      if (s.isRetiring(operatorId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Send the ready input switches of the unifiers of the container once the unifiers and the partitions they switch
+   * to are active and the unifiers processed the windows from which the added partitions start.
+   */
+  private void addInputSwitchRequests(StreamingContainerAgent sca, List<StramToNodeRequest> requests)
+  {
+    nextSwitch:
+    for (InputSwitch s : inputSwitches) {
+      PTOperator unifier = s.getOperator();
+      if (s.getState() != InputSwitch.State.READY || unifier.getContainer() != sca.container
+          || unifier.getState() != PTOperator.State.ACTIVE) {
+        continue;
+      }
+      List<PTInput> addedInputs = s.getAddedInputs();
+      for (PTInput input : addedInputs) {
+        PTOperator source = input.source.source;
+        if (source.getState() != PTOperator.State.ACTIVE
+            || unifier.stats.currentWindowId.get() < source.getRecoveryCheckpoint().windowId) {
+          continue nextSwitch;
+        }
+      }
+      StramToNodeSwitchInputsRequest request = new StramToNodeSwitchInputsRequest();
+      request.setOperatorId(unifier.getId());
+      request.requestId = nodeToStramRequestIds.incrementAndGet();
+      request.setDeployInfo(sca.getInputSwitchDeployInfo(unifier, addedInputs));
+      List<String> retiredPorts = new ArrayList<>();
+      for (PTInput input : s.getRetiredInputs()) {
+        retiredPorts.add(StreamingContainer.getUnifierInputPortName(input.portName, input.source.source.getId(),
+            input.source.portName));
+      }
+      request.setRetiredPorts(retiredPorts);
+      s.setRequestId(request.requestId);
+      s.setState(InputSwitch.State.SENT);
+      LOG.info("Switching inputs of {} to {} from {}", unifier, addedInputs, retiredPorts);
+      requests.add(request);
+    }
+  }
+
+  private void completeInputSwitch(PTOperator oper, long requestId)
+  {
+    for (InputSwitch s : inputSwitches) {
+      if (s.getOperator() == oper && s.getState() == InputSwitch.State.SENT && s.getRequestId() == requestId) {
+        LOG.info("{} switched inputs, undeploying {}", oper, s.getRetiredSources());
+        s.setState(InputSwitch.State.DONE);
+        inputSwitches.remove(s);
+      }
+    }
+  }
+
+  /**
+   * Cancel the input switches that are void because the unifier is no longer active or a removed partition it still
+   * reads from failed.
+   *
+   * @param failedContainer container of failed removed partitions or null
+   * @return unifiers that need to be redeployed as their removed upstream partitions failed
+   */
+  private List<PTOperator> cancelInputSwitches(PTContainer failedContainer)
+  {
+    List<PTOperator> unifiers = new ArrayList<>();
+    for (InputSwitch s : inputSwitches) {
+      PTOperator unifier = s.getOperator();
+      boolean cancel = s.getState() == InputSwitch.State.CANCELLED || plan.getAllOperators().get(unifier.getId()) != unifier;
+      if (!cancel && s.getState() != InputSwitch.State.PENDING) {
+        cancel = unifier.getState() != PTOperator.State.ACTIVE;
+      }
+      if (!cancel && failedContainer != null) {
+        for (PTOperator retired : s.getRetiredSources()) {
+          if (retired.getContainer() == failedContainer) {
+            unifiers.add(unifier);
+            cancel = true;
+            break;
+          }
+        }
+      }
+      if (cancel) {
+        LOG.info("Cancelling {}", s);
+        s.setState(InputSwitch.State.CANCELLED);
+        inputSwitches.remove(s);
+      }
+    }
+    return unifiers;
+  }
+
   @Override
   public void addOperatorRequest(PTOperator oper, StramToNodeRequest request)
   {
@@ -3075,6 +3282,7 @@ public class StreamingContainerManager implements PlanContext
     private final int maxWindowsBehindForStats;
     private final boolean enableStatsRecording;
     private final int rpcLatencyCompensationSamples;
+    private final int criticalPathSamplingWindows;
 
     private FinalVars(LogicalPlan dag, long tms)
     {
@@ -3099,6 +3307,7 @@ public class StreamingContainerManager implements PlanContext
       this.maxWindowsBehindForStats = dag.getValue(LogicalPlan.STATS_MAX_ALLOWABLE_WINDOWS_LAG);
       this.enableStatsRecording = dag.getValue(LogicalPlan.ENABLE_STATS_RECORDING);
       this.rpcLatencyCompensationSamples = dag.getValue(LogicalPlan.RPC_LATENCY_COMPENSATION_SAMPLES);
+      this.criticalPathSamplingWindows = dag.getValue(LogicalPlan.CRITICAL_PATH_SAMPLING_WINDOWS);
     }
 
     private FinalVars(FinalVars other, LogicalPlan dag)
@@ -3109,6 +3318,7 @@ public class StreamingContainerManager implements PlanContext
       this.enableStatsRecording = other.enableStatsRecording;
       this.appPath = dag.getValue(LogicalPlan.APPLICATION_PATH);
       this.rpcLatencyCompensationSamples = other.rpcLatencyCompensationSamples;
+      this.criticalPathSamplingWindows = other.criticalPathSamplingWindows;
     }
 
   }
@@ -3240,4 +3450,13 @@ public class StreamingContainerManager implements PlanContext
     return latestLogicalCounters.get(operatorName);
   }
 
+  /**
+   * @return number of operators whose critical path latency was recalculated in the last update of the critical path
+   */
+  @VisibleForTesting
+  protected int getCriticalPathRecalculations()
+  {
+    return criticalPathRecalculations;
+  }
+
 }
@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.api.Stats.Checkpoint;
+import com.datatorrent.api.Stats.CheckpointStats;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+
+/**
+ * Compact encoding of the window stats an operator reports with a heartbeat.
+ * <p>
+ * The port ids of all windows are interned into a table and referenced by index. The numeric stats of all windows
+ * are packed into one byte array as variable length integers, window ids and end window timestamps as deltas to
+ * the previous value, which are small for consecutive windows. The remaining fields are rarely set and are written
+ * as objects only for the windows that have them.
+ *
+ * @see OperatorHeartbeat#compactStats
+ */
+final class CompactWindowStats
+{
+  private static final int CHECKPOINT = 1;
+  private static final int CHECKPOINT_STATS = 1 << 1;
+  private static final int COUNTERS = 1 << 2;
+  private static final int METRICS = 1 << 3;
+  private static final int RECORDING_ID = 1 << 4;
+  private static final int INPUT_PORTS = 1 << 5;
+  private static final int OUTPUT_PORTS = 1 << 6;
+  private static final int PORT_RECORDING_ID = 1 << 7;
+
+  private CompactWindowStats()
+  {
+  }
+
+  @SuppressWarnings("deprecation")
+  static void write(List<OperatorStats> windowStats, ObjectOutput out) throws IOException
+  {
+    final ArrayList<String> portIds = new ArrayList<>();
+    final Output numbers = new Output(256, -1);
+    numbers.writeVarInt(windowStats.size(), true);
+    long windowId = 0;
+    long timestamp = 0;
+    for (OperatorStats stats : windowStats) {
+      numbers.writeVarLong(stats.windowId - windowId, false);
+      windowId = stats.windowId;
+      numbers.writeVarLong(stats.cpuTimeUsed, true);
+      numbers.writeByte(flags(stats));
+      timestamp = writePorts(stats.inputPorts, portIds, numbers, timestamp);
+      timestamp = writePorts(stats.outputPorts, portIds, numbers, timestamp);
+    }
+
+    out.writeInt(portIds.size());
+    for (String portId : portIds) {
+      out.writeUTF(portId);
+    }
+    out.writeInt(numbers.position());
+    out.write(numbers.getBuffer(), 0, numbers.position());
+
+    for (OperatorStats stats : windowStats) {
+      final int flags = flags(stats);
+      if ((flags & CHECKPOINT) != 0) {
+        out.writeObject(stats.checkpoint);
+      }
+      if ((flags & CHECKPOINT_STATS) != 0) {
+        out.writeObject(stats.checkpointStats);
+      }
+      if ((flags & COUNTERS) != 0) {
+        out.writeObject(stats.counters);
+      }
+      if ((flags & METRICS) != 0) {
+        out.writeObject(stats.metrics);
+      }
+      if ((flags & RECORDING_ID) != 0) {
+        out.writeObject(stats.recordingId);
+      }
+      if ((flags & PORT_RECORDING_ID) != 0) {
+        writePortRecordingIds(stats.inputPorts, out);
+        writePortRecordingIds(stats.outputPorts, out);
+      }
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "deprecation"})
+  static ArrayList<OperatorStats> read(ObjectInput in) throws IOException, ClassNotFoundException
+  {
+    final String[] portIds = new String[in.readInt()];
+    for (int i = 0; i < portIds.length; i++) {
+      portIds[i] = in.readUTF();
+    }
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    final Input numbers = new Input(bytes);
+
+    final int windowCount = numbers.readVarInt(true);
+    final ArrayList<OperatorStats> windowStats = new ArrayList<>(windowCount);
+    final int[] windowFlags = new int[windowCount];
+    long windowId = 0;
+    long timestamp = 0;
+    for (int i = 0; i < windowCount; i++) {
+      OperatorStats stats = new OperatorStats();
+      windowId += numbers.readVarLong(false);
+      stats.windowId = windowId;
+      stats.cpuTimeUsed = numbers.readVarLong(true);
+      windowFlags[i] = numbers.readByte() & 0xff;
+      if ((windowFlags[i] & INPUT_PORTS) != 0) {
+        stats.inputPorts = new ArrayList<>();
+        timestamp = readPorts(stats.inputPorts, portIds, numbers, timestamp);
+      }
+      if ((windowFlags[i] & OUTPUT_PORTS) != 0) {
+        stats.outputPorts = new ArrayList<>();
+        timestamp = readPorts(stats.outputPorts, portIds, numbers, timestamp);
+      }
+      windowStats.add(stats);
+    }
+
+    for (int i = 0; i < windowCount; i++) {
+      final OperatorStats stats = windowStats.get(i);
+      final int flags = windowFlags[i];
+      if ((flags & CHECKPOINT) != 0) {
+        stats.checkpoint = (Checkpoint)in.readObject();
+      }
+      if ((flags & CHECKPOINT_STATS) != 0) {
+        stats.checkpointStats = (CheckpointStats)in.readObject();
+      }
+      if ((flags & COUNTERS) != 0) {
+        stats.counters = in.readObject();
+      }
+      if ((flags & METRICS) != 0) {
+        stats.metrics = (Map<String, Object>)in.readObject();
+      }
+      if ((flags & RECORDING_ID) != 0) {
+        stats.recordingId = (String)in.readObject();
+      }
+      if ((flags & PORT_RECORDING_ID) != 0) {
+        readPortRecordingIds(stats.inputPorts, in);
+        readPortRecordingIds(stats.outputPorts, in);
+      }
+    }
+    return windowStats;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static int flags(OperatorStats stats)
+  {
+    int flags = 0;
+    if (stats.checkpoint != null) {
+      flags |= CHECKPOINT;
+    }
+    if (stats.checkpointStats != null) {
+      flags |= CHECKPOINT_STATS;
+    }
+    if (stats.counters != null) {
+      flags |= COUNTERS;
+    }
+    if (stats.metrics != null) {
+      flags |= METRICS;
+    }
+    if (stats.recordingId != null) {
+      flags |= RECORDING_ID;
+    }
+    if (stats.inputPorts != null) {
+      flags |= INPUT_PORTS;
+    }
+    if (stats.outputPorts != null) {
+      flags |= OUTPUT_PORTS;
+    }
+    if (hasRecordingId(stats.inputPorts) || hasRecordingId(stats.outputPorts)) {
+      flags |= PORT_RECORDING_ID;
+    }
+    return flags;
+  }
+
+  private static boolean hasRecordingId(List<PortStats> ports)
+  {
+    if (ports != null) {
+      for (int i = ports.size(); i-- > 0;) {
+        if (ports.get(i).recordingId != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static long writePorts(List<PortStats> ports, List<String> portIds, Output numbers, long timestamp)
+  {
+    if (ports == null) {
+      return timestamp;
+    }
+    numbers.writeVarInt(ports.size(), true);
+    for (int i = 0; i < ports.size(); i++) {
+      final PortStats port = ports.get(i);
+      int index = portIds.indexOf(port.id);
+      if (index < 0) {
+        index = portIds.size();
+        portIds.add(port.id);
+      }
+      numbers.writeVarInt(index, true);
+      numbers.writeVarInt(port.tupleCount, true);
+      numbers.writeVarLong(port.endWindowTimestamp - timestamp, false);
+      timestamp = port.endWindowTimestamp;
+      numbers.writeVarLong(port.bufferServerBytes, true);
+      numbers.writeVarInt(port.queueSize, true);
+      numbers.writeVarLong(port.sendBlockedMillis, true);
+    }
+    return timestamp;
+  }
+
+  private static long readPorts(List<PortStats> ports, String[] portIds, Input numbers, long timestamp)
+  {
+    for (int count = numbers.readVarInt(true); count-- > 0;) {
+      final PortStats port = new PortStats(portIds[numbers.readVarInt(true)]);
+      port.tupleCount = numbers.readVarInt(true);
+      timestamp += numbers.readVarLong(false);
+      port.endWindowTimestamp = timestamp;
+      port.bufferServerBytes = numbers.readVarLong(true);
+      port.queueSize = numbers.readVarInt(true);
+      port.sendBlockedMillis = numbers.readVarLong(true);
+      ports.add(port);
+    }
+    return timestamp;
+  }
+
+  private static void writePortRecordingIds(List<PortStats> ports, ObjectOutput out) throws IOException
+  {
+    if (ports != null) {
+      for (int i = 0; i < ports.size(); i++) {
+        out.writeObject(ports.get(i).recordingId);
+      }
+    }
+  }
+
+  private static void readPortRecordingIds(List<PortStats> ports, ObjectInput in)
+      throws IOException, ClassNotFoundException
+  {
+    if (ports != null) {
+      for (int i = 0; i < ports.size(); i++) {
+        ports.get(i).recordingId = (String)in.readObject();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Request to a running unifier to connect the inputs from the partitions added by a repartitioning and to disconnect
+ * the inputs from the removed partitions at the next window boundary. The unifier responds with the window after which
+ * it switched.
+ */
+public class StramToNodeSwitchInputsRequest extends StreamingContainerUmbilicalProtocol.StramToNodeRequest implements Serializable
+{
+  private OperatorDeployInfo deployInfo;
+  private List<String> retiredPorts;
+
+  public StramToNodeSwitchInputsRequest()
+  {
+    requestType = RequestType.CUSTOM;
+  }
+
+  /**
+   * @return deploy info of the unifier with the inputs to connect
+   */
+  public OperatorDeployInfo getDeployInfo()
+  {
+    return deployInfo;
+  }
+
+  public void setDeployInfo(OperatorDeployInfo deployInfo)
+  {
+    this.deployInfo = deployInfo;
+  }
+
+  /**
+   * @return names of the input ports of the unifier to disconnect
+   */
+  public List<String> getRetiredPorts()
+  {
+    return retiredPorts;
+  }
+
+  public void setRetiredPorts(List<String> retiredPorts)
+  {
+    this.retiredPorts = retiredPorts;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "StramToNodeSwitchInputsRequest{operatorId=" + operatorId + ", requestId=" + requestId + ", retiredPorts="
+        + retiredPorts + '}';
+  }
+
+  private static final long serialVersionUID = 201610180000L;
+
+}
@@ -19,6 +19,8 @@
 package com.datatorrent.stram.api;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -184,6 +186,47 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
      * Return the response of the request
      */
     public ArrayList<StatsListener.OperatorResponse> requestResponse;
+
+    /**
+     * Serialize the window stats in the compact encoding of {@link CompactWindowStats}. The encoding is recorded in
+     * the serialized form, the receiver does not need to know the setting.
+     */
+    public transient boolean compactStats;
+
+    /**
+     * Whether the window stats follow the fields in the compact encoding, set only in the serialized form. A regular
+     * field, so that the heartbeats serialized without it, like those of older versions in recovery snapshots, read as
+     * false.
+     */
+    private boolean compactWindowStats;
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+      if (compactStats && windowStats != null) {
+        final ArrayList<ContainerStats.OperatorStats> stats = windowStats;
+        windowStats = null;
+        compactWindowStats = true;
+        try {
+          out.defaultWriteObject();
+        } finally {
+          windowStats = stats;
+          compactWindowStats = false;
+        }
+        CompactWindowStats.write(stats, out);
+      } else {
+        out.defaultWriteObject();
+      }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+      in.defaultReadObject();
+      compactStats = compactWindowStats;
+      if (compactStats) {
+        windowStats = CompactWindowStats.read(in);
+        compactWindowStats = false;
+      }
+    }
   }
 
   class ContainerStats implements Stats
@@ -233,6 +276,10 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
     public boolean restartRequested;
     public long gcCollectionTime;
     public long gcCollectionCount;
+    /**
+     * Utilization of each buffer server event loop since the previous heartbeat.
+     */
+    public double[] bufferServerEventLoopUtilization;
 
     public ContainerStats stats;
 
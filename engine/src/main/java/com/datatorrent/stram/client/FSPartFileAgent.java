@@ -99,8 +99,9 @@ public abstract class FSPartFileAgent
   {
     if (partFile == null) {
       return "part0.txt";
-    } else if (partFile.startsWith("part") && partFile.endsWith(".txt")) {
-      return "part" + (Integer.valueOf(partFile.substring(4, partFile.length() - 4)) + 1) + ".txt";
+    } else if (partFile.startsWith("part") && partFile.lastIndexOf('.') > 4) {
+      int extension = partFile.lastIndexOf('.');
+      return "part" + (Integer.valueOf(partFile.substring(4, extension)) + 1) + partFile.substring(extension);
     }
     return null;
   }
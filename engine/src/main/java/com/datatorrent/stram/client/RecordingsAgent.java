@@ -19,8 +19,10 @@
 package com.datatorrent.stram.client;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -44,6 +46,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.mutable.MutableLong;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
@@ -357,7 +360,7 @@ public final class RecordingsAgent extends FSPartFileAgent
       br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.META_FILE))));
       String line;
       line = br.readLine();
-      if (!line.equals("1.2")) {
+      if (!line.equals(TupleRecorder.VERSION) && !line.equals(TupleRecorder.BINARY_VERSION)) {
         throw new Exception("Unexpected line: " + line);
       }
       line = br.readLine();
@@ -519,9 +522,17 @@ public final class RecordingsAgent extends FSPartFileAgent
         }
 
         if (readPartFile) {
+          boolean seek = (queryType == QueryType.WINDOW && lastProcessPartFile == null);
           lastProcessPartFile = indexLine.partFile;
-          try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))))) {
-            processPartFile(partBr, queryType, low, high, limit, ports, numRemainingTuples, currentTimestamp, currentWindowLow, currentOffset, info);
+          if (isBinaryPartFile(indexLine.partFile)) {
+            try (FSDataInputStream partIs = stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))) {
+              long skippedTuples = seek ? seekWindow(partIs, dir, indexLine.partFile, low, ports) : 0;
+              processBinaryPartFile(partIs, queryType, low, high, limit, ports, numRemainingTuples, currentTimestamp, currentWindowLow, currentOffset + skippedTuples, info);
+            }
+          } else {
+            try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))))) {
+              processPartFile(partBr, queryType, low, high, limit, ports, numRemainingTuples, currentTimestamp, currentWindowLow, currentOffset, info);
+            }
           }
         }
         currentOffset += numTuples;
@@ -530,9 +541,17 @@ public final class RecordingsAgent extends FSPartFileAgent
         }
       }
       BufferedReader partBr = null;
+      FSDataInputStream partIs = null;
       try {
         String extraPartFile = getNextPartFile(lastProcessPartFile);
-        if (extraPartFile != null) {
+        if (lastProcessPartFile == null && !stramAgent.getFileSystem().exists(new Path(dir, extraPartFile))) {
+          extraPartFile = "part0" + TupleRecorder.BINARY_PART_FILE_EXTENSION;
+        }
+        if (extraPartFile != null && isBinaryPartFile(extraPartFile)) {
+          partIs = stramAgent.getFileSystem().open(new Path(dir, extraPartFile));
+          long skippedTuples = (queryType == QueryType.WINDOW && lastProcessPartFile == null) ? seekWindow(partIs, dir, extraPartFile, low, ports) : 0;
+          processBinaryPartFile(partIs, queryType, low, high, limit, ports, numRemainingTuples, currentTimestamp, new MutableLong(), currentOffset + skippedTuples, info);
+        } else if (extraPartFile != null) {
           partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
           processPartFile(partBr, queryType, low, high, limit, ports, numRemainingTuples, currentTimestamp, new MutableLong(), currentOffset, info);
         }
@@ -540,6 +559,7 @@ public final class RecordingsAgent extends FSPartFileAgent
         // ignore
       } finally {
         IOUtils.closeQuietly(partBr);
+        IOUtils.closeQuietly(partIs);
       }
 
     } catch (Exception ex) {
@@ -577,32 +597,14 @@ public final class RecordingsAgent extends FSPartFileAgent
         boolean portMatch = (ports == null) || (ports.length == 0) || Arrays.asList(ports).contains(port);
         partCursor = partCursor2 + 1;
 
-        if (portMatch
-            && ((queryType == QueryType.WINDOW && currentWindowLow.longValue() >= low)
-            || (queryType == QueryType.OFFSET && tmpOffset >= low)
-            || (queryType == QueryType.TIME && currentTimestamp.longValue() >= low))) {
-
+        if (portMatch && isSelected(queryType, low, tmpOffset, currentTimestamp, currentWindowLow)) {
           if (numRemainingTuples.longValue() > 0) {
-            if (info.startOffset == -1) {
-              info.startOffset = tmpOffset;
-            }
-            WindowTuplesInfo wtinfo;
-            if (info.tuples.isEmpty() || info.tuples.get(info.tuples.size() - 1).windowId != currentWindowLow
-                .longValue()) {
-              wtinfo = new WindowTuplesInfo();
-              wtinfo.windowId = currentWindowLow.longValue();
-              info.tuples.add(wtinfo);
-            } else {
-              wtinfo = info.tuples.get(info.tuples.size() - 1);
-            }
-
             partCursor2 = partLine.indexOf(':', partCursor);
             int size = Integer.valueOf(partLine.substring(partCursor, partCursor2));
             partCursor = partCursor2 + 1;
             //partCursor2 = partCursor + size;
             String tupleValue = partLine.substring(partCursor);
-            wtinfo.tuples.add(new TupleInfo(port, tupleValue));
-            numRemainingTuples.decrement();
+            addTuple(port, tupleValue, tmpOffset, numRemainingTuples, currentWindowLow, info);
           } else {
             break;
           }
@@ -614,6 +616,120 @@ public final class RecordingsAgent extends FSPartFileAgent
     }
   }
 
+  private void processBinaryPartFile(FSDataInputStream partIs, QueryType queryType, long low, long high, long limit, String[] ports, MutableLong numRemainingTuples, MutableLong currentTimestamp, MutableLong currentWindowLow, long currentOffset, TuplesInfo info) throws IOException
+  {
+    long tmpOffset = currentOffset;
+    try {
+      while (true) {
+        byte type = partIs.readByte();
+        long timestamp = partIs.readLong();
+        if (type == TupleRecorder.BEGIN_WINDOW_RECORD || type == TupleRecorder.END_WINDOW_RECORD) {
+          long windowId = partIs.readLong();
+          if (type == TupleRecorder.BEGIN_WINDOW_RECORD) {
+            currentTimestamp.setValue(timestamp);
+            currentWindowLow.setValue(windowId);
+            if (limit != numRemainingTuples.longValue()) {
+              WindowTuplesInfo wtinfo;
+              wtinfo = new WindowTuplesInfo();
+              wtinfo.windowId = currentWindowLow.longValue();
+              info.tuples.add(wtinfo);
+            }
+          }
+          continue;
+        }
+        String port = String.valueOf(partIs.readInt());
+        int size = partIs.readInt();
+        boolean portMatch = false;
+        if (type == TupleRecorder.TUPLE_RECORD) {
+          currentTimestamp.setValue(timestamp);
+          portMatch = (ports == null) || (ports.length == 0) || Arrays.asList(ports).contains(port);
+        }
+        if (portMatch && isSelected(queryType, low, tmpOffset, currentTimestamp, currentWindowLow)) {
+          if (numRemainingTuples.longValue() > 0) {
+            byte[] tupleValue = new byte[size];
+            partIs.readFully(tupleValue);
+            addTuple(port, new String(tupleValue, StandardCharsets.UTF_8), tmpOffset, numRemainingTuples, currentWindowLow, info);
+          } else {
+            break;
+          }
+        } else {
+          partIs.seek(partIs.getPos() + size);
+        }
+        if (portMatch) {
+          tmpOffset++;
+        }
+      }
+    } catch (EOFException ex) {
+      // end of the part file or of the records flushed so far
+    }
+  }
+
+  private static boolean isSelected(QueryType queryType, long low, long offset, MutableLong currentTimestamp, MutableLong currentWindowLow)
+  {
+    return (queryType == QueryType.WINDOW && currentWindowLow.longValue() >= low)
+        || (queryType == QueryType.OFFSET && offset >= low)
+        || (queryType == QueryType.TIME && currentTimestamp.longValue() >= low);
+  }
+
+  private static void addTuple(String port, String tupleValue, long offset, MutableLong numRemainingTuples, MutableLong currentWindowLow, TuplesInfo info)
+  {
+    if (info.startOffset == -1) {
+      info.startOffset = offset;
+    }
+    WindowTuplesInfo wtinfo;
+    if (info.tuples.isEmpty() || info.tuples.get(info.tuples.size() - 1).windowId != currentWindowLow.longValue()) {
+      wtinfo = new WindowTuplesInfo();
+      wtinfo.windowId = currentWindowLow.longValue();
+      info.tuples.add(wtinfo);
+    } else {
+      wtinfo = info.tuples.get(info.tuples.size() - 1);
+    }
+    wtinfo.tuples.add(new TupleInfo(port, tupleValue));
+    numRemainingTuples.decrement();
+  }
+
+  private static boolean isBinaryPartFile(String partFile)
+  {
+    return partFile.endsWith(TupleRecorder.BINARY_PART_FILE_EXTENSION);
+  }
+
+  /**
+   * Positions the stream of a binary part file at the first window not before the given window, as found in the index
+   * of the part file. Tuple offsets count the tuples of the selected ports only, the part file is therefore read from
+   * the beginning when ports are selected.
+   *
+   * @return number of tuples skipped
+   */
+  private long seekWindow(FSDataInputStream partIs, String dir, String partFile, long windowId, String[] ports) throws IOException
+  {
+    Path path = new Path(dir, partFile.substring(0, partFile.length() - TupleRecorder.BINARY_PART_FILE_EXTENSION.length())
+        + FSPartFileCollection.PART_INDEX_FILE_EXTENSION);
+    if ((ports != null && ports.length > 0) || !stramAgent.getFileSystem().exists(path)) {
+      return 0;
+    }
+    long entries = stramAgent.getFileSystem().getFileStatus(path).getLen() / FSPartFileCollection.PART_INDEX_ENTRY_SIZE;
+    try (FSDataInputStream is = stramAgent.getFileSystem().open(path)) {
+      long lowEntry = 0;
+      long highEntry = entries;
+      while (lowEntry < highEntry) {
+        long mid = (lowEntry + highEntry) >>> 1;
+        is.seek(mid * FSPartFileCollection.PART_INDEX_ENTRY_SIZE);
+        if (is.readLong() < windowId) {
+          lowEntry = mid + 1;
+        } else {
+          highEntry = mid;
+        }
+      }
+      if (lowEntry == entries) {
+        return 0;
+      }
+      is.seek(lowEntry * FSPartFileCollection.PART_INDEX_ENTRY_SIZE + 8);
+      partIs.seek(is.readLong());
+      return is.readLong();
+    }
+  }
+
+
   public JSONObject startRecording(String appId, String opId, String portName, long numWindows) throws IncompatibleVersionException
   {
 
@@ -44,10 +44,11 @@ import com.datatorrent.netlet.util.Slice;
  * @param <T>
  * @since 0.3.2
  */
-public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStreamCodec<T>
+public class DefaultStatefulStreamCodec<T> extends Kryo implements DirectStatefulStreamCodec<T>
 {
   private final Output data;
   private final Output state;
+  private final Output direct;
   private final Input input;
 
   @SuppressWarnings("OverridableMethodCallInConstructor")
@@ -56,6 +57,7 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     super(new ClassResolver(), new MapReferenceResolver());
     data = new Output(4096, Integer.MAX_VALUE);
     state = new Output(4096, Integer.MAX_VALUE);
+    direct = new Output();
     input = new Input();
 
     register(Class.class);
@@ -131,6 +133,30 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     return pair;
   }
 
+  @Override
+  public void toDataStatePair(T o, DataStatePair dspair)
+  {
+    Slice slice = dspair.data;
+    direct.setBuffer(slice.buffer, Integer.MAX_VALUE);
+    direct.setPosition(slice.offset);
+    writeClassAndObject(direct, o);
+    slice.length = direct.position() - slice.offset;
+
+    if (pairs.isEmpty()) {
+      dspair.state = null;
+    } else {
+      int offset = direct.position();
+      for (ClassIdPair cip : pairs) {
+        writeClassAndObject(direct, cip);
+      }
+      pairs.clear();
+      dspair.state = new Slice(direct.getBuffer(), offset, direct.position() - offset);
+    }
+
+    slice.buffer = direct.getBuffer();
+    direct.setBuffer(EMPTY_BUFFER);
+  }
+
   @Override
   public int getPartition(T o)
   {
@@ -235,5 +261,6 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     return new DefaultStatefulStreamCodec<>();
   }
 
+  private static final byte[] EMPTY_BUFFER = new byte[0];
   private static final Logger logger = LoggerFactory.getLogger(DefaultStatefulStreamCodec.class);
 }
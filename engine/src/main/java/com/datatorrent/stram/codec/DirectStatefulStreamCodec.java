@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.codec;
+
+/**
+ * StatefulStreamCodec that serializes tuples directly into a buffer provided by the caller.
+ *
+ * The caller reserves space in front of the data for its own headers, so that the serialized tuple does not need to
+ * be copied before it is sent, and reuses the same {@link DataStatePair} for every tuple.
+ *
+ * Subclasses of {@link DefaultStatefulStreamCodec} are serialized through {@link #toDataStatePair(Object)} unless they
+ * declare this interface themselves.
+ *
+ * @param <T>
+ */
+public interface DirectStatefulStreamCodec<T> extends StatefulStreamCodec<T>
+{
+  /**
+   * Serialize the POJO into the buffer of dspair.data starting at dspair.data.offset.
+   *
+   * On return dspair.data.length is the size of the serialized object. If the object does not fit in the buffer,
+   * dspair.data.buffer is replaced with a larger buffer which holds the bytes of the original buffer up to the offset.
+   * If the state of the codec changed, dspair.state refers to the serialized state which follows the data in the same
+   * buffer, otherwise dspair.state is null.
+   *
+   * @param object plain old java object
+   * @param dspair pair whose data slice designates where the object is serialized
+   */
+  void toDataStatePair(T object, DataStatePair dspair);
+}
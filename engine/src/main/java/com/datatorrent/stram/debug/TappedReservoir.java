@@ -19,6 +19,7 @@
 package com.datatorrent.stram.debug;
 
 import com.datatorrent.api.Sink;
+import com.datatorrent.stram.engine.NodeScheduler;
 import com.datatorrent.stram.engine.SweepableReservoir;
 import com.datatorrent.stram.tuple.Tuple;
 
@@ -27,7 +28,7 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * @since 0.3.2
  */
-public class TappedReservoir extends MuxSink implements SweepableReservoir
+public class TappedReservoir extends MuxSink implements SweepableReservoir, NodeScheduler.SignallingReservoir
 {
   public final SweepableReservoir reservoir;
   private Sink<Object> sink;
@@ -62,6 +63,14 @@ public class TappedReservoir extends MuxSink implements SweepableReservoir
     return reservoir.getCount(reset);
   }
 
+  @Override
+  public void consumed(NodeScheduler.WorkUnit consumer)
+  {
+    if (reservoir instanceof NodeScheduler.SignallingReservoir) {
+      ((NodeScheduler.SignallingReservoir)reservoir).consumed(consumer);
+    }
+  }
+
   @Override
   public int size(final boolean dataTupleAware)
   {
@@ -24,6 +24,7 @@ import java.beans.PropertyDescriptor;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -43,6 +44,7 @@ import com.datatorrent.api.StringCodec;
 import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.common.codec.JsonStreamCodec;
 import com.datatorrent.common.util.ObjectMapperString;
+import com.datatorrent.netlet.util.CircularBuffer;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.engine.WindowGenerator;
 import com.datatorrent.stram.tuple.Tuple;
@@ -59,10 +61,26 @@ import com.datatorrent.stram.util.SharedPubSubWebSocketClient.Handler;
 public class TupleRecorder
 {
   public static final String VERSION = "1.2";
+  /**
+   * Version of recordings written by the background writer, with binary part files and a window offset index per
+   * part file.
+   */
+  public static final String BINARY_VERSION = "1.3";
+  public static final String BINARY_PART_FILE_EXTENSION = ".bin";
+  /*
+   * Record types of the binary part files. Window records are followed by the time and the window id, tuple records
+   * by the time, the port id, the length and the serialized tuple.
+   */
+  public static final byte BEGIN_WINDOW_RECORD = 'B';
+  public static final byte END_WINDOW_RECORD = 'E';
+  public static final byte TUPLE_RECORD = 'T';
+  public static final byte CONTROL_TUPLE_RECORD = 'C';
   private int totalTupleCount = 0;
+  private long droppedTupleCount = 0;
   private final HashMap<String, PortInfo> portMap = new HashMap<>(); // used for output portInfo <name, id> map
   private final HashMap<String, PortCount> portCountMap = new HashMap<>(); // used for tupleCount of each port <name, count> map
   private transient long currentWindowId = WindowGenerator.MIN_WINDOW_ID - 1;
+  private transient long recordedWindowId = WindowGenerator.MIN_WINDOW_ID - 1;
   private transient ArrayList<Range> windowIdRanges = new ArrayList<>();
   private long startTime = Stats.INVALID_TIME_MILLIS;
   private String id;
@@ -76,6 +94,12 @@ public class TupleRecorder
   private String recordingNameTopic;
   private long numWindows = Long.MAX_VALUE; // number of windows to record
   private Runnable stopProcedure; // stop procedure to execute
+  private int queueCapacity = 0;
+  private int sampleRate = 1;
+  private int samplesPerWindow = 0;
+  private transient CircularBuffer<Record> queue;
+  private transient Thread writer;
+  private volatile boolean writerStopped;
   private final FSPartFileCollection storage = new FSPartFileCollection()
   {
     @Override
@@ -85,7 +109,7 @@ public class TupleRecorder
         return null;
       }
       String str;
-      windowIdRanges.get(windowIdRanges.size() - 1).high = TupleRecorder.this.currentWindowId;
+      windowIdRanges.get(windowIdRanges.size() - 1).high = TupleRecorder.this.recordedWindowId;
       str = convertToString(windowIdRanges);
       int i = 0;
       str += ":";
@@ -144,6 +168,30 @@ public class TupleRecorder
     this.streamCodec = streamCodec;
   }
 
+  /**
+   * Sets the number of recorded items buffered for a background writer. With a capacity greater than 0 the operator
+   * thread only serializes the tuples, the background writer writes them in the binary format. Tuples that do not fit
+   * into the buffer are dropped, window boundaries are never dropped.
+   *
+   * @param queueCapacity
+   */
+  public void setQueueCapacity(int queueCapacity)
+  {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Records only a sample of the tuples of each port.
+   *
+   * @param sampleRate record 1 in sampleRate tuples
+   * @param samplesPerWindow maximum number of tuples recorded per window, 0 for no limit
+   */
+  public void setSampling(int sampleRate, int samplesPerWindow)
+  {
+    this.sampleRate = Math.max(1, sampleRate);
+    this.samplesPerWindow = samplesPerWindow;
+  }
+
   public void setWebSocketClient(SharedPubSubWebSocketClient wsClient)
   {
     this.wsClient = wsClient;
@@ -159,6 +207,14 @@ public class TupleRecorder
     return totalTupleCount;
   }
 
+  /**
+   * @return number of tuples not recorded because the background writer fell behind
+   */
+  public long getDroppedTupleCount()
+  {
+    return droppedTupleCount;
+  }
+
   public Map<String, Sink<Object>> getSinkMap()
   {
     return Collections.unmodifiableMap(sinks);
@@ -263,6 +319,15 @@ public class TupleRecorder
   public void teardown()
   {
     logger.info("Closing down tuple recorder.");
+    if (writer != null) {
+      writerStopped = true;
+      try {
+        writer.join();
+      } catch (InterruptedException ex) {
+        logger.warn("Interrupted while waiting for the recording writer", ex);
+      }
+      writer = null;
+    }
     this.storage.teardown();
   }
 
@@ -276,7 +341,7 @@ public class TupleRecorder
       }
 
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      bos.write((VERSION + "\n").getBytes());
+      bos.write(((queueCapacity > 0 ? BINARY_VERSION : VERSION) + "\n").getBytes());
 
       RecordInfo recordInfo = new RecordInfo();
       recordInfo.startTime = startTime;
@@ -315,6 +380,15 @@ public class TupleRecorder
 
       storage.writeMetaData(bos.toByteArray());
 
+      if (queueCapacity > 0) {
+        storage.setPartFileExtension(BINARY_PART_FILE_EXTENSION);
+        queue = new CircularBuffer<>(queueCapacity, 1);
+        writerStopped = false;
+        writer = new Thread(new Writer(), "TupleRecorder-" + appId + "-" + id);
+        writer.setDaemon(true);
+        writer.start();
+      }
+
       if (wsClient != null) {
         recordingNameTopic = "applications." + appId + ".tupleRecorder." + getStartTime();
         setupWsClient();
@@ -346,24 +420,34 @@ public class TupleRecorder
     }
   }
 
+  private void addWindowId(long windowId)
+  {
+    if (windowId != this.recordedWindowId + 1) {
+      if (!windowIdRanges.isEmpty()) {
+        windowIdRanges.get(windowIdRanges.size() - 1).high = this.recordedWindowId;
+      }
+      Range range = new Range();
+      range.low = windowId;
+      windowIdRanges.add(range);
+    }
+    if (windowIdRanges.isEmpty()) {
+      Range range = new Range();
+      range.low = windowId;
+      windowIdRanges.add(range);
+    }
+    this.recordedWindowId = windowId;
+  }
+
   public void beginWindow(long windowId)
   {
     if (this.currentWindowId != windowId) {
-      if (windowId != this.currentWindowId + 1) {
-        if (!windowIdRanges.isEmpty()) {
-          windowIdRanges.get(windowIdRanges.size() - 1).high = this.currentWindowId;
-        }
-        Range range = new Range();
-        range.low = windowId;
-        windowIdRanges.add(range);
-      }
-      if (windowIdRanges.isEmpty()) {
-        Range range = new Range();
-        range.low = windowId;
-        windowIdRanges.add(range);
-      }
       this.currentWindowId = windowId;
       endWindowTuplesProcessed = 0;
+      if (queue != null) {
+        enqueue(new Record(BEGIN_WINDOW_RECORD, windowId, null, null));
+        return;
+      }
+      addWindowId(windowId);
       try {
         storage.writeDataItem(("B:" + System.currentTimeMillis() + ":" + windowId + "\n").getBytes(), false);
       } catch (IOException ex) {
@@ -375,14 +459,15 @@ public class TupleRecorder
   public void endWindow()
   {
     if (++endWindowTuplesProcessed == portMap.size()) {
-      try {
-        storage.writeDataItem(("E:" + System.currentTimeMillis() + ":" + currentWindowId + "\n").getBytes(), false);
-        logger.debug("Got last end window tuple.  Flushing...");
-        if (!storage.flushData() && wsClient != null) {
-          wsClient.publish(SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".tuple." + storage.getBasePath(), storage.getLatestIndexLine());
+      if (queue != null) {
+        enqueue(new Record(END_WINDOW_RECORD, currentWindowId, null, null));
+      } else {
+        try {
+          storage.writeDataItem(("E:" + System.currentTimeMillis() + ":" + currentWindowId + "\n").getBytes(), false);
+          flush();
+        } catch (IOException ex) {
+          logger.error("Exception caught in endWindow", ex);
         }
-      } catch (IOException ex) {
-        logger.error("Exception caught in endWindow", ex);
       }
     }
     if (stopProcedure != null && --numWindows <= 0) {
@@ -390,11 +475,33 @@ public class TupleRecorder
     }
   }
 
+  private void flush() throws IOException
+  {
+    logger.debug("Got last end window tuple.  Flushing...");
+    if (!storage.flushData() && wsClient != null) {
+      wsClient.publish(SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".tuple." + storage.getBasePath(), storage.getLatestIndexLine());
+    }
+  }
+
   public void writeTuple(Object obj, String port)
   {
-    if (windowIdRanges.isEmpty()) {
+    if (currentWindowId < WindowGenerator.MIN_WINDOW_ID) {
       throw new RuntimeException("Data tuples received from tuple recorder before any BEGIN_WINDOW");
     }
+    if (queue != null) {
+      PortInfo pi = portMap.get(port);
+      if (queue.remainingCapacity() > 0) {
+        queue.add(new Record(TUPLE_RECORD, System.currentTimeMillis(), portCountMap.get(port),
+            streamCodec.toByteArray(obj)));
+        ++totalTupleCount;
+      } else {
+        ++droppedTupleCount;
+      }
+      if (numSubscribers > 0) {
+        publishTupleData(pi.id, obj);
+      }
+      return;
+    }
     try {
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
       Slice f = streamCodec.toByteArray(obj);
@@ -422,6 +529,11 @@ public class TupleRecorder
 
   public void writeControlTuple(Tuple tuple, String port)
   {
+    if (queue != null) {
+      enqueue(new Record(CONTROL_TUPLE_RECORD, System.currentTimeMillis(), portCountMap.get(port),
+          streamCodec.toByteArray(tuple)));
+      return;
+    }
     try {
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
       PortInfo pi = portMap.get(port);
@@ -436,6 +548,15 @@ public class TupleRecorder
     }
   }
 
+  private void enqueue(Record record)
+  {
+    try {
+      queue.put(record);
+    } catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   private static String convertToString(List<Range> ranges)
   {
     String result = "";
@@ -477,6 +598,8 @@ public class TupleRecorder
   {
     private final String portName;
     private int count;
+    private long sampleCount;
+    private int windowSampleCount;
 
     public RecorderSink(String portName)
     {
@@ -494,17 +617,27 @@ public class TupleRecorder
         Tuple tuple = (Tuple)payload;
         MessageType messageType = tuple.getType();
         if (messageType == MessageType.BEGIN_WINDOW) {
+          windowSampleCount = 0;
           beginWindow(tuple.getWindowId());
         }
         writeControlTuple(tuple, portName);
         if (messageType == MessageType.END_WINDOW) {
           endWindow();
         }
-      } else {
+      } else if (sample()) {
         writeTuple(payload, portName);
       }
     }
 
+    private boolean sample()
+    {
+      if (sampleCount++ % sampleRate != 0 || (samplesPerWindow > 0 && windowSampleCount >= samplesPerWindow)) {
+        return false;
+      }
+      windowSampleCount++;
+      return true;
+    }
+
     @Override
     public int getCount(boolean reset)
     {
@@ -519,5 +652,90 @@ public class TupleRecorder
 
   }
 
+  /**
+   * Item handed from the operator thread to the background writer. The value is the window id of window records and
+   * the time of tuple records.
+   */
+  private static class Record
+  {
+    final byte type;
+    final long value;
+    final PortCount port;
+    final Slice data;
+
+    Record(byte type, long value, PortCount port, Slice data)
+    {
+      this.type = type;
+      this.value = value;
+      this.port = port;
+      this.data = data;
+    }
+
+  }
+
+  /**
+   * Writes the records queued by the operator thread into binary part files and maintains the window offset index of
+   * the part files.
+   */
+  private class Writer implements Runnable
+  {
+    private final ByteBuffer header = ByteBuffer.allocate(1 + 8 + 8);
+
+    @Override
+    public void run()
+    {
+      while (true) {
+        Record record = queue.poll();
+        if (record == null) {
+          if (writerStopped && queue.isEmpty()) {
+            break;
+          }
+          try {
+            Thread.sleep(1);
+          } catch (InterruptedException ex) {
+            logger.warn("Recording writer interrupted", ex);
+            break;
+          }
+          continue;
+        }
+        try {
+          write(record);
+        } catch (IOException ex) {
+          logger.error("Exception caught writing recording", ex);
+        }
+      }
+    }
+
+    private void write(Record record) throws IOException
+    {
+      header.clear();
+      header.put(record.type);
+      switch (record.type) {
+        case BEGIN_WINDOW_RECORD:
+          addWindowId(record.value);
+          storage.writePartIndex(record.value);
+          header.putLong(System.currentTimeMillis()).putLong(record.value);
+          storage.writeDataItem(header.array(), 0, header.position(), false);
+          break;
+
+        case END_WINDOW_RECORD:
+          header.putLong(System.currentTimeMillis()).putLong(record.value);
+          storage.writeDataItem(header.array(), 0, header.position(), false);
+          flush();
+          break;
+
+        default:
+          header.putLong(record.value).putInt(record.port.id).putInt(record.data.length);
+          storage.writeDataItem(header.array(), 0, header.position(), false);
+          storage.writeDataItem(record.data.buffer, record.data.offset, record.data.length, record.type == TUPLE_RECORD);
+          if (record.type == TUPLE_RECORD) {
+            record.port.count++;
+          }
+          break;
+      }
+    }
+
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(TupleRecorder.class);
 }
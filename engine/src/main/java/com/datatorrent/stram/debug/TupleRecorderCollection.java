@@ -71,6 +71,9 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
   private String gatewayUserName;
   private String gatewayPassword;
   private long tupleRecordingPartFileTimeMillis;
+  private int tupleRecordingQueueCapacity;
+  private int tupleRecordingSampleRate;
+  private int tupleRecordingSamplesPerWindow;
   private String appPath;
   private String appId;
   private SharedPubSubWebSocketClient wsClient;
@@ -88,6 +91,9 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
   {
     tupleRecordingPartFileSize = ctx.getValue(LogicalPlan.TUPLE_RECORDING_PART_FILE_SIZE);
     tupleRecordingPartFileTimeMillis = ctx.getValue(LogicalPlan.TUPLE_RECORDING_PART_FILE_TIME_MILLIS);
+    tupleRecordingQueueCapacity = ctx.getValue(LogicalPlan.TUPLE_RECORDING_QUEUE_CAPACITY);
+    tupleRecordingSampleRate = ctx.getValue(LogicalPlan.TUPLE_RECORDING_SAMPLE_RATE);
+    tupleRecordingSamplesPerWindow = ctx.getValue(LogicalPlan.TUPLE_RECORDING_SAMPLES_PER_WINDOW);
     appId = ctx.getValue(LogicalPlan.APPLICATION_ID);
     gatewayAddress = ctx.getValue(LogicalPlan.GATEWAY_CONNECT_ADDRESS);
     gatewayUseSsl = ctx.getValue(LogicalPlan.GATEWAY_USE_SSL);
@@ -181,6 +187,8 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
 
       TupleRecorder tupleRecorder = new TupleRecorder(id, appId);
       tupleRecorder.setWebSocketClient(wsClient);
+      tupleRecorder.setQueueCapacity(tupleRecordingQueueCapacity);
+      tupleRecorder.setSampling(tupleRecordingSampleRate, tupleRecordingSamplesPerWindow);
 
       HashMap<String, Sink<Object>> sinkMap = new HashMap<>();
       for (Map.Entry<String, PortContextPair<InputPort<?>>> entry : descriptor.inputPorts.entrySet()) {
@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -47,11 +48,16 @@ import static java.lang.Thread.sleep;
  *
  * @since 3.4.0
  */
-public abstract class AbstractReservoir implements SweepableReservoir, BlockingQueue<Object>
+public abstract class AbstractReservoir implements SweepableReservoir, BlockingQueue<Object>,
+    NodeScheduler.SignallingReservoir
 {
   private static final Logger logger = LoggerFactory.getLogger(AbstractReservoir.class);
   static final String reservoirClassNameProperty = "com.datatorrent.stram.engine.Reservoir";
   private static final int SPSC_ARRAY_BLOCKING_QUEUE_CAPACITY_THRESHOLD = 64 * 1024;
+  /**
+   * Maximum number of tuples taken out of the queue of a reservoir in one run.
+   */
+  static final int SWEEP_BATCH_SIZE = 256;
 
   /**
    * Reservoir factory. Constructs concrete implementation of {@link AbstractReservoir} based on
@@ -91,6 +97,12 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
   private Sink<Object> sink;
   private String id;
   protected int count;
+  /*
+   * work units of the nodes that take tuples out of and wait for space in the reservoir, set only when the nodes run
+   * on the workers of a NodeScheduler
+   */
+  private volatile NodeScheduler.WorkUnit consumer;
+  private final AtomicReference<NodeScheduler.WorkUnit> producer = new AtomicReference<>();
 
   protected AbstractReservoir(final String id)
   {
@@ -125,6 +137,47 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     }
   }
 
+  @Override
+  public void consumed(NodeScheduler.WorkUnit consumer)
+  {
+    if (this.consumer != consumer) {
+      this.consumer = consumer;
+    }
+    /* the atomic update makes the tuples taken out visible to the producer before it is woken */
+    final NodeScheduler.WorkUnit producer = this.producer.getAndSet(null);
+    if (producer != null) {
+      producer.wake();
+    }
+  }
+
+  /**
+   * Wakes the work unit of the node that consumes the reservoir once tuples were added.
+   *
+   * @param ordered whether to order the addition before the check of the parked state of the consumer, see
+   * {@link NodeScheduler.WorkUnit#wake()}
+   */
+  public void signalConsumer(boolean ordered)
+  {
+    final NodeScheduler.WorkUnit consumer = this.consumer;
+    if (consumer != null) {
+      if (ordered) {
+        consumer.wake();
+      } else {
+        consumer.signal();
+      }
+    }
+  }
+
+  /**
+   * Has the reservoir wake the work unit of the producer at the end of the next slice of the consumer.
+   *
+   * @param producer work unit of the node that waits for space in the reservoir
+   */
+  public void awaitWritable(NodeScheduler.WorkUnit producer)
+  {
+    this.producer.set(producer);
+  }
+
   /**
    * @return allocated reservoir capacity
    */
@@ -388,38 +441,93 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
   {
     private final ReentrantLock lock;
     private final Condition notFull;
+    /*
+     * run of data tuples taken out of the queue, the tuples from index next to length are not yet handed over to the
+     * sink
+     */
+    private final Object[] batch;
+    private int next;
+    private int length;
 
     private SpscArrayBlockingQueueReservoir(final String id, final int capacity)
     {
       super(id, capacity);
       lock = new ReentrantLock();
       notFull = lock.newCondition();
+      batch = new Object[Math.min(capacity, SWEEP_BATCH_SIZE)];
     }
 
+    /**
+     * Takes runs of data tuples out of the queue under the lock, signals the producer blocked on the full queue once
+     * per run and hands the run over to the sink after the lock is released, so that the producer can refill the
+     * queue while the sink processes the run.
+     */
     @Override
     public Tuple sweep()
     {
       Object o;
       final ReentrantLock lock = this.lock;
       final SpscArrayQueue<Object> queue = getQueue();
-      final Sink<Object> sink = getSink();
-      lock.lock();
-      try {
-        while ((o = queue.peek()) != null) {
-          if (o instanceof Tuple) {
-            return (Tuple)o;
+      final Object[] batch = this.batch;
+      boolean full;
+      do {
+        // the rest of a run the sink failed on
+        putRun();
+        int length = 0;
+        lock.lock();
+        try {
+          while ((o = queue.relaxedPeek()) != null && !(o instanceof Tuple)) {
+            batch[length++] = queue.relaxedPoll();
+            if (length == batch.length) {
+              break;
+            }
           }
-          count++;
-          sink.put(queue.poll());
-          notFull.signal();
-          if (lock.hasQueuedThreads()) {
-            return null;
+          if (length > 0) {
+            notFull.signal();
           }
+        } finally {
+          lock.unlock();
         }
-        return null;
-      } finally {
-        lock.unlock();
+        this.length = length;
+        full = length == batch.length;
+        putRun();
+      } while (full);
+      return o instanceof Tuple ? (Tuple)o : null;
+    }
+
+    /**
+     * Hands the tuples of the run over to the sink one at a time and counts each tuple as it is handed over. When the
+     * sink throws, the tuples that follow stay in the run and go to the sink first on the next sweep.
+     */
+    private void putRun()
+    {
+      final Object[] batch = this.batch;
+      final Sink<Object> sink = getSink();
+      while (next < length) {
+        final Object o = batch[next];
+        batch[next++] = null;
+        count++;
+        sink.put(o);
       }
+      next = length = 0;
+    }
+
+    @Override
+    public int size(final boolean dataTupleAware)
+    {
+      return super.size(dataTupleAware) + length - next;
+    }
+
+    @Override
+    public int size()
+    {
+      return super.size() + length - next;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+      return next == length && super.isEmpty();
     }
 
     @Override
@@ -24,7 +24,7 @@ import com.datatorrent.stram.tuple.Tuple;
 /**
  * @since 3.4.0
  */
-public class ForwardingReservoir implements SweepableReservoir
+public class ForwardingReservoir implements SweepableReservoir, NodeScheduler.SignallingReservoir
 {
   public static ForwardingReservoir newReservoir(final String id, final int capacity)
   {
@@ -50,6 +50,12 @@ public class ForwardingReservoir implements SweepableReservoir
     return reservoir.getCount(reset);
   }
 
+  @Override
+  public void consumed(NodeScheduler.WorkUnit consumer)
+  {
+    reservoir.consumed(consumer);
+  }
+
   public String getId()
   {
     return reservoir.getId();
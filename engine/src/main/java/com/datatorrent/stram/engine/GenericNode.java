@@ -21,6 +21,7 @@ package com.datatorrent.stram.engine;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -32,13 +33,10 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang.UnhandledException;
 
-import com.google.common.base.Throwables;
-
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.IdleTimeHandler;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.ProcessingMode;
-import com.datatorrent.api.Operator.ShutdownException;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.bufferserver.packet.MessageType;
@@ -136,6 +134,51 @@ public class GenericNode extends Node<Operator>
     }
   }
 
+  /**
+   * Replaces input ports of the running node at a window boundary, must be called by the thread that processes the
+   * node after the end of the window. The added ports are skipped to the window that follows, the removed ports are
+   * dropped with the tuples they still hold.
+   *
+   * @param connect reservoirs of the ports to add by port name
+   * @param disconnect names of the ports to remove
+   * @param windowId id of the window that ended
+   */
+  public void switchInputPorts(Map<String, SweepableReservoir> connect, Collection<String> disconnect, long windowId)
+  {
+    for (String port : disconnect) {
+      SweepableReservoir reservoir = inputs.remove(port);
+      if (reservoir != null) {
+        endWindowDequeueTimes.remove(reservoir);
+        for (Iterator<Map.Entry<String, SweepableReservoir>> it = activeQueues.iterator(); it.hasNext(); ) {
+          if (it.next().getValue() == reservoir) {
+            it.remove();
+          }
+        }
+        totalQueues--;
+        regularQueues--;
+      }
+      for (Iterator<DeferredInputConnection> it = deferredInputConnections.iterator(); it.hasNext(); ) {
+        if (port.equals(it.next().portname)) {
+          it.remove();
+        }
+      }
+    }
+
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, SweepableReservoir> e : connect.entrySet()) {
+      if (inputs.containsKey(e.getKey())) {
+        logger.warn("Port {} of {} is already connected.", e.getKey(), this);
+        continue;
+      }
+      WindowIdActivatedReservoir wiar = new WindowIdActivatedReservoir(e.getKey(), e.getValue(), windowId);
+      connectInputPort(e.getKey(), wiar);
+      connectInputPort(e.getKey(), e.getValue());
+      endWindowDequeueTimes.put(wiar, now);
+      totalQueues++;
+      regularQueues++;
+    }
+  }
+
   /**
    * @param endWindowTuple the value of endWindowTuple
    */
@@ -198,6 +241,17 @@ public class GenericNode extends Node<Operator>
   boolean insideWindow;
   boolean doCheckpoint;
   long lastCheckpointWindowId = Stateless.WINDOW_ID;
+  /*
+   * state of the processing of the input that is kept between the calls to process
+   */
+  private boolean handleIdleTime;
+  private int totalQueues;
+  private int regularQueues;
+  private final ArrayList<Map.Entry<String, SweepableReservoir>> activeQueues = new ArrayList<>();
+  private int expectingBeginWindow;
+  private int receivedEndWindow;
+  private long firstWindowId;
+  private final LinkedList<TupleTracker> resetTupleTracker = new LinkedList<>();
 
   @Override
   public void activate()
@@ -224,13 +278,34 @@ public class GenericNode extends Node<Operator>
   @SuppressWarnings({"SleepWhileInLoop", "UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
   public final void run()
   {
-    doCheckpoint = false;
-
     final long maxSpinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
     long spinMillis = 0;
-    final boolean handleIdleTime = operator instanceof IdleTimeHandler;
-    int totalQueues = inputs.size();
-    int regularQueues = totalQueues;
+
+    startProcessing();
+    try {
+      do {
+        if (process() == Progress.BUSY) {
+          spinMillis = 0;
+        } else {
+          Thread.sleep(spinMillis);
+          spinMillis = Math.min(maxSpinMillis, spinMillis + 1);
+        }
+      } while (alive);
+    } catch (Throwable cause) {
+      stopProcessing(cause);
+    }
+
+    endProcessing();
+  }
+
+  @Override
+  protected void startProcessing()
+  {
+    doCheckpoint = false;
+
+    handleIdleTime = operator instanceof IdleTimeHandler;
+    totalQueues = inputs.size();
+    regularQueues = totalQueues;
     // regularQueues is the number of queues that are not connected to a DelayOperator
     for (String portName : inputs.keySet()) {
       if (isInputPortConnectedToDelayOperator(portName)) {
@@ -238,397 +313,393 @@ public class GenericNode extends Node<Operator>
       }
     }
 
-    ArrayList<Map.Entry<String, SweepableReservoir>> activeQueues = new ArrayList<>();
+    activeQueues.clear();
     activeQueues.addAll(inputs.entrySet());
 
-    int expectingBeginWindow = activeQueues.size();
-    int receivedEndWindow = 0;
-    long firstWindowId = -1;
+    expectingBeginWindow = activeQueues.size();
+    receivedEndWindow = 0;
+    firstWindowId = -1;
+    resetTupleTracker.clear();
 
     calculateNextCheckpointWindow();
+  }
 
+  @Override
+  protected Progress process()
+  {
+    boolean busy = false;
     TupleTracker tracker;
-    LinkedList<TupleTracker> resetTupleTracker = new LinkedList<>();
-    try {
-      do {
-        Iterator<Map.Entry<String, SweepableReservoir>> buffers = activeQueues.iterator();
-      activequeue:
-        while (buffers.hasNext()) {
-          Map.Entry<String, SweepableReservoir> activePortEntry = buffers.next();
-          SweepableReservoir activePort = activePortEntry.getValue();
-          Tuple t = activePort.sweep();
-          if (t != null) {
-            spinMillis = 0;
-            boolean delay = (operator instanceof Operator.DelayOperator);
-            long windowAhead = 0;
-            if (delay) {
-              windowAhead = WindowGenerator.getAheadWindowId(t.getWindowId(), firstWindowMillis, windowWidthMillis, 1);
-            }
-            switch (t.getType()) {
-              case BEGIN_WINDOW:
-                if (expectingBeginWindow == totalQueues) {
-                  // This is the first begin window tuple among all ports
-                  if (isInputPortConnectedToDelayOperator(activePortEntry.getKey())) {
-                    // We need to wait for the first BEGIN_WINDOW from a port not connected to DelayOperator before
-                    // we can do anything with it, because otherwise if a CHECKPOINT tuple arrives from
-                    // upstream after the BEGIN_WINDOW tuple for the next window from the delay operator, it would end
-                    // up checkpointing in the middle of the window.  This code is assuming we have at least one
-                    // input port that is not connected to a DelayOperator, and we might have to change this later.
-                    // In the future, this condition will not be needed if we get rid of the CHECKPOINT tuple.
-                    continue;
-                  }
-                  activePort.remove();
-                  expectingBeginWindow--;
-                  receivedEndWindow = 0;
-                  currentWindowId = t.getWindowId();
-                  if (delay) {
-                    if (WindowGenerator.getBaseSecondsFromWindowId(windowAhead) > t.getBaseSeconds()) {
-                      // Buffer server code strips out the base seconds from BEGIN_WINDOW and END_WINDOW tuples for
-                      // serialization optimization.  That's why we need a reset window here to tell the buffer
-                      // server we are having a new baseSeconds now.
-                      Tuple resetWindowTuple = new ResetWindowTuple(windowAhead);
-                      for (int s = sinks.length; s-- > 0; ) {
-                        sinks[s].put(resetWindowTuple);
-                      }
-                      controlTupleCount++;
-                    }
-                    t.setWindowId(windowAhead);
-                  }
+    Iterator<Map.Entry<String, SweepableReservoir>> buffers = activeQueues.iterator();
+  activequeue:
+    while (buffers.hasNext()) {
+      Map.Entry<String, SweepableReservoir> activePortEntry = buffers.next();
+      SweepableReservoir activePort = activePortEntry.getValue();
+      Tuple t = activePort.sweep();
+      if (t != null) {
+        busy = true;
+        boolean delay = (operator instanceof Operator.DelayOperator);
+        long windowAhead = 0;
+        if (delay) {
+          windowAhead = WindowGenerator.getAheadWindowId(t.getWindowId(), firstWindowMillis, windowWidthMillis, 1);
+        }
+        switch (t.getType()) {
+          case BEGIN_WINDOW:
+            if (expectingBeginWindow == totalQueues) {
+              // This is the first begin window tuple among all ports
+              if (isInputPortConnectedToDelayOperator(activePortEntry.getKey())) {
+                // We need to wait for the first BEGIN_WINDOW from a port not connected to DelayOperator before
+                // we can do anything with it, because otherwise if a CHECKPOINT tuple arrives from
+                // upstream after the BEGIN_WINDOW tuple for the next window from the delay operator, it would end
+                // up checkpointing in the middle of the window.  This code is assuming we have at least one
+                // input port that is not connected to a DelayOperator, and we might have to change this later.
+                // In the future, this condition will not be needed if we get rid of the CHECKPOINT tuple.
+                continue;
+              }
+              activePort.remove();
+              expectingBeginWindow--;
+              receivedEndWindow = 0;
+              currentWindowId = t.getWindowId();
+              if (delay) {
+                if (WindowGenerator.getBaseSecondsFromWindowId(windowAhead) > t.getBaseSeconds()) {
+                  // Buffer server code strips out the base seconds from BEGIN_WINDOW and END_WINDOW tuples for
+                  // serialization optimization.  That's why we need a reset window here to tell the buffer
+                  // server we are having a new baseSeconds now.
+                  Tuple resetWindowTuple = new ResetWindowTuple(windowAhead);
                   for (int s = sinks.length; s-- > 0; ) {
-                    sinks[s].put(t);
+                    sinks[s].put(resetWindowTuple);
                   }
                   controlTupleCount++;
-
-                  context.setWindowsFromCheckpoint(nextCheckpointWindowCount--);
-
-                  if (applicationWindowCount == 0) {
-                    insideWindow = true;
-                    operator.beginWindow(currentWindowId);
-                  }
-                } else if (t.getWindowId() == currentWindowId) {
-                  activePort.remove();
-                  expectingBeginWindow--;
-                } else {
-                  buffers.remove();
-                  String port = activePortEntry.getKey();
-                  if (PROCESSING_MODE == ProcessingMode.AT_MOST_ONCE) {
-                    if (t.getWindowId() < currentWindowId) {
-                      /*
-                       * we need to fast forward this stream till we find the current
-                       * window or the window which is bigger than the current window.
-                       */
-
-                      /* lets move the current reservoir in the background */
-                      Sink<Object> sink = activePort.setSink(Sink.BLACKHOLE);
-                      deferredInputConnections.add(0, new DeferredInputConnection(port, activePort));
-
-                      /* replace it with the reservoir which blocks the tuples in the past */
-                      WindowIdActivatedReservoir wiar = new WindowIdActivatedReservoir(port, activePort, currentWindowId);
-                      wiar.setSink(sink);
-                      inputs.put(port, wiar);
-                      activeQueues.add(new AbstractMap.SimpleEntry<String, SweepableReservoir>(port, wiar));
-                      break activequeue;
-                    } else {
-                      expectingBeginWindow--;
-                      if (++receivedEndWindow == totalQueues) {
-                        processEndWindow(null);
-                        activeQueues.addAll(inputs.entrySet());
-                        expectingBeginWindow = activeQueues.size();
-                        break activequeue;
-                      }
-                    }
-                  } else {
-                    logger.error("Catastrophic Error: Out of sequence {} tuple {} on port {} while expecting {}", t.getType(), Codec.getStringWindowId(t.getWindowId()), port, Codec.getStringWindowId(currentWindowId));
-                    System.exit(2);
-                  }
                 }
-                break;
-
-              case END_WINDOW:
-                buffers.remove();
-                if (t.getWindowId() == currentWindowId) {
-                  activePort.remove();
-                  endWindowDequeueTimes.put(activePort, System.currentTimeMillis());
+                t.setWindowId(windowAhead);
+              }
+              for (int s = sinks.length; s-- > 0; ) {
+                sinks[s].put(t);
+              }
+              controlTupleCount++;
+
+              context.setWindowsFromCheckpoint(nextCheckpointWindowCount--);
+
+              if (applicationWindowCount == 0) {
+                insideWindow = true;
+                operator.beginWindow(currentWindowId);
+              }
+            } else if (t.getWindowId() == currentWindowId) {
+              activePort.remove();
+              expectingBeginWindow--;
+            } else {
+              buffers.remove();
+              String port = activePortEntry.getKey();
+              if (PROCESSING_MODE == ProcessingMode.AT_MOST_ONCE) {
+                if (t.getWindowId() < currentWindowId) {
+                  /*
+                   * we need to fast forward this stream till we find the current
+                   * window or the window which is bigger than the current window.
+                   */
+
+                  /* lets move the current reservoir in the background */
+                  Sink<Object> sink = activePort.setSink(Sink.BLACKHOLE);
+                  deferredInputConnections.add(0, new DeferredInputConnection(port, activePort));
+
+                  /* replace it with the reservoir which blocks the tuples in the past */
+                  WindowIdActivatedReservoir wiar = new WindowIdActivatedReservoir(port, activePort, currentWindowId);
+                  wiar.setSink(sink);
+                  inputs.put(port, wiar);
+                  activeQueues.add(new AbstractMap.SimpleEntry<String, SweepableReservoir>(port, wiar));
+                  break activequeue;
+                } else {
+                  expectingBeginWindow--;
                   if (++receivedEndWindow == totalQueues) {
-                    assert (activeQueues.isEmpty());
-                    if (delay) {
-                      t.setWindowId(windowAhead);
-                    }
-                    processEndWindow(t);
+                    processEndWindow(null);
                     activeQueues.addAll(inputs.entrySet());
                     expectingBeginWindow = activeQueues.size();
                     break activequeue;
                   }
                 }
+              } else {
+                logger.error("Catastrophic Error: Out of sequence {} tuple {} on port {} while expecting {}", t.getType(), Codec.getStringWindowId(t.getWindowId()), port, Codec.getStringWindowId(currentWindowId));
+                System.exit(2);
+              }
+            }
+            break;
+
+          case END_WINDOW:
+            buffers.remove();
+            if (t.getWindowId() == currentWindowId) {
+              activePort.remove();
+              endWindowDequeueTimes.put(activePort, System.currentTimeMillis());
+              if (++receivedEndWindow == totalQueues) {
+                assert (activeQueues.isEmpty());
+                if (delay) {
+                  t.setWindowId(windowAhead);
+                }
+                processEndWindow(t);
+                activeQueues.addAll(inputs.entrySet());
+                expectingBeginWindow = activeQueues.size();
+                break activequeue;
+              }
+            }
+            break;
+
+          case CHECKPOINT:
+            activePort.remove();
+            long checkpointWindow = t.getWindowId();
+            if (lastCheckpointWindowId < checkpointWindow) {
+              dagCheckpointOffsetCount = 0;
+              if (PROCESSING_MODE == ProcessingMode.EXACTLY_ONCE) {
+                lastCheckpointWindowId = checkpointWindow;
+              } else if (!doCheckpoint) {
+                if (checkpointWindowCount == 0) {
+                  checkpoint(checkpointWindow);
+                  lastCheckpointWindowId = checkpointWindow;
+                } else {
+                  doCheckpoint = true;
+                }
+              }
+              if (!delay) {
+                for (int s = sinks.length; s-- > 0; ) {
+                  sinks[s].put(t);
+                }
+                controlTupleCount++;
+              }
+            }
+            break;
+
+          case RESET_WINDOW:
+            /**
+             * we will receive tuples which are equal to the number of input streams.
+             */
+            activePort.remove();
+            if (isInputPortConnectedToDelayOperator(activePortEntry.getKey())) {
+              break; // breaking out of the switch/case
+            }
+
+            buffers.remove();
+            int baseSeconds = t.getBaseSeconds();
+            tracker = null;
+            for (Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator(); trackerIterator.hasNext(); ) {
+              tracker = trackerIterator.next();
+              if (tracker.tuple.getBaseSeconds() == baseSeconds) {
                 break;
+              }
+            }
 
-              case CHECKPOINT:
-                activePort.remove();
-                long checkpointWindow = t.getWindowId();
-                if (lastCheckpointWindowId < checkpointWindow) {
-                  dagCheckpointOffsetCount = 0;
-                  if (PROCESSING_MODE == ProcessingMode.EXACTLY_ONCE) {
-                    lastCheckpointWindowId = checkpointWindow;
-                  } else if (!doCheckpoint) {
-                    if (checkpointWindowCount == 0) {
-                      checkpoint(checkpointWindow);
-                      lastCheckpointWindowId = checkpointWindow;
-                    } else {
-                      doCheckpoint = true;
-                    }
-                  }
-                  if (!delay) {
-                    for (int s = sinks.length; s-- > 0; ) {
-                      sinks[s].put(t);
-                    }
-                    controlTupleCount++;
-                  }
-                }
+            if (tracker == null) {
+              tracker = new TupleTracker(t, regularQueues);
+              resetTupleTracker.add(tracker);
+            }
+            int trackerIndex = 0;
+            while (trackerIndex < tracker.ports.length) {
+              if (tracker.ports[trackerIndex] == null) {
+                tracker.ports[trackerIndex++] = activePort;
+                break;
+              } else if (tracker.ports[trackerIndex] == activePort) {
                 break;
+              }
 
-              case RESET_WINDOW:
-                /**
-                 * we will receive tuples which are equal to the number of input streams.
-                 */
-                activePort.remove();
-                if (isInputPortConnectedToDelayOperator(activePortEntry.getKey())) {
-                  break; // breaking out of the switch/case
-                }
+              trackerIndex++;
+            }
 
-                buffers.remove();
-                int baseSeconds = t.getBaseSeconds();
-                tracker = null;
-                for (Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator(); trackerIterator.hasNext(); ) {
-                  tracker = trackerIterator.next();
-                  if (tracker.tuple.getBaseSeconds() == baseSeconds) {
-                    break;
-                  }
+            if (trackerIndex == regularQueues) {
+              Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator();
+              while (trackerIterator.hasNext()) {
+                if (trackerIterator.next().tuple.getBaseSeconds() <= baseSeconds) {
+                  trackerIterator.remove();
                 }
-
-                if (tracker == null) {
-                  tracker = new TupleTracker(t, regularQueues);
-                  resetTupleTracker.add(tracker);
+              }
+              if (!delay) {
+                for (int s = sinks.length; s-- > 0; ) {
+                  sinks[s].put(t);
                 }
-                int trackerIndex = 0;
-                while (trackerIndex < tracker.ports.length) {
-                  if (tracker.ports[trackerIndex] == null) {
-                    tracker.ports[trackerIndex++] = activePort;
-                    break;
-                  } else if (tracker.ports[trackerIndex] == activePort) {
-                    break;
+                controlTupleCount++;
+              }
+              if (!activeQueues.isEmpty()) {
+                // make sure they are all queues from DelayOperator
+                for (Map.Entry<String, SweepableReservoir> entry : activeQueues) {
+                  if (!isInputPortConnectedToDelayOperator(entry.getKey())) {
+                    assert (false);
                   }
-
-                  trackerIndex++;
                 }
+                activeQueues.clear();
+              }
+              activeQueues.addAll(inputs.entrySet());
+              expectingBeginWindow = activeQueues.size();
 
-                if (trackerIndex == regularQueues) {
-                  Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator();
-                  while (trackerIterator.hasNext()) {
-                    if (trackerIterator.next().tuple.getBaseSeconds() <= baseSeconds) {
-                      trackerIterator.remove();
-                    }
-                  }
-                  if (!delay) {
-                    for (int s = sinks.length; s-- > 0; ) {
-                      sinks[s].put(t);
-                    }
-                    controlTupleCount++;
-                  }
-                  if (!activeQueues.isEmpty()) {
-                    // make sure they are all queues from DelayOperator
-                    for (Map.Entry<String, SweepableReservoir> entry : activeQueues) {
-                      if (!isInputPortConnectedToDelayOperator(entry.getKey())) {
-                        assert (false);
-                      }
-                    }
-                    activeQueues.clear();
-                  }
-                  activeQueues.addAll(inputs.entrySet());
-                  expectingBeginWindow = activeQueues.size();
-
-                  if (firstWindowId == -1) {
-                    if (delay) {
-                      for (int s = sinks.length; s-- > 0; ) {
-                        sinks[s].put(t);
-                      }
-                      controlTupleCount++;
-                      // if it's a DelayOperator and this is the first RESET_WINDOW (start) or END_STREAM
-                      // (recovery), fabricate the first window
-                      fabricateFirstWindow((Operator.DelayOperator)operator, windowAhead);
-                    }
-                    firstWindowId = t.getWindowId();
+              if (firstWindowId == -1) {
+                if (delay) {
+                  for (int s = sinks.length; s-- > 0; ) {
+                    sinks[s].put(t);
                   }
-                  break activequeue;
+                  controlTupleCount++;
+                  // if it's a DelayOperator and this is the first RESET_WINDOW (start) or END_STREAM
+                  // (recovery), fabricate the first window
+                  fabricateFirstWindow((Operator.DelayOperator)operator, windowAhead);
                 }
-                break;
-
-              case END_STREAM:
-                activePort.remove();
-                buffers.remove();
-                if (firstWindowId == -1) {
-                  // this is for recovery from a checkpoint for DelayOperator
-                  if (delay) {
-                    // if it's a DelayOperator and this is the first RESET_WINDOW (start) or END_STREAM (recovery),
-                    // fabricate the first window
-                    fabricateFirstWindow((Operator.DelayOperator)operator, windowAhead);
-                  }
-                  firstWindowId = t.getWindowId();
+                firstWindowId = t.getWindowId();
+              }
+              break activequeue;
+            }
+            break;
+
+          case END_STREAM:
+            activePort.remove();
+            buffers.remove();
+            if (firstWindowId == -1) {
+              // this is for recovery from a checkpoint for DelayOperator
+              if (delay) {
+                // if it's a DelayOperator and this is the first RESET_WINDOW (start) or END_STREAM (recovery),
+                // fabricate the first window
+                fabricateFirstWindow((Operator.DelayOperator)operator, windowAhead);
+              }
+              firstWindowId = t.getWindowId();
+            }
+            for (Iterator<Entry<String, SweepableReservoir>> it = inputs.entrySet().iterator(); it.hasNext(); ) {
+              Entry<String, SweepableReservoir> e = it.next();
+              if (e.getValue() == activePort) {
+                if (!descriptor.inputPorts.isEmpty()) {
+                  descriptor.inputPorts.get(e.getKey()).component.setConnected(false);
                 }
-                for (Iterator<Entry<String, SweepableReservoir>> it = inputs.entrySet().iterator(); it.hasNext(); ) {
-                  Entry<String, SweepableReservoir> e = it.next();
-                  if (e.getValue() == activePort) {
-                    if (!descriptor.inputPorts.isEmpty()) {
-                      descriptor.inputPorts.get(e.getKey()).component.setConnected(false);
-                    }
-                    it.remove();
-
-                    /* check the deferred connection list for any new port that should be connected here */
-                    Iterator<DeferredInputConnection> dici = deferredInputConnections.iterator();
-                    while (dici.hasNext()) {
-                      DeferredInputConnection dic = dici.next();
-                      if (e.getKey().equals(dic.portname)) {
-                        connectInputPort(dic.portname, dic.reservoir);
-                        dici.remove();
-                        activeQueues.add(new AbstractMap.SimpleEntry<>(dic.portname, dic.reservoir));
-                        break activequeue;
-                      }
-                    }
-
-                    break;
+                it.remove();
+
+                /* check the deferred connection list for any new port that should be connected here */
+                Iterator<DeferredInputConnection> dici = deferredInputConnections.iterator();
+                while (dici.hasNext()) {
+                  DeferredInputConnection dic = dici.next();
+                  if (e.getKey().equals(dic.portname)) {
+                    connectInputPort(dic.portname, dic.reservoir);
+                    dici.remove();
+                    activeQueues.add(new AbstractMap.SimpleEntry<>(dic.portname, dic.reservoir));
+                    break activequeue;
                   }
                 }
 
-                /**
-                 * We are not going to receive begin window on this ever!
-                 */
-                expectingBeginWindow--;
-
-                /**
-                 * Since one of the operators we care about it gone, we should relook at our ports.
-                 * We need to make sure that the END_STREAM comes outside of the window.
-                 */
-                regularQueues--;
-                totalQueues--;
-
-                boolean break_activequeue = false;
-                if (regularQueues == 0) {
-                  alive = false;
-                  break_activequeue = true;
-                } else if (activeQueues.isEmpty()) {
-                  assert (!inputs.isEmpty());
-                  processEndWindow(null);
-                  activeQueues.addAll(inputs.entrySet());
-                  expectingBeginWindow = activeQueues.size();
-                  break_activequeue = true;
-                }
+                break;
+              }
+            }
 
-                /**
-                 * also make sure that we update the reset tuple tracker if this stream had delivered any reset tuples.
-                 * Check all the reset buffers to see if current input port has already delivered reset tuple. If it has
-                 * then we are waiting for something else to deliver the reset tuple, so just clear current reservoir
-                 * from the list of tracked reservoirs. If the current input port has not delivered the reset tuple, and
-                 * it's the only one which has not, then we consider it delivered and release the reset tuple downstream.
-                 */
-                Tuple tuple = null;
-                for (Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator(); trackerIterator.hasNext(); ) {
-                  tracker = trackerIterator.next();
-
-                  trackerIndex = 0;
-                  while (trackerIndex < tracker.ports.length) {
-                    if (tracker.ports[trackerIndex] == activePort) {
-                      SweepableReservoir[] ports = new SweepableReservoir[regularQueues];
-                      System.arraycopy(tracker.ports, 0, ports, 0, trackerIndex);
-                      if (trackerIndex < regularQueues) {
-                        System.arraycopy(tracker.ports, trackerIndex + 1, ports, trackerIndex, tracker.ports.length - trackerIndex - 1);
-                      }
-                      tracker.ports = ports;
-                      break;
-                    } else if (tracker.ports[trackerIndex] == null) {
-                      if (trackerIndex == regularQueues) { /* regularQueues is already adjusted above */
-                        if (tuple == null || tuple.getBaseSeconds() < tracker.tuple.getBaseSeconds()) {
-                          tuple = tracker.tuple;
-                        }
-
-                        trackerIterator.remove();
-                      }
-                      break;
-                    } else {
-                      tracker.ports = Arrays.copyOf(tracker.ports, regularQueues);
-                    }
+            /**
+             * We are not going to receive begin window on this ever!
+             */
+            expectingBeginWindow--;
+
+            /**
+             * Since one of the operators we care about it gone, we should relook at our ports.
+             * We need to make sure that the END_STREAM comes outside of the window.
+             */
+            regularQueues--;
+            totalQueues--;
+
+            boolean break_activequeue = false;
+            if (regularQueues == 0) {
+              alive = false;
+              break_activequeue = true;
+            } else if (activeQueues.isEmpty()) {
+              assert (!inputs.isEmpty());
+              processEndWindow(null);
+              activeQueues.addAll(inputs.entrySet());
+              expectingBeginWindow = activeQueues.size();
+              break_activequeue = true;
+            }
 
-                    trackerIndex++;
+            /**
+             * also make sure that we update the reset tuple tracker if this stream had delivered any reset tuples.
+             * Check all the reset buffers to see if current input port has already delivered reset tuple. If it has
+             * then we are waiting for something else to deliver the reset tuple, so just clear current reservoir
+             * from the list of tracked reservoirs. If the current input port has not delivered the reset tuple, and
+             * it's the only one which has not, then we consider it delivered and release the reset tuple downstream.
+             */
+            Tuple tuple = null;
+            for (Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator(); trackerIterator.hasNext(); ) {
+              tracker = trackerIterator.next();
+
+              trackerIndex = 0;
+              while (trackerIndex < tracker.ports.length) {
+                if (tracker.ports[trackerIndex] == activePort) {
+                  SweepableReservoir[] ports = new SweepableReservoir[regularQueues];
+                  System.arraycopy(tracker.ports, 0, ports, 0, trackerIndex);
+                  if (trackerIndex < regularQueues) {
+                    System.arraycopy(tracker.ports, trackerIndex + 1, ports, trackerIndex, tracker.ports.length - trackerIndex - 1);
                   }
-                }
+                  tracker.ports = ports;
+                  break;
+                } else if (tracker.ports[trackerIndex] == null) {
+                  if (trackerIndex == regularQueues) { /* regularQueues is already adjusted above */
+                    if (tuple == null || tuple.getBaseSeconds() < tracker.tuple.getBaseSeconds()) {
+                      tuple = tracker.tuple;
+                    }
 
-                /*
-                 * Since we were waiting for a reset tuple on this stream, we should not any longer.
-                 */
-                if (tuple != null && !delay) {
-                  for (int s = sinks.length; s-- > 0; ) {
-                    sinks[s].put(tuple);
+                    trackerIterator.remove();
                   }
-                  controlTupleCount++;
-                }
-
-                if (break_activequeue) {
-                  break activequeue;
+                  break;
+                } else {
+                  tracker.ports = Arrays.copyOf(tracker.ports, regularQueues);
                 }
-                break;
 
-              default:
-                throw new UnhandledException("Unrecognized Control Tuple", new IllegalArgumentException(t.toString()));
+                trackerIndex++;
+              }
             }
-          }
-        }
 
-        if (activeQueues.isEmpty() && alive) {
-          logger.error("Catastrophic Error: Invalid State - the operator blocked forever!");
-          System.exit(2);
-        } else {
-          boolean need2sleep = true;
-          for (Map.Entry<String, SweepableReservoir> cb : activeQueues) {
-            need2sleep = cb.getValue().isEmpty();
-            if (!need2sleep) {
-              spinMillis = 0;
-              break;
+            /*
+             * Since we were waiting for a reset tuple on this stream, we should not any longer.
+             */
+            if (tuple != null && !delay) {
+              for (int s = sinks.length; s-- > 0; ) {
+                sinks[s].put(tuple);
+              }
+              controlTupleCount++;
             }
-          }
 
-          if (need2sleep) {
-            if (handleIdleTime && insideWindow) {
-              ((IdleTimeHandler)operator).handleIdleTime();
-            } else {
-              Thread.sleep(spinMillis);
-              spinMillis = Math.min(maxSpinMillis, spinMillis + 1);
+            if (break_activequeue) {
+              break activequeue;
             }
-          }
-        }
-      } while (alive);
-    } catch (ShutdownException se) {
-      logger.debug("Shutdown requested by the operator when alive = {}.", alive);
-      alive = false;
-    } catch (Throwable cause) {
-      synchronized (this) {
-        if (alive) {
-          throw Throwables.propagate(cause);
+            break;
+
+          default:
+            throw new UnhandledException("Unrecognized Control Tuple", new IllegalArgumentException(t.toString()));
         }
       }
+    }
 
-      Throwable rootCause = cause;
-      while (rootCause != null) {
-        if (rootCause instanceof InterruptedException) {
-          break;
-        }
-        rootCause = rootCause.getCause();
+    if (activeQueues.isEmpty() && alive) {
+      logger.error("Catastrophic Error: Invalid State - the operator blocked forever!");
+      System.exit(2);
+    }
+
+    if (busy || hasInput()) {
+      return Progress.BUSY;
+    }
+
+    if (handleIdleTime && insideWindow) {
+      ((IdleTimeHandler)operator).handleIdleTime();
+      return Progress.BUSY;
+    }
+    return Progress.IDLE;
+  }
+
+  @Override
+  protected boolean hasInput()
+  {
+    for (int i = activeQueues.size(); i-- > 0;) {
+      if (!activeQueues.get(i).getValue().isEmpty()) {
+        return true;
       }
+    }
+    return false;
+  }
 
-      if (rootCause == null) {
-        throw Throwables.propagate(cause);
-      } else {
-        logger.debug("Ignoring InterruptedException after shutdown", cause);
+  @Override
+  protected void signalInputs(NodeScheduler.WorkUnit unit)
+  {
+    for (int i = activeQueues.size(); i-- > 0;) {
+      SweepableReservoir reservoir = activeQueues.get(i).getValue();
+      if (reservoir instanceof NodeScheduler.SignallingReservoir) {
+        ((NodeScheduler.SignallingReservoir)reservoir).consumed(unit);
       }
     }
+  }
 
+  @Override
+  protected void endProcessing()
+  {
     /**
      * TODO: If shutdown and inside window provide alternate way of notifying the operator in such ways
      * TODO: as using a listener callback
@@ -653,7 +724,6 @@ public class GenericNode extends Node<Operator>
       stats.metrics = collectMetrics();
       handleRequests(currentWindowId);
     }
-
   }
 
   private void fabricateFirstWindow(Operator.DelayOperator delayOperator, long windowAhead)
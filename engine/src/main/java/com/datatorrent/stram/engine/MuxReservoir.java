@@ -77,10 +77,24 @@ public abstract class MuxReservoir
 
   protected abstract Queue getQueue();
 
-  class SubReservoir extends CircularBuffer<Object> implements SweepableReservoir
+  /**
+   * Wakes the work units of the nodes that consume the reservoirs after tuples were added to the queue.
+   */
+  protected void signalConsumers()
+  {
+    for (SubReservoir reservoir : reservoirs) {
+      final NodeScheduler.WorkUnit consumer = reservoir.consumer;
+      if (consumer != null) {
+        consumer.wake();
+      }
+    }
+  }
+
+  class SubReservoir extends CircularBuffer<Object> implements SweepableReservoir, NodeScheduler.SignallingReservoir
   {
     int count;
     private Sink<Object> sink;
+    private volatile NodeScheduler.WorkUnit consumer;
 
     SubReservoir(int capacity)
     {
@@ -112,6 +126,23 @@ public abstract class MuxReservoir
       }
     }
 
+    /**
+     * The reservoir is not empty while the shared queue holds tuples that are not yet distributed to the reservoirs,
+     * sweep moves them into the reservoir.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+      if (!super.isEmpty()) {
+        return false;
+      }
+
+      final Queue queue = getQueue();
+      synchronized (queue) {
+        return queue.isEmpty();
+      }
+    }
+
     @Override
     public Tuple sweep()
     {
@@ -168,6 +199,14 @@ public abstract class MuxReservoir
       }
     }
 
+    @Override
+    public void consumed(NodeScheduler.WorkUnit consumer)
+    {
+      if (this.consumer != consumer) {
+        this.consumer = consumer;
+      }
+    }
+
   }
 
   private static final Logger logger = LoggerFactory.getLogger(MuxReservoir.class);
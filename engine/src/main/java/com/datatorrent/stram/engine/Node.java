@@ -62,6 +62,7 @@ import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.OutputPort;
 import com.datatorrent.api.Operator.ProcessingMode;
+import com.datatorrent.api.Operator.ShutdownException;
 import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.Stats;
@@ -117,6 +118,12 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
   protected long endWindowEmitTime;
   protected long lastSampleCpuTime;
   protected ThreadMXBean tmb;
+  /**
+   * CPU time of the slices the node ran in the worker threads of a {@link NodeScheduler}, negative when the node runs
+   * in a thread of its own.
+   */
+  private long scheduledCpuTime = -1;
+  private long sliceStartCpuTime;
   protected HashMap<SweepableReservoir, Long> endWindowDequeueTimes; // end window dequeue time for input ports
   protected Checkpoint checkpoint;
   public int applicationWindowCount;
@@ -303,6 +310,132 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     }
   }
 
+  /**
+   * Outcome of a call to {@link #process()}.
+   */
+  public enum Progress
+  {
+    /**
+     * Input was processed and more may be available.
+     */
+    BUSY,
+    /**
+     * There was no input to process.
+     */
+    IDLE,
+    /**
+     * Output is waiting for space in the reservoir of a downstream node, reported only by the {@link NodeScheduler}.
+     */
+    BLOCKED
+  }
+
+  /**
+   * Prepares the processing of the input, called before the first call to {@link #process()}.
+   */
+  protected abstract void startProcessing();
+
+  /**
+   * Processes the input that is available without waiting for more. The processing is complete once the node is no
+   * longer alive.
+   *
+   * @return whether there was input to process
+   */
+  protected abstract Progress process();
+
+  /**
+   * Tells whether tuples are queued for {@link #process()}, used by the {@link NodeScheduler} to resume idle nodes
+   * as soon as tuples arrive. Called while the node is not processed.
+   *
+   * @return true if there are tuples to process
+   */
+  protected abstract boolean hasInput();
+
+  /**
+   * Hands the work unit that processes the node to the {@link NodeScheduler.SignallingReservoir}s of the inputs, called
+   * by the {@link NodeScheduler} at the end of each slice, so that they wake the unit when tuples arrive.
+   *
+   * @param unit work unit that processes the node
+   */
+  protected abstract void signalInputs(NodeScheduler.WorkUnit unit);
+
+  /**
+   * Completes the processing of the input once the node is no longer alive, ends the window the operator is in.
+   */
+  protected abstract void endProcessing();
+
+  /**
+   * Handles the throwable that interrupted the processing of the input. A shutdown requested by the operator and an
+   * interrupt after the node was shut down end the processing, other throwables are propagated.
+   *
+   * @param cause throwable thrown by {@link #process()}
+   */
+  protected void stopProcessing(Throwable cause)
+  {
+    if (cause instanceof ShutdownException) {
+      logger.debug("Shutdown requested by the operator when alive = {}.", alive);
+      alive = false;
+      return;
+    }
+
+    synchronized (this) {
+      if (alive) {
+        throw Throwables.propagate(cause);
+      }
+    }
+
+    Throwable rootCause = cause;
+    while (rootCause != null) {
+      if (rootCause instanceof InterruptedException) {
+        break;
+      }
+      rootCause = rootCause.getCause();
+    }
+
+    if (rootCause == null) {
+      throw Throwables.propagate(cause);
+    } else {
+      logger.debug("Ignoring InterruptedException after shutdown", cause);
+    }
+  }
+
+  boolean isAlive()
+  {
+    return alive;
+  }
+
+  boolean isShutdown()
+  {
+    return shutdown;
+  }
+
+  /**
+   * Marks the start of a slice of processing in a worker thread of a {@link NodeScheduler}.
+   */
+  void beginSlice()
+  {
+    sliceStartCpuTime = tmb.getCurrentThreadCpuTime();
+    if (scheduledCpuTime < 0) {
+      scheduledCpuTime = 0;
+      lastSampleCpuTime = 0;
+    }
+  }
+
+  /**
+   * Marks the end of a slice of processing in a worker thread of a {@link NodeScheduler}.
+   */
+  void endSlice()
+  {
+    scheduledCpuTime += tmb.getCurrentThreadCpuTime() - sliceStartCpuTime;
+  }
+
+  private long getCpuTime()
+  {
+    if (scheduledCpuTime < 0) {
+      return tmb.getCurrentThreadCpuTime();
+    }
+    return scheduledCpuTime + tmb.getCurrentThreadCpuTime() - sliceStartCpuTime;
+  }
+
   protected ProcessingMode PROCESSING_MODE;
   protected volatile boolean shutdown;
 
@@ -331,6 +464,10 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
         }
 
       });
+      NodeScheduler.WorkUnit unit = context.getWorkUnit();
+      if (unit != null) {
+        unit.wake();
+      }
     }
   }
 
@@ -430,7 +567,7 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     }
     controlTupleCount = 0;
 
-    long currentCpuTime = tmb.getCurrentThreadCpuTime();
+    long currentCpuTime = getCpuTime();
     stats.cpuTimeUsed = currentCpuTime - lastSampleCpuTime;
     lastSampleCpuTime = currentCpuTime;
 
@@ -493,7 +630,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
         try {
           checkpointStats = new Stats.CheckpointStats();
           checkpointStats.checkpointStartTime = System.currentTimeMillis();
+          long saveStart = System.nanoTime();
           ba.save(operator, id, windowId);
+          checkpointStats.checkpointSerializationTime = (System.nanoTime() - saveStart) / 1000000;
           if (ba instanceof AsyncFSStorageAgent) {
             AsyncFSStorageAgent asyncFSStorageAgent = (AsyncFSStorageAgent)ba;
             if (!asyncFSStorageAgent.isSyncCheckpoint()) {
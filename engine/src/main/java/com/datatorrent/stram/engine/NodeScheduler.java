@@ -0,0 +1,497 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.common.util.NameableThreadFactory;
+
+/**
+ * Runs the nodes of a container on a bounded pool of worker threads instead of a thread per node.
+ * <p>
+ * Each node is processed in slices, a slice calls {@link Node#process()} until the node runs out of input or the
+ * slice exceeds {@link #SLICE_NANOS}. A node that still has input is queued for the next available worker, a node
+ * that ran out of input is parked. A parked node is queued again when a {@link SignallingReservoir} of its inputs
+ * receives tuples or when the node is shut down, so that idle nodes do not occupy the workers. Like the thread of an
+ * input node that sleeps when it runs out of input, a parked input node is also queued once it was parked for longer
+ * than the spin time, which grows with every idle slice up to
+ * {@link com.datatorrent.api.Context.OperatorContext#SPIN_MILLIS}, so that the input operator gets to emit tuples.
+ * <p>
+ * A node never waits for a full reservoir of a downstream node on a worker, as the downstream node may be queued
+ * behind it. The tuples that do not fit are kept in a {@link Backlog} of the output, the slice ends and the node is
+ * parked until the downstream node took tuples out of the reservoir. The node is processed again only after its
+ * backlogs were delivered.
+ *
+ * @see WorkUnit
+ */
+public class NodeScheduler
+{
+  /**
+   * Maximum time a node keeps a worker thread while it has input to process.
+   */
+  public static final long SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private final ExecutorService workers;
+  private final ScheduledExecutorService timer;
+  private static final ThreadLocal<WorkUnit> current = new ThreadLocal<>();
+
+  /**
+   * Tuples of an output that did not fit into the reservoir of the downstream node, delivered by the worker that
+   * processes the node once the reservoir has space.
+   */
+  public interface Backlog
+  {
+    /**
+     * Moves the tuples of the backlog into the reservoir as long as it has space.
+     *
+     * @return true if the backlog is empty
+     */
+    boolean deliver();
+
+    /**
+     * Tells whether the reservoir has space for a tuple of the backlog.
+     *
+     * @return true if the reservoir is not full
+     */
+    boolean isWritable();
+
+    /**
+     * Has the reservoir wake the work unit once the downstream node took tuples out of it, called before the unit is
+     * parked.
+     *
+     * @param producer work unit of the node that owns the backlog
+     */
+    void awaitWritable(WorkUnit producer);
+
+    /**
+     * Drops the tuples of the backlog, called when the processing of the node was interrupted.
+     */
+    void discard();
+  }
+
+  /**
+   * Reservoir that wakes the work unit of the node that consumes it when tuples are added while the unit is parked.
+   */
+  public interface SignallingReservoir
+  {
+    /**
+     * Called by the work unit of the node that consumes the reservoir at the end of each slice, before the unit may be
+     * parked. The reservoir wakes the unit when tuples are added to it and wakes the producer that waits for space.
+     *
+     * @param consumer work unit of the node that consumes the reservoir
+     */
+    void consumed(WorkUnit consumer);
+  }
+
+  /**
+   * Lifecycle of the node of a work unit that is executed in the worker threads.
+   */
+  public interface Task
+  {
+    /**
+     * Sets up the node, called in a worker thread before the node processes any input.
+     *
+     * @throws Exception when the node cannot be set up, the node is not processed
+     */
+    void start() throws Exception;
+
+    /**
+     * Handles the failure to set up the node or to process its input.
+     *
+     * @param cause
+     */
+    void failed(Throwable cause);
+
+    /**
+     * Tears the node down, called once the processing of the node is over.
+     */
+    void finish();
+  }
+
+  /**
+   * @param workerCount number of worker threads
+   */
+  public NodeScheduler(int workerCount)
+  {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("Number of worker threads " + workerCount + " must be positive");
+    }
+    workers = Executors.newFixedThreadPool(workerCount, new NameableThreadFactory("NodeWorker", true));
+    timer = Executors.newSingleThreadScheduledExecutor(new NameableThreadFactory("NodeTimer", true));
+  }
+
+  /**
+   * Defers the delivery of the backlog of an output to the scheduler when the current thread is a worker. The node
+   * processed by the worker ends its slice and stays parked until the backlog is delivered.
+   *
+   * @param backlog backlog of an output of the node processed by the current thread
+   * @return true if the backlog is delivered by the scheduler, false if the current thread is not a worker and the
+   * caller has to wait for the reservoir itself
+   */
+  public static boolean defer(Backlog backlog)
+  {
+    final WorkUnit unit = current.get();
+    if (unit == null) {
+      return false;
+    }
+    if (!unit.backlogs.contains(backlog)) {
+      unit.backlogs.add(backlog);
+    }
+    return true;
+  }
+
+  /**
+   * Starts the processing of a node.
+   *
+   * @param node node to process
+   * @param task lifecycle of the node
+   * @return work unit that processes the node
+   */
+  public WorkUnit schedule(Node<?> node, Task task)
+  {
+    WorkUnit unit = new WorkUnit(node, task);
+    workers.execute(unit);
+    return unit;
+  }
+
+  private void execute(WorkUnit unit)
+  {
+    try {
+      workers.execute(unit);
+    } catch (RejectedExecutionException ex) {
+      logger.debug("Abandoning {} after shutdown.", unit);
+    }
+  }
+
+  /**
+   * Stops the worker threads, the nodes still processed are abandoned.
+   */
+  public void shutdown()
+  {
+    timer.shutdownNow();
+    workers.shutdownNow();
+  }
+
+  /**
+   * Processing of a node in slices on the worker threads. A work unit is run by at most one worker at a time, the
+   * state of the node is handed over between the workers through the executor and the parked state of the unit.
+   */
+  public class WorkUnit implements Runnable
+  {
+    private final Node<?> node;
+    private final Task task;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    /*
+     * backlogs of the outputs of the node, published to the thread that wakes the unit by parking it
+     */
+    private final ArrayList<Backlog> backlogs = new ArrayList<>();
+    private final AtomicBoolean parked = new AtomicBoolean();
+    private final Runnable wakeup = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        wake();
+      }
+
+    };
+    private final boolean timed;
+    private final long maxSpinNanos;
+    private long spinNanos;
+    private boolean started;
+    private boolean terminating;
+    private volatile boolean interrupted;
+    private Thread worker;
+
+    private WorkUnit(Node<?> node, Task task)
+    {
+      this.node = node;
+      this.task = task;
+      timed = node instanceof InputNode;
+      maxSpinNanos = TimeUnit.MILLISECONDS.toNanos(node.context.getValue(OperatorContext.SPIN_MILLIS));
+    }
+
+    @Override
+    public void run()
+    {
+      final Node.Progress progress;
+      synchronized (this) {
+        worker = Thread.currentThread();
+      }
+      current.set(this);
+      try {
+        progress = process();
+      } finally {
+        current.remove();
+        synchronized (this) {
+          worker = null;
+          /* do not leak the interrupt of this unit to the next unit that runs in the worker */
+          Thread.interrupted();
+        }
+      }
+
+      if (progress == null) {
+        return;
+      }
+      node.signalInputs(this);
+      if (progress == Node.Progress.BUSY) {
+        spinNanos = 0;
+        execute(this);
+      } else if (progress == Node.Progress.IDLE) {
+        final long parkNanos = spinNanos;
+        spinNanos = Math.min(spinNanos + TimeUnit.MILLISECONDS.toNanos(1), maxSpinNanos);
+        if (timed && parkNanos == 0) {
+          execute(this);
+        } else {
+          park(timed ? parkNanos : -1);
+        }
+      } else if (progress == Node.Progress.BLOCKED) {
+        spinNanos = 0;
+        park(-1);
+      }
+    }
+
+    /**
+     * Parks the unit until a reservoir signals it, the backlogs are writable or the timeout elapsed. The state is
+     * checked again once the unit is parked, so that a signal that arrived before is not lost.
+     *
+     * @param timeoutNanos time after which the unit is queued anyway, negative to wait for a signal
+     */
+    private void park(long timeoutNanos)
+    {
+      for (int i = backlogs.size(); i-- > 0;) {
+        backlogs.get(i).awaitWritable(this);
+      }
+      parked.set(true);
+      if (isRunnable()) {
+        wake();
+      } else if (timeoutNanos >= 0) {
+        try {
+          timer.schedule(wakeup, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+          logger.debug("Abandoning {} after shutdown.", this);
+        }
+      }
+    }
+
+    /**
+     * Queues the unit when it is parked. Reads the parked state without ordering it after the writes of the caller, a
+     * tuple that is added while the unit parks may therefore be found only with the next signal. Suits the frequent
+     * signals of data tuples.
+     */
+    public void signal()
+    {
+      if (parked.get()) {
+        wake();
+      }
+    }
+
+    /**
+     * Queues the unit when it is parked. The atomic update of the parked state orders the preceding writes of the
+     * caller before it, so that a unit that parks concurrently finds them when it checks its input again.
+     */
+    public void wake()
+    {
+      if (parked.compareAndSet(true, false)) {
+        execute(this);
+      }
+    }
+
+    /**
+     * Processes a slice of the node.
+     *
+     * @return progress of the node in the slice, null when the processing terminated
+     */
+    @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
+    private Node.Progress process()
+    {
+      if (!started) {
+        started = true;
+        try {
+          task.start();
+          node.startProcessing();
+        } catch (Throwable cause) {
+          task.failed(cause);
+          terminate(false);
+          return null;
+        }
+      }
+
+      if (!deliverBacklogs()) {
+        return Node.Progress.BLOCKED;
+      }
+      if (terminating) {
+        finish();
+        return null;
+      }
+
+      Node.Progress progress;
+      try {
+        progress = slice();
+      } catch (Throwable cause) {
+        try {
+          node.stopProcessing(cause);
+        } catch (Throwable error) {
+          task.failed(error);
+          terminate(false);
+          return null;
+        }
+        progress = Node.Progress.IDLE;
+      }
+
+      if (!node.isAlive() || node.isShutdown() || interrupted) {
+        terminate(true);
+        return terminating ? Node.Progress.BLOCKED : null;
+      }
+      return backlogs.isEmpty() ? progress : Node.Progress.BLOCKED;
+    }
+
+    /**
+     * Delivers the backlogs of the outputs of the node, drops them when the processing was interrupted.
+     *
+     * @return true if all backlogs were delivered
+     */
+    private boolean deliverBacklogs()
+    {
+      for (int i = backlogs.size(); i-- > 0;) {
+        final Backlog backlog = backlogs.get(i);
+        if (interrupted) {
+          backlog.discard();
+          backlogs.remove(i);
+        } else if (backlog.deliver()) {
+          backlogs.remove(i);
+        }
+      }
+      return backlogs.isEmpty();
+    }
+
+    private Node.Progress slice()
+    {
+      final long deadline = System.nanoTime() + SLICE_NANOS;
+      Node.Progress progress;
+      node.beginSlice();
+      try {
+        do {
+          progress = node.process();
+        } while (progress == Node.Progress.BUSY && backlogs.isEmpty() && node.isAlive() && !interrupted
+            && System.nanoTime() - deadline < 0);
+      } finally {
+        node.endSlice();
+      }
+      return progress;
+    }
+
+    /**
+     * Terminates the processing of the node. When the node leaves tuples in the backlogs of its outputs, the
+     * termination is completed once they are delivered.
+     */
+    private void terminate(boolean processing)
+    {
+      if (processing) {
+        try {
+          node.endProcessing();
+        } catch (Throwable cause) {
+          task.failed(cause);
+        }
+        if (!deliverBacklogs()) {
+          terminating = true;
+          return;
+        }
+      }
+      finish();
+    }
+
+    private void finish()
+    {
+      try {
+        task.finish();
+      } catch (Throwable cause) {
+        logger.error("Termination of node {} failed.", node, cause);
+      } finally {
+        terminated.countDown();
+      }
+    }
+
+    private boolean isRunnable()
+    {
+      if (interrupted) {
+        return true;
+      }
+      if (!backlogs.isEmpty()) {
+        for (int i = backlogs.size(); i-- > 0;) {
+          if (!backlogs.get(i).isWritable()) {
+            return false;
+          }
+        }
+        return true;
+      }
+      return node.isShutdown() || node.hasInput();
+    }
+
+    public boolean isTerminated()
+    {
+      return terminated.getCount() == 0;
+    }
+
+    /**
+     * Waits for the processing of the node to terminate.
+     *
+     * @param millis maximum time to wait
+     * @throws InterruptedException
+     */
+    public void join(long millis) throws InterruptedException
+    {
+      terminated.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Terminates the processing of the node at the end of the current slice, interrupts the worker that processes it
+     * to end a slice that is blocked.
+     */
+    public void interrupt()
+    {
+      synchronized (this) {
+        interrupted = true;
+        if (worker != null) {
+          worker.interrupt();
+        }
+      }
+      wake();
+    }
+
+    @Override
+    public String toString()
+    {
+      return "WorkUnit{" + node + '}';
+    }
+
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(NodeScheduler.class);
+}
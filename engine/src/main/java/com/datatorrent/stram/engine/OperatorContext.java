@@ -42,6 +42,7 @@ import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerSt
 public class OperatorContext extends BaseContext implements Context.OperatorContext
 {
   private Thread thread;
+  private volatile NodeScheduler.WorkUnit workUnit;
   private long lastProcessedWindowId;
   private final int id;
   // the size of the circular queue should be configurable. hardcoded to 1024 for now.
@@ -156,6 +157,69 @@ public class OperatorContext extends BaseContext implements Context.OperatorCont
     this.thread = thread;
   }
 
+  public NodeScheduler.WorkUnit getWorkUnit()
+  {
+    return workUnit;
+  }
+
+  public void setWorkUnit(NodeScheduler.WorkUnit workUnit)
+  {
+    this.workUnit = workUnit;
+  }
+
+  /**
+   * Tells whether the operator is processed, either by a thread of its own or by the workers of a scheduler.
+   *
+   * @return true if the processing started and did not terminate yet
+   */
+  public boolean isAlive()
+  {
+    if (workUnit != null) {
+      return !workUnit.isTerminated();
+    }
+    return thread != null && thread.isAlive();
+  }
+
+  /**
+   * Tells whether the processing of the operator terminated.
+   *
+   * @return true if the processing started and terminated
+   */
+  public boolean isTerminated()
+  {
+    if (workUnit != null) {
+      return workUnit.isTerminated();
+    }
+    return thread != null && thread.getState() == Thread.State.TERMINATED;
+  }
+
+  /**
+   * Waits for the processing of the operator to terminate.
+   *
+   * @param millis maximum time to wait
+   * @throws InterruptedException
+   */
+  public void join(long millis) throws InterruptedException
+  {
+    if (workUnit != null) {
+      workUnit.join(millis);
+    } else if (thread != null) {
+      thread.join(millis);
+    }
+  }
+
+  /**
+   * Interrupts the processing of the operator.
+   */
+  public void interrupt()
+  {
+    if (workUnit != null) {
+      workUnit.interrupt();
+    } else if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
   @SuppressWarnings("FieldNameHidesFieldInSuperclass")
   private static final long serialVersionUID = 2013060671427L;
   @SuppressWarnings("unused")
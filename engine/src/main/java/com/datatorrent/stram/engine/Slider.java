@@ -26,12 +26,17 @@ import java.util.List;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.Operator;
+import com.datatorrent.api.Operator.CombinableUnifier;
 import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StatsListener;
 
 /**
  * <p>Slider class.</p>
+ * Unifies the output of a port over sliding windows, each streaming window of the slider is a bucket of the sliding
+ * window. The tuples of the buckets are cached and replayed to the unifier whenever the window slides, unless the
+ * unifier is a {@link CombinableUnifier}, in which case only a partial aggregate of each bucket is kept and the
+ * partials are handed to the unifier.
  *
  * @since 3.2.0
  */
@@ -39,6 +44,12 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
 {
   private List<List<Object>> cache;
   private transient List<Object> currentList;
+  /**
+   * Partial aggregates of the buckets when the unifier is combinable.
+   */
+  private LinkedList<Object> partials;
+  private transient Object currentPartial;
+  private transient CombinableUnifier<Object, Object> combinableUnifier;
   private final Unifier<Object> unifier;
   private final int numberOfBuckets;
   private final int numberOfSlideBuckets;
@@ -62,6 +73,7 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   {
     unifier = uniOperator;
     cache = new LinkedList<>();
+    partials = new LinkedList<>();
     this.numberOfBuckets = buckets;
     this.numberOfSlideBuckets = numberOfSlideBuckets;
   }
@@ -88,6 +100,11 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void process(Object tuple)
   {
+    if (combinableUnifier != null) {
+      currentPartial = combinableUnifier.accumulate(currentPartial, tuple);
+      return;
+    }
+
     if (cacheSize == numberOfBuckets - 1) {
       unifier.process(tuple);
     }
@@ -97,8 +114,14 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void beginWindow(long windowId)
   {
-    cacheSize = cache.size();
     unifier.beginWindow(windowId);
+    if (combinableUnifier != null) {
+      cacheSize = partials.size();
+      currentPartial = combinableUnifier.newPartial();
+      return;
+    }
+
+    cacheSize = cache.size();
     if (cacheSize == numberOfBuckets - 1) {
       for (List<Object> windowCache : cache) {
         for (Object obj : windowCache) {
@@ -112,10 +135,23 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void endWindow()
   {
-    cache.add(currentList);
-    if (cacheSize == numberOfBuckets - 1) {
-      for (int i = 0; i < numberOfSlideBuckets; i++) {
-        cache.remove(0);
+    if (combinableUnifier != null) {
+      partials.add(currentPartial);
+      currentPartial = null;
+      if (cacheSize == numberOfBuckets - 1) {
+        for (Object partial : partials) {
+          combinableUnifier.processPartial(partial);
+        }
+        for (int i = 0; i < numberOfSlideBuckets; i++) {
+          partials.remove();
+        }
+      }
+    } else {
+      cache.add(currentList);
+      if (cacheSize == numberOfBuckets - 1) {
+        for (int i = 0; i < numberOfSlideBuckets; i++) {
+          cache.remove(0);
+        }
       }
     }
     unifier.endWindow();
@@ -143,6 +179,11 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
     );
     unifier.setup(context);
     spinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
+    if (unifier instanceof CombinableUnifier) {
+      @SuppressWarnings("unchecked")
+      CombinableUnifier<Object, Object> combinable = (CombinableUnifier<Object, Object>)unifier;
+      combinableUnifier = combinable;
+    }
   }
 
   @Override
@@ -19,7 +19,6 @@
 package com.datatorrent.stram.engine;
 
 import java.io.IOException;
-import java.lang.Thread.State;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
@@ -95,6 +94,7 @@ import com.datatorrent.stram.api.OperatorDeployInfo.OperatorType;
 import com.datatorrent.stram.api.OperatorDeployInfo.UnifierDeployInfo;
 import com.datatorrent.stram.api.RequestFactory;
 import com.datatorrent.stram.api.StramToNodeChangeLoggersRequest;
+import com.datatorrent.stram.api.StramToNodeSwitchInputsRequest;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeatResponse;
@@ -145,8 +145,13 @@ public class StreamingContainer extends YarnContainerMain
    */
   protected final Map<Integer, ArrayList<Integer>> oioGroups = new ConcurrentHashMap<>();
   private final Map<Stream, StreamContext> activeStreams = new ConcurrentHashMap<>();
+  /**
+   * Input switches of unifiers that were not confirmed yet, by request id.
+   */
+  private final Map<Long, PendingInputSwitch> inputSwitches = new HashMap<>();
   private final Map<WindowGenerator, Object> activeGenerators = new ConcurrentHashMap<>();
   private int heartbeatIntervalMillis = 1000;
+  private boolean compactHeartbeatStats;
   private volatile boolean exitHeartbeatLoop = false;
   private final Object heartbeatTrigger = new Object();
   public static DefaultEventLoop eventloop;
@@ -159,6 +164,7 @@ public class StreamingContainer extends YarnContainerMain
   private com.datatorrent.bufferserver.server.Server bufferServer;
   private int checkpointWindowCount;
   private boolean fastPublisherSubscriber;
+  private NodeScheduler scheduler;
   private StreamingContainerContext containerContext;
   private List<StramToNodeRequest> nodeRequests;
   private final HashMap<String, Object> singletons;
@@ -197,12 +203,18 @@ public class StreamingContainer extends YarnContainerMain
     ctx.attributes.put(ContainerContext.REQUEST_FACTORY, requestFactory);
 
     heartbeatIntervalMillis = ctx.getValue(Context.DAGContext.HEARTBEAT_INTERVAL_MILLIS);
+    compactHeartbeatStats = ctx.getValue(LogicalPlan.HEARTBEAT_COMPACT_STATS);
     firstWindowMillis = ctx.startWindowMillis;
     windowWidthMillis = ctx.getValue(Context.DAGContext.STREAMING_WINDOW_SIZE_MILLIS);
     checkpointWindowCount = ctx.getValue(Context.DAGContext.CHECKPOINT_WINDOW_COUNT);
 
     fastPublisherSubscriber = ctx.getValue(LogicalPlan.FAST_PUBLISHER_SUBSCRIBER);
 
+    int workerThreads = ctx.getValue(LogicalPlan.OPERATOR_WORKER_THREADS);
+    if (workerThreads > 0) {
+      scheduler = new NodeScheduler(workerThreads);
+    }
+
     Map<Class<?>, Class<? extends StringCodec<?>>> codecs = ctx.getValue(Context.DAGContext.STRING_CODECS);
     StringCodecs.loadConverters(codecs);
 
@@ -227,6 +239,13 @@ public class StreamingContainer extends YarnContainerMain
         // start buffer server, if it was not set externally
         bufferServer = new Server(0, blocksize * 1024 * 1024, blockCount);
         bufferServer.setAuthToken(ctx.getValue(StreamingContainerContext.BUFFER_SERVER_TOKEN));
+        int blockPoolCapacity = ctx.getValue(LogicalPlan.BUFFER_SERVER_BLOCK_POOL_CAPACITY);
+        bufferServer.setBlockPoolCapacity(Math.min(blockCount, blockPoolCapacity));
+        bufferServer.setBulkTransferLimit(ctx.getValue(LogicalPlan.BUFFER_SERVER_BULK_TRANSFER_BYTES));
+        bufferServer.setEventLoopCount(ctx.getValue(LogicalPlan.BUFFER_SERVER_EVENT_LOOPS));
+        if (ctx.getValue(LogicalPlan.BUFFER_SERVER_SHARED_MEMORY)) {
+          bufferServer.setMemoryBudget(blockCount);
+        }
         if (ctx.getValue(Context.DAGContext.BUFFER_SPOOLING)) {
           bufferServer.setSpoolStorage(new DiskStorage());
         }
@@ -339,15 +358,15 @@ public class StreamingContainer extends YarnContainerMain
 
   public synchronized void deactivate()
   {
-    ArrayList<Thread> activeThreads = new ArrayList<>();
+    ArrayList<OperatorContext> activeContexts = new ArrayList<>();
     ArrayList<Integer> activeOperators = new ArrayList<>();
 
     for (Map.Entry<Integer, Node<?>> e : nodes.entrySet()) {
-      Thread t = e.getValue().context.getThread();
-      if (t == null || !t.isAlive()) {
+      OperatorContext context = e.getValue().context;
+      if (!context.isAlive()) {
         disconnectNode(e.getKey());
       } else {
-        activeThreads.add(t);
+        activeContexts.add(context);
         activeOperators.add(e.getKey());
         e.getValue().shutdown();
       }
@@ -355,10 +374,10 @@ public class StreamingContainer extends YarnContainerMain
 
     try {
       Iterator<Integer> iterator = activeOperators.iterator();
-      for (Thread t : activeThreads) {
-        t.join(1000);
-        if (!t.getState().equals(State.TERMINATED)) {
-          t.interrupt();
+      for (OperatorContext context : activeContexts) {
+        context.join(1000);
+        if (!context.isTerminated()) {
+          context.interrupt();
         }
         disconnectNode(iterator.next());
       }
@@ -423,28 +442,43 @@ public class StreamingContainer extends YarnContainerMain
 
     Iterator<String> inputPorts = portMappingDescriptor.inputPorts.keySet().iterator();
     while (inputPorts.hasNext()) {
-      String sinkIdentifier = String.valueOf(nodeid).concat(Component.CONCAT_SEPARATOR).concat(inputPorts.next());
-      ComponentContextPair<Stream, StreamContext> pair = streams.remove(sinkIdentifier);
-      if (pair != null) {
-        if (activeStreams.remove(pair.component) != null) {
-          pair.component.deactivate();
-          eventBus.publish(new StreamDeactivationEvent(pair));
+      disconnectInputStream(String.valueOf(nodeid).concat(Component.CONCAT_SEPARATOR).concat(inputPorts.next()));
+    }
+
+    /* inputs of switches that the node did not apply yet */
+    for (Iterator<PendingInputSwitch> it = inputSwitches.values().iterator(); it.hasNext(); ) {
+      PendingInputSwitch inputSwitch = it.next();
+      if (inputSwitch.nodeId == nodeid) {
+        for (String sinkIdentifier : inputSwitch.addedSinkIds) {
+          disconnectInputStream(sinkIdentifier);
         }
+        it.remove();
+      }
+    }
+  }
 
-        pair.component.teardown();
-        /**
-         * we should also make sure that if this stream is connected to mux stream,
-         * we deregister it from the mux stream to avoid clogged sink problem.
-         */
-        ComponentContextPair<Stream, StreamContext> sourcePair = streams.get(pair.context.getSourceId());
-        if (sourcePair != null) {
-          if (sourcePair == pair) {
-            /* for some reason we had the stream stored against both source and sink identifiers */
-            streams.remove(pair.context.getSourceId());
-          } else {
-            /* the stream was one of the many streams sourced by a muxstream */
-            unregisterSinkFromMux(sourcePair, sinkIdentifier);
-          }
+  private void disconnectInputStream(String sinkIdentifier)
+  {
+    ComponentContextPair<Stream, StreamContext> pair = streams.remove(sinkIdentifier);
+    if (pair != null) {
+      if (activeStreams.remove(pair.component) != null) {
+        pair.component.deactivate();
+        eventBus.publish(new StreamDeactivationEvent(pair));
+      }
+
+      pair.component.teardown();
+      /**
+       * we should also make sure that if this stream is connected to mux stream,
+       * we deregister it from the mux stream to avoid clogged sink problem.
+       */
+      ComponentContextPair<Stream, StreamContext> sourcePair = streams.get(pair.context.getSourceId());
+      if (sourcePair != null) {
+        if (sourcePair == pair) {
+          /* for some reason we had the stream stored against both source and sink identifiers */
+          streams.remove(pair.context.getSourceId());
+        } else {
+          /* the stream was one of the many streams sourced by a muxstream */
+          unregisterSinkFromMux(sourcePair, sinkIdentifier);
         }
       }
     }
@@ -536,14 +570,14 @@ public class StreamingContainer extends YarnContainerMain
       }
     }
 
-    ArrayList<Thread> joinList = new ArrayList<>();
+    ArrayList<OperatorContext> joinList = new ArrayList<>();
     ArrayList<Integer> discoList = new ArrayList<>();
     for (Integer operatorId : nodeList) {
-      Thread t = nodes.get(operatorId).context.getThread();
-      if (t == null || !t.isAlive()) {
+      OperatorContext context = nodes.get(operatorId).context;
+      if (!context.isAlive()) {
         disconnectNode(operatorId);
       } else {
-        joinList.add(t);
+        joinList.add(context);
         discoList.add(operatorId);
         nodes.get(operatorId).shutdown();
       }
@@ -551,10 +585,10 @@ public class StreamingContainer extends YarnContainerMain
 
     try {
       Iterator<Integer> iterator = discoList.iterator();
-      for (Thread t : joinList) {
-        t.join(1000);
-        if (!t.getState().equals(State.TERMINATED)) {
-          t.interrupt();
+      for (OperatorContext context : joinList) {
+        context.join(1000);
+        if (!context.isTerminated()) {
+          context.interrupt();
         }
         disconnectNode(iterator.next());
       }
@@ -574,6 +608,11 @@ public class StreamingContainer extends YarnContainerMain
 
     deactivate();
 
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler = null;
+    }
+
     assert (streams.isEmpty());
 
     eventBus.shutdown();
@@ -641,6 +680,9 @@ public class StreamingContainer extends YarnContainerMain
           logger.warn("Requesting restart due to terminated event loop");
           msg.restartRequested = true;
         }
+        if (bufferServer != null) {
+          msg.bufferServerEventLoopUtilization = bufferServer.getEventLoopUtilization();
+        }
       }
       msg.memoryMBFree = ((int)(Runtime.getRuntime().freeMemory() / (1024 * 1024)));
       garbageCollectorMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
@@ -659,6 +701,7 @@ public class StreamingContainer extends YarnContainerMain
           hb.setNodeId(e.getKey());
           hb.setGeneratedTms(currentTime);
           hb.setIntervalMs(heartbeatIntervalMillis);
+          hb.compactStats = compactHeartbeatStats;
           if (e.getValue().commandResponse.size() > 0) {
             BlockingQueue<StatsListener.OperatorResponse> commandResponse = e.getValue().commandResponse;
             ArrayList<StatsListener.OperatorResponse> response = new ArrayList<>();
@@ -666,16 +709,20 @@ public class StreamingContainer extends YarnContainerMain
               response.add(commandResponse.poll());
             }
             hb.requestResponse = response;
+            if (!inputSwitches.isEmpty()) {
+              completeInputSwitches(response);
+            }
           }
           OperatorContext context = e.getValue().context;
           context.drainStats(hb.getOperatorStatsContainer());
 
-          if (context.getThread() == null || context.getThread().getState() != Thread.State.TERMINATED) {
+          if (!context.isTerminated()) {
             hb.setState(DeployState.ACTIVE);
           } else if (failedNodes.contains(hb.nodeId)) {
             hb.setState(DeployState.FAILED);
           } else {
-            logger.debug("Reporting SHUTDOWN state because thread is {} and failedNodes is {}", context.getThread(), failedNodes);
+            logger.debug("Reporting SHUTDOWN state because thread is {} and failedNodes is {}",
+                context.getWorkUnit() == null ? context.getThread() : context.getWorkUnit(), failedNodes);
             hb.setState(DeployState.SHUTDOWN);
           }
 
@@ -743,12 +790,19 @@ public class StreamingContainer extends YarnContainerMain
         continue;
       }
 
-      Thread thread = node.context.getThread();
-      if (thread == null || !thread.isAlive()) {
+      if (!node.context.isAlive()) {
         if (flagInvalid) {
           logger.warn("Received request with invalid operator id {} ({})", req.getOperatorId(), req);
           req.setDeleted(true);
         }
+      } else if (req instanceof StramToNodeSwitchInputsRequest) {
+        logger.debug("request received: {}", req);
+        try {
+          switchInputs(node, (StramToNodeSwitchInputsRequest)req);
+        } catch (UnknownHostException ex) {
+          logger.error("Cannot switch inputs of {}", node, ex);
+        }
+        req.setDeleted(true);
       } else {
         logger.debug("request received: {}", req);
         OperatorRequest requestExecutor = requestFactory.getRequestExecutor(nodes.get(req.operatorId), req);
@@ -772,8 +826,7 @@ public class StreamingContainer extends YarnContainerMain
       lastCommittedWindowId = rsp.committedWindowId;
       OperatorRequest nr = null;
       for (Entry<Integer, Node<?>> e : nodes.entrySet()) {
-        final Thread thread = e.getValue().context.getThread();
-        if (thread == null || !thread.isAlive()) {
+        if (!e.getValue().context.isAlive()) {
           continue;
         }
 
@@ -874,6 +927,141 @@ public class StreamingContainer extends YarnContainerMain
     activate(operatorMap, newStreams);
   }
 
+  /**
+   * Create the subscriber of an input that is sourced from the buffer server.
+   *
+   * @param finishedWindowId window after which the subscriber reads from the buffer server
+   * @return reservoir of the input
+   */
+  @SuppressWarnings("unchecked")
+  private SweepableReservoir deployBufferServerSubscriber(OperatorDeployInfo ndi, OperatorDeployInfo.InputDeployInfo nidi,
+      long finishedWindowId, Map<String, ComponentContextPair<Stream, StreamContext>> newStreams) throws UnknownHostException
+  {
+    Map.Entry<Integer, StreamCodec<?>> entry = nidi.streamCodecs.entrySet().iterator().next();
+    Integer streamCodecIdentifier = entry.getKey();
+    StreamCodec<?> streamCodec = entry.getValue();
+    String sourceIdentifier = Integer.toString(nidi.sourceNodeId).concat(Component.CONCAT_SEPARATOR).concat(nidi.sourcePortName);
+    String sinkIdentifier = Integer.toString(ndi.id).concat(Component.CONCAT_SEPARATOR).concat(nidi.portName);
+    int queueCapacity = getValue(PortContext.QUEUE_CAPACITY, nidi, ndi);
+
+    StreamContext context = new StreamContext(nidi.declaredStreamId);
+    context.setBufferServerAddress(InetSocketAddress.createUnresolved(nidi.bufferServerHost, nidi.bufferServerPort));
+    InetAddress inetAddress = context.getBufferServerAddress().getAddress();
+    if (inetAddress != null && NetUtils.isLocalAddress(inetAddress)) {
+      context.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nidi.bufferServerPort));
+    }
+    context.put(StreamContext.BUFFER_SERVER_TOKEN, nidi.bufferServerToken);
+    String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
+    context.setPortId(nidi.portName);
+    context.put(StreamContext.CODEC, streamCodec);
+    context.put(StreamContext.EVENT_LOOP, eventloop);
+    String subscriberPolicy = getValue(LogicalPlan.BUFFER_SERVER_SUBSCRIBER_POLICY, nidi, ndi);
+    if (subscriberPolicy != null && ndi.type != OperatorDeployInfo.OperatorType.UNIFIER) {
+      /* the partitions of the port share the group and the buffer server distributes the tuples between them */
+      context.put(StreamContext.SUBSCRIBER_POLICY, subscriberPolicy);
+      context.put(StreamContext.SUBSCRIBER_GROUP, nidi.declaredStreamId + '/' + ndi.name + Component.CONCAT_SEPARATOR + nidi.portName + '/' + connIdentifier);
+    } else {
+      context.setPartitions(nidi.partitionMask, nidi.partitionKeys);
+    }
+    //context.setSourceId(sourceIdentifier);
+    context.setSourceId(connIdentifier);
+    context.setSinkId(sinkIdentifier);
+    context.setFinishedWindowId(finishedWindowId);
+
+    BufferServerSubscriber subscriber = fastPublisherSubscriber
+        ? new FastSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity)
+        : new BufferServerSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity);
+    if (streamCodec instanceof StreamCodecWrapperForPersistance) {
+      subscriber.acquireReservoirForPersistStream(sinkIdentifier, queueCapacity, streamCodec);
+    }
+    SweepableReservoir reservoir = subscriber.acquireReservoir(sinkIdentifier, queueCapacity);
+    newStreams.put(sinkIdentifier, new ComponentContextPair<Stream, StreamContext>(subscriber, context));
+    logger.debug("put input stream {} against key {}", subscriber, sinkIdentifier);
+    return reservoir;
+  }
+
+  /**
+   * Subscribe a running unifier to the inputs from added partitions, the unifier connects them and disconnects the
+   * inputs from the removed partitions at the end of its current window.
+   */
+  private synchronized void switchInputs(Node<?> node, StramToNodeSwitchInputsRequest request) throws UnknownHostException
+  {
+    if (!(node instanceof UnifierNode)) {
+      logger.warn("Cannot switch inputs of {}", node);
+      return;
+    }
+    final OperatorDeployInfo ndi = request.getDeployInfo();
+    massageUnifierDeployInfo(ndi);
+
+    final PendingInputSwitch inputSwitch = new PendingInputSwitch(ndi.id);
+    final Map<String, SweepableReservoir> reservoirs = new HashMap<>();
+    HashMap<String, ComponentContextPair<Stream, StreamContext>> newStreams = new HashMap<>();
+    for (OperatorDeployInfo.InputDeployInfo nidi : ndi.inputs) {
+      reservoirs.put(nidi.portName, deployBufferServerSubscriber(ndi, nidi, ndi.checkpoint.windowId, newStreams));
+    }
+    inputSwitch.addedSinkIds.addAll(newStreams.keySet());
+    for (String portName : request.getRetiredPorts()) {
+      inputSwitch.retiredSinkIds.add(Integer.toString(ndi.id).concat(Component.CONCAT_SEPARATOR).concat(portName));
+    }
+    inputSwitches.put(request.requestId, inputSwitch);
+
+    for (ComponentContextPair<Stream, StreamContext> pair : newStreams.values()) {
+      pair.component.setup(pair.context);
+    }
+    streams.putAll(newStreams);
+    for (ComponentContextPair<Stream, StreamContext> pair : newStreams.values()) {
+      activeStreams.put(pair.component, pair.context);
+      pair.component.activate(pair.context);
+      eventBus.publish(new StreamActivationEvent(pair));
+    }
+
+    final GenericNode unifierNode = (GenericNode)node;
+    final List<String> retiredPorts = request.getRetiredPorts();
+    final long requestId = request.requestId;
+    node.context.request(new OperatorRequest()
+    {
+      @Override
+      public StatsListener.OperatorResponse execute(Operator operator, int operatorId, long windowId)
+      {
+        unifierNode.switchInputPorts(reservoirs, retiredPorts, windowId);
+        return new OperatorResponse(requestId, windowId);
+      }
+
+    });
+  }
+
+  /**
+   * Disconnect the inputs from the removed partitions once the unifiers confirmed that they switched.
+   */
+  private synchronized void completeInputSwitches(List<StatsListener.OperatorResponse> responses)
+  {
+    for (StatsListener.OperatorResponse response : responses) {
+      if (response instanceof OperatorResponse) {
+        PendingInputSwitch inputSwitch = inputSwitches.remove(response.getResponseId());
+        if (inputSwitch != null) {
+          logger.debug("Unifier {} switched inputs after window {}", inputSwitch.nodeId,
+              Codec.getStringWindowId((Long)response.getResponse()));
+          for (String sinkIdentifier : inputSwitch.retiredSinkIds) {
+            disconnectInputStream(sinkIdentifier);
+          }
+        }
+      }
+    }
+  }
+
+  private static class PendingInputSwitch
+  {
+    final int nodeId;
+    final List<String> addedSinkIds = new ArrayList<>();
+    final List<String> retiredSinkIds = new ArrayList<>();
+
+    PendingInputSwitch(int nodeId)
+    {
+      this.nodeId = nodeId;
+    }
+
+  }
+
   public static String getUnifierInputPortName(String portName, int sourceNodeId, String sourcePortName)
   {
     return portName + "(" + sourceNodeId + Component.CONCAT_SEPARATOR + sourcePortName + ")";
@@ -1118,38 +1306,11 @@ public class StreamingContainer extends YarnContainerMain
              * server, so let's make a connection to it.
              */
             assert (nidi.locality != Locality.CONTAINER_LOCAL && nidi.locality != Locality.THREAD_LOCAL);
-
-            StreamContext context = new StreamContext(nidi.declaredStreamId);
-            context.setBufferServerAddress(InetSocketAddress.createUnresolved(nidi.bufferServerHost, nidi.bufferServerPort));
-            InetAddress inetAddress = context.getBufferServerAddress().getAddress();
-            if (inetAddress != null && NetUtils.isLocalAddress(inetAddress)) {
-              context.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nidi.bufferServerPort));
-            }
-            context.put(StreamContext.BUFFER_SERVER_TOKEN, nidi.bufferServerToken);
-            String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
-            context.setPortId(nidi.portName);
-            context.put(StreamContext.CODEC, streamCodec);
-            context.put(StreamContext.EVENT_LOOP, eventloop);
-            context.setPartitions(nidi.partitionMask, nidi.partitionKeys);
-            //context.setSourceId(sourceIdentifier);
-            context.setSourceId(connIdentifier);
-            context.setSinkId(sinkIdentifier);
-            context.setFinishedWindowId(checkpoint.windowId);
-
-            BufferServerSubscriber subscriber = fastPublisherSubscriber
-                ? new FastSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity)
-                : new BufferServerSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity);
-            if (streamCodec instanceof StreamCodecWrapperForPersistance) {
-              subscriber.acquireReservoirForPersistStream(sinkIdentifier, queueCapacity, streamCodec);
-            }
-            SweepableReservoir reservoir = subscriber.acquireReservoir(sinkIdentifier, queueCapacity);
+            SweepableReservoir reservoir = deployBufferServerSubscriber(ndi, nidi, checkpoint.windowId, newStreams);
             if (checkpoint.windowId >= 0) {
               node.connectInputPort(nidi.portName, new WindowIdActivatedReservoir(sinkIdentifier, reservoir, checkpoint.windowId));
             }
             node.connectInputPort(nidi.portName, reservoir);
-
-            newStreams.put(sinkIdentifier, new ComponentContextPair<Stream, StreamContext>(subscriber, context));
-            logger.debug("put input stream {} against key {}", subscriber, sinkIdentifier);
           } else {
             assert (nidi.locality == Locality.CONTAINER_LOCAL || nidi.locality == Locality.THREAD_LOCAL);
             /* we are still dealing with the MuxStream originating at the output of the source port */
@@ -1214,6 +1375,7 @@ public class StreamingContainer extends YarnContainerMain
               } else {
                 pas = new PartitionAwareSinkForPersistence((StreamCodecWrapperForPersistance<Object>)streamCodec, nidi.partitionKeys, nidi.partitionMask, stream);
               }
+              pas.setStreamCodecIdentifier(streamCodecIdentifier);
               ((Stream.MultiSinkCapableStream)pair.component).setSink(sinkIdentifier, pas);
             } else if (nidi.partitionKeys == null || nidi.partitionKeys.isEmpty()) {
               ((Stream.MultiSinkCapableStream)pair.component).setSink(sinkIdentifier, stream);
@@ -1223,6 +1385,7 @@ public class StreamingContainer extends YarnContainerMain
                * come here but if it comes, then we are ready to handle it using the partition aware streams.
                */
               PartitionAwareSink<Object> pas = new PartitionAwareSink<>(streamCodec == null ? nonSerializingStreamCodec : (StreamCodec<Object>)streamCodec, nidi.partitionKeys, nidi.partitionMask, stream);
+              pas.setStreamCodecIdentifier(streamCodecIdentifier);
               ((Stream.MultiSinkCapableStream)pair.component).setSink(sinkIdentifier, pas);
             }
 
@@ -1350,6 +1513,130 @@ public class StreamingContainer extends YarnContainerMain
     }
   }
 
+  /**
+   * Sets up a node along with the nodes that are deployed thread local to it, runs them and tears them down once they
+   * stop. The nodes run either in a thread of their own or in the workers of the {@link NodeScheduler}.
+   */
+  private class NodeRunner implements Runnable, NodeScheduler.Task
+  {
+    private final OperatorDeployInfo ndi;
+    private final Map<Integer, OperatorDeployInfo> nodeMap;
+    private final CountDownLatch signal;
+    private final HashSet<OperatorDeployInfo> setOperators = new HashSet<>();
+    private OperatorDeployInfo currentdi;
+
+    NodeRunner(OperatorDeployInfo ndi, Map<Integer, OperatorDeployInfo> nodeMap, CountDownLatch signal)
+    {
+      this.ndi = ndi;
+      this.nodeMap = nodeMap;
+      this.signal = signal;
+    }
+
+    @Override
+    @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
+    public void run()
+    {
+      try {
+        start();
+        nodes.get(ndi.id).run(); /* this is a blocking call */
+      } catch (Throwable cause) {
+        failed(cause);
+      } finally {
+        finish();
+      }
+    }
+
+    @Override
+    public void start() throws Exception
+    {
+      currentdi = ndi;
+
+      /* primary operator initialization */
+      setupNode(currentdi);
+      setOperators.add(currentdi);
+
+      /* lets go for OiO operator initialization */
+      List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
+      if (oioNodeIdList != null) {
+        for (Integer oioNodeId : oioNodeIdList) {
+          currentdi = nodeMap.get(oioNodeId);
+          setupNode(currentdi);
+          setOperators.add(currentdi);
+        }
+      }
+
+      currentdi = null;
+
+      for (int i = setOperators.size(); i-- > 0; ) {
+        signal.countDown();
+      }
+    }
+
+    @Override
+    public void failed(Throwable cause)
+    {
+      if (cause instanceof Error) {
+        int[] operators;
+        if (currentdi == null) {
+          logger.error("Voluntary container termination due to an error in operator set {}.", setOperators, cause);
+          operators = new int[setOperators.size()];
+          int i = 0;
+          for (Iterator<OperatorDeployInfo> it = setOperators.iterator(); it.hasNext(); i++) {
+            operators[i] = it.next().id;
+          }
+        } else {
+          logger.error("Voluntary container termination due to an error in operator {}.", currentdi, cause);
+          operators = new int[]{currentdi.id};
+        }
+        umbilical.reportError(containerId, operators, "Voluntary container termination due to an error. " + ExceptionUtils.getStackTrace(cause));
+        System.exit(1);
+      } else if (currentdi == null) {
+        failedNodes.add(ndi.id);
+        logger.error("Operator set {} stopped running due to an exception.", setOperators, cause);
+        int[] operators = new int[]{ndi.id};
+        umbilical.reportError(containerId, operators, "Stopped running due to an exception. " + ExceptionUtils.getStackTrace(cause));
+      } else {
+        failedNodes.add(currentdi.id);
+        logger.error("Abandoning deployment of operator {} due to setup failure.", currentdi, cause);
+        int[] operators = new int[]{currentdi.id};
+        umbilical.reportError(containerId, operators, "Abandoning deployment due to setup failure. " + ExceptionUtils.getStackTrace(cause));
+      }
+    }
+
+    @Override
+    public void finish()
+    {
+      if (setOperators.contains(ndi)) {
+        try {
+          teardownNode(ndi);
+        } catch (Exception ex) {
+          failedNodes.add(ndi.id);
+          logger.error("Shutdown of operator {} failed due to an exception.", ndi, ex);
+        }
+      } else {
+        signal.countDown();
+      }
+
+      List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
+      if (oioNodeIdList != null) {
+        for (Integer oioNodeId : oioNodeIdList) {
+          OperatorDeployInfo oiodi = nodeMap.get(oioNodeId);
+          if (setOperators.contains(oiodi)) {
+            try {
+              teardownNode(oiodi);
+            } catch (Exception ex) {
+              failedNodes.add(oiodi.id);
+              logger.error("Shutdown of operator {} failed due to an exception.", oiodi, ex);
+            }
+          } else {
+            signal.countDown();
+          }
+        }
+      }
+    }
+
+  }
+
   public synchronized void activate(final Map<Integer, OperatorDeployInfo> nodeMap, Map<String, ComponentContextPair<Stream, StreamContext>> newStreams)
   {
     for (ComponentContextPair<Stream, StreamContext> pair : newStreams.values()) {
@@ -1376,95 +1663,14 @@ public class StreamingContainer extends YarnContainerMain
           .append(':')
           .append(node.getOperator().getClass().getSimpleName())
           .toString();
-      final Thread thread = new Thread(name)
-      {
-        @Override
-        public void run()
-        {
-          HashSet<OperatorDeployInfo> setOperators = new HashSet<>();
-          OperatorDeployInfo currentdi = ndi;
-          try {
-            /* primary operator initialization */
-            setupNode(currentdi);
-            setOperators.add(currentdi);
-
-            /* lets go for OiO operator initialization */
-            List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
-            if (oioNodeIdList != null) {
-              for (Integer oioNodeId : oioNodeIdList) {
-                currentdi = nodeMap.get(oioNodeId);
-                setupNode(currentdi);
-                setOperators.add(currentdi);
-              }
-            }
-
-            currentdi = null;
-
-            for (int i = setOperators.size(); i-- > 0; ) {
-              signal.countDown();
-            }
-
-            node.run(); /* this is a blocking call */
-          } catch (Error error) {
-            int[] operators;
-            if (currentdi == null) {
-              logger.error("Voluntary container termination due to an error in operator set {}.", setOperators, error);
-              operators = new int[setOperators.size()];
-              int i = 0;
-              for (Iterator<OperatorDeployInfo> it = setOperators.iterator(); it.hasNext(); i++) {
-                operators[i] = it.next().id;
-              }
-            } else {
-              logger.error("Voluntary container termination due to an error in operator {}.", currentdi, error);
-              operators = new int[]{currentdi.id};
-            }
-            umbilical.reportError(containerId, operators, "Voluntary container termination due to an error. " + ExceptionUtils.getStackTrace(error));
-            System.exit(1);
-          } catch (Exception ex) {
-            if (currentdi == null) {
-              failedNodes.add(ndi.id);
-              logger.error("Operator set {} stopped running due to an exception.", setOperators, ex);
-              int[] operators = new int[]{ndi.id};
-              umbilical.reportError(containerId, operators, "Stopped running due to an exception. " + ExceptionUtils.getStackTrace(ex));
-            } else {
-              failedNodes.add(currentdi.id);
-              logger.error("Abandoning deployment of operator {} due to setup failure.", currentdi, ex);
-              int[] operators = new int[]{currentdi.id};
-              umbilical.reportError(containerId, operators, "Abandoning deployment due to setup failure. " + ExceptionUtils.getStackTrace(ex));
-            }
-          } finally {
-            if (setOperators.contains(ndi)) {
-              try {
-                teardownNode(ndi);
-              } catch (Exception ex) {
-                failedNodes.add(ndi.id);
-                logger.error("Shutdown of operator {} failed due to an exception.", ndi, ex);
-              }
-            } else {
-              signal.countDown();
-            }
-
-            List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
-            if (oioNodeIdList != null) {
-              for (Integer oioNodeId : oioNodeIdList) {
-                OperatorDeployInfo oiodi = nodeMap.get(oioNodeId);
-                if (setOperators.contains(oiodi)) {
-                  try {
-                    teardownNode(oiodi);
-                  } catch (Exception ex) {
-                    failedNodes.add(oiodi.id);
-                    logger.error("Shutdown of operator {} failed due to an exception.", oiodi, ex);
-                  }
-                } else {
-                  signal.countDown();
-                }
-              }
-            }
-          }
-        }
-      };
-      node.context.setThread(thread);
-      thread.start();
+      final NodeRunner runner = new NodeRunner(ndi, nodeMap, signal);
+      if (scheduler == null) {
+        final Thread thread = new Thread(runner, name);
+        node.context.setThread(thread);
+        thread.start();
+      } else {
+        node.context.setWorkUnit(scheduler.schedule(node, runner));
+      }
     }
 
     /**
@@ -90,6 +90,7 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
 
     queue.put(new ResetWindowTuple(baseSeconds | windowWidthMillis));
     queue.put(new Tuple(MessageType.BEGIN_WINDOW, baseSeconds | windowId));
+    signalConsumers();
   }
 
   /**
@@ -110,6 +111,7 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
     } else {
       advanceWindow();
       queue.put(new Tuple(MessageType.BEGIN_WINDOW, baseSeconds | windowId));
+      signalConsumers();
     }
   }
 
@@ -32,7 +32,7 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * @since 0.3.2
  */
-public class WindowIdActivatedReservoir implements SweepableReservoir
+public class WindowIdActivatedReservoir implements SweepableReservoir, NodeScheduler.SignallingReservoir
 {
   private Sink<Object> sink;
   private final String identifier;
@@ -106,6 +106,14 @@ public class WindowIdActivatedReservoir implements SweepableReservoir
     return 0;
   }
 
+  @Override
+  public void consumed(NodeScheduler.WorkUnit consumer)
+  {
+    if (reservoir instanceof NodeScheduler.SignallingReservoir) {
+      ((NodeScheduler.SignallingReservoir)reservoir).consumed(consumer);
+    }
+  }
+
   @Override
   public String toString()
   {
@@ -155,6 +155,99 @@ public class LogicalPlan implements Serializable, DAG
    * Then it can be moved back to DAGContext.
    */
   public static Attribute<Boolean> FAST_PUBLISHER_SUBSCRIBER = new Attribute<>(false);
+  /**
+   * Maximum number of free memory blocks the buffer server keeps for reuse across publishers. Blocks of purged windows
+   * are handed to the next publisher instead of being garbage collected. 0 disables pooling.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_BLOCK_POOL_CAPACITY = new Attribute<>(0);
+  /**
+   * Maximum number of bytes of contiguous tuples the buffer server sends to a subscriber as a single range when the
+   * subscriber does not filter partitions. Speeds up the replay of retained data after recovery. 0 disables it.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_BULK_TRANSFER_BYTES = new Attribute<>(0);
+  /**
+   * Number of event loops the buffer server of a container runs. Publishers and the subscribers of their streams are
+   * distributed across the loops by the publisher identifier, so that containers with many output streams use more
+   * than one thread to receive and deliver the data.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_EVENT_LOOPS = new Attribute<>(1);
+  /**
+   * Whether the publishers of the buffer server of a container share its memory blocks. By default each publisher
+   * keeps the blocks of {@link com.datatorrent.api.Context.ContainerContext#BUFFER_SERVER_MB} in memory before it
+   * spools. When shared, the blocks bound the memory of all publishers together and each publisher gets a share that
+   * follows its write rate and the lag of its subscribers.
+   */
+  public static Attribute<Boolean> BUFFER_SERVER_SHARED_MEMORY = new Attribute<>(false);
+  /**
+   * Number of worker threads that run the operators of a container. With 0 every operator runs in a thread of its
+   * own. Otherwise the operators share the workers, an operator occupies a worker only while it has input to process,
+   * so that containers with many mostly idle operators need fewer threads.
+   */
+  public static Attribute<Integer> OPERATOR_WORKER_THREADS = new Attribute<>(0);
+  /**
+   * Policy the buffer server uses to distribute the tuples of a stream between the partitions of an input port. When
+   * set, the partitions of the port share one subscriber group instead of filtering by partition keys and each tuple
+   * is delivered to only one of them. "LeastBacklog" sends each tuple to the partition with the least backlog, a slow
+   * partition stops receiving tuples instead of stalling the others. Only for streams that tolerate delivery to any
+   * partition and for operators that do not rely on replay of the same tuples after recovery.
+   */
+  public static Attribute<String> BUFFER_SERVER_SUBSCRIBER_POLICY = new Attribute<>((String)null,
+      new StringCodec.String2String());
+  /**
+   * Number of windows of end window stats processed between two updates of the critical path. Higher values reduce
+   * the CPU the application master spends on large physical plans.
+   */
+  public static Attribute<Integer> CRITICAL_PATH_SAMPLING_WINDOWS = new Attribute<>(1);
+  /**
+   * Maximum time in milliseconds a change of the physical plan may wait in the write ahead log for other changes to
+   * share its flush. Every change is flushed before it is applied, with 0 only changes recorded concurrently share a
+   * flush. Positive values reduce the flushes further at the cost of a longer wait for each change.
+   */
+  public static Attribute<Long> JOURNAL_MAX_FLUSH_LATENCY_MILLIS = new Attribute<>(0L);
+  /**
+   * Compress the snapshot of the physical plan written by the application master for recovery. Smaller snapshots
+   * are faster to write and to read on application master restart when the file system is slower than deflate.
+   */
+  public static Attribute<Boolean> RECOVERY_SNAPSHOT_COMPRESSION = new Attribute<>(false);
+  /**
+   * Send the operator stats of the heartbeat in a compact encoding with port ids replaced by indexes and the numeric
+   * stats of all windows delta encoded. Reduces the heartbeat size and the time the application master spends on
+   * deserialization with small windows and many operators.
+   */
+  public static Attribute<Boolean> HEARTBEAT_COMPACT_STATS = new Attribute<>(false);
+  /**
+   * Repartition operators without redeploying the downstream operators. The unifiers of the repartitioned operator
+   * keep running and switch from the removed to the new partitions at a window boundary, the removed partitions are
+   * undeployed once the unifiers switched. Applies to operators without parallel partitions or sliding windows whose
+   * streams are neither container nor thread local, all other repartitioning redeploys the downstream operators.
+   */
+  public static Attribute<Boolean> LIVE_REPARTITION = new Attribute<>(false);
+  /**
+   * Attribute of output port, target end window latency in milliseconds of the unifiers of the port. When set, the
+   * fan-in of the unifiers is adapted at runtime to their measured tuple rate and latency, starting from
+   * {@link com.datatorrent.api.Context.PortContext#UNIFIER_LIMIT}. Cascading levels are added when a unifier exceeds
+   * the latency and removed again when all unifiers stay well below it.
+   */
+  public static Attribute<Integer> UNIFIER_LATENCY_MILLIS = new Attribute<>(0);
+  /**
+   * Number of recorded tuples buffered between the operator thread and a background writer of tuple recordings. With
+   * 0 the operator thread writes the recordings as text. Otherwise the background writer writes binary part files
+   * with an index of the window offsets, tuples are dropped from the recording when the writer falls behind.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_QUEUE_CAPACITY = new Attribute<>(0);
+  /**
+   * Records 1 in the given number of tuples of each recorded port.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_SAMPLE_RATE = new Attribute<>(1);
+  /**
+   * Maximum number of tuples recorded per window and port, 0 records all tuples of the window.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_SAMPLES_PER_WINDOW = new Attribute<>(0);
+  /**
+   * Number of threads that call the partitioners of the logical operators when the physical plan is built. Operators
+   * that are partitioned in parallel with an upstream operator are always partitioned with the plan construction.
+   */
+  public static Attribute<Integer> PARTITIONING_THREADS = new Attribute<>(1);
   public static Attribute<Long> HDFS_TOKEN_LIFE_TIME = new Attribute<>(604800000L);
   public static Attribute<Long> RM_TOKEN_LIFE_TIME = new Attribute<>(YarnConfiguration.DELEGATION_TOKEN_MAX_LIFETIME_DEFAULT);
   public static Attribute<String> KEY_TAB_FILE = new Attribute<>((String)null, new StringCodec.String2String());
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.plan.physical;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+import com.datatorrent.stram.plan.physical.PTOperator.PTInput;
+
+/**
+ * Switch of a running unifier from the partitions removed by a repartitioning to the partitions added by it.
+ * <p>
+ * The switch is registered with the execution context before the plan is modified, from then on the removed
+ * partitions are kept running until the unifier confirms that it stopped reading from them at a window boundary.
+ * Once the plan change is deployed the switch becomes ready and is sent to the container of the unifier as soon as
+ * the unifier and the added partitions are active.
+ *
+ * @see com.datatorrent.stram.plan.logical.LogicalPlan#LIVE_REPARTITION
+ */
+public class InputSwitch
+{
+  public enum State
+  {
+    /**
+     * Registered while the plan is modified.
+     */
+    PENDING,
+    /**
+     * The plan change was deployed, the switch can be sent once the operators are active.
+     */
+    READY,
+    /**
+     * The switch was sent to the container of the unifier.
+     */
+    SENT,
+    /**
+     * The unifier switched its inputs.
+     */
+    DONE,
+    /**
+     * The switch is void, the unifier is redeployed or was removed.
+     */
+    CANCELLED
+  }
+
+  private final PTOperator operator;
+  private final List<PTInput> previousInputs;
+  private final Set<PTOperator> previousSources = Sets.newHashSet();
+  private final Set<PTOperator> retiredSources = Sets.newHashSet();
+  private volatile State state = State.PENDING;
+  private long requestId;
+
+  /**
+   * @param operator unifier that switches its inputs
+   * @param removedPartitions partitions removed from the plan
+   */
+  public InputSwitch(PTOperator operator, Collection<PTOperator> removedPartitions)
+  {
+    this.operator = operator;
+    this.previousInputs = new ArrayList<>(operator.getInputs());
+    for (PTInput input : previousInputs) {
+      previousSources.add(input.source.source);
+      if (removedPartitions.contains(input.source.source)) {
+        retiredSources.add(input.source.source);
+      }
+    }
+  }
+
+  public PTOperator getOperator()
+  {
+    return operator;
+  }
+
+  /**
+   * @return inputs of the unifier in the plan that were not inputs before the repartitioning
+   */
+  public List<PTInput> getAddedInputs()
+  {
+    List<PTInput> added = new ArrayList<>();
+    for (PTInput input : operator.getInputs()) {
+      if (!previousSources.contains(input.source.source)) {
+        added.add(input);
+      }
+    }
+    return added;
+  }
+
+  /**
+   * @return inputs of the unifier before the repartitioning that are sourced by removed partitions
+   */
+  public List<PTInput> getRetiredInputs()
+  {
+    List<PTInput> retired = new ArrayList<>();
+    for (PTInput input : previousInputs) {
+      if (retiredSources.contains(input.source.source)) {
+        retired.add(input);
+      }
+    }
+    return retired;
+  }
+
+  public Set<PTOperator> getRetiredSources()
+  {
+    return Collections.unmodifiableSet(retiredSources);
+  }
+
+  /**
+   * @param operatorId
+   * @return whether the operator is a removed partition that the unifier still reads from
+   */
+  public boolean isRetiring(int operatorId)
+  {
+    if (!isPending()) {
+      return false;
+    }
+    for (PTOperator oper : retiredSources) {
+      if (oper.getId() == operatorId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return whether the switch is still to be done
+   */
+  public boolean isPending()
+  {
+    State s = state;
+    return s != State.CANCELLED && s != State.DONE;
+  }
+
+  public State getState()
+  {
+    return state;
+  }
+
+  public void setState(State state)
+  {
+    this.state = state;
+  }
+
+  public long getRequestId()
+  {
+    return requestId;
+  }
+
+  public void setRequestId(long requestId)
+  {
+    this.requestId = requestId;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "InputSwitch{" + operator + " retired=" + retiredSources + " state=" + state + '}';
+  }
+
+}
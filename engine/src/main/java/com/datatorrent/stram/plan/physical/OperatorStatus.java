@@ -54,6 +54,10 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
     public final TimedMovingAverageLong tuplesPMSMA;
     public final TimedMovingAverageLong bufferServerBytesPMSMA;
     public final MovingAverageLong queueSizeMA;
+    /**
+     * End window timestamp of the last reported window, 0 before the first report.
+     */
+    public long lastEndWindowTimestamp;
 
     public PortStatus()
     {
@@ -34,8 +34,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -69,6 +74,7 @@ import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.stram.Journal.Recoverable;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.StramEvent;
@@ -132,11 +138,14 @@ public class PhysicalPlan implements Serializable
   final Set<PTOperator> deployOpers = Sets.newHashSet();
   final Map<PTOperator, Operator> newOpers = Maps.newHashMap();
   final Set<PTOperator> undeployOpers = Sets.newHashSet();
+  private final List<InputSwitch> inputSwitches = new ArrayList<>();
   final ConcurrentMap<Integer, PTOperator> allOperators = Maps.newConcurrentMap();
   private final ConcurrentMap<OperatorMeta, OperatorMeta> pendingRepartition = Maps.newConcurrentMap();
 
   private final AtomicInteger strCodecIdSequence = new AtomicInteger();
   private final Map<StreamCodec<?>, Integer> streamCodecIdentifiers = Maps.newHashMap();
+  // partitions defined in parallel while the initial plan is built
+  private transient Map<OperatorMeta, Future<Collection<Partition<Operator>>>> definedPartitions;
 
   private PTContainer getContainer(int index)
   {
@@ -188,6 +197,13 @@ public class PhysicalPlan implements Serializable
     void writeJournal(Recoverable operation);
 
     void addOperatorRequest(PTOperator oper, StramToNodeRequest request);
+
+    /**
+     * Register unifiers that switch from removed to added partitions instead of being redeployed. Called before the
+     * plan is modified, the removed partitions must not be undeployed before the unifiers switched.
+     * @param switches
+     */
+    void switchInputs(Collection<InputSwitch> switches);
   }
 
   private static class StatsListenerProxy implements StatsListener, Serializable
@@ -352,6 +368,11 @@ public class PhysicalPlan implements Serializable
       pendingNodes.push(n);
     }
 
+    int partitioningThreads = dag.getValue(LogicalPlan.PARTITIONING_THREADS);
+    if (partitioningThreads > 1) {
+      definePartitions(partitioningThreads);
+    }
+
     while (!pendingNodes.isEmpty()) {
       OperatorMeta n = pendingNodes.pop();
 
@@ -378,6 +399,7 @@ public class PhysicalPlan implements Serializable
         addLogicalOperator(n);
       }
     }
+    definedPartitions = null;
 
     // Add inlinePrefs and localityPrefs for affinity rules
     AffinityRulesSet affinityRuleSet = dag.getAttributes().get(DAGContext.AFFINITY_RULES_SET);
@@ -501,6 +523,50 @@ public class PhysicalPlan implements Serializable
     this.undeployOpers.clear();
   }
 
+  /**
+   * Call the partitioners of the logical operators that are not partitioned in parallel with an upstream operator
+   * concurrently. The partitions are collected in {@link #initPartitioning(PMapping, int)} when the operators are
+   * added to the plan in topological order.
+   *
+   * @param threads number of partitioners called at a time
+   */
+  private void definePartitions(int threads)
+  {
+    definedPartitions = new HashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new NameableThreadFactory("Partitioner"));
+    try {
+      for (final OperatorMeta om : dag.getAllOperators()) {
+        final Partitioner<Operator> partitioner = getPartitioner(om);
+        if (partitioner == null || isPartitionParallel(om)) {
+          continue;
+        }
+        definedPartitions.put(om, executor.submit(new Callable<Collection<Partition<Operator>>>()
+        {
+          @Override
+          public Collection<Partition<Operator>> call() throws Exception
+          {
+            Collection<Partition<Operator>> collection = new ArrayList<>(1);
+            collection.add(new DefaultPartition<>(om.getOperator()));
+            return partitioner.definePartitions(collection, new PartitioningContextImpl(new PMapping(om), 0));
+          }
+        }));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static boolean isPartitionParallel(OperatorMeta om)
+  {
+    for (Map.Entry<InputPortMeta, StreamMeta> e : om.getInputStreams().entrySet()) {
+      if (!(e.getValue().getSource().getOperatorMeta().getOperator() instanceof Operator.DelayOperator)
+          && e.getKey().getValue(PortContext.PARTITION_PARALLEL).equals(true)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void setAntiAffinityForContainers(LogicalPlan dag, Collection<AffinityRule> affinityRules, Map<PTOperator, PTContainer> operatorContainerMap)
   {
     for (AffinityRule rule : affinityRules) {
@@ -739,17 +805,25 @@ public class PhysicalPlan implements Serializable
     Operator operator = m.logicalOperator.getOperator();
     Collection<Partition<Operator>> partitions;
 
-    @SuppressWarnings("unchecked")
-    Partitioner<Operator> partitioner = m.logicalOperator.getAttributes().contains(OperatorContext.PARTITIONER)
-        ? (Partitioner<Operator>)m.logicalOperator.getValue(OperatorContext.PARTITIONER)
-        : operator instanceof Partitioner ? (Partitioner<Operator>)operator : null;
+    Partitioner<Operator> partitioner = getPartitioner(m.logicalOperator);
 
     Collection<Partition<Operator>> collection = new ArrayList<>(1);
     DefaultPartition<Operator> firstPartition = new DefaultPartition<>(operator);
     collection.add(firstPartition);
 
     if (partitioner != null) {
-      partitions = partitioner.definePartitions(collection, new PartitioningContextImpl(m, partitionCnt));
+      Future<Collection<Partition<Operator>>> defined = (definedPartitions == null) ? null : definedPartitions.remove(m.logicalOperator);
+      if (defined != null) {
+        try {
+          partitions = defined.get();
+        } catch (ExecutionException e) {
+          throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+          throw Throwables.propagate(e);
+        }
+      } else {
+        partitions = partitioner.definePartitions(collection, new PartitioningContextImpl(m, partitionCnt));
+      }
 
       if (partitions == null || partitions.isEmpty()) {
         throw new IllegalStateException("Partitioner returns null or empty.");
@@ -839,11 +913,16 @@ public class PhysicalPlan implements Serializable
 
   private Partitioner<Operator> getPartitioner(PMapping currentMapping)
   {
-    Operator operator = currentMapping.logicalOperator.getOperator();
+    return getPartitioner(currentMapping.logicalOperator);
+  }
+
+  private static Partitioner<Operator> getPartitioner(OperatorMeta logicalOperator)
+  {
+    Operator operator = logicalOperator.getOperator();
     Partitioner<Operator> partitioner = null;
-    if (currentMapping.logicalOperator.getAttributes().contains(OperatorContext.PARTITIONER)) {
+    if (logicalOperator.getAttributes().contains(OperatorContext.PARTITIONER)) {
       @SuppressWarnings("unchecked")
-      Partitioner<Operator> tmp = (Partitioner<Operator>)currentMapping.logicalOperator.getValue(OperatorContext.PARTITIONER);
+      Partitioner<Operator> tmp = (Partitioner<Operator>)logicalOperator.getValue(OperatorContext.PARTITIONER);
       partitioner = tmp;
     } else if (operator instanceof Partitioner) {
       @SuppressWarnings("unchecked")
@@ -908,11 +987,19 @@ public class PhysicalPlan implements Serializable
 
     // remaining entries represent deprecated partitions
     this.undeployOpers.addAll(mainPC.currentPartitionMap.values());
-    // downstream dependencies require redeploy, resolve prior to modifying plan
-    Set<PTOperator> deps = this.getDependents(mainPC.currentPartitionMap.values());
-    this.undeployOpers.addAll(deps);
-    // dependencies need redeploy, except operators excluded in remove
-    this.deployOpers.addAll(deps);
+    List<InputSwitch> switches = getInputSwitches(currentMapping, mainPC, addedPartitions);
+    if (switches == null) {
+      // downstream dependencies require redeploy, resolve prior to modifying plan
+      Set<PTOperator> deps = this.getDependents(mainPC.currentPartitionMap.values());
+      this.undeployOpers.addAll(deps);
+      // dependencies need redeploy, except operators excluded in remove
+      this.deployOpers.addAll(deps);
+    } else {
+      // the unifiers switch to the new partitions, deprecated partitions are kept until they did
+      LOG.debug("Switching inputs of {}", switches);
+      ctx.switchInputs(switches);
+      this.inputSwitches.addAll(switches);
+    }
 
     // process parallel partitions before removing operators from the plan
     LinkedHashMap<PMapping, RepartitionContext> partitionContexts = Maps.newLinkedHashMap();
@@ -1043,6 +1130,135 @@ public class PhysicalPlan implements Serializable
     partitioner.partitioned(mainPC.operatorIdToPartition);
   }
 
+  /**
+   * Determine the unifiers that can switch from the deprecated to the new partitions without redeploying the
+   * downstream operators.
+   *
+   * @return the switches of the unifiers or null when the downstream operators need to be redeployed
+   */
+  private List<InputSwitch> getInputSwitches(PMapping currentMapping, RepartitionContext mainPC,
+      List<Partition<Operator>> addedPartitions)
+  {
+    OperatorMeta om = currentMapping.logicalOperator;
+    if (!dag.getValue(LogicalPlan.LIVE_REPARTITION) || !currentMapping.parallelPartitions.isEmpty()) {
+      return null;
+    }
+    if (mainPC.currentPartitions.size() < 2 || mainPC.newPartitions.size() < 2) {
+      // unifiers are added or removed
+      return null;
+    }
+    if (addedPartitions.isEmpty() && mainPC.currentPartitionMap.isEmpty()) {
+      return null;
+    }
+    if (om.getAttributes().contains(OperatorContext.SLIDE_BY_WINDOW_COUNT)) {
+      return null;
+    }
+    for (Map.Entry<InputPortMeta, StreamMeta> e : om.getInputStreams().entrySet()) {
+      if (e.getKey().getValue(PortContext.PARTITION_PARALLEL) || e.getValue().getLocality() == Locality.THREAD_LOCAL
+          || e.getValue().getLocality() == Locality.CONTAINER_LOCAL) {
+        return null;
+      }
+    }
+    if (!getDependentPersistOperators(currentMapping.partitions).isEmpty()) {
+      return null;
+    }
+
+    Set<PTOperator> unifiers = new LinkedHashSet<>();
+    for (Map.Entry<OutputPortMeta, StreamMeta> e : om.getOutputStreams().entrySet()) {
+      StreamMeta s = e.getValue();
+      StreamMapping m = currentMapping.outputStreams.get(e.getKey());
+      if (m == null || s.getLocality() == Locality.THREAD_LOCAL || s.getLocality() == Locality.CONTAINER_LOCAL
+          || s.getPersistOperator() != null || !s.sinkSpecificPersistOperatorMap.isEmpty()
+          || !m.cascadingUnifiers.isEmpty() || !m.slidingUnifiers.isEmpty()) {
+        return null;
+      }
+      int limit = m.getUnifierLimit();
+      if (limit > 1 && mainPC.newPartitions.size() > limit) {
+        // cascading unifiers are set up
+        return null;
+      }
+      if (m.finalUnifier != null) {
+        unifiers.add(m.finalUnifier);
+      }
+      for (InputPortMeta ipm : s.getSinks()) {
+        for (PTOperator doper : getOperators(ipm.getOperatorWrapper())) {
+          PTOperator unifier = doper.upstreamMerge.get(ipm);
+          if (unifier != null) {
+            unifiers.add(unifier);
+          }
+        }
+      }
+    }
+    if (unifiers.isEmpty()) {
+      return null;
+    }
+
+    List<InputSwitch> switches = new ArrayList<>(unifiers.size());
+    for (PTOperator unifier : unifiers) {
+      if (unifier.getState() != PTOperator.State.ACTIVE || isSwitchingInputs(unifier)) {
+        return null;
+      }
+      switches.add(new InputSwitch(unifier, mainPC.currentPartitionMap.values()));
+    }
+    return switches;
+  }
+
+  private boolean isSwitchingInputs(PTOperator unifier)
+  {
+    for (InputSwitch s : this.inputSwitches) {
+      if (s.getOperator() == unifier && s.isPending()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Validate the input switches of the plan change before it is deployed. A switch is cancelled when the unifier was
+   * removed or replaced or when an added partition shares the container with it, the unifier and its downstream
+   * operators are redeployed instead.
+   *
+   * @return the unifiers that switch their inputs with the plan change
+   */
+  private List<PTOperator> prepareInputSwitches()
+  {
+    List<PTOperator> unifiers = new ArrayList<>();
+    Set<PTOperator> cancelled = new LinkedHashSet<>();
+    for (Iterator<InputSwitch> it = this.inputSwitches.iterator(); it.hasNext(); ) {
+      InputSwitch s = it.next();
+      if (!s.isPending()) {
+        it.remove();
+        continue;
+      }
+      if (s.getState() != InputSwitch.State.PENDING) {
+        // registered by a previous plan change
+        continue;
+      }
+      PTOperator unifier = s.getOperator();
+      boolean valid = allOperators.get(unifier.getId()) == unifier && !newOpers.containsKey(unifier);
+      for (PTInput input : valid ? s.getAddedInputs() : Collections.<PTInput>emptyList()) {
+        PTOperator source = input.source.source;
+        if (!newOpers.containsKey(source) || source.getContainer() == unifier.getContainer()) {
+          valid = false;
+        }
+      }
+      if (valid) {
+        s.setState(InputSwitch.State.READY);
+        unifiers.add(unifier);
+      } else {
+        LOG.debug("Cancelling {}", s);
+        s.setState(InputSwitch.State.CANCELLED);
+        if (allOperators.get(unifier.getId()) == unifier) {
+          getDependents(unifier, cancelled);
+        }
+        it.remove();
+      }
+    }
+    this.undeployOpers.addAll(cancelled);
+    this.deployOpers.addAll(cancelled);
+    return unifiers;
+  }
+
   private void updateStreamMappings(PMapping m)
   {
     for (Map.Entry<OutputPortMeta, StreamMeta> opm : m.logicalOperator.getOutputStreams().entrySet()) {
@@ -1122,9 +1338,12 @@ public class PhysicalPlan implements Serializable
     Set<PTContainer> releaseContainers = Sets.newHashSet();
     assignContainers(newContainers, releaseContainers);
     updatePartitionsInfoForPersistOperator(this.dag);
+    List<PTOperator> switchingUnifiers = prepareInputSwitches();
 
     // redeploy dependencies of the new operators excluding the new operators themselves
     Set<PTOperator> ndeps = getDependents(this.newOpers.keySet());
+    // unifiers that switch to the new operators are not redeployed
+    ndeps.removeAll(getDependents(switchingUnifiers));
     this.undeployOpers.addAll(ndeps);
     this.undeployOpers.removeAll(this.newOpers.keySet());
 
@@ -1230,7 +1449,11 @@ public class PhysicalPlan implements Serializable
       LOG.debug("Writing activation checkpoint {} {} {}", checkpoint, oper, oo);
       long windowId = oper.isOperatorStateLess() ? Stateless.WINDOW_ID : checkpoint.windowId;
       StorageAgent agent = oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT);
-      agent.save(oo, oper.id, windowId);
+      if (agent instanceof StorageAgent.IncrementalStorageAgent) {
+        ((StorageAgent.IncrementalStorageAgent)agent).saveSnapshot(oo, oper.id, windowId);
+      } else {
+        agent.save(oo, oper.id, windowId);
+      }
       if (agent instanceof AsyncFSStorageAgent) {
         AsyncFSStorageAgent asyncFSStorageAgent = (AsyncFSStorageAgent)agent;
         if (!asyncFSStorageAgent.isSyncCheckpoint()) {
@@ -1268,11 +1491,8 @@ public class PhysicalPlan implements Serializable
     if (oper.recoveryCheckpoint == null && oper.checkpoints.isEmpty()) {
       Checkpoint activationCheckpoint = Checkpoint.INITIAL_CHECKPOINT;
       for (PTInput input : oper.inputs) {
-        PTOperator sourceOper = input.source.source;
-        if (sourceOper.checkpoints.isEmpty()) {
-          getActivationCheckpoint(sourceOper);
-        }
-        activationCheckpoint = Checkpoint.max(activationCheckpoint, sourceOper.recoveryCheckpoint);
+        // the source may be a new operator as well, such as a unifier of a new cascading level
+        activationCheckpoint = Checkpoint.max(activationCheckpoint, getActivationCheckpoint(input.source.source));
       }
       return activationCheckpoint;
     }
@@ -1601,6 +1821,20 @@ public class PhysicalPlan implements Serializable
     return visited;
   }
 
+  /**
+   * Add the dependents of the operator instance to a set of dependents that is built over multiple calls. An operator
+   * that is already in the set is not traversed again, its dependents were added with it.
+   * @param operator
+   * @param dependents
+   */
+  private void getDependents(PTOperator operator, Set<PTOperator> dependents)
+  {
+    if (!dependents.contains(operator)) {
+      getDeps(operator, dependents);
+    }
+    dependents.addAll(getDependentPersistOperators(Collections.singletonList(operator)));
+  }
+
   private Set<PTOperator> getDependentPersistOperators(Collection<PTOperator> operators)
   {
     Set<PTOperator> persistOperators = new LinkedHashSet<>();
@@ -1709,6 +1943,8 @@ public class PhysicalPlan implements Serializable
     }
     // remove outgoing connections for logical stream
     PMapping m = this.logicalToPTOperator.get(sm.getSource().getOperatorMeta());
+    // connections are only removed, the dependents found for one sink cover those of the sinks reached from it
+    Set<PTOperator> deps = new LinkedHashSet<>();
     for (PTOperator oper : m.partitions) {
       List<PTOutput> outputsCopy = Lists.newArrayList(oper.outputs);
       for (PTOutput out : oper.outputs) {
@@ -1716,9 +1952,7 @@ public class PhysicalPlan implements Serializable
           for (PTInput input : out.sinks) {
             PTOperator downstreamOper = input.source.source;
             downstreamOper.inputs.remove(input);
-            Set<PTOperator> deps = this.getDependents(Collections.singletonList(downstreamOper));
-            undeployOpers.addAll(deps);
-            deployOpers.addAll(deps);
+            getDependents(downstreamOper, deps);
           }
           outputsCopy.remove(out);
           undeployOpers.add(oper);
@@ -1727,6 +1961,8 @@ public class PhysicalPlan implements Serializable
       }
       oper.outputs = outputsCopy;
     }
+    undeployOpers.addAll(deps);
+    deployOpers.addAll(deps);
   }
 
   /**
@@ -1793,6 +2029,12 @@ public class PhysicalPlan implements Serializable
 
   public void onStatusUpdate(PTOperator oper)
   {
+    if (oper.isUnifier()) {
+      onUnifierStatusUpdate(oper);
+    }
+    if (oper.statsListeners == null) {
+      return;
+    }
     for (StatsListener l : oper.statsListeners) {
       final StatsListener.Response rsp = l.processStats(oper.stats);
       if (rsp != null) {
@@ -1843,6 +2085,79 @@ public class PhysicalPlan implements Serializable
     }
   }
 
+  StreamMapping getStreamMapping(PTOperator unifier)
+  {
+    PMapping m = logicalToPTOperator.get(unifier.unifiedOperatorMeta);
+    if (m == null || unifier.outputs.isEmpty()) {
+      return null;
+    }
+    return m.outputStreams.get(unifier.outputs.get(0).logicalStream.getSource());
+  }
+
+  /**
+   * @param unifier
+   * @return fan-in of the level of the unifier adapted to the load, 0 when not adapted
+   * @see LogicalPlan#UNIFIER_LATENCY_MILLIS
+   */
+  public int getUnifierFanIn(PTOperator unifier)
+  {
+    StreamMapping sm = getStreamMapping(unifier);
+    return sm == null ? 0 : sm.getUnifierFanIn(unifier);
+  }
+
+  private void onUnifierStatusUpdate(PTOperator unifier)
+  {
+    final StreamMapping sm = getStreamMapping(unifier);
+    if (sm == null || !this.pendingRepartition.isEmpty()) {
+      return;
+    }
+    for (PTOperator u : sm.getUnifiers()) {
+      if (isSwitchingInputs(u)) {
+        return;
+      }
+    }
+    if (sm.rebalance(System.currentTimeMillis())) {
+      final OperatorMeta om = unifier.unifiedOperatorMeta;
+      // hand over to monitor thread
+      ctx.dispatch(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          redoUnifiers(logicalToPTOperator.get(om), sm);
+        }
+      });
+    }
+  }
+
+  /**
+   * Rebuild the unifiers of a stream after their fan-in changed. Only the unifiers whose inputs changed are
+   * redeployed with their dependents, the added unifiers are deployed with their dependents and the removed ones are
+   * undeployed.
+   */
+  private void redoUnifiers(PMapping m, StreamMapping sm)
+  {
+    Map<PTOperator, List<PTOutput>> previousSources = new HashMap<>();
+    for (PTOperator unifier : sm.getUnifiers()) {
+      previousSources.put(unifier, StreamMapping.getSources(unifier));
+    }
+    sm.setSources(m.partitions);
+
+    Set<PTOperator> changed = new LinkedHashSet<>();
+    for (PTOperator unifier : sm.getUnifiers()) {
+      List<PTOutput> sources = previousSources.remove(unifier);
+      if (sources != null && !sources.equals(StreamMapping.getSources(unifier))) {
+        changed.add(unifier);
+      }
+    }
+    // remaining are the removed unifiers, the mapping lists all the previous unifiers for undeploy
+    this.undeployOpers.retainAll(previousSources.keySet());
+    Set<PTOperator> deps = getDependents(changed);
+    this.undeployOpers.addAll(deps);
+    this.deployOpers.addAll(deps);
+    deployChanges();
+  }
+
   /**
    * Read available checkpoints from storage agent for all operators.
    * @param startTime
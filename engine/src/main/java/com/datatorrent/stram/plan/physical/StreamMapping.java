@@ -18,7 +18,9 @@
  */
 package com.datatorrent.stram.plan.physical;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +61,11 @@ public class StreamMapping implements java.io.Serializable
   private static final long serialVersionUID = 8572852828117485193L;
 
   private static final Logger LOG = LoggerFactory.getLogger(StreamMapping.class);
+  /**
+   * Minimum time between two changes of the fan-in of the unifiers, lets the stats of the redeployed unifiers settle
+   * before they are evaluated again.
+   */
+  static final long REBALANCE_INTERVAL_MILLIS = 30000;
 
   private final StreamMeta streamMeta;
   private final PhysicalPlan plan;
@@ -66,6 +73,17 @@ public class StreamMapping implements java.io.Serializable
   final Set<PTOperator> cascadingUnifiers = Sets.newHashSet();
   final Set<PTOperator> slidingUnifiers = Sets.newHashSet();
   private final List<PTOutput> upstream = Lists.newArrayList();
+  /**
+   * Fan-in of the unifiers of each level adapted to the load, 0 while the unifier limit of the port applies. Level 0
+   * unifies the partitions, the final and MxN unifiers take the outputs of the last cascading level.
+   */
+  private int[] levelFanIn = new int[0];
+  /**
+   * Tuple rate of the unifiers of each level when they last exceeded the target latency, 0 when not known. Bounds the
+   * fan-in when it is raised again.
+   */
+  private long[] levelCapacity = new long[0];
+  private long lastRebalanceMillis;
 
   public StreamMapping(StreamMeta streamMeta, PhysicalPlan plan)
   {
@@ -82,6 +100,217 @@ public class StreamMapping implements java.io.Serializable
     opers.addAll(slidingUnifiers);
   }
 
+  /**
+   * @return maximum number of inputs of a unifier unifying the partitions
+   */
+  public int getUnifierLimit()
+  {
+    return getUnifierLimit(0);
+  }
+
+  private int getUnifierLimit(int level)
+  {
+    if (level < levelFanIn.length && levelFanIn[level] > 0) {
+      return levelFanIn[level];
+    }
+    return streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT);
+  }
+
+  /**
+   * @param unifier
+   * @return fan-in of the level of the unifier adapted to the load, 0 when not adapted
+   */
+  int getUnifierFanIn(PTOperator unifier)
+  {
+    Integer level = getLevels().get(unifier);
+    return level != null && level < levelFanIn.length ? levelFanIn[level] : 0;
+  }
+
+  /**
+   * @return final, cascading and MxN unifiers of the stream
+   */
+  Set<PTOperator> getUnifiers()
+  {
+    Set<PTOperator> unifiers = Sets.newLinkedHashSet(cascadingUnifiers);
+    if (finalUnifier != null) {
+      unifiers.add(finalUnifier);
+    }
+    for (InputPortMeta ipm : streamMeta.getSinks()) {
+      if (plan.hasMapping(ipm.getOperatorWrapper())) {
+        for (PTOperator doper : plan.getOperators(ipm.getOperatorWrapper())) {
+          PTOperator unifier = doper.upstreamMerge.get(ipm);
+          if (unifier != null) {
+            unifiers.add(unifier);
+          }
+        }
+      }
+    }
+    return unifiers;
+  }
+
+  /**
+   * @return level of each unifier, the unifiers of a level take the outputs of the partitions or of the level below
+   */
+  private Map<PTOperator, Integer> getLevels()
+  {
+    Map<PTOperator, Integer> levels = Maps.newLinkedHashMap();
+    for (PTOperator unifier : getUnifiers()) {
+      getLevel(unifier, levels);
+    }
+    return levels;
+  }
+
+  private int getLevel(PTOperator unifier, Map<PTOperator, Integer> levels)
+  {
+    Integer level = levels.get(unifier);
+    if (level == null) {
+      level = 0;
+      for (PTInput in : unifier.inputs) {
+        if (cascadingUnifiers.contains(in.source.source)) {
+          level = Math.max(level, getLevel(in.source.source, levels) + 1);
+        }
+      }
+      levels.put(unifier, level);
+    }
+    return level;
+  }
+
+  private static double getRate(PTOutput out)
+  {
+    OperatorStatus.PortStatus ps = out.source.stats.outputPortStatusList.get(out.portName);
+    return ps == null ? 0 : ps.tuplesPMSMA.getAvg() * 1000;
+  }
+
+  /**
+   * Adapts the fan-in of the unifiers to their load, one level at a time. The load of a unifier is the tuple rate of
+   * its inputs, which depends on the level: the partitions feed level 0 and each level feeds the next with the rate
+   * the unifiers emit. A unifier over the target latency is saturated and its processed tuple rate is taken as the
+   * capacity of its level.
+   * <p>
+   * The fan-in of the level most over the target latency is lowered to the number of inputs the capacity covers at
+   * the rate per input of that level, which adds unifiers to the level. Lowering the fan-in of the final or MxN
+   * unifiers adds a cascading level below them, which relieves them only when the unifiers emit less than they
+   * receive. A unifier that passes on every tuple receives the whole stream regardless of the fan-in and is left as
+   * it is. When all the unifiers stay below half of the target latency the fan-in of the least loaded cascading level
+   * is doubled, bounded by the capacity that level had when it was last saturated.
+   *
+   * @param now current time
+   * @return whether the fan-in changed and the unifiers need to be remapped
+   */
+  boolean rebalance(long now)
+  {
+    int targetLatency = streamMeta.getSource().getValue(LogicalPlan.UNIFIER_LATENCY_MILLIS);
+    if (targetLatency <= 0 || upstream.size() <= 2 || !slidingUnifiers.isEmpty()
+        || now - lastRebalanceMillis < REBALANCE_INTERVAL_MILLIS) {
+      return false;
+    }
+
+    Map<PTOperator, Integer> levels = getLevels();
+    if (levels.isEmpty()) {
+      return false;
+    }
+    int levelCount = Collections.max(levels.values()) + 1;
+    long[] maxLatency = new long[levelCount];
+    long[] capacity = new long[levelCount];
+    double[] inputRate = new double[levelCount];
+    double[] outputRate = new double[levelCount];
+    int[] inputs = new int[levelCount];
+    int[] unifiers = new int[levelCount];
+    int[] fanIn = new int[levelCount];
+    for (Map.Entry<PTOperator, Integer> e : levels.entrySet()) {
+      PTOperator unifier = e.getKey();
+      int level = e.getValue();
+      if (unifier.getState() != PTOperator.State.ACTIVE) {
+        return false;
+      }
+      long latency = unifier.stats.getLatencyMA();
+      maxLatency[level] = Math.max(maxLatency[level], latency);
+      if (latency > targetLatency) {
+        long rate = unifier.stats.getTuplesProcessedPSMA();
+        if (rate > 0 && (capacity[level] == 0 || rate < capacity[level])) {
+          capacity[level] = rate;
+        }
+      }
+      for (PTInput in : unifier.inputs) {
+        inputRate[level] += getRate(in.source);
+      }
+      outputRate[level] += getRate(unifier.outputs.get(0));
+      inputs[level] += unifier.inputs.size();
+      unifiers[level]++;
+      fanIn[level] = Math.max(fanIn[level], unifier.inputs.size());
+    }
+
+    int lastLevel = levelCount - 1;
+    int level = -1;
+    for (int i = 0; i < levelCount; i++) {
+      if (maxLatency[i] > targetLatency && (level < 0 || maxLatency[i] > maxLatency[level])) {
+        level = i;
+      }
+    }
+
+    int newFanIn;
+    if (level >= 0) {
+      if (inputRate[level] <= 0 || capacity[level] <= 0) {
+        return false;
+      }
+      double inputLoad = inputRate[level] / unifiers[level];
+      if (level == lastLevel) {
+        // the final unifier receives what the cascading level added below it emits
+        double ratio = outputRate[level] > 0 ? Math.min(1, outputRate[level] / inputRate[level]) : 1;
+        if (ratio * inputLoad >= capacity[level]) {
+          LOG.info("Unifiers of {} at level {} are over the target latency with {} of {} tuples/s, another level does"
+              + " not reduce their load", streamMeta.getName(), level, capacity[level], (long)inputLoad);
+          lastRebalanceMillis = now;
+          return false;
+        }
+      }
+      newFanIn = (int)Math.max(2, Math.min(fanIn[level] - 1, capacity[level] / (inputRate[level] / inputs[level])));
+      if (newFanIn >= fanIn[level]) {
+        return false;
+      }
+      setLevelFanIn(level, newFanIn, capacity[level]);
+    } else {
+      for (int i = 0; i < levelCount; i++) {
+        if (maxLatency[i] * 2 >= targetLatency) {
+          return false;
+        }
+      }
+      // the least loaded cascading level that can take more inputs per unifier
+      newFanIn = 0;
+      for (int i = 0; i < lastLevel; i++) {
+        if (unifiers[i] > 1 && inputRate[i] > 0 && (level < 0 || maxLatency[i] < maxLatency[level])) {
+          int raisedFanIn = Math.min(inputs[i], fanIn[i] * 2);
+          long saturated = i < levelCapacity.length ? levelCapacity[i] : 0;
+          if (saturated > 0) {
+            raisedFanIn = (int)Math.min(raisedFanIn, saturated / (inputRate[i] / inputs[i]));
+          }
+          if (raisedFanIn > fanIn[i]) {
+            level = i;
+            newFanIn = raisedFanIn;
+          }
+        }
+      }
+      if (level < 0) {
+        return false;
+      }
+      setLevelFanIn(level, newFanIn, level < levelCapacity.length ? levelCapacity[level] : 0);
+    }
+    LOG.info("Changing fan-in of unifiers of {} at level {} from {} to {}, latency {} ms, rate {} tuples/s",
+        streamMeta.getName(), level, fanIn[level], newFanIn, maxLatency[level], (long)inputRate[level]);
+    lastRebalanceMillis = now;
+    return true;
+  }
+
+  private void setLevelFanIn(int level, int fanIn, long capacity)
+  {
+    if (level >= levelFanIn.length) {
+      levelFanIn = Arrays.copyOf(levelFanIn, level + 1);
+      levelCapacity = Arrays.copyOf(levelCapacity, level + 1);
+    }
+    levelFanIn[level] = fanIn;
+    levelCapacity[level] = capacity;
+  }
+
   public void setSources(Collection<PTOperator> partitions)
   {
     upstream.clear();
@@ -160,36 +389,41 @@ public class StreamMapping implements java.io.Serializable
     }
   }
 
-  @SuppressWarnings("AssignmentToForLoopParameter")
-  private List<PTOutput> setupCascadingUnifiers(List<PTOutput> upstream, List<PTOperator> pooledUnifiers, int limit, int level)
+  private List<PTOutput> setupCascadingUnifiers(List<PTOutput> upstream, List<PTOperator> pooledUnifiers,
+      Map<List<PTOutput>, PTOperator> previousInputs, int level)
   {
-    List<PTOutput> nextLevel = Lists.newArrayList();
-    PTOperator pu = null;
-    for (int i = 0; i < upstream.size(); i++) {
-      if (i % limit == 0) {
-        if (upstream.size() - i < limit) {
-          while (i < upstream.size()) {
-            nextLevel.add(upstream.get(i));
-            i++;
-          }
-          continue;
-        }
-        if (!pooledUnifiers.isEmpty()) {
-          pu = pooledUnifiers.remove(0);
-        } else {
-          pu = createUnifier(streamMeta, plan);
-        }
-        assert (pu.outputs.size() == 1) : "unifier has single output";
-        nextLevel.addAll(pu.outputs);
-        this.cascadingUnifiers.add(pu);
+    int limit = getUnifierLimit(level);
+    List<List<PTOutput>> groups = Lists.newArrayList();
+    for (int i = 0; upstream.size() - i >= limit; i += limit) {
+      groups.add(upstream.subList(i, i + limit));
+    }
+
+    // unifiers that keep their inputs are not redeployed
+    PTOperator[] groupUnifiers = new PTOperator[groups.size()];
+    for (int i = 0; i < groups.size(); i++) {
+      PTOperator pu = previousInputs.get(groups.get(i));
+      if (pu != null && pooledUnifiers.remove(pu)) {
+        groupUnifiers[i] = pu;
       }
+    }
 
-      PTOutput source = upstream.get(i);
-      addInput(pu, source, null);
+    List<PTOutput> nextLevel = Lists.newArrayList();
+    for (int i = 0; i < groups.size(); i++) {
+      PTOperator pu = groupUnifiers[i];
+      if (pu == null) {
+        pu = pooledUnifiers.isEmpty() ? createUnifier(streamMeta, plan) : pooledUnifiers.remove(0);
+      }
+      assert (pu.outputs.size() == 1) : "unifier has single output";
+      nextLevel.addAll(pu.outputs);
+      this.cascadingUnifiers.add(pu);
+      for (PTOutput source : groups.get(i)) {
+        addInput(pu, source, null);
+      }
     }
+    nextLevel.addAll(upstream.subList(groups.size() * limit, upstream.size()));
 
-    if (nextLevel.size() > limit) {
-      return setupCascadingUnifiers(nextLevel, pooledUnifiers, limit, level);
+    if (nextLevel.size() > getUnifierLimit(level + 1)) {
+      return setupCascadingUnifiers(nextLevel, pooledUnifiers, previousInputs, level + 1);
     } else {
       return nextLevel;
     }
@@ -218,7 +452,9 @@ public class StreamMapping implements java.io.Serializable
 
     if (!downstreamOpers.isEmpty()) {
       // unifiers are required
+      Map<List<PTOutput>, PTOperator> previousInputs = Maps.newHashMap();
       for (PTOperator unifier : this.cascadingUnifiers) {
+        previousInputs.put(getSources(unifier), unifier);
         detachUnifier(unifier);
       }
       if (this.finalUnifier != null) {
@@ -230,7 +466,7 @@ public class StreamMapping implements java.io.Serializable
       plan.undeployOpers.addAll(currentUnifiers);
       addSlidingUnifiers();
 
-      int limit = streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT);
+      int limit = getUnifierLimit();
 
       boolean separateUnifiers = false;
       Integer lastId = null;
@@ -251,12 +487,12 @@ public class StreamMapping implements java.io.Serializable
       if (limit > 1 && this.upstream.size() > limit) {
         // cascading unifier
         if (!separateUnifiers) {
-          unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, limit, 0);
+          unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, previousInputs, 0);
         } else {
           for (InputPortMeta ipm : streamMeta.getSinks()) {
             StreamCodec<?> streamCodecInfo = StreamingContainerAgent.getStreamCodec(ipm);
             if (!cascadeUnifierSourcesMap.containsKey(streamCodecInfo)) {
-              unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, limit, 0);
+              unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, previousInputs, 0);
               cascadeUnifierSourcesMap.put(streamCodecInfo, unifierSources);
             }
           }
@@ -366,6 +602,15 @@ public class StreamMapping implements java.io.Serializable
     target.inputs.add(input);
   }
 
+  static List<PTOutput> getSources(PTOperator unifier)
+  {
+    List<PTOutput> sources = Lists.newArrayListWithCapacity(unifier.inputs.size());
+    for (PTInput in : unifier.inputs) {
+      sources.add(in.source);
+    }
+    return sources;
+  }
+
   private void detachUnifier(PTOperator unifier)
   {
     // remove existing unifiers from downstream inputs
@@ -18,7 +18,11 @@
  */
 package com.datatorrent.stram.stream;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -36,14 +40,17 @@ import com.datatorrent.bufferserver.packet.ResetWindowTuple;
 import com.datatorrent.bufferserver.packet.WindowIdTuple;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.Listener.ClientListener;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec;
+import com.datatorrent.stram.codec.DirectStatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.tuple.Tuple;
 
-import static java.lang.Thread.sleep;
-
 /**
  * Implements tuple flow of node to then buffer server in a logical stream<p>
  * <br>
@@ -61,6 +68,25 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
   private EventLoop eventloop;
   private int count;
   private StatefulStreamCodec<Object> statefulSerde;
+  private DirectStatefulStreamCodec<Object> directSerde;
+  /**
+   * Payload tuples of a direct codec are serialized one after another into the frame buffer, each preceded by its
+   * length and header. The frames are queued for sending without a copy, so a frame buffer is replaced rather than
+   * reused once it is full.
+   */
+  private final DataStatePair frame = new DataStatePair();
+  /**
+   * The connection is registered with the event loop through this listener, which wakes up the operator thread
+   * waiting for room in the send buffers each time the event loop has written to the socket.
+   */
+  private final ClientListener connectionListener = new ConnectionListener();
+  private final Object sendBufferMonitor = new Object();
+  /**
+   * Incremented by the event loop each time it writes to the socket or the connection is lost.
+   */
+  private final AtomicLong sendBufferEvents = new AtomicLong();
+  private volatile boolean waitingForSendBuffer;
+  private final AtomicLong sendBlockedNanos = new AtomicLong();
 
   public BufferServerPublisher(String sourceId, int queueCapacity)
   {
@@ -73,7 +99,6 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
    * @param payload
    */
   @Override
-  @SuppressWarnings("SleepWhileInLoop")
   public void put(Object payload)
   {
     count++;
@@ -110,6 +135,9 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
         default:
           throw new UnsupportedOperationException("this data type is not handled in the stream");
       }
+    } else if (directSerde != null) {
+      putDirect(payload);
+      return;
     } else {
       if (statefulSerde == null) {
         array = PayloadTuple.getSerializedTuple(serde.getPartition(payload), serde.toByteArray(payload));
@@ -119,14 +147,7 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
          * if there is any state write that for the subscriber before we write the data.
          */
         if (dsp.state != null) {
-          array = DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state);
-          try {
-            while (!write(array)) {
-              sleep(5);
-            }
-          } catch (InterruptedException ie) {
-            throw new RuntimeException(ie);
-          }
+          writeBlocking(DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state));
         }
         /*
          * Now that the state if any has been sent, we can proceed with the actual data we want to send.
@@ -135,13 +156,114 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
       }
     }
 
+    writeBlocking(array);
+    publishedByteCount.addAndGet(array.length);
+  }
+
+  /**
+   * Serializes the payload into the frame buffer right after the space reserved for the length and the header of the
+   * payload tuple, and sends the frame without copying it.
+   *
+   * @param payload
+   */
+  private void putDirect(Object payload)
+  {
+    Slice data = frame.data;
+    if (data.buffer.length - data.offset < MIN_FRAME_CAPACITY) {
+      data.buffer = new byte[FRAME_BUFFER_SIZE];
+      data.offset = 0;
+    }
+    final int start = data.offset;
+    data.offset += MAX_FRAME_HEADER_SIZE;
+    directSerde.toDataStatePair(payload, frame);
+
+    /*
+     * if there is any state write that for the subscriber before we write the data.
+     */
+    if (frame.state != null) {
+      writeBlocking(DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, frame.state));
+      data.offset = frame.state.offset + frame.state.length;
+    } else {
+      data.offset += data.length;
+    }
+
+    final byte[] buffer = data.buffer;
+    final int size = data.length + PAYLOAD_HEADER_SIZE;
+    final int headerOffset = start + MAX_FRAME_HEADER_SIZE - PAYLOAD_HEADER_SIZE;
+    final int frameOffset = headerOffset - VarInt.getSize(size);
+    VarInt.write(size, buffer, frameOffset);
+    final int partition = directSerde.getPartition(payload);
+    buffer[headerOffset] = MessageType.PAYLOAD_VALUE;
+    buffer[headerOffset + 1] = (byte)partition;
+    buffer[headerOffset + 2] = (byte)(partition >> 8);
+    buffer[headerOffset + 3] = (byte)(partition >> 16);
+    buffer[headerOffset + 4] = (byte)(partition >> 24);
+
+    long events = sendBufferEvents.get();
+    while (!send(buffer, frameOffset, headerOffset + size - frameOffset)) {
+      events = awaitSendBuffer(events);
+    }
+    publishedByteCount.addAndGet(size);
+  }
+
+  /**
+   * Writes the tuple with its length prepended, blocking the calling thread while the send buffers are full.
+   *
+   * @param array serialized tuple
+   */
+  private void writeBlocking(byte[] array)
+  {
+    long events = sendBufferEvents.get();
+    while (!write(array)) {
+      events = awaitSendBuffer(events);
+    }
+  }
+
+  /**
+   * Waits until the event loop has written to the socket since the given number of send buffer events was observed,
+   * so that a send that failed before may succeed when retried. The wait is bounded as a safeguard, the time spent
+   * waiting is accounted as time blocked on send.
+   *
+   * @param events number of send buffer events observed before the failed send
+   * @return number of send buffer events observed when the wait ended
+   */
+  private long awaitSendBuffer(long events)
+  {
+    final long start = System.nanoTime();
     try {
-      while (!write(array)) {
-        sleep(5);
+      synchronized (sendBufferMonitor) {
+        waitingForSendBuffer = true;
+        try {
+          long current;
+          while ((current = sendBufferEvents.get()) == events) {
+            final long waited = System.nanoTime() - start;
+            if (waited >= MAX_SEND_WAIT_NANOS) {
+              break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(sendBufferMonitor, MAX_SEND_WAIT_NANOS - waited);
+          }
+          return current;
+        } finally {
+          waitingForSendBuffer = false;
+        }
       }
-      publishedByteCount.addAndGet(array.length);
     } catch (InterruptedException ie) {
       throw new RuntimeException(ie);
+    } finally {
+      sendBlockedNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Called by the event loop after it wrote to the socket or the connection was lost.
+   */
+  void sendBufferEvent()
+  {
+    sendBufferEvents.incrementAndGet();
+    if (waitingForSendBuffer) {
+      synchronized (sendBufferMonitor) {
+        sendBufferMonitor.notifyAll();
+      }
     }
   }
 
@@ -156,7 +278,7 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     setToken(context.get(StreamContext.BUFFER_SERVER_TOKEN));
     InetSocketAddress address = context.getBufferServerAddress();
     eventloop = context.get(StreamContext.EVENT_LOOP);
-    eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, this);
+    eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, connectionListener);
 
     logger.debug("Registering publisher: {} {} windowId={} server={}", new Object[] {context.getSourceId(), context.getId(), Codec.getStringWindowId(context.getFinishedWindowId()), context.getBufferServerAddress()});
     super.activate(null, context.getFinishedWindowId());
@@ -166,7 +288,7 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
   public void deactivate()
   {
     setToken(null);
-    eventloop.disconnect(this);
+    eventloop.disconnect(connectionListener);
   }
 
   @Override
@@ -187,6 +309,24 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     } else {
       serde = (StreamCodec<Object>)codec;
     }
+
+    if (isDirect(statefulSerde)) {
+      directSerde = (DirectStatefulStreamCodec<Object>)statefulSerde;
+      frame.data = new Slice(new byte[FRAME_BUFFER_SIZE], 0, 0);
+    }
+  }
+
+  /**
+   * Subclasses of {@link DefaultStatefulStreamCodec} inherit its direct serialization but may override
+   * {@link StatefulStreamCodec#toDataStatePair(Object)}, so they serialize directly only when they declare
+   * {@link DirectStatefulStreamCodec} themselves.
+   */
+  static boolean isDirect(StatefulStreamCodec<?> codec)
+  {
+    if (codec instanceof DefaultStatefulStreamCodec) {
+      return Arrays.asList(codec.getClass().getInterfaces()).contains(DirectStatefulStreamCodec.class);
+    }
+    return codec instanceof DirectStatefulStreamCodec;
   }
 
   @Override
@@ -216,5 +356,99 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     }
   }
 
+  /**
+   * Time the operator thread spent waiting for room in the send buffers of the connection.
+   *
+   * @param reset whether to reset the time after reading it
+   * @return time in milliseconds
+   */
+  public long getSendBlockedMillis(boolean reset)
+  {
+    return TimeUnit.NANOSECONDS.toMillis(reset ? sendBlockedNanos.getAndSet(0) : sendBlockedNanos.get());
+  }
+
+  /**
+   * Delegates the events of the connection to the publisher and signals the events that may have made room in the
+   * send buffers.
+   */
+  private class ConnectionListener implements ClientListener
+  {
+    @Override
+    public void read() throws IOException
+    {
+      BufferServerPublisher.this.read();
+    }
+
+    @Override
+    public void write() throws IOException
+    {
+      try {
+        BufferServerPublisher.this.write();
+      } finally {
+        sendBufferEvent();
+      }
+    }
+
+    @Override
+    public void connected()
+    {
+      BufferServerPublisher.this.connected();
+    }
+
+    @Override
+    public void disconnected()
+    {
+      try {
+        BufferServerPublisher.this.disconnected();
+      } finally {
+        sendBufferEvent();
+      }
+    }
+
+    @Override
+    public void handleException(Exception cce, EventLoop el)
+    {
+      try {
+        BufferServerPublisher.this.handleException(cce, el);
+      } finally {
+        sendBufferEvent();
+      }
+    }
+
+    @Override
+    public void registered(SelectionKey key)
+    {
+      BufferServerPublisher.this.registered(key);
+    }
+
+    @Override
+    public void unregistered(SelectionKey key)
+    {
+      try {
+        BufferServerPublisher.this.unregistered(key);
+      } finally {
+        sendBufferEvent();
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return BufferServerPublisher.this.toString();
+    }
+
+  }
+
+  /**
+   * Longest time the operator thread waits for the event loop before it retries a send.
+   */
+  private static final long MAX_SEND_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  /**
+   * Space reserved in front of the serialized payload for the length (up to 5 bytes) and the payload tuple header.
+   */
+  private static final int MAX_FRAME_HEADER_SIZE = 10;
+  private static final int PAYLOAD_HEADER_SIZE = 5;
+  private static final int FRAME_BUFFER_SIZE = 64 * 1024;
+  private static final int MIN_FRAME_CAPACITY = 1024;
   private static final Logger logger = LoggerFactory.getLogger(BufferServerPublisher.class);
 }
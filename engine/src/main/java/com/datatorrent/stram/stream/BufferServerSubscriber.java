@@ -37,6 +37,7 @@ import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
+import com.datatorrent.stram.engine.NodeScheduler;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
 import com.datatorrent.stram.engine.WindowGenerator;
@@ -87,6 +88,9 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   {
     super.read(len);
     readByteCount.addAndGet(len);
+    for (BufferReservoir reservoir : reservoirs) {
+      reservoir.signalConsumer();
+    }
   }
 
   @Override
@@ -98,7 +102,11 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, this);
 
     logger.debug("Registering subscriber: id={} upstreamId={} streamLogicalName={} windowId={} mask={} partitions={} server={}", new Object[] {context.getSinkId(), context.getSourceId(), context.getId(), Codec.getStringWindowId(context.getFinishedWindowId()), context.getPartitionMask(), context.getPartitions(), context.getBufferServerAddress()});
-    activate(null, context.getId() + '/' + context.getSinkId(), context.getSourceId(), context.getPartitionMask(), context.getPartitions(), context.getFinishedWindowId(), freeFragments.capacity());
+    String group = context.get(StreamContext.SUBSCRIBER_GROUP);
+    if (group == null) {
+      group = context.getId() + '/' + context.getSinkId();
+    }
+    activate(null, group, context.getSourceId(), context.getPartitionMask(), context.getPartitions(), context.getFinishedWindowId(), freeFragments.capacity(), context.get(StreamContext.SUBSCRIBER_POLICY));
   }
 
   @Override
@@ -231,11 +239,12 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     return readByteCount.get();
   }
 
-  class BufferReservoir extends CircularBuffer<Object> implements SweepableReservoir
+  class BufferReservoir extends CircularBuffer<Object> implements SweepableReservoir, NodeScheduler.SignallingReservoir
   {
     protected boolean skipObject = false;
     private Sink<Object> sink;
     int count;
+    private volatile NodeScheduler.WorkUnit consumer;
 
     BufferReservoir(int capacity)
     {
@@ -267,6 +276,22 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
       }
     }
 
+    /**
+     * The reservoir is not empty while the fragments received from the buffer server are not yet distributed to the
+     * reservoirs, sweep moves them into the reservoir.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+      if (!super.isEmpty()) {
+        return false;
+      }
+
+      synchronized (backlog) {
+        return polledFragments.isEmpty() && offeredFragments == polledFragments;
+      }
+    }
+
     @Override
     public Tuple sweep()
     {
@@ -369,6 +394,25 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
       return null;
     }
 
+    @Override
+    public void consumed(NodeScheduler.WorkUnit consumer)
+    {
+      if (this.consumer != consumer) {
+        this.consumer = consumer;
+      }
+    }
+
+    /**
+     * Wakes the work unit of the node that consumes the reservoir after the fragments of a read were received.
+     */
+    void signalConsumer()
+    {
+      final NodeScheduler.WorkUnit consumer = this.consumer;
+      if (consumer != null) {
+        consumer.wake();
+      }
+    }
+
     protected Object processPayload(com.datatorrent.bufferserver.packet.Tuple data)
     {
       Object o;
@@ -18,10 +18,13 @@
  */
 package com.datatorrent.stram.stream;
 
+import java.util.ArrayDeque;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datatorrent.stram.engine.AbstractReservoir;
+import com.datatorrent.stram.engine.NodeScheduler;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
@@ -31,13 +34,16 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * When data exchange is needed between 2 operators deployed in the same container, they are connected using a
  * blocking queue; The implementation of such a blocking queue is InlineStream.<br />
+ * When the source operator runs on a worker of a {@link NodeScheduler}, the tuples that do not fit into the full queue
+ * are kept in a backlog that the scheduler delivers, instead of waiting for the queue on the worker.
  *
  * @since 0.3.2
  */
-public class InlineStream implements Stream
+public class InlineStream implements Stream, NodeScheduler.Backlog
 {
   private int count;
   private AbstractReservoir reservoir;
+  private final ArrayDeque<Object> backlog = new ArrayDeque<>();
 
   public InlineStream(int capacity)
   {
@@ -87,15 +93,58 @@ public class InlineStream implements Stream
   @Override
   public void put(Object tuple)
   {
-    try {
-      reservoir.put(tuple);
-      if (!(tuple instanceof Tuple)) {
-        count++;
+    final boolean control = tuple instanceof Tuple;
+    if (!backlog.isEmpty()) {
+      backlog.add(tuple);
+    } else if (reservoir.offer(tuple)) {
+      /* the control tuples end the runs of data tuples, wake the consumer reliably for them */
+      reservoir.signalConsumer(control);
+    } else if (NodeScheduler.defer(this)) {
+      backlog.add(tuple);
+    } else {
+      try {
+        reservoir.put(tuple);
+      } catch (InterruptedException ie) {
+        logger.debug("Interrupted", ie);
+        throw new RuntimeException(ie);
       }
-    } catch (InterruptedException ie) {
-      logger.debug("Interrupted", ie);
-      throw new RuntimeException(ie);
     }
+    if (!control) {
+      count++;
+    }
+  }
+
+  @Override
+  public boolean deliver()
+  {
+    Object tuple;
+    boolean delivered = false;
+    while ((tuple = backlog.peek()) != null && reservoir.offer(tuple)) {
+      backlog.remove();
+      delivered = true;
+    }
+    if (delivered) {
+      reservoir.signalConsumer(true);
+    }
+    return tuple == null;
+  }
+
+  @Override
+  public boolean isWritable()
+  {
+    return reservoir.remainingCapacity() > 0;
+  }
+
+  @Override
+  public void awaitWritable(NodeScheduler.WorkUnit producer)
+  {
+    reservoir.awaitWritable(producer);
+  }
+
+  @Override
+  public void discard()
+  {
+    backlog.clear();
   }
 
   @Override
@@ -19,6 +19,7 @@
 package com.datatorrent.stram.stream;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.HashMap;
 
 import org.slf4j.Logger;
@@ -67,14 +68,40 @@ public class MuxStream implements Stream.MultiSinkCapableStream
   @Override
   public void activate(StreamContext context)
   {
-    @SuppressWarnings("unchecked")
-    Sink<Object>[] newSinks = (Sink<Object>[])Array.newInstance(Sink.class, outputs.size());
-
-    int i = 0;
+    /*
+     * partition aware sinks that share the codec and the mask are grouped behind a dispatcher,
+     * so that the partition of a tuple is computed only once for all of them.
+     */
+    ArrayList<Sink<Object>> list = new ArrayList<>(outputs.size());
+    HashMap<Long, PartitionDispatcher> dispatchers = new HashMap<>();
+    HashMap<Long, Sink<Object>> singles = new HashMap<>();
     for (final Sink<Object> s: outputs.values()) {
-      newSinks[i++] = s;
+      if (s instanceof PartitionAwareSink) {
+        @SuppressWarnings("unchecked")
+        PartitionAwareSink<Object> pas = (PartitionAwareSink<Object>)s;
+        if (pas.getStreamCodecIdentifier() != null && pas.hasLookup()) {
+          final Long key = (long)pas.getStreamCodecIdentifier() << 32 | pas.getMask();
+          PartitionDispatcher dispatcher = dispatchers.get(key);
+          if (dispatcher == null) {
+            dispatchers.put(key, dispatcher = new PartitionDispatcher(pas.getSerde(), pas.getMask()));
+            singles.put(key, s);
+          } else {
+            singles.remove(key);
+          }
+          dispatcher.addSink(pas);
+          continue;
+        }
+      }
+      list.add(s);
     }
-    sinks = newSinks;
+    for (Long key : dispatchers.keySet()) {
+      Sink<Object> single = singles.get(key);
+      list.add(single == null ? dispatchers.get(key) : single);
+    }
+
+    @SuppressWarnings("unchecked")
+    Sink<Object>[] newSinks = (Sink<Object>[])Array.newInstance(Sink.class, list.size());
+    sinks = list.toArray(newSinks);
   }
 
   /**
@@ -35,6 +35,12 @@ public class PartitionAwareSink<T> implements Sink<T>
   private final StreamCodec<T> serde;
   private final Set<Integer> partitions;
   private final int mask;
+  /**
+   * Whether a partition is in the partitions of the sink, indexed by the partition masked with the mask, saves the
+   * boxing and hashing of the set lookup for masks up to {@link #MAX_LOOKUP_MASK}.
+   */
+  private final boolean[] lookup;
+  private Integer streamCodecIdentifier;
   private volatile Sink<T> output;
   private int count;
 
@@ -51,6 +57,46 @@ public class PartitionAwareSink<T> implements Sink<T>
     this.partitions = partitions;
     this.output = output;
     this.mask = mask;
+    if (mask >= 0 && mask <= MAX_LOOKUP_MASK) {
+      lookup = new boolean[mask + 1];
+      for (Integer partition : partitions) {
+        lookup[partition & mask] = true;
+      }
+    } else {
+      lookup = null;
+    }
+  }
+
+  /**
+   * Identifies the codec of the sink among the codecs of the streams of an output port. Partition aware sinks with the
+   * same codec identifier and mask are sent the tuples by one {@link PartitionDispatcher}, which computes the partition
+   * of each tuple only once for all of them.
+   *
+   * @param streamCodecIdentifier identifier of the codec or null if the sink cannot share the partition computation
+   */
+  public void setStreamCodecIdentifier(Integer streamCodecIdentifier)
+  {
+    this.streamCodecIdentifier = streamCodecIdentifier;
+  }
+
+  Integer getStreamCodecIdentifier()
+  {
+    return streamCodecIdentifier;
+  }
+
+  StreamCodec<T> getSerde()
+  {
+    return serde;
+  }
+
+  int getMask()
+  {
+    return mask;
+  }
+
+  boolean hasLookup()
+  {
+    return lookup != null;
   }
 
   /**
@@ -69,9 +115,34 @@ public class PartitionAwareSink<T> implements Sink<T>
     }
   }
 
+  /**
+   * Sends the payload to the output if its partition, computed by the caller with the codec of the sink, is one of the
+   * partitions of the sink.
+   *
+   * @param payload
+   * @param partition partition of the payload
+   */
+  void put(T payload, int partition)
+  {
+    if (canSendToOutput(payload, partition)) {
+      count++;
+      output.put(payload);
+    }
+  }
+
   protected boolean canSendToOutput(T payload)
   {
-    return partitions.contains(serde.getPartition(payload) & mask);
+    return canSendToOutput(payload, serde.getPartition(payload));
+  }
+
+  protected boolean canSendToOutput(T payload, int partition)
+  {
+    return hasPartition(partition);
+  }
+
+  final boolean hasPartition(int partition)
+  {
+    return lookup == null ? partitions.contains(partition & mask) : lookup[partition & mask];
   }
 
   @Override
@@ -86,4 +157,5 @@ public class PartitionAwareSink<T> implements Sink<T>
     }
   }
 
+  static final int MAX_LOOKUP_MASK = 0xffff;
 }
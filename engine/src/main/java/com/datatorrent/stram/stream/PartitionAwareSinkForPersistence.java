@@ -57,12 +57,12 @@ public class PartitionAwareSinkForPersistence extends PartitionAwareSink<Object>
   }
 
   @Override
-  protected boolean canSendToOutput(Object payload)
+  protected boolean canSendToOutput(Object payload, int partition)
   {
     if (!serdeForPersistence.shouldCaptureEvent(payload)) {
       return false;
     }
 
-    return super.canSendToOutput(payload);
+    return super.canSendToOutput(payload, partition);
   }
 }
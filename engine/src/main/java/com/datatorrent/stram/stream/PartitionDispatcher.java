@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+
+import com.datatorrent.api.Sink;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Sends the tuples of an output port to the partition aware sinks that share a codec and a mask.
+ * <p>
+ * The partition of each payload is computed once for all the sinks and the sinks that receive it are looked up in
+ * a table indexed by the masked partition, instead of every sink computing the partition and looking it up in its
+ * set of partitions. Control tuples are sent to all the sinks.
+ *
+ * @see MuxStream
+ */
+public class PartitionDispatcher implements Sink<Object>
+{
+  private final StreamCodec<Object> serde;
+  private final int mask;
+  private final ArrayList<PartitionAwareSink<Object>> sinks = new ArrayList<>();
+  private PartitionAwareSink<Object>[] all;
+  /**
+   * Sinks that receive the payloads of a partition, indexed by the partition masked with the mask.
+   */
+  private PartitionAwareSink<Object>[][] routes;
+  private int count;
+
+  /**
+   * @param serde codec that computes the partition of the payloads
+   * @param mask mask of the partitions, not greater than {@link PartitionAwareSink#MAX_LOOKUP_MASK}
+   */
+  public PartitionDispatcher(StreamCodec<Object> serde, int mask)
+  {
+    if (mask < 0 || mask > PartitionAwareSink.MAX_LOOKUP_MASK) {
+      throw new IllegalArgumentException("Partition mask " + mask + " is out of range");
+    }
+    this.serde = serde;
+    this.mask = mask;
+    routes = newRoutes(mask + 1);
+    all = newSinks(0);
+  }
+
+  /**
+   * Adds a sink that partitions the payloads with the same codec and mask as the dispatcher.
+   *
+   * @param sink
+   */
+  public void addSink(PartitionAwareSink<Object> sink)
+  {
+    if (sink.getMask() != mask || !sink.hasLookup()) {
+      throw new IllegalArgumentException("Sink with mask " + sink.getMask() + " cannot be dispatched with mask " + mask);
+    }
+    sinks.add(sink);
+
+    final PartitionAwareSink<Object>[][] newRoutes = newRoutes(mask + 1);
+    for (int partition = 0; partition <= mask; partition++) {
+      final ArrayList<PartitionAwareSink<Object>> route = new ArrayList<>();
+      for (PartitionAwareSink<Object> s : sinks) {
+        if (s.hasPartition(partition)) {
+          route.add(s);
+        }
+      }
+      newRoutes[partition] = route.toArray(newSinks(route.size()));
+    }
+    routes = newRoutes;
+    all = sinks.toArray(newSinks(sinks.size()));
+  }
+
+  public int getSinkCount()
+  {
+    return sinks.size();
+  }
+
+  @Override
+  public void put(Object payload)
+  {
+    count++;
+    if (payload instanceof Tuple) {
+      for (PartitionAwareSink<Object> sink : all) {
+        sink.put(payload);
+      }
+    } else {
+      final int partition = serde.getPartition(payload);
+      for (PartitionAwareSink<Object> sink : routes[partition & mask]) {
+        sink.put(payload, partition);
+      }
+    }
+  }
+
+  @Override
+  public int getCount(boolean reset)
+  {
+    try {
+      return count;
+    } finally {
+      if (reset) {
+        count = 0;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PartitionAwareSink<Object>[] newSinks(int size)
+  {
+    return (PartitionAwareSink<Object>[])new PartitionAwareSink<?>[size];
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PartitionAwareSink<Object>[][] newRoutes(int size)
+  {
+    return (PartitionAwareSink<Object>[][])new PartitionAwareSink<?>[size][];
+  }
+
+}
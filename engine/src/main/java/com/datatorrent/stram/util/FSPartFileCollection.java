@@ -40,10 +40,14 @@ public class FSPartFileCollection
   private transient FileSystem fs;
   private transient FSDataOutputStream partOutStr;
   private transient FSDataOutputStream indexOutStr;
+  private transient FSDataOutputStream partIndexOutStr;
   private transient FSDataOutputStream metaOs;
   private transient String localBasePath;
   public static final String INDEX_FILE = "index.txt";
   public static final String META_FILE = "meta.txt";
+  public static final String PART_FILE_EXTENSION = ".txt";
+  public static final String PART_INDEX_FILE_EXTENSION = ".idx";
+  public static final int PART_INDEX_ENTRY_SIZE = 3 * 8;
   protected int bytesPerPartFile = 1024 * 1024;
   protected long millisPerPartFile = 60 * 60 * 1000; // 60 minutes
   protected int fileParts = 0;
@@ -52,8 +56,10 @@ public class FSPartFileCollection
   protected long currentPartFileTimeStamp = 0;
   protected String basePath = ".";
   protected String hdfsFile;
+  protected String partIndexFile;
+  protected String partFileExtension = PART_FILE_EXTENSION;
   private boolean isLocalMode = false;
-  private boolean syncRequested = false;
+  private volatile boolean syncRequested = false;
 
   public void setBytesPerPartFile(int bytes)
   {
@@ -65,6 +71,11 @@ public class FSPartFileCollection
     this.millisPerPartFile = millis;
   }
 
+  public void setPartFileExtension(String partFileExtension)
+  {
+    this.partFileExtension = partFileExtension;
+  }
+
   public void setLocalMode(boolean isLocalMode)
   {
     this.isLocalMode = isLocalMode;
@@ -114,6 +125,7 @@ public class FSPartFileCollection
       if (partOutStr != null) {
         logger.debug("Closing part file");
         partOutStr.close();
+        closePartIndex();
         if (indexOutStr != null) {
           writeIndex();
         }
@@ -130,20 +142,32 @@ public class FSPartFileCollection
 
   private void openNewPartFile() throws IOException
   {
-    hdfsFile = "part" + fileParts + ".txt";
-    Path path = new Path(basePath, hdfsFile);
+    hdfsFile = "part" + fileParts + partFileExtension;
+    partIndexFile = "part" + fileParts + PART_INDEX_FILE_EXTENSION;
     logger.debug("Opening new part file: {}", hdfsFile);
-    if (isLocalMode) {
-      partOutStr = new FSDataOutputStream(new FileOutputStream(localBasePath + "/" + hdfsFile), null);
-    } else {
-      partOutStr = fs.create(path);
-    }
+    partOutStr = create(hdfsFile);
     fileParts++;
     currentPartFileTimeStamp = System.currentTimeMillis();
     partFileItemCount = 0;
     partFileBytes = 0;
   }
 
+  private FSDataOutputStream create(String file) throws IOException
+  {
+    if (isLocalMode) {
+      return new FSDataOutputStream(new FileOutputStream(localBasePath + "/" + file), null);
+    }
+    return fs.create(new Path(basePath, file));
+  }
+
+  private void closePartIndex() throws IOException
+  {
+    if (partIndexOutStr != null) {
+      partIndexOutStr.close();
+      partIndexOutStr = null;
+    }
+  }
+
   public void writeMetaData(byte[] bytes) throws IOException
   {
     metaOs.write(bytes);
@@ -162,6 +186,39 @@ public class FSPartFileCollection
     }
   }
 
+  public void writeDataItem(byte[] bytes, int offset, int length, boolean incrementItemCount) throws IOException
+  {
+    if (partOutStr == null) {
+      openNewPartFile();
+    }
+    partOutStr.write(bytes, offset, length);
+    partFileBytes += length;
+    if (incrementItemCount) {
+      partFileItemCount++;
+    }
+  }
+
+  /**
+   * Records the offset in the current part file at which the next data item is written. The key, the offset and the
+   * number of items written so far are appended as longs to the index file of the part file, so that readers can seek
+   * to the data item of a key.
+   *
+   * @param key key of the next data item, keys are expected to be ascending within a part file
+   * @throws IOException
+   */
+  public void writePartIndex(long key) throws IOException
+  {
+    if (partOutStr == null) {
+      openNewPartFile();
+    }
+    if (partIndexOutStr == null) {
+      partIndexOutStr = create(partIndexFile);
+    }
+    partIndexOutStr.writeLong(key);
+    partIndexOutStr.writeLong(partFileBytes);
+    partIndexOutStr.writeLong(partFileItemCount);
+  }
+
   public void requestSync()
   {
     syncRequested = true;
@@ -181,6 +238,9 @@ public class FSPartFileCollection
   {
     if (partOutStr != null) {
       partOutStr.hflush();
+      if (partIndexOutStr != null) {
+        partIndexOutStr.hflush();
+      }
       if (isReadyTurnoverPartFile()) {
         turnover();
         return true;
@@ -193,6 +253,7 @@ public class FSPartFileCollection
   {
     partOutStr.close();
     partOutStr = null;
+    closePartIndex();
     writeIndex();
     syncRequested = false;
   }
@@ -118,6 +118,13 @@ public class AppInfo
       return 0;
     }
 
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getCriticalPathComputeMicrosMA()
+    {
+      return 0;
+    }
+
     @javax.xml.bind.annotation.XmlElement
     public long getWindowStartMillis()
     {
@@ -130,6 +137,15 @@ public class AppInfo
       return null;
     }
 
+    /**
+     * @return fan-in adapted to the load of each operator on the critical path, 0 for operators that are not unifiers
+     */
+    @javax.xml.bind.annotation.XmlElement
+    public List<Integer> getCriticalPathUnifierFanIn()
+    {
+      return null;
+    }
+
     @javax.xml.bind.annotation.XmlElement
     public long getCurrentWindowId()
     {
@@ -51,6 +51,7 @@ public class ContainerInfo
   public long gcCollectionTime;
   @RecordField(type = "stats")
   public long gcCollectionCount;
+  public double[] bufferServerEventLoopUtilization;
   @RecordField(type = "meta", publish = false)
   public String containerLogsUrl;
   public long startedTime = -1;
@@ -92,6 +92,8 @@ public class OperatorInfo
   @RecordField(type = "stats")
   public long checkpointTime;
   @RecordField(type = "stats")
+  public long checkpointSerializationTime;
+  @RecordField(type = "stats")
   public long checkpointTimeMA;
 
   /**
@@ -27,6 +27,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeatResponse;
@@ -99,6 +100,12 @@ public class MockContainer
       OperatorStats lstats = new OperatorStats();
       lstats.checkpoint = new Checkpoint(oe.getValue().checkpointWindowId, 0, 0);
       lstats.windowId = oe.getValue().currentWindowId;
+      if (oe.getValue().endWindowTimestamp > 0) {
+        PortStats ps = new PortStats("port");
+        ps.endWindowTimestamp = oe.getValue().endWindowTimestamp;
+        lstats.inputPorts = Lists.newArrayList(ps);
+        lstats.outputPorts = Lists.newArrayList(ps);
+      }
 
       //stats.outputPorts = Lists.newArrayList();
       //PortStats ps = new PortStats(TestGeneratorInputOperator.OUTPUT_PORT);
@@ -130,6 +137,7 @@ public class MockContainer
     OperatorHeartbeat.DeployState deployState;
     long currentWindowId;
     long checkpointWindowId;
+    long endWindowTimestamp;
 
     private MockOperatorStats(int operatorId)
     {
@@ -154,6 +162,15 @@ public class MockContainer
       return this;
     }
 
+    /**
+     * Reports the end window timestamp for all ports of the operator.
+     */
+    public MockOperatorStats endWindowTimestamp(long timestamp)
+    {
+      this.endWindowTimestamp = timestamp;
+      return this;
+    }
+
   }
 
 }
@@ -23,6 +23,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -35,6 +37,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -328,8 +331,8 @@ public class StramRecoveryTest
     assertEquals("flush count", 2, flushCount.intValue());
     assertEquals("is closed", false, isClosed.booleanValue());
 
-    // this will close the stream. There are 2 calls to flush() during the close() - one in Kryo Output and one
-    // in FilterOutputStream
+    // this will close the stream. There are 2 calls to flush() during the close() - one for the pending operations
+    // and one in FilterOutputStream
     j.setOutputStream(null);
     assertEquals("flush count", 4, flushCount.intValue());
     assertEquals("is closed", true, isClosed.booleanValue());
@@ -396,6 +399,190 @@ public class StramRecoveryTest
     scm.setPhysicalOperatorProperty(o1p1.getId(), "maxTuples", "50");
   }
 
+  @Test
+  public void testWriteAheadLogGroupCommit() throws Exception
+  {
+    final MutableInt flushCount = new MutableInt();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    final TestGeneratorInputOperator[] operators = new TestGeneratorInputOperator[4];
+    for (int i = 0; i < operators.length; i++) {
+      operators[i] = dag.addOperator("o" + i, TestGeneratorInputOperator.class);
+    }
+    final StreamingContainerManager scm = new StreamingContainerManager(dag);
+    for (PTContainer container : scm.getPhysicalPlan().getContainers()) {
+      new MockContainer(scm, container);
+    }
+    final Journal j = scm.getJournal();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream()
+    {
+      @Override
+      public void flush() throws IOException
+      {
+        super.flush();
+        synchronized (flushCount) {
+          flushCount.increment();
+        }
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+    };
+    j.setOutputStream(new DataOutputStream(bos));
+
+    final int writeCount = 100;
+    Thread[] writers = new Thread[operators.length];
+    for (int i = 0; i < writers.length; i++) {
+      final String name = "o" + i;
+      writers[i] = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          for (int maxTuples = 1; maxTuples <= writeCount; maxTuples++) {
+            j.write(scm.getSetOperatorProperty(name, "maxTuples", String.valueOf(maxTuples)));
+          }
+        }
+      };
+      writers[i].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    // concurrent writes share flushes
+    Assert.assertTrue("flush count " + flushCount, flushCount.intValue() < writers.length * writeCount);
+    j.setOutputStream(null);
+
+    j.replay(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    for (TestGeneratorInputOperator operator : operators) {
+      assertEquals(writeCount, operator.getMaxTuples());
+    }
+
+    // with a flush latency writes return once the operation is flushed
+    flushCount.setValue(0);
+    j.setMaxFlushLatency(10);
+    j.setOutputStream(new DataOutputStream(bos));
+    j.write(scm.getSetOperatorProperty("o0", "maxTuples", "10"));
+    assertEquals("flush count", 1, flushCount.intValue());
+
+    // writes within the latency share a flush
+    flushCount.setValue(0);
+    j.setMaxFlushLatency(1000);
+    for (int i = 0; i < writers.length; i++) {
+      final String name = "o" + i;
+      writers[i] = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          j.write(scm.getSetOperatorProperty(name, "maxTuples", "20"));
+        }
+      };
+      writers[i].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    Assert.assertTrue("flush count " + flushCount, flushCount.intValue() < writers.length);
+    j.setOutputStream(null);
+
+    j.replay(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    for (TestGeneratorInputOperator operator : operators) {
+      assertEquals(20, operator.getMaxTuples());
+    }
+  }
+
+  @Test
+  public void testSnapshotFormat() throws Exception
+  {
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false));
+    recoveryHandler.setCompressSnapshot(true);
+    StreamingContainerManager.getInstance(recoveryHandler, dag, false);
+    File snapshot = new File(recoveryHandler.getDir(), FSRecoveryHandler.FILE_SNAPSHOT);
+    try (DataInputStream in = new DataInputStream(new FileInputStream(snapshot))) {
+      assertEquals("magic", FSRecoveryHandler.SNAPSHOT_MAGIC, in.readInt());
+      assertEquals("version", FSRecoveryHandler.SNAPSHOT_VERSION, in.readByte());
+      assertEquals("flags", FSRecoveryHandler.SNAPSHOT_FLAG_DEFLATE, in.readByte());
+    }
+
+    Object state = new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false)).restore();
+    StreamingContainerManager scm = StreamingContainerManager.getInstance(new FSRecoveryHandler(dag.assertAppPath(),
+        new Configuration(false)), dag, false);
+    assertEquals("operators", 2, scm.getPhysicalPlan().getAllOperators().size());
+
+    // snapshots written before the header was introduced
+    try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(snapshot))) {
+      oos.writeObject(state);
+    }
+    scm = StreamingContainerManager.getInstance(new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false)),
+        dag, false);
+    assertEquals("operators", 2, scm.getPhysicalPlan().getAllOperators().size());
+  }
+
+  @Test
+  @Ignore
+  public void testSnapshotPerformance() throws Exception
+  {
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    // 100 pipelines of 10 operators, long pipelines exceed the stack depth of Java serialization
+    for (int i = 0; i < 100; i++) {
+      GenericTestOperator upstream = dag.addOperator("o" + i + ".0", GenericTestOperator.class);
+      for (int j = 1; j < 10; j++) {
+        GenericTestOperator operator = dag.addOperator("o" + i + "." + j, GenericTestOperator.class);
+        dag.addStream("o" + i + "." + j + ".inport1", upstream.outport1, operator.inport1);
+        upstream = operator;
+      }
+    }
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false));
+    StreamingContainerManager.getInstance(recoveryHandler, dag, false);
+    Object state = recoveryHandler.restore();
+    File snapshot = new File(recoveryHandler.getDir(), FSRecoveryHandler.FILE_SNAPSHOT);
+    final int count = 10;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(snapshot))) {
+        oos.writeObject(state);
+      }
+    }
+    long legacyWrite = System.nanoTime() - start;
+    long legacySize = snapshot.length();
+    start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(snapshot))) {
+        ois.readObject();
+      }
+    }
+    long legacyRead = System.nanoTime() - start;
+    LOG.info("Java serialization: write {} ms, read {} ms, {} bytes", legacyWrite / count / 1000000,
+        legacyRead / count / 1000000, legacySize);
+
+    for (boolean compress : new boolean[]{false, true}) {
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        try (FileOutputStream os = new FileOutputStream(snapshot)) {
+          FSRecoveryHandler.writeSnapshot(state, os, compress);
+        }
+      }
+      long write = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        try (FileInputStream is = new FileInputStream(snapshot)) {
+          FSRecoveryHandler.readSnapshot(is);
+        }
+      }
+      long read = System.nanoTime() - start;
+      LOG.info("Snapshot compress={}: write {} ms, read {} ms, {} bytes", compress, write / count / 1000000,
+          read / count / 1000000, snapshot.length());
+    }
+  }
+
   private void testRestartApp(StorageAgent agent, String appPath1) throws Exception
   {
     String appId1 = "app1";
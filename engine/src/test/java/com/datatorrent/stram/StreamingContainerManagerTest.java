@@ -18,11 +18,14 @@
  */
 package com.datatorrent.stram;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -34,11 +37,13 @@ import org.codehaus.jettison.json.JSONObject;
 import org.eclipse.jetty.websocket.WebSocket;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.io.DataInputByteBuffer;
 import org.apache.hadoop.io.DataOutputByteBuffer;
@@ -51,6 +56,8 @@ import com.datatorrent.api.Context;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.api.Partitioner.PartitioningContext;
 import com.datatorrent.api.Stats.OperatorStats;
 import com.datatorrent.api.Stats.OperatorStats.PortStats;
 import com.datatorrent.api.StatsListener;
@@ -586,8 +593,11 @@ public class StreamingContainerManagerTest
     ohb.windowStats = Lists.newArrayList(stats);
     cstats.operators.clear();
     cstats.operators.add(ohb);
+    hb.bufferServerEventLoopUtilization = new double[]{0.5, 0.25};
     scm.processHeartbeat(hb);
 
+    Assert.assertArrayEquals("event loop utilization", hb.bufferServerEventLoopUtilization,
+        sca.getContainerInfo().bufferServerEventLoopUtilization, 0);
     Assert.assertEquals("tuples " + o1p1, 2, o1p1.stats.totalTuplesEmitted.get());
     Assert.assertEquals("window " + o1p1, 4, o1p1.stats.currentWindowId.get());
     Assert.assertEquals("statsQueue " + o1p1, 2, o1p1.stats.listenerStats.size());
@@ -1115,8 +1125,350 @@ public class StreamingContainerManagerTest
         criticalPathInfo.path.toArray());
     Assert.assertTrue("Whole DAG latency must be greater than the artificially introduced latency",
         criticalPathInfo.latency > latency);
+    Assert.assertTrue("Critical path compute time", dnmgr.getCriticalPathComputeNanosMA() > 0);
     lc.shutdown();
   }
 
+  @Test
+  public void testCriticalPathRecalculation() throws Exception
+  {
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    GenericTestOperator o4 = dag.addOperator("o4", GenericTestOperator.class);
+    dag.addStream("o1.outport", o1.outport, o2.inport1, o4.inport1);
+    dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+
+    StreamingContainerManager scm = new StreamingContainerManager(dag);
+    PhysicalPlan physicalPlan = scm.getPhysicalPlan();
+    Assert.assertEquals("containers", 4, physicalPlan.getContainers().size());
+    // heartbeats are sent in plan order, upstream operators report a window before their downstream operators
+    List<MockContainer> mockContainers = new ArrayList<>();
+    for (PTContainer c : physicalPlan.getContainers()) {
+      mockContainers.add(new MockContainer(scm, c));
+    }
+    for (MockContainer mc : mockContainers) {
+      mc.deploy();
+    }
+    for (MockContainer mc : mockContainers) {
+      // skip buffer server purge in monitorHeartbeat
+      mc.container.bufferServerAddress = null;
+    }
+
+    // end window timestamp offsets relative to the input operator
+    Map<String, Long> offsets = new HashMap<>();
+    offsets.put("o1", 0L);
+    offsets.put("o2", 10L);
+    offsets.put("o3", 30L);
+    offsets.put("o4", 20L);
+
+    long windowId = 1;
+    sendEndWindowStats(scm, mockContainers, windowId++, offsets);
+    Assert.assertEquals("initial calculation", 4, scm.getCriticalPathRecalculations());
+    Assert.assertEquals("critical path latency", 30, scm.getCriticalPathInfo().latency);
+
+    sendEndWindowStats(scm, mockContainers, windowId++, offsets);
+    Assert.assertEquals("no change", 0, scm.getCriticalPathRecalculations());
+
+    offsets.put("o4", 50L);
+    sendEndWindowStats(scm, mockContainers, windowId++, offsets);
+    Assert.assertEquals("only o4 recalculated", 1, scm.getCriticalPathRecalculations());
+
+    // the moving average of o4 keeps changing while it converges
+    sendEndWindowStats(scm, mockContainers, windowId++, offsets);
+    Assert.assertEquals("only o4 recalculated", 1, scm.getCriticalPathRecalculations());
+  }
+
+  private static void sendEndWindowStats(StreamingContainerManager scm, List<MockContainer> mockContainers,
+      long windowId, Map<String, Long> offsets)
+  {
+    for (MockContainer mc : mockContainers) {
+      for (PTOperator oper : mc.container.getOperators()) {
+        long timestamp = 1000000000000L + windowId * 500 + offsets.get(oper.getOperatorMeta().getName());
+        mc.stats(oper.getId()).currentWindowId(windowId).checkpointWindowId(1)
+            .deployState(DeployState.ACTIVE).endWindowTimestamp(timestamp);
+      }
+      mc.sendHeartbeat();
+    }
+    scm.monitorHeartbeat();
+  }
+
+  private static ContainerHeartbeat newHeartbeat(PTContainer container, long windowId, int windowCount,
+      boolean compact)
+  {
+    ContainerStats cstats = new ContainerStats(container.getExternalId());
+    for (PTOperator oper : container.getOperators()) {
+      OperatorHeartbeat ohb = new OperatorHeartbeat();
+      ohb.setNodeId(oper.getId());
+      ohb.setState(DeployState.ACTIVE);
+      ohb.compactStats = compact;
+      for (int i = 0; i < windowCount; i++) {
+        OperatorStats stats = new OperatorStats();
+        stats.windowId = windowId + i;
+        stats.cpuTimeUsed = 1000 + i;
+        long endWindowTimestamp = 1000000000000L + (windowId + i) * 100;
+        if (!oper.getInputs().isEmpty()) {
+          PortStats ps = new PortStats("inport1");
+          ps.tupleCount = 100;
+          ps.endWindowTimestamp = endWindowTimestamp;
+          ps.bufferServerBytes = 1000;
+          ps.queueSize = i;
+          stats.inputPorts = Lists.newArrayList(ps);
+        }
+        PortStats ps = new PortStats("outport1");
+        ps.tupleCount = 100;
+        ps.endWindowTimestamp = endWindowTimestamp + 1;
+        ps.bufferServerBytes = 1000;
+        stats.outputPorts = Lists.newArrayList(ps);
+        ohb.windowStats.add(stats);
+      }
+      cstats.operators.add(ohb);
+    }
+    ContainerHeartbeat hb = new ContainerHeartbeat();
+    hb.setContainerStats(cstats);
+    return hb;
+  }
+
+  private static ContainerHeartbeat copy(ContainerHeartbeat hb, DataOutputByteBuffer out) throws IOException
+  {
+    out.reset();
+    hb.write(out);
+    DataInputByteBuffer in = new DataInputByteBuffer();
+    in.reset(out.getData());
+    ContainerHeartbeat clone = new ContainerHeartbeat();
+    clone.readFields(in);
+    return clone;
+  }
+
+  @Test
+  public void testCompactHeartbeatStats() throws Exception
+  {
+    OperatorStats stats = new OperatorStats();
+    stats.windowId = 0x1234567800000001L;
+    stats.cpuTimeUsed = 5;
+    stats.checkpoint = new Checkpoint(0x1234567800000000L, 0, 0);
+    stats.recordingId = "recording";
+    stats.metrics = new HashMap<>();
+    stats.metrics.put("metric", 1);
+    PortStats inputPort = new PortStats("input");
+    inputPort.tupleCount = 10;
+    inputPort.endWindowTimestamp = 1000;
+    inputPort.queueSize = 2;
+    inputPort.recordingId = "portRecording";
+    PortStats outputPort = new PortStats("output");
+    outputPort.tupleCount = 20;
+    outputPort.endWindowTimestamp = 900;
+    outputPort.bufferServerBytes = 300;
+    outputPort.sendBlockedMillis = 40;
+    stats.inputPorts = Lists.newArrayList(inputPort);
+    stats.outputPorts = Lists.newArrayList(outputPort);
+    OperatorStats next = new OperatorStats();
+    next.windowId = stats.windowId + 1;
+    next.outputPorts = Lists.newArrayList(new PortStats("output"));
+
+    OperatorHeartbeat ohb = new OperatorHeartbeat();
+    ohb.setNodeId(1);
+    ohb.windowStats.add(stats);
+    ohb.windowStats.add(next);
+    ContainerStats cstats = new ContainerStats("container1");
+    cstats.operators.add(ohb);
+    ContainerHeartbeat hb = new ContainerHeartbeat();
+    hb.setContainerStats(cstats);
+
+    DataOutputByteBuffer out = new DataOutputByteBuffer();
+    copy(hb, out);
+    int size = out.getLength();
+    ohb.compactStats = true;
+    ContainerHeartbeat clone = copy(hb, out);
+    Assert.assertTrue("compact size " + out.getLength() + " " + size, out.getLength() < size);
+    Assert.assertEquals("stats", 2, ohb.windowStats.size());
+
+    OperatorHeartbeat ohbClone = clone.getContainerStats().operators.get(0);
+    Assert.assertEquals("operator", 1, ohbClone.nodeId);
+    Assert.assertEquals("windows", 2, ohbClone.windowStats.size());
+    OperatorStats statsClone = ohbClone.windowStats.get(0);
+    Assert.assertEquals("windowId", stats.windowId, statsClone.windowId);
+    Assert.assertEquals("cpuTimeUsed", stats.cpuTimeUsed, statsClone.cpuTimeUsed);
+    Assert.assertEquals("checkpoint", stats.checkpoint.getWindowId(), statsClone.checkpoint.getWindowId());
+    Assert.assertEquals("recordingId", stats.recordingId, statsClone.recordingId);
+    Assert.assertEquals("metrics", stats.metrics, statsClone.metrics);
+    PortStats portClone = statsClone.inputPorts.get(0);
+    Assert.assertEquals("id", inputPort.id, portClone.id);
+    Assert.assertEquals("tupleCount", inputPort.tupleCount, portClone.tupleCount);
+    Assert.assertEquals("endWindowTimestamp", inputPort.endWindowTimestamp, portClone.endWindowTimestamp);
+    Assert.assertEquals("queueSize", inputPort.queueSize, portClone.queueSize);
+    Assert.assertEquals("recordingId", inputPort.recordingId, portClone.recordingId);
+    portClone = statsClone.outputPorts.get(0);
+    Assert.assertEquals("id", outputPort.id, portClone.id);
+    Assert.assertEquals("endWindowTimestamp", outputPort.endWindowTimestamp, portClone.endWindowTimestamp);
+    Assert.assertEquals("bufferServerBytes", outputPort.bufferServerBytes, portClone.bufferServerBytes);
+    Assert.assertEquals("sendBlockedMillis", outputPort.sendBlockedMillis, portClone.sendBlockedMillis);
+    OperatorStats nextClone = ohbClone.windowStats.get(1);
+    Assert.assertEquals("windowId", next.windowId, nextClone.windowId);
+    Assert.assertNull("inputPorts", nextClone.inputPorts);
+    Assert.assertNull("checkpoint", nextClone.checkpoint);
+    Assert.assertSame("interned port id", portClone.id, nextClone.outputPorts.get(0).id);
+  }
+
+  /**
+   * Operator heartbeat serialized by the previous version, as in the recovery snapshots of running applications.
+   */
+  @Test
+  public void testPreviousHeartbeatSerialization() throws Exception
+  {
+    byte[] bytes = Base64.decodeBase64(
+        "rO0ABXNyAE9jb20uZGF0YXRvcnJlbnQuc3RyYW0uYXBpLlN0cmVhbWluZ0NvbnRhaW5lclVtYmlsaWNhbFByb3RvY29sJE9wZXJh"
+        + "dG9ySGVhcnRiZWF0AAAALtjxDGkCAAZKAAxnZW5lcmF0ZWRUbXNKAAppbnRlcnZhbE1zSQAGbm9kZUlkTAAPcmVxdWVzdFJlc3Bv"
+        + "bnNldAAVTGphdmEvdXRpbC9BcnJheUxpc3Q7TAAFc3RhdGV0AF1MY29tL2RhdGF0b3JyZW50L3N0cmFtL2FwaS9TdHJlYW1pbmdD"
+        + "b250YWluZXJVbWJpbGljYWxQcm90b2NvbCRPcGVyYXRvckhlYXJ0YmVhdCREZXBsb3lTdGF0ZTtMAAt3aW5kb3dTdGF0c3EAfgAB"
+        + "eHAAAAAAAAAD6AAAAAAAAAAAAAAAAXB+cgBbY29tLmRhdGF0b3JyZW50LnN0cmFtLmFwaS5TdHJlYW1pbmdDb250YWluZXJVbWJp"
+        + "bGljYWxQcm90b2NvbCRPcGVyYXRvckhlYXJ0YmVhdCREZXBsb3lTdGF0ZQAAAAAAAAAAEgAAeHIADmphdmEubGFuZy5FbnVtAAAA"
+        + "AAAAAAASAAB4cHQABkFDVElWRXNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAABdwQAAAABc3IA"
+        + "J2NvbS5kYXRhdG9ycmVudC5hcGkuU3RhdHMkT3BlcmF0b3JTdGF0cwAAAC7e9ZSBAgAJSgALY3B1VGltZVVzZWRKAAh3aW5kb3dJ"
+        + "ZEwACmNoZWNrcG9pbnR0ACZMY29tL2RhdGF0b3JyZW50L2FwaS9TdGF0cyRDaGVja3BvaW50O0wAD2NoZWNrcG9pbnRTdGF0c3QA"
+        + "K0xjb20vZGF0YXRvcnJlbnQvYXBpL1N0YXRzJENoZWNrcG9pbnRTdGF0cztMAAhjb3VudGVyc3QAEkxqYXZhL2xhbmcvT2JqZWN0"
+        + "O0wACmlucHV0UG9ydHNxAH4AAUwAB21ldHJpY3N0AA9MamF2YS91dGlsL01hcDtMAAtvdXRwdXRQb3J0c3EAfgABTAALcmVjb3Jk"
+        + "aW5nSWR0ABJMamF2YS9sYW5nL1N0cmluZzt4cAAAAAAAAAAAAAAAAAAAAAJwcHBwcHBweA==");
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      OperatorHeartbeat ohb = (OperatorHeartbeat)ois.readObject();
+      Assert.assertEquals("operator", 1, ohb.getNodeId());
+      Assert.assertEquals("state", DeployState.ACTIVE, ohb.getState());
+      Assert.assertEquals("generatedTms", 1000, ohb.getGeneratedTms());
+      Assert.assertFalse("compactStats", ohb.compactStats);
+      Assert.assertEquals("windows", 1, ohb.windowStats.size());
+      Assert.assertEquals("windowId", 2, ohb.windowStats.get(0).windowId);
+    }
+  }
+
+  /**
+   * Heartbeats of 500 containers with 10 windows each, serialized, deserialized and processed as by the RPC server.
+   */
+  @Test
+  @Ignore
+  public void testHeartbeatPerformance() throws Exception
+  {
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+    for (int i = 0; i < 100; i++) {
+      TestGeneratorInputOperator input = dag.addOperator("input" + i, TestGeneratorInputOperator.class);
+      GenericTestOperator upstream = dag.addOperator("o" + i + ".1", GenericTestOperator.class);
+      dag.addStream("input" + i + ".outport", input.outport, upstream.inport1);
+      for (int j = 2; j < 5; j++) {
+        GenericTestOperator operator = dag.addOperator("o" + i + "." + j, GenericTestOperator.class);
+        dag.addStream("o" + i + "." + j + ".inport1", upstream.outport1, operator.inport1);
+        upstream = operator;
+      }
+    }
+    StreamingContainerManager scm = new StreamingContainerManager(dag);
+    List<PTContainer> containers = scm.getPhysicalPlan().getContainers();
+    Assert.assertEquals("containers", 500, containers.size());
+    for (PTContainer container : containers) {
+      new MockContainer(scm, container);
+    }
+
+    final int rounds = 50;
+    final int windowCount = 10;
+    DataOutputByteBuffer out = new DataOutputByteBuffer();
+    long windowId = 0;
+    for (boolean compact : new boolean[]{false, true, false, true}) {
+      long bytes = 0;
+      long serializationNanos = 0;
+      long processingNanos = 0;
+      for (int round = 0; round < rounds; round++) {
+        for (PTContainer container : containers) {
+          ContainerHeartbeat hb = newHeartbeat(container, windowId, windowCount, compact);
+          long start = System.nanoTime();
+          hb = copy(hb, out);
+          serializationNanos += System.nanoTime() - start;
+          bytes += out.getLength();
+          start = System.nanoTime();
+          scm.processHeartbeat(hb);
+          processingNanos += System.nanoTime() - start;
+        }
+        windowId += windowCount;
+      }
+      LOG.info("compact={}: per round of 500 heartbeats serialization {} ms, processing {} ms, {} bytes per heartbeat",
+          compact, serializationNanos / rounds / 1000000, processingNanos / rounds / 1000000,
+          bytes / rounds / containers.size());
+    }
+  }
+
+  /**
+   * Application master launch and recovery with a plan of 5000 partitions: 10 partitioned inputs with 250 partitions
+   * each, parallel partitioned downstream operators and unifiers merging into one operator per input. The
+   * partitioners take 200ms each to simulate partitioners that query external systems, the plan is built with
+   * sequential and with parallel partitioning.
+   */
+  @Test
+  @Ignore
+  public void testLargePlanPerformance() throws Exception
+  {
+    for (int threads : new int[] {1, 10}) {
+      dag = StramTestSupport.createDAG(testMeta);
+      dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+      dag.setAttribute(LogicalPlan.PARTITIONING_THREADS, threads);
+      for (int i = 0; i < 10; i++) {
+        TestGeneratorInputOperator input = dag.addOperator("input" + i, TestGeneratorInputOperator.class);
+        dag.setOperatorAttribute(input, OperatorContext.PARTITIONER, new SlowPartitioner(250, 200));
+        GenericTestOperator parallel = dag.addOperator("o" + i + ".1", GenericTestOperator.class);
+        dag.addStream("input" + i + ".outport", input.outport, parallel.inport1);
+        dag.setInputPortAttribute(parallel.inport1, PortContext.PARTITION_PARALLEL, true);
+        GenericTestOperator merge = dag.addOperator("o" + i + ".2", GenericTestOperator.class);
+        dag.addStream("o" + i + ".1.outport1", parallel.outport1, merge.inport1);
+        dag.setOutputPortAttribute(parallel.outport1, PortContext.UNIFIER_LIMIT, 16);
+      }
+
+      long start = System.nanoTime();
+      StreamingContainerManager scm = new StreamingContainerManager(dag);
+      long planNanos = System.nanoTime() - start;
+      List<PTContainer> containers = scm.getPhysicalPlan().getContainers();
+
+      start = System.nanoTime();
+      List<MockContainer> mockContainers = new ArrayList<>(containers.size());
+      for (PTContainer container : containers) {
+        mockContainers.add(new MockContainer(scm, container));
+      }
+      for (MockContainer mc : mockContainers) {
+        mc.deploy();
+      }
+      long deployNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int i = 0; i < 10; i++) {
+        PTOperator oper = scm.getPhysicalPlan().getOperators(dag.getOperatorMeta("input" + i)).get(0);
+        scm.scheduleContainerRestart(oper.getContainer().getExternalId());
+      }
+      scm.processEvents();
+      long recoveryNanos = System.nanoTime() - start;
+
+      LOG.info("partitioning threads={}: {} operators in {} containers: plan {} ms, deploy {} ms, recovery of 10 "
+          + "containers {} ms", threads, scm.getPhysicalPlan().getAllOperators().size(), containers.size(),
+          planNanos / 1000000, deployNanos / 1000000, recoveryNanos / 1000000);
+    }
+  }
+
+  private static class SlowPartitioner extends StatelessPartitioner<TestGeneratorInputOperator>
+  {
+    private static final long serialVersionUID = 201610180000L;
+    private final long delayMillis;
+
+    SlowPartitioner(int partitionCount, long delayMillis)
+    {
+      super(partitionCount);
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public Collection<Partition<TestGeneratorInputOperator>> definePartitions(Collection<Partition<TestGeneratorInputOperator>> partitions, PartitioningContext context)
+    {
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return super.definePartitions(partitions, context);
+    }
+  }
+
   private static final Logger LOG = LoggerFactory.getLogger(StreamingContainerManagerTest.class);
 }
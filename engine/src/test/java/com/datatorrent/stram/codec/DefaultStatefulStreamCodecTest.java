@@ -25,7 +25,10 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.Kryo;
@@ -33,6 +36,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.JavaSerializer;
 
+import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.codec.DefaultStatefulStreamCodec.ClassIdPair;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
@@ -214,4 +218,81 @@ public class DefaultStatefulStreamCodecTest
     }
   }
 
+  @Test
+  public void testDirectSerialization()
+  {
+    DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+    DefaultStatefulStreamCodec<Object> decoder = new DefaultStatefulStreamCodec<Object>();
+    TestClass tc = new TestClass("hello!", 42);
+
+    DataStatePair direct = new DataStatePair();
+    byte[] buffer = new byte[64];
+    buffer[9] = 9;
+    direct.data = new Slice(buffer, 10, 0);
+    coder.toDataStatePair(tc, direct);
+    Assert.assertNotNull("state", direct.state);
+    Assert.assertSame("state buffer", direct.data.buffer, direct.state.buffer);
+    Assert.assertEquals("state offset", direct.data.offset + direct.data.length, direct.state.offset);
+    Assert.assertEquals("preserved", 9, direct.data.buffer[9]);
+    Assert.assertEquals("same as copying serialization", new DefaultStatefulStreamCodec<Object>().toDataStatePair(tc).data,
+        new Slice(direct.data.buffer, direct.data.offset, direct.data.length));
+
+    DataStatePair dsp = new DataStatePair();
+    dsp.state = direct.state;
+    dsp.data = new Slice(direct.data.buffer, direct.data.offset, direct.data.length);
+    Assert.assertEquals("first", tc, decoder.fromDataStatePair(dsp));
+
+    /* the state is sent only once and the buffer is replaced when the tuple does not fit */
+    TestClass large = new TestClass(new String(new char[1000]), 7);
+    direct.data.offset = 20;
+    coder.toDataStatePair(large, direct);
+    Assert.assertNull("state", direct.state);
+    Assert.assertEquals("offset", 20, direct.data.offset);
+    Assert.assertTrue("grown", direct.data.buffer.length > 64);
+    Assert.assertEquals("preserved", 9, direct.data.buffer[9]);
+    dsp.data = new Slice(direct.data.buffer, direct.data.offset, direct.data.length);
+    Assert.assertEquals("second", large, decoder.fromDataStatePair(dsp));
+  }
+
+  /**
+   * Compares serializing small POJOs with {@link DefaultStatefulStreamCodec#toDataStatePair(Object)} followed by the
+   * copy into a payload tuple with serializing them directly into a frame buffer, as the buffer server publisher does.
+   */
+  @Test
+  @Ignore
+  public void testDirectSerializationPerformance()
+  {
+    final int count = 10000000;
+    final TestClass tc = new TestClass("hello!", 42);
+    for (int run = 0; run < 3; run++) {
+      DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+      long checksum = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        DataStatePair dsp = coder.toDataStatePair(tc);
+        checksum += PayloadTuple.getSerializedTuple(tc.hashCode(), dsp.data).length;
+      }
+      long copying = System.nanoTime() - start;
+
+      coder = new DefaultStatefulStreamCodec<Object>();
+      DataStatePair direct = new DataStatePair();
+      direct.data = new Slice(new byte[64 * 1024], 0, 0);
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        if (direct.data.buffer.length - direct.data.offset < 1024) {
+          direct.data.buffer = new byte[64 * 1024];
+          direct.data.offset = 0;
+        }
+        direct.data.offset += 10;
+        coder.toDataStatePair(tc, direct);
+        direct.data.offset += direct.data.length;
+        checksum += direct.data.length + tc.hashCode();
+      }
+      long directTime = System.nanoTime() - start;
+      logger.info("Serialized {} tuples: copying {} ms, direct {} ms ({})", count, copying / 1000000,
+          directTime / 1000000, checksum);
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(DefaultStatefulStreamCodecTest.class);
 }
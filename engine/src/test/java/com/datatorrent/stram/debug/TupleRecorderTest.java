@@ -19,7 +19,9 @@
 package com.datatorrent.stram.debug;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -41,6 +43,8 @@ import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 
 import com.datatorrent.api.Context;
+import com.datatorrent.api.Sink;
+import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.stram.StramLocalCluster;
 import com.datatorrent.stram.debug.TupleRecorder.PortInfo;
@@ -51,6 +55,7 @@ import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.physical.PTOperator;
 import com.datatorrent.stram.support.StramTestSupport;
 import com.datatorrent.stram.support.StramTestSupport.WaitCondition;
+import com.datatorrent.stram.tuple.EndWindowTuple;
 import com.datatorrent.stram.util.FSPartFileCollection;
 
 /**
@@ -206,6 +211,81 @@ public class TupleRecorderTest
     }
   }
 
+  @Test
+  public void testBinaryRecorder() throws IOException
+  {
+    TupleRecorder recorder = new TupleRecorder("binary", "application_test_id_1");
+    recorder.getStorage().setLocalMode(true);
+    File dir = new File(testWorkDir, "binaryRecordings");
+    recorder.getStorage().setBasePath("file://" + dir.getAbsolutePath());
+    recorder.setQueueCapacity(1024);
+    recorder.setSampling(2, 0);
+
+    recorder.addInputPortInfo("ip1", "str1");
+    Sink<Object> sink = recorder.newSink("ip1");
+    recorder.setup(null, null);
+
+    for (long windowId = 1000; windowId < 1003; windowId++) {
+      sink.put(new com.datatorrent.stram.tuple.Tuple(MessageType.BEGIN_WINDOW, windowId));
+      for (int i = 0; i < 4; i++) {
+        Tuple t = new Tuple();
+        t.key = "speed";
+        t.value = windowId + "-" + i;
+        sink.put(t);
+      }
+      sink.put(new EndWindowTuple(windowId));
+    }
+    recorder.teardown();
+    Assert.assertEquals("recorded tuples", 6, recorder.getTotalTupleCount());
+    Assert.assertEquals("dropped tuples", 0, recorder.getDroppedTupleCount());
+
+    try (BufferedReader br = new BufferedReader(new FileReader(new File(dir, FSPartFileCollection.META_FILE)))) {
+      Assert.assertEquals("check version", TupleRecorder.BINARY_VERSION, br.readLine());
+    }
+    try (BufferedReader br = new BufferedReader(new FileReader(new File(dir, FSPartFileCollection.INDEX_FILE)))) {
+      Assert.assertTrue("check index", br.readLine().matches("F:part0.bin:\\d+-\\d+:6:T:1000-1002:.*"));
+    }
+
+    File partFile = new File(dir, "part0" + TupleRecorder.BINARY_PART_FILE_EXTENSION);
+    ArrayList<Long> windowOffsets = new ArrayList<>();
+    ArrayList<String> tuples = new ArrayList<>();
+    try (DataInputStream is = new DataInputStream(new FileInputStream(partFile))) {
+      long offset = 0;
+      while (offset < partFile.length()) {
+        byte type = is.readByte();
+        is.readLong();
+        if (type == TupleRecorder.BEGIN_WINDOW_RECORD || type == TupleRecorder.END_WINDOW_RECORD) {
+          if (type == TupleRecorder.BEGIN_WINDOW_RECORD) {
+            windowOffsets.add(offset);
+          }
+          is.readLong();
+          offset += 17;
+        } else {
+          Assert.assertEquals("port id", 0, is.readInt());
+          byte[] data = new byte[is.readInt()];
+          is.readFully(data);
+          if (type == TupleRecorder.TUPLE_RECORD) {
+            tuples.add(new String(data));
+          }
+          offset += 17 + data.length;
+        }
+      }
+    }
+    Assert.assertEquals("sampled tuples", 6, tuples.size());
+    Assert.assertEquals("first tuple", "{\"key\":\"speed\",\"value\":\"1000-0\"}", tuples.get(0));
+    Assert.assertEquals("second tuple", "{\"key\":\"speed\",\"value\":\"1000-2\"}", tuples.get(1));
+
+    try (DataInputStream is = new DataInputStream(new FileInputStream(new File(dir, "part0"
+        + FSPartFileCollection.PART_INDEX_FILE_EXTENSION)))) {
+      for (int i = 0; i < 3; i++) {
+        Assert.assertEquals("window id " + i, 1000 + i, is.readLong());
+        Assert.assertEquals("window offset " + i, (long)windowOffsets.get(i), is.readLong());
+        Assert.assertEquals("tuples before window " + i, 2 * i, is.readLong());
+      }
+      Assert.assertEquals("index entries", 0, is.available());
+    }
+  }
+
   private static final File testWorkDir = new File("target", TupleRecorderTest.class.getName());
   private static final int testTupleCount = 10;
 
@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.locks.Condition;
@@ -50,6 +52,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(JUnitParamsRunner.class)
 public class AbstractReservoirTest
@@ -470,4 +473,131 @@ public class AbstractReservoirTest
     logger.debug("Time {}", System.currentTimeMillis() - start);
   }
 
+  private static class CountingSink implements Sink<Object>
+  {
+    int count;
+
+    @Override
+    public void put(Object tuple)
+    {
+      count++;
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return count;
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private Object reservoirClassNames()
+  {
+    return new Object[][] {
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayBlockingQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$ArrayBlockingQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$CircularBufferReservoir"}
+    };
+  }
+
+  @SuppressWarnings("unused")
+  private Object spscReservoirClassNames()
+  {
+    return new Object[][] {
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayBlockingQueueReservoir"}
+    };
+  }
+
+  @Test
+  @Parameters(method = "spscReservoirClassNames")
+  public void testSweepToFailingSink(final String reservoirClassName)
+  {
+    final AbstractReservoir reservoir = newReservoir(reservoirClassName, 1024);
+    final int failAt = AbstractReservoir.SWEEP_BATCH_SIZE / 2;
+    final List<Object> tuples = new ArrayList<>();
+    reservoir.setSink(new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        tuples.add(tuple);
+        if (tuples.size() == failAt) {
+          throw new IllegalStateException();
+        }
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return tuples.size();
+      }
+    });
+
+    final int count = 3 * AbstractReservoir.SWEEP_BATCH_SIZE;
+    final Tuple t = new Tuple(BEGIN_WINDOW, 0L);
+    for (int i = 0; i < count; i++) {
+      assertTrue(reservoir.offer(i));
+    }
+    assertTrue(reservoir.offer(t));
+    assertTrue(reservoir.offer(count));
+
+    try {
+      reservoir.sweep();
+      fail("sink did not fail");
+    } catch (IllegalStateException e) {
+      assertEquals("tuples delivered", failAt, reservoir.getCount(false));
+      assertEquals("tuples left", count + 2 - failAt, reservoir.size());
+    }
+
+    assertEquals(t, reservoir.sweep());
+    assertEquals(count, reservoir.getCount(false));
+    for (int i = 0; i < count; i++) {
+      assertEquals(i, tuples.get(i));
+    }
+    assertEquals(t, reservoir.remove());
+    assertNull(reservoir.sweep());
+    assertEquals(count + 1, reservoir.getCount(false));
+    assertEquals(count, tuples.get(count));
+    assertTrue(reservoir.isEmpty());
+  }
+
+  /**
+   * Measures the throughput of the tuples handed over through a reservoir to the sink of a port, with a control tuple
+   * every 1000 tuples. The reservoir is filled and swept in turns by the same thread, so that the measurement is not
+   * skewed by the scheduling of a producer thread.
+   */
+  @Test
+  @Ignore
+  @Parameters(method = "reservoirClassNames")
+  public void testSweepPerformance(final String reservoirClassName)
+  {
+    final Object o = new Byte[128];
+    for (int run = 0; run < 20; run++) {
+      final AbstractReservoir reservoir = newReservoir(reservoirClassName, CAPACITY);
+      final CountingSink sink = new CountingSink();
+      reservoir.setSink(sink);
+
+      final long start = System.nanoTime();
+      final int fill = CAPACITY / 2;
+      for (int i = 0; i < COUNT;) {
+        for (final int end = Math.min(i + fill, COUNT); i < end; i++) {
+          if (i % 1000 == 0) {
+            reservoir.offer(new Tuple(BEGIN_WINDOW, i));
+          }
+          reservoir.offer(o);
+        }
+        while (!reservoir.isEmpty()) {
+          if (reservoir.sweep() != null) {
+            reservoir.remove();
+          }
+        }
+      }
+      final long elapsed = System.nanoTime() - start;
+      assertEquals("tuples", COUNT, sink.getCount(false));
+      logger.info("{} {} tuples/s", reservoir.getId(), COUNT * 1000000000L / elapsed);
+    }
+  }
+
 }
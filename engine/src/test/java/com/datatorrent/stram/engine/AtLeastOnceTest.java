@@ -143,4 +143,36 @@ public class AtLeastOnceTest
     Assert.assertEquals("Generated Outputs", maxTuples, CollectorOperator.collection.size());
   }
 
+  /**
+   * Both operators share a single worker thread, the container must alternate between them and recover them.
+   */
+  @Test
+  public void testOperatorRecoveryOnWorkerThread() throws Exception
+  {
+    RecoverableInputOperator.initGenTuples();
+    CollectorOperator.collection.clear();
+    int maxTuples = 30;
+    LogicalPlan dag = new LogicalPlan();
+    String workingDir = new File("target/testOperatorRecoveryOnWorkerThread").getAbsolutePath();
+    AsyncFSStorageAgent asyncFSStorageAgent = new AsyncFSStorageAgent(workingDir, null);
+    asyncFSStorageAgent.setSyncCheckpoint(true);
+    dag.setAttribute(Context.OperatorContext.STORAGE_AGENT, asyncFSStorageAgent);
+    dag.getAttributes().put(LogicalPlan.CHECKPOINT_WINDOW_COUNT, 2);
+    dag.getAttributes().put(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS, 300);
+    dag.getAttributes().put(LogicalPlan.CONTAINERS_MAX_COUNT, 1);
+    dag.getAttributes().put(LogicalPlan.OPERATOR_WORKER_THREADS, 1);
+    RecoverableInputOperator rip = dag.addOperator("LongGenerator", RecoverableInputOperator.class);
+    rip.setMaximumTuples(maxTuples);
+    rip.setSimulateFailure(true);
+
+    CollectorOperator cm = dag.addOperator("LongCollector", CollectorOperator.class);
+    cm.setSimulateFailure(true);
+    dag.addStream("connection", rip.output, cm.input).setLocality(Locality.CONTAINER_LOCAL);
+
+    StramLocalCluster lc = new StramLocalCluster(dag);
+    lc.run();
+
+    Assert.assertEquals("Generated Outputs", maxTuples, CollectorOperator.collection.size());
+  }
+
 }
@@ -21,6 +21,7 @@ package com.datatorrent.stram.engine;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,6 +49,8 @@ import com.datatorrent.api.Operator.CheckpointNotificationListener;
 import com.datatorrent.api.Operator.ProcessingMode;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.api.StatsListener.OperatorRequest;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.bufferserver.packet.MessageType;
@@ -391,6 +394,87 @@ public class GenericNodeTest
     Assert.assertEquals(Thread.State.TERMINATED, t.getState());
   }
 
+  @Test
+  public void testSwitchInputPorts() throws InterruptedException
+  {
+    final List<Object> tuples = new ArrayList<>();
+    Operator.Unifier<Object> unifier = new Operator.Unifier<Object>()
+    {
+      @Override
+      public void process(Object tuple)
+      {
+        tuples.add(tuple);
+      }
+
+      @Override
+      public void beginWindow(long windowId)
+      {
+      }
+
+      @Override
+      public void endWindow()
+      {
+      }
+
+      @Override
+      public void setup(Context.OperatorContext context)
+      {
+      }
+
+      @Override
+      public void teardown()
+      {
+      }
+
+    };
+    final UnifierNode un = new UnifierNode(unifier, new com.datatorrent.stram.engine.OperatorContext(0, new DefaultAttributeMap(), null));
+    un.setId(1);
+    AbstractReservoir reservoir1 = AbstractReservoir.newReservoir("ip1Res", 1024);
+    AbstractReservoir reservoir2 = AbstractReservoir.newReservoir("ip2Res", 1024);
+    final AbstractReservoir reservoir3 = AbstractReservoir.newReservoir("ip3Res", 1024);
+    un.connectInputPort("in1", reservoir1);
+    un.connectInputPort("in2", reservoir2);
+    un.firstWindowMillis = 0;
+    un.windowWidthMillis = 100;
+    un.activate();
+    un.startProcessing();
+
+    /* switch from in2 to in3 at the end of window 1 */
+    un.context.request(new OperatorRequest()
+    {
+      @Override
+      public StatsListener.OperatorResponse execute(Operator operator, int operatorId, long windowId)
+      {
+        un.switchInputPorts(Collections.<String, SweepableReservoir>singletonMap("in3", reservoir3),
+            Collections.singletonList("in2"), windowId);
+        return null;
+      }
+
+    });
+
+    for (int i = 1; i <= 2; i++) {
+      reservoir1.add(new Tuple(MessageType.BEGIN_WINDOW, i));
+      reservoir1.add("r1w" + i);
+      reservoir1.add(new EndWindowTuple(i));
+      reservoir2.add(new Tuple(MessageType.BEGIN_WINDOW, i));
+      reservoir2.add("r2w" + i);
+      reservoir2.add(new EndWindowTuple(i));
+      reservoir3.add(new Tuple(MessageType.BEGIN_WINDOW, i));
+      reservoir3.add("r3w" + i);
+      reservoir3.add(new EndWindowTuple(i));
+    }
+    reservoir1.add(new Tuple(MessageType.BEGIN_WINDOW, 3));
+
+    for (int i = 0; i < 100; i++) {
+      un.process();
+    }
+    Assert.assertEquals("tuples", Sets.newHashSet("r1w1", "r2w1", "r1w2", "r3w2"), Sets.newHashSet(tuples));
+    Assert.assertEquals("tuples " + tuples, 4, tuples.size());
+    Assert.assertEquals("window", 3, un.currentWindowId);
+    Assert.assertFalse("disconnected", un.inputs.containsKey("in2"));
+    Assert.assertTrue("connected", un.inputs.containsKey("in3"));
+  }
+
   @Test
   public void testPrematureTermination() throws InterruptedException
   {
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.Context.PortContext;
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.InputOperator;
+import com.datatorrent.common.util.BaseOperator;
+import com.datatorrent.stram.StramLocalCluster;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.support.StramTestSupport;
+import com.datatorrent.stram.support.StramTestSupport.TestMeta;
+
+/**
+ * Operators on a shared worker pool that exchange tuples through container local streams.
+ */
+public class NodeSchedulerTest
+{
+  private static final int QUEUE_CAPACITY = 1024;
+  private static final int TUPLE_COUNT = 100 * QUEUE_CAPACITY;
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  /**
+   * The input operator emits many times the queue capacity in one call, the chain of container local operators must
+   * make progress on a single worker thread while the queues are full.
+   */
+  @Test
+  public void testFullContainerLocalStreams() throws Exception
+  {
+    CountingOperator.count.set(0);
+    LogicalPlan dag = StramTestSupport.createDAG(testMeta);
+    dag.setAttribute(LogicalPlan.OPERATOR_WORKER_THREADS, 1);
+    dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, 1);
+
+    BurstInputOperator input = dag.addOperator("input", BurstInputOperator.class);
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    CountingOperator counter = dag.addOperator("counter", CountingOperator.class);
+    dag.addStream("input", input.output, o1.inport1).setLocality(Locality.CONTAINER_LOCAL);
+    dag.addStream("o1", o1.outport1, o2.inport1).setLocality(Locality.CONTAINER_LOCAL);
+    dag.addStream("o2", o2.outport1, counter.input).setLocality(Locality.CONTAINER_LOCAL);
+    dag.setInputPortAttribute(o1.inport1, PortContext.QUEUE_CAPACITY, QUEUE_CAPACITY);
+    dag.setInputPortAttribute(o2.inport1, PortContext.QUEUE_CAPACITY, QUEUE_CAPACITY);
+    dag.setInputPortAttribute(counter.input, PortContext.QUEUE_CAPACITY, QUEUE_CAPACITY);
+
+    StramLocalCluster lc = new StramLocalCluster(dag);
+    lc.runAsync();
+    try {
+      boolean complete = StramTestSupport.awaitCompletion(new StramTestSupport.WaitCondition()
+      {
+        @Override
+        public boolean isComplete()
+        {
+          return CountingOperator.count.get() == TUPLE_COUNT;
+        }
+      }, 30000);
+      Assert.assertTrue("tuples received " + CountingOperator.count.get(), complete);
+    } finally {
+      lc.shutdown();
+    }
+  }
+
+  public static class BurstInputOperator extends BaseOperator implements InputOperator
+  {
+    private int emitted;
+    public final transient DefaultOutputPort<Integer> output = new DefaultOutputPort<>();
+
+    @Override
+    public void emitTuples()
+    {
+      while (emitted < TUPLE_COUNT) {
+        output.emit(emitted++);
+      }
+    }
+
+  }
+
+  public static class CountingOperator extends BaseOperator
+  {
+    private static final AtomicLong count = new AtomicLong();
+    public final transient DefaultInputPort<Object> input = new DefaultInputPort<Object>()
+    {
+      @Override
+      public void process(Object tuple)
+      {
+        count.incrementAndGet();
+      }
+
+    };
+
+    @Override
+    public void setup(OperatorContext context)
+    {
+    }
+
+  }
+
+}
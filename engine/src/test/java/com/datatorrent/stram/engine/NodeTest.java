@@ -220,6 +220,36 @@ public class NodeTest
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
       }
 
+      @Override
+      protected void startProcessing()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected Progress process()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected boolean hasInput()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected void signalInputs(NodeScheduler.WorkUnit unit)
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected void endProcessing()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
     };
 
     node.activate();
@@ -253,6 +283,36 @@ public class NodeTest
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
       }
 
+      @Override
+      protected void startProcessing()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected Progress process()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected boolean hasInput()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected void signalInputs(NodeScheduler.WorkUnit unit)
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
+      @Override
+      protected void endProcessing()
+      {
+        throw new UnsupportedOperationException("Not supported yet.");
+      }
+
     };
 
     node.activate();
@@ -19,10 +19,12 @@
 package com.datatorrent.stram.engine;
 
 import java.io.File;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
 import com.datatorrent.api.Context;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
@@ -85,10 +87,15 @@ public class SliderTest
       @Override
       public Unifier<Integer> getUnifier()
       {
-        return new Sum();
+        return newUnifier();
       }
     };
 
+    protected Sum newUnifier()
+    {
+      return new Sum();
+    }
+
     @Override
     public void process(Integer tuple)
     {
@@ -104,6 +111,33 @@ public class SliderTest
     }
   }
 
+  public static class CombinableSum extends Sum implements Operator.CombinableUnifier<Integer, Integer>
+  {
+    @Override
+    protected Sum newUnifier()
+    {
+      return new CombinableSum();
+    }
+
+    @Override
+    public Integer newPartial()
+    {
+      return 0;
+    }
+
+    @Override
+    public Integer accumulate(Integer partial, Integer tuple)
+    {
+      return partial + tuple;
+    }
+
+    @Override
+    public void processPartial(Integer partial)
+    {
+      sum += partial;
+    }
+  }
+
   public static class Validator extends BaseOperator
   {
     public static int numbersValidated;
@@ -140,13 +174,18 @@ public class SliderTest
   }
 
   private void test(int applicationWindowCount, int slideByWindowCount) throws Exception
+  {
+    test(new Sum(), applicationWindowCount, slideByWindowCount);
+  }
+
+  private void test(Sum sumOperator, int applicationWindowCount, int slideByWindowCount) throws Exception
   {
     LogicalPlan dag = new LogicalPlan();
     String workingDir = new File("target/sliderTest").getAbsolutePath();
     dag.setAttribute(Context.OperatorContext.STORAGE_AGENT, new AsyncFSStorageAgent(workingDir, null));
     dag.getAttributes().put(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS, 100);
     Input input = dag.addOperator("Input", new Input());
-    Sum sum = dag.addOperator("Sum", new Sum());
+    Sum sum = dag.addOperator("Sum", sumOperator);
     dag.setOperatorAttribute(sum, OperatorContext.APPLICATION_WINDOW_COUNT, applicationWindowCount);
     dag.setOperatorAttribute(sum, OperatorContext.SLIDE_BY_WINDOW_COUNT, slideByWindowCount);
     Validator validate = dag.addOperator("validator", new Validator());
@@ -186,4 +225,47 @@ public class SliderTest
   {
     test(4, 2);
   }
+
+  @Test
+  public void testSliderWithCombinableUnifier() throws Exception
+  {
+    test(new CombinableSum(), 5, 2);
+  }
+
+  /**
+   * A combinable unifier must produce the same sliding sums as the replay of the cached tuples, while the slider only
+   * keeps a partial for each bucket.
+   */
+  @Test
+  public void testCombinableSlider()
+  {
+    final int buckets = 5;
+    final int slide = 2;
+    List<Object> expected = slide(new Slider(unifier(new Sum()), buckets, slide), 50);
+    List<Object> actual = slide(new Slider(unifier(new CombinableSum()), buckets, slide), 50);
+    Assert.assertEquals("sliding sums", expected, actual);
+    Assert.assertFalse("sliding sums", actual.isEmpty());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Operator.Unifier<Object> unifier(Sum sum)
+  {
+    return (Operator.Unifier<Object>)(Operator.Unifier<?>)sum;
+  }
+
+  private static List<Object> slide(Slider slider, int windowCount)
+  {
+    TestSink sink = new TestSink();
+    slider.outputPort.setSink(sink);
+    slider.setup(new com.datatorrent.stram.engine.OperatorContext(1, new DefaultAttributeMap(), null));
+    for (int windowId = 0, value = 1; windowId < windowCount; windowId++) {
+      slider.beginWindow(windowId);
+      for (int i = 0; i < 10; i++) {
+        slider.process(value++);
+      }
+      slider.endWindow();
+    }
+    slider.teardown();
+    return sink.collectedTuples;
+  }
 }
@@ -39,6 +39,7 @@ import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.stram.Journal.Recoverable;
 import com.datatorrent.stram.api.StramEvent;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.StramToNodeRequest;
+import com.datatorrent.stram.plan.physical.InputSwitch;
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
 import com.datatorrent.stram.plan.physical.PhysicalPlan.PlanContext;
@@ -49,6 +50,7 @@ public class TestPlanContext implements PlanContext, StorageAgent
   public Collection<PTOperator> undeploy;
   public Collection<PTOperator> deploy;
   public Set<PTContainer> releaseContainers;
+  public List<InputSwitch> inputSwitches = Lists.newArrayList();
   public List<Integer> checkpointDeletes = Lists.newArrayList();
   public Map<Integer, Map<Long, byte[]>> checkpoints = Maps.newHashMap();
   public int backupRequests;
@@ -127,6 +129,12 @@ public class TestPlanContext implements PlanContext, StorageAgent
   {
   }
 
+  @Override
+  public void switchInputs(Collection<InputSwitch> switches)
+  {
+    inputSwitches.addAll(switches);
+  }
+
   public static class MockOperatorStatus implements StatsListener.BatchedOperatorStats
   {
     final PTOperator oper;
@@ -35,6 +35,7 @@ import javax.validation.constraints.Min;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.powermock.reflect.Whitebox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -269,6 +270,38 @@ public class PhysicalPlanTest
     Assert.assertEquals("unifier inputs " + unifier, partitioned.partitionKeys.length, unifier.inputs.size());
   }
 
+  @Test
+  public void testConcurrentPartitioners()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new StramTestSupport.MemoryStorageAgent());
+    dag.setAttribute(LogicalPlan.PARTITIONING_THREADS, 4);
+
+    TestGeneratorInputOperator node0 = dag.addOperator("node0", TestGeneratorInputOperator.class);
+    dag.setOperatorAttribute(node0, OperatorContext.PARTITIONER, new StatelessPartitioner<TestGeneratorInputOperator>(3));
+    GenericTestOperator node1 = dag.addOperator("node1", GenericTestOperator.class);
+    dag.setInputPortAttribute(node1.inport1, PortContext.PARTITION_PARALLEL, true);
+    PartitioningTestOperator partitioned = dag.addOperator("partitioned", PartitioningTestOperator.class);
+    partitioned.setPartitionCount(partitioned.partitionKeys.length);
+    GenericTestOperator singleton = dag.addOperator("singleton", GenericTestOperator.class);
+
+    dag.addStream("n0.outport", node0.outport, node1.inport1);
+    dag.addStream("n1.outport1", node1.outport1, partitioned.inport1);
+    dag.addStream("mergeStream", partitioned.outport1, singleton.inport1);
+
+    PhysicalPlan plan = new PhysicalPlan(dag, new TestPlanContext());
+
+    Assert.assertEquals("partitions node0", 3, plan.getOperators(dag.getMeta(node0)).size());
+    Assert.assertEquals("partitions node1", 3, plan.getOperators(dag.getMeta(node1)).size());
+    List<PTOperator> partitions = plan.getOperators(dag.getMeta(partitioned));
+    Assert.assertEquals("partitions " + partitions, partitioned.partitionKeys.length, partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      PTInput input = partitions.get(i).getInputs().get(0);
+      Assert.assertEquals("unifier inputs " + input, 3, input.source.source.getInputs().size());
+    }
+    Assert.assertEquals("partitions singleton", 1, plan.getOperators(dag.getMeta(singleton)).size());
+  }
+
   @Test
   public void testDefaultPartitioning()
   {
@@ -700,6 +733,278 @@ public class PhysicalPlanTest
     Assert.assertEquals("unifier activation checkpoint " + o1Meta, 3, o1NewUnifiers.get(0).recoveryCheckpoint.windowId);
   }
 
+  /**
+   * Test the unifier switches to the new partitions and the downstream operator is not redeployed.
+   */
+  @Test
+  public void testLiveRepartitioning()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(LogicalPlan.LIVE_REPARTITION, true);
+
+    TestInputOperator<?> o1 = dag.addOperator("o1", TestInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+
+    dag.addStream("o1.outport1", o1.output, o2.inport1);
+    OperatorMeta o1Meta = dag.getMeta(o1);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(4));
+    dag.setOperatorAttribute(o1, OperatorContext.STATS_LISTENERS, Arrays.asList(new StatsListener[]{new PartitioningTest.PartitionLoadWatch()}));
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      oper.setState(PTOperator.State.ACTIVE);
+    }
+
+    List<PTOperator> o1Partitions = plan.getOperators(o1Meta);
+    Assert.assertEquals("partitions " + o1Partitions, 4, o1Partitions.size());
+    List<PTOperator> o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("unifiers " + o1Meta, 1, o1Unifiers.size());
+    PTOperator unifier = o1Unifiers.get(0);
+
+    for (PTOperator p : o1Partitions) {
+      PartitioningTest.PartitionLoadWatch.put(p, -1);
+      plan.onStatusUpdate(p);
+    }
+    Assert.assertEquals("partition scaling triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    List<PTOperator> o1NewPartitions = plan.getOperators(o1Meta);
+    Assert.assertEquals("partitions " + o1NewPartitions, 2, o1NewPartitions.size());
+    Assert.assertEquals("unifiers " + o1Meta, o1Unifiers, plan.getMergeOperators(o1Meta));
+
+    Set<PTOperator> removed = Sets.newHashSet(o1Partitions);
+    removed.removeAll(o1NewPartitions);
+    Assert.assertEquals("removed partitions " + removed, 2, removed.size());
+
+    Assert.assertEquals("input switches " + ctx.inputSwitches, 1, ctx.inputSwitches.size());
+    InputSwitch inputSwitch = ctx.inputSwitches.get(0);
+    Assert.assertSame("unifier", unifier, inputSwitch.getOperator());
+    Assert.assertEquals("state", InputSwitch.State.READY, inputSwitch.getState());
+    Assert.assertEquals("retired sources", removed, inputSwitch.getRetiredSources());
+    Assert.assertEquals("retired inputs", 2, inputSwitch.getRetiredInputs().size());
+    Assert.assertEquals("added inputs", 0, inputSwitch.getAddedInputs().size());
+    PTOperator retired = removed.iterator().next();
+    Assert.assertTrue("retiring " + retired, inputSwitch.isRetiring(retired.getId()));
+    Assert.assertEquals("undeploy", removed, ctx.undeploy);
+    Assert.assertEquals("deploy", Collections.emptySet(), ctx.deploy);
+
+    inputSwitch.setState(InputSwitch.State.DONE);
+    Assert.assertFalse("retiring " + retired, inputSwitch.isRetiring(retired.getId()));
+
+    // scale up, the unifier switches to the added partitions
+    ctx.inputSwitches.clear();
+    for (PTOperator p : o1NewPartitions) {
+      PartitioningTest.PartitionLoadWatch.put(p, 1);
+      plan.onStatusUpdate(p);
+    }
+    Assert.assertEquals("partition scaling triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    Set<PTOperator> added = Sets.newHashSet(plan.getOperators(o1Meta));
+    added.removeAll(o1NewPartitions);
+    Assert.assertFalse("added partitions", added.isEmpty());
+    Assert.assertEquals("unifiers " + o1Meta, o1Unifiers, plan.getMergeOperators(o1Meta));
+
+    Assert.assertEquals("input switches " + ctx.inputSwitches, 1, ctx.inputSwitches.size());
+    inputSwitch = ctx.inputSwitches.get(0);
+    Assert.assertSame("unifier", unifier, inputSwitch.getOperator());
+    Assert.assertEquals("state", InputSwitch.State.READY, inputSwitch.getState());
+    Set<PTOperator> addedSources = Sets.newHashSet();
+    for (PTInput input : inputSwitch.getAddedInputs()) {
+      addedSources.add(input.source.source);
+    }
+    Assert.assertEquals("added sources", added, addedSources);
+    Assert.assertEquals("deploy", added, ctx.deploy);
+    Assert.assertFalse("unifier redeployed", ctx.undeploy.contains(unifier));
+  }
+
+  /**
+   * Test the fan-in of a cascading level follows the latency of its unifiers.
+   */
+  @Test
+  public void testAdaptiveCascadingUnifier()
+  {
+    LogicalPlan dag = new LogicalPlan();
+
+    TestInputOperator<?> o1 = dag.addOperator("o1", TestInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+
+    dag.addStream("o1.outport1", o1.output, o2.inport1);
+    OperatorMeta o1Meta = dag.getMeta(o1);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(16));
+    dag.setOutputPortAttribute(o1.output, PortContext.UNIFIER_LIMIT, 4);
+    dag.setOutputPortAttribute(o1.output, LogicalPlan.UNIFIER_LATENCY_MILLIS, 100);
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+
+    List<PTOperator> o1Partitions = plan.getOperators(o1Meta);
+    Assert.assertEquals("partitions " + o1Partitions, 16, o1Partitions.size());
+    List<PTOperator> o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("unifiers " + o1Unifiers, 5, o1Unifiers.size());
+    PTOperator finalUnifier = plan.getStreamMapping(o1Unifiers.get(0)).finalUnifier;
+    Assert.assertEquals("final unifier inputs", 4, finalUnifier.getInputs().size());
+
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      oper.setState(PTOperator.State.ACTIVE);
+    }
+    for (PTOperator p : o1Partitions) {
+      setOutputRate(p, 1000);
+    }
+    for (PTOperator unifier : o1Unifiers) {
+      setOutputRate(unifier, 4000);
+      setThroughput(unifier, 4000);
+      setLatency(unifier, 10);
+    }
+    setOutputRate(finalUnifier, 16000);
+    setThroughput(finalUnifier, 16000);
+
+    // a unifier of the first level only sustains 2000 tuples/s, 2 partitions at 1000 tuples/s
+    PTOperator hotUnifier = finalUnifier.getInputs().get(0).source.source;
+    setThroughput(hotUnifier, 2000);
+    setLatency(hotUnifier, 400);
+    plan.onStatusUpdate(hotUnifier);
+    Assert.assertEquals("rebalance triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("unifiers " + o1Unifiers, 11, o1Unifiers.size());
+    Assert.assertTrue("final unifier kept", o1Unifiers.contains(finalUnifier));
+    Assert.assertEquals("final unifier inputs", 2, finalUnifier.getInputs().size());
+    List<PTOperator> level0 = Lists.newArrayList();
+    List<PTOperator> level1 = Lists.newArrayList();
+    for (PTOperator unifier : o1Unifiers) {
+      if (unifier == finalUnifier) {
+        continue;
+      }
+      if (o1Partitions.contains(unifier.getInputs().get(0).source.source)) {
+        Assert.assertEquals("unifier inputs " + unifier, 2, unifier.getInputs().size());
+        Assert.assertEquals("fan-in", 2, plan.getUnifierFanIn(unifier));
+        level0.add(unifier);
+      } else {
+        Assert.assertEquals("unifier inputs " + unifier, 4, unifier.getInputs().size());
+        Assert.assertEquals("fan-in", 0, plan.getUnifierFanIn(unifier));
+        level1.add(unifier);
+      }
+    }
+    Assert.assertEquals("first level " + level0, 8, level0.size());
+    Assert.assertEquals("second level " + level1, 2, level1.size());
+    Assert.assertFalse("partitions undeployed", ctx.undeploy.removeAll(o1Partitions));
+
+    // no change before the stats of the redeployed unifiers settle
+    for (PTOperator unifier : o1Unifiers) {
+      unifier.setState(PTOperator.State.ACTIVE);
+      setLatency(unifier, 40);
+    }
+    for (PTOperator unifier : level0) {
+      setOutputRate(unifier, 2000);
+      setLatency(unifier, 5);
+    }
+    for (PTOperator unifier : level1) {
+      setOutputRate(unifier, 8000);
+    }
+    plan.onStatusUpdate(finalUnifier);
+    Assert.assertEquals("rebalance triggered", 0, ctx.events.size());
+
+    // the first level stays below the rate it was saturated at, the second level well below the latency is merged
+    // into the final unifier and the first level is not redeployed
+    StreamMapping sm = plan.getStreamMapping(finalUnifier);
+    Whitebox.setInternalState(sm, "lastRebalanceMillis", 0L);
+    plan.onStatusUpdate(finalUnifier);
+    Assert.assertEquals("rebalance triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("unifiers " + o1Unifiers, 9, o1Unifiers.size());
+    Assert.assertTrue("first level kept", o1Unifiers.containsAll(level0));
+    Assert.assertEquals("final unifier inputs", 8, finalUnifier.getInputs().size());
+    Assert.assertEquals("fan-in", 8, plan.getUnifierFanIn(finalUnifier));
+
+    Set<PTOperator> expDeploy = Sets.newHashSet(finalUnifier);
+    expDeploy.addAll(plan.getOperators(dag.getMeta(o2)));
+    Assert.assertEquals("deploy", expDeploy, ctx.deploy);
+    expDeploy.addAll(level1);
+    Assert.assertEquals("undeploy", expDeploy, ctx.undeploy);
+  }
+
+  /**
+   * Test the final unifier is only relieved by another level when the unifiers combine tuples.
+   */
+  @Test
+  public void testAdaptiveFinalUnifier()
+  {
+    LogicalPlan dag = new LogicalPlan();
+
+    TestInputOperator<?> o1 = dag.addOperator("o1", TestInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+
+    dag.addStream("o1.outport1", o1.output, o2.inport1);
+    OperatorMeta o1Meta = dag.getMeta(o1);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(8));
+    dag.setOutputPortAttribute(o1.output, LogicalPlan.UNIFIER_LATENCY_MILLIS, 100);
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+
+    List<PTOperator> o1Partitions = plan.getOperators(o1Meta);
+    List<PTOperator> o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("unifiers " + o1Unifiers, 1, o1Unifiers.size());
+    PTOperator finalUnifier = o1Unifiers.get(0);
+    Assert.assertEquals("unifier inputs", 8, finalUnifier.getInputs().size());
+
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      oper.setState(PTOperator.State.ACTIVE);
+    }
+    for (PTOperator p : o1Partitions) {
+      setOutputRate(p, 1000);
+    }
+
+    // the final unifier passes on all 8000 tuples/s and only sustains 4000 tuples/s
+    setOutputRate(finalUnifier, 8000);
+    setThroughput(finalUnifier, 4000);
+    setLatency(finalUnifier, 400);
+    plan.onStatusUpdate(finalUnifier);
+    Assert.assertEquals("rebalance triggered", 0, ctx.events.size());
+    Assert.assertEquals("fan-in", 0, plan.getUnifierFanIn(finalUnifier));
+    Assert.assertEquals("unifiers", o1Unifiers, plan.getMergeOperators(o1Meta));
+
+    // the unifiers emit a tenth of the tuples they receive, a level of 4 partitions per unifier relieves the final
+    StreamMapping sm = plan.getStreamMapping(finalUnifier);
+    Whitebox.setInternalState(sm, "lastRebalanceMillis", 0L);
+    setOutputRate(finalUnifier, 800);
+    plan.onStatusUpdate(finalUnifier);
+    Assert.assertEquals("rebalance triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("unifiers " + o1Unifiers, 3, o1Unifiers.size());
+    Assert.assertTrue("final unifier kept", o1Unifiers.contains(finalUnifier));
+    Assert.assertEquals("final unifier inputs", 2, finalUnifier.getInputs().size());
+    for (PTOperator unifier : sm.cascadingUnifiers) {
+      Assert.assertEquals("unifier inputs " + unifier, 4, unifier.getInputs().size());
+      Assert.assertEquals("fan-in", 4, plan.getUnifierFanIn(unifier));
+    }
+    Assert.assertFalse("partitions undeployed", ctx.undeploy.removeAll(o1Partitions));
+  }
+
+  private void setLatency(PTOperator oper, long latency)
+  {
+    for (int i = 0; i < 100; i++) {
+      oper.stats.latencyMA.add(latency);
+    }
+  }
+
+  private void setOutputRate(PTOperator oper, long tps)
+  {
+    OperatorStatus.PortStatus ps = oper.stats.new PortStatus();
+    ps.tuplesPMSMA.add(tps, 1000);
+    oper.stats.outputPortStatusList.put(oper.getOutputs().get(0).portName, ps);
+  }
+
   private void setActivationCheckpoint(PTOperator oper, long windowId)
   {
     try {
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec;
+import com.datatorrent.stram.codec.DirectStatefulStreamCodec;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Blocks the operator thread while the send buffers of the publisher are full.
+ */
+public class BufferServerPublisherTest
+{
+  static class BlockingPublisher extends BufferServerPublisher
+  {
+    volatile boolean blocked;
+    volatile int sendCount;
+
+    BlockingPublisher()
+    {
+      super("publisher", 1024);
+    }
+
+    @Override
+    public boolean send(byte[] array, int offset, int len)
+    {
+      if (blocked) {
+        return false;
+      }
+      sendCount++;
+      return true;
+    }
+  }
+
+  @Test
+  public void testBlockedSend() throws Exception
+  {
+    final BlockingPublisher publisher = new BlockingPublisher();
+    publisher.blocked = true;
+    Thread operator = new Thread("operator")
+    {
+      @Override
+      public void run()
+      {
+        publisher.put(new Tuple(MessageType.BEGIN_WINDOW, 1));
+      }
+    };
+    operator.start();
+
+    /* the operator thread may start late, the expected blocked time is measured from when it waits */
+    long timeout = System.currentTimeMillis() + 5000;
+    while (operator.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < timeout) {
+      Thread.sleep(1);
+    }
+    Assert.assertEquals("operator waiting", Thread.State.TIMED_WAITING, operator.getState());
+    long waitingNanos = System.nanoTime();
+    Thread.sleep(300);
+    Assert.assertTrue("operator blocked", operator.isAlive());
+    Assert.assertEquals("sent", 0, publisher.sendCount);
+
+    long minBlockedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitingNanos);
+    publisher.blocked = false;
+    publisher.sendBufferEvent();
+    operator.join(5000);
+    Assert.assertFalse("operator unblocked", operator.isAlive());
+    /* the length and the tuple */
+    Assert.assertEquals("sent", 2, publisher.sendCount);
+    Assert.assertEquals("count", 1, publisher.getCount(false));
+
+    long blockedMillis = publisher.getSendBlockedMillis(true);
+    Assert.assertTrue("blocked " + blockedMillis, blockedMillis >= minBlockedMillis);
+    Assert.assertEquals("reset", 0, publisher.getSendBlockedMillis(false));
+  }
+
+  static class OverridingCodec<T> extends DefaultStatefulStreamCodec<T>
+  {
+    int count;
+
+    @Override
+    public DataStatePair toDataStatePair(T o)
+    {
+      count++;
+      return super.toDataStatePair(o);
+    }
+
+    @Override
+    public OverridingCodec<T> newInstance()
+    {
+      return this;
+    }
+  }
+
+  static class DirectCodec<T> extends DefaultStatefulStreamCodec<T> implements DirectStatefulStreamCodec<T>
+  {
+  }
+
+  @Test
+  public void testOverriddenCodec()
+  {
+    Assert.assertTrue("default", BufferServerPublisher.isDirect(new DefaultStatefulStreamCodec<>()));
+    Assert.assertTrue("declared", BufferServerPublisher.isDirect(new DirectCodec<>()));
+    Assert.assertFalse("inherited", BufferServerPublisher.isDirect(new OverridingCodec<>()));
+
+    OverridingCodec<Object> codec = new OverridingCodec<>();
+    StreamContext context = new StreamContext("stream");
+    context.put(StreamContext.CODEC, codec);
+    BlockingPublisher publisher = new BlockingPublisher();
+    publisher.setup(context);
+    publisher.put("tuple");
+    Assert.assertEquals("serialized by the override", 1, codec.count);
+  }
+
+}
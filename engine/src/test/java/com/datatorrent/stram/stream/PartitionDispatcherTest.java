@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Partitioner.PartitionKeys;
+import com.datatorrent.api.Sink;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlan.InputPortMeta;
+import com.datatorrent.stram.plan.logical.StreamCodecWrapperForPersistance;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Sends the tuples of an output port to the partitions of a container local downstream operator.
+ */
+public class PartitionDispatcherTest
+{
+  static class CountingCodec implements StreamCodec<Object>
+  {
+    int partitionCount;
+
+    @Override
+    public Object fromByteArray(Slice fragment)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Slice toByteArray(Object o)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getPartition(Object o)
+    {
+      partitionCount++;
+      return o.hashCode();
+    }
+  }
+
+  static class CollectingSink implements Sink<Object>
+  {
+    final List<Object> tuples = new ArrayList<>();
+
+    @Override
+    public void put(Object tuple)
+    {
+      tuples.add(tuple);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return tuples.size();
+    }
+  }
+
+  static class CountingSink implements Sink<Object>
+  {
+    int count;
+
+    @Override
+    public void put(Object tuple)
+    {
+      count++;
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return count;
+    }
+  }
+
+  /**
+   * Creates a mux stream with a partition aware sink for each partition of a mask.
+   *
+   * @param streamCodecIdentifier identifier of the codec or null to let each sink compute the partition
+   */
+  static MuxStream newMuxStream(StreamCodec<Object> codec, Integer streamCodecIdentifier, int partitionCount,
+      List<? extends Sink<Object>> outputs)
+  {
+    MuxStream mux = new MuxStream();
+    final int mask = partitionCount - 1;
+    for (int i = 0; i < partitionCount; i++) {
+      PartitionAwareSink<Object> pas = new PartitionAwareSink<>(codec, Collections.singleton(i), mask, outputs.get(i));
+      pas.setStreamCodecIdentifier(streamCodecIdentifier);
+      mux.setSink("sink" + i, pas);
+    }
+    mux.activate(null);
+    return mux;
+  }
+
+  @Test
+  public void testDispatch()
+  {
+    CountingCodec codec = new CountingCodec();
+    List<CollectingSink> outputs = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      outputs.add(new CollectingSink());
+    }
+    MuxStream mux = newMuxStream(codec, 1, 8, outputs);
+
+    /* a sink with all the partitions of a different codec is not dispatched with the others */
+    CollectingSink all = new CollectingSink();
+    Set<Integer> allPartitions = new HashSet<>();
+    for (int i = 0; i < 8; i++) {
+      allPartitions.add(i);
+    }
+    PartitionAwareSink<Object> allSink = new PartitionAwareSink<Object>(new CountingCodec(), allPartitions, 7, all);
+    allSink.setStreamCodecIdentifier(2);
+    mux.setSink("all", allSink);
+
+    mux.put(new Tuple(MessageType.BEGIN_WINDOW, 1));
+    for (int i = 0; i < 1000; i++) {
+      mux.put(i);
+    }
+    mux.put(new Tuple(MessageType.END_WINDOW, 1));
+
+    Assert.assertEquals("partition computed once per tuple", 1000, codec.partitionCount);
+    for (int i = 0; i < outputs.size(); i++) {
+      List<Object> tuples = outputs.get(i).tuples;
+      Assert.assertEquals("tuples " + i, 1000 / 8 + 2, tuples.size());
+      Assert.assertTrue("begin window", tuples.get(0) instanceof Tuple);
+      Assert.assertTrue("end window", tuples.get(tuples.size() - 1) instanceof Tuple);
+      for (Object tuple : tuples.subList(1, tuples.size() - 1)) {
+        Assert.assertEquals("partition of " + tuple, i, tuple.hashCode() & 7);
+      }
+    }
+    Assert.assertEquals("all", 1002, all.tuples.size());
+  }
+
+  @Test
+  public void testDispatchForPersistence()
+  {
+    CountingCodec codec = new CountingCodec();
+    /* the persisted downstream operator receives the even partitions */
+    PartitionKeys keys = new PartitionKeys(1, new HashSet<>(Collections.singleton(0)));
+    InputPortMeta portMeta = new LogicalPlan().new InputPortMeta();
+    HashMap<InputPortMeta, StreamCodec<Object>> codecs = new HashMap<>();
+    codecs.put(portMeta, codec);
+    StreamCodecWrapperForPersistance<Object> wrapper = new StreamCodecWrapperForPersistance<>(codecs, codec);
+    wrapper.inputPortToPartitionMap.put(portMeta, Collections.singletonList(keys));
+
+    MuxStream mux = new MuxStream();
+    List<CollectingSink> outputs = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      outputs.add(new CollectingSink());
+      PartitionAwareSinkForPersistence pas = new PartitionAwareSinkForPersistence(wrapper,
+          new HashSet<>(Collections.singleton(i)), 3, outputs.get(i));
+      pas.setStreamCodecIdentifier(1);
+      mux.setSink("sink" + i, pas);
+    }
+    mux.activate(null);
+
+    for (int i = 0; i < 100; i++) {
+      mux.put(i);
+    }
+    Assert.assertEquals("partition 0", 25, outputs.get(0).tuples.size());
+    Assert.assertEquals("partition 1", 0, outputs.get(1).tuples.size());
+    Assert.assertEquals("partition 2", 25, outputs.get(2).tuples.size());
+    Assert.assertEquals("partition 3", 0, outputs.get(3).tuples.size());
+  }
+
+  /**
+   * Compares the throughput of sending tuples to 4 to 64 partitions with and without dispatching.
+   */
+  @Test
+  @Ignore
+  public void testDispatchPerformance()
+  {
+    final StreamCodec<Object> codec = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return Arrays.hashCode((long[])o);
+      }
+    };
+    /* payloads that are partitioned by a hash of 8 fields */
+    final long[][] payloads = new long[4096][8];
+    for (int i = 0; i < payloads.length; i++) {
+      Arrays.fill(payloads[i], i * 0x9e3779b97f4a7c15L);
+    }
+    final int tupleCount = 10000000;
+
+    for (int run = 0; run < 3; run++) {
+      for (int partitionCount = 4; partitionCount <= 64; partitionCount <<= 1) {
+        for (Integer streamCodecIdentifier : new Integer[] {null, 1}) {
+          List<CountingSink> outputs = new ArrayList<>();
+          for (int i = 0; i < partitionCount; i++) {
+            outputs.add(new CountingSink());
+          }
+          MuxStream mux = newMuxStream(codec, streamCodecIdentifier, partitionCount, outputs);
+          long start = System.nanoTime();
+          for (int i = 0; i < tupleCount; i++) {
+            mux.put(payloads[i & (payloads.length - 1)]);
+          }
+          long elapsed = System.nanoTime() - start;
+          int count = 0;
+          for (CountingSink output : outputs) {
+            count += output.count;
+          }
+          Assert.assertEquals("tuples", tupleCount, count);
+          logger.info("{} partitions {} {} tuples/s", partitionCount,
+              streamCodecIdentifier == null ? "per sink" : "dispatched", tupleCount * 1000000000L / elapsed);
+        }
+      }
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(PartitionDispatcherTest.class);
+}